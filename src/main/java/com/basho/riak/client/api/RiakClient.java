@@ -18,6 +18,7 @@ package com.basho.riak.client.api;
 import com.basho.riak.client.core.RiakCluster;
 import com.basho.riak.client.core.RiakFuture;
 import com.basho.riak.client.core.RiakNode;
+import com.basho.riak.client.core.StreamingResults;
 import com.basho.riak.client.core.util.HostAndPort;
 
 import java.net.InetSocketAddress;
@@ -367,6 +368,11 @@ public class RiakClient
      * itself using the timeout() method of the command's associated builder. 
      * The command timeout is a Riak-side timeout value. This timeout is client-side.
      * </p>
+     * <p>
+     * The timeout is a deadline for every operation the command executes,
+     * including retries. If it passes, the operations still outstanding are
+     * abandoned and their connections closed.
+     * </p>
      *
      * @param command
      *            The RiakCommand to execute.
@@ -404,6 +410,63 @@ public class RiakClient
     {
         return command.executeAsync(cluster);
     }
+
+    /**
+     * Execute a RiakCommand asynchronously with a specified client timeout.
+     * <p>
+     * The timeout is a deadline for every operation the command executes,
+     * including retries. Operations that haven't completed when it passes
+     * are failed with a {@link TimeoutException} and their connections closed.
+     * </p>
+     * @param <T> RiakCommand's return type.
+     * @param <S> The RiakCommand's query info type.
+     * @param command The RiakCommand to execute.
+     * @param timeout the amount of time the command may take.
+     * @param unit the unit of time.
+     * @return a RiakFuture for the operation.
+     * @see com.basho.riak.client.core.Deadline
+     */
+    public <T,S> RiakFuture<T,S> executeAsync(RiakCommand<T,S> command, long timeout, TimeUnit unit)
+    {
+        return command.executeAsync(cluster, timeout, unit);
+    }
+
+    /**
+     * Execute a RiakCommand, streaming its results.
+     * <p>
+     * Each chunk of the response is returned as it arrives from Riak,
+     * rather than once the entire result set has been received. If the
+     * caller falls behind, reading from the connection is paused.
+     * </p>
+     * @param <T> RiakCommand's return type, of each chunk.
+     * @param <S> The RiakCommand's query info type.
+     * @param command The RiakCommand to execute.
+     * @return the results, as they arrive.
+     * @see StreamingResults
+     */
+    public <T,S> StreamingResults<T> executeStreaming(StreamableRiakCommand<T,S> command)
+    {
+        return command.executeStreaming(cluster);
+    }
+
+    /**
+     * Execute a RiakCommand with a specified client timeout, streaming its results.
+     * <p>
+     * The timeout is a deadline for the entire response, including the time
+     * the caller takes to consume it.
+     * </p>
+     * @param <T> RiakCommand's return type, of each chunk.
+     * @param <S> The RiakCommand's query info type.
+     * @param command The RiakCommand to execute.
+     * @param timeout the amount of time the command may take.
+     * @param unit the unit of time.
+     * @return the results, as they arrive.
+     * @see #executeStreaming(StreamableRiakCommand)
+     */
+    public <T,S> StreamingResults<T> executeStreaming(StreamableRiakCommand<T,S> command, long timeout, TimeUnit unit)
+    {
+        return command.executeStreaming(cluster, timeout, unit);
+    }
     
 	/**
 	 * Shut down the client and the underlying RiakCluster.
@@ -16,6 +16,7 @@
 
 package com.basho.riak.client.api;
 
+import com.basho.riak.client.core.Deadline;
 import com.basho.riak.client.core.RiakCluster;
 import com.basho.riak.client.core.RiakFuture;
 
@@ -96,8 +97,52 @@ public abstract class RiakCommand<T, S>
     protected final T execute(RiakCluster cluster, long timeout, TimeUnit unit)
             throws ExecutionException, InterruptedException, TimeoutException
     {
-        RiakFuture<T, S> future = executeAsync(cluster);
-        return future.get(timeout, unit);
+        RiakFuture<T, S> future = executeAsync(cluster, timeout, unit);
+        try
+        {
+            return future.get(timeout, unit);
+        }
+        catch (TimeoutException ex)
+        {
+            future.cancel(false);
+            throw ex;
+        }
+        catch (ExecutionException ex)
+        {
+            // The deadline may fail the operation before we stop waiting.
+            if (ex.getCause() instanceof TimeoutException)
+            {
+                throw (TimeoutException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Executes this command with a deadline.
+     * <p>
+     * Every operation executed on behalf of this command, including any
+     * executed once earlier ones complete, must complete within the timeout.
+     * An earlier deadline already attached to the calling thread is kept.
+     * </p>
+     * @param cluster the cluster to execute on.
+     * @param timeout the amount of time the command may take.
+     * @param unit the unit of time.
+     * @return a future for the command.
+     * @see Deadline
+     */
+    protected final RiakFuture<T, S> executeAsync(RiakCluster cluster, long timeout, TimeUnit unit)
+    {
+        Deadline deadline = Deadline.after(timeout, unit).earliest(Deadline.current());
+        Deadline previous = deadline.attach();
+        try
+        {
+            return executeAsync(cluster);
+        }
+        finally
+        {
+            Deadline.restore(previous);
+        }
     }
 
     protected abstract RiakFuture<T, S> executeAsync(RiakCluster cluster);
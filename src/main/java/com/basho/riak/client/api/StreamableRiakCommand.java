@@ -0,0 +1,63 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.api;
+
+import com.basho.riak.client.core.Deadline;
+import com.basho.riak.client.core.RiakCluster;
+import com.basho.riak.client.core.StreamingResults;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The base class for commands whose results can be streamed.
+ * <p>
+ * Executed with {@link RiakClient#executeStreaming(StreamableRiakCommand)},
+ * these commands return each chunk of their response as it arrives, as a
+ * response of the usual type holding just that chunk's results, rather than
+ * holding the entire result set in memory.
+ * </p>
+ *
+ * @param <T> The response type
+ * @param <S> The query info type
+ * @since 2.1
+ * @see StreamingResults
+ */
+public abstract class StreamableRiakCommand<T, S> extends RiakCommand<T, S>
+{
+    /**
+     * Executes this command with a deadline, streaming its results.
+     * @param cluster the cluster to execute on.
+     * @param timeout the amount of time the command may take.
+     * @param unit the unit of time.
+     * @return the results, as they arrive.
+     * @see #executeAsync(RiakCluster, long, TimeUnit)
+     */
+    protected final StreamingResults<T> executeStreaming(RiakCluster cluster, long timeout, TimeUnit unit)
+    {
+        Deadline deadline = Deadline.after(timeout, unit).earliest(Deadline.current());
+        Deadline previous = deadline.attach();
+        try
+        {
+            return executeStreaming(cluster);
+        }
+        finally
+        {
+            Deadline.restore(previous);
+        }
+    }
+
+    protected abstract StreamingResults<T> executeStreaming(RiakCluster cluster);
+}
@@ -51,7 +51,7 @@ public final class FetchCounter extends FetchDatatype<RiakCounter, FetchCounter.
     protected final RiakFuture<FetchCounter.Response, Location> executeAsync(RiakCluster cluster)
     {
         RiakFuture<DtFetchOperation.Response, Location> coreFuture =
-            cluster.execute(buildCoreOperation());
+            executeCoreAsync(cluster);
         
         CoreFutureAdapter<FetchCounter.Response, Location, DtFetchOperation.Response, Location> future =
             new CoreFutureAdapter<FetchCounter.Response, Location, DtFetchOperation.Response, Location>(coreFuture)
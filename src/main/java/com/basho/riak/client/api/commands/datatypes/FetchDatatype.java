@@ -18,11 +18,14 @@ package com.basho.riak.client.api.commands.datatypes;
 import com.basho.riak.client.api.RiakCommand;
 import com.basho.riak.client.api.cap.Quorum;
 import com.basho.riak.client.api.commands.RiakOption;
+import com.basho.riak.client.core.RiakCluster;
+import com.basho.riak.client.core.RiakFuture;
 import com.basho.riak.client.core.operations.DtFetchOperation;
 
 import com.basho.riak.client.core.query.Location;
 import com.basho.riak.client.core.query.crdt.types.RiakDatatype;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -56,6 +59,22 @@ public abstract class FetchDatatype<T extends RiakDatatype,S,U> extends RiakComm
 
     public abstract T extractDatatype(RiakDatatype element);
 
+    /**
+     * Executes the core operation, coalesced with identical fetches if the
+     * cluster coalesces requests.
+     * @param cluster the cluster to execute on.
+     * @return a future for the core response.
+     */
+    protected final RiakFuture<DtFetchOperation.Response, Location> executeCoreAsync(RiakCluster cluster)
+    {
+        if (cluster.getRequestCoalescer() == null)
+        {
+            return cluster.execute(buildCoreOperation());
+        }
+        Object key = Arrays.asList(FetchDatatype.class, location, new HashMap<Option<?>, Object>(options));
+        return cluster.executeCoalesced(key, buildCoreOperation());
+    }
+
     protected final DtFetchOperation buildCoreOperation()
     {
         DtFetchOperation.Builder builder =
@@ -59,7 +59,7 @@ public final class FetchMap extends FetchDatatype<RiakMap, FetchMap.Response, Lo
     protected final RiakFuture<FetchMap.Response, Location> executeAsync(RiakCluster cluster)
     {
         RiakFuture<DtFetchOperation.Response, Location> coreFuture =
-            cluster.execute(buildCoreOperation());
+            executeCoreAsync(cluster);
         
         CoreFutureAdapter<FetchMap.Response, Location, DtFetchOperation.Response, Location> future =
             new CoreFutureAdapter<FetchMap.Response, Location, DtFetchOperation.Response, Location>(coreFuture)
@@ -52,7 +52,7 @@ public final class FetchSet extends FetchDatatype<RiakSet, FetchSet.Response, Lo
     protected final RiakFuture<FetchSet.Response, Location> executeAsync(RiakCluster cluster)
     {
         RiakFuture<DtFetchOperation.Response, Location> coreFuture =
-            cluster.execute(buildCoreOperation());
+            executeCoreAsync(cluster);
         
         CoreFutureAdapter<FetchSet.Response, Location, DtFetchOperation.Response, Location> future =
             new CoreFutureAdapter<FetchSet.Response, Location, DtFetchOperation.Response, Location>(coreFuture)
@@ -55,6 +55,12 @@ public class BigIntIndexQuery extends SecondaryIndexQuery<BigInteger, BigIntInde
         return converter;
     }
 
+    @Override
+    protected Response convertResponse(SecondaryIndexQueryOperation.Response coreResponse)
+    {
+        return new Response(namespace, coreResponse, converter);
+    }
+
     protected BigIntIndexQuery(Init<BigInteger,?> builder)
     {
         super(builder);
@@ -101,7 +107,7 @@ public class BigIntIndexQuery extends SecondaryIndexQuery<BigInteger, BigIntInde
         @Override
         protected Response convertResponse(SecondaryIndexQueryOperation.Response coreResponse)
         {
-            return new Response(namespace, coreResponse, converter);
+            return BigIntIndexQuery.this.convertResponse(coreResponse);
         }
 
         @Override
@@ -65,6 +65,12 @@ public class BinIndexQuery extends SecondaryIndexQuery<String, BinIndexQuery.Res
         return converter;
     }
 
+    @Override
+    protected Response convertResponse(SecondaryIndexQueryOperation.Response coreResponse)
+    {
+        return new Response(namespace, coreResponse, converter);
+    }
+
     @Override
     protected RiakFuture<Response, BinIndexQuery> executeAsync(RiakCluster cluster)
     {
@@ -269,7 +275,7 @@ public class BinIndexQuery extends SecondaryIndexQuery<String, BinIndexQuery.Res
         @Override
         protected Response convertResponse(SecondaryIndexQueryOperation.Response coreResponse)
         {
-            return new Response(namespace, coreResponse, converter);
+            return BinIndexQuery.this.convertResponse(coreResponse);
         }
 
         @Override
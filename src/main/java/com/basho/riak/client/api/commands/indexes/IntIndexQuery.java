@@ -52,6 +52,12 @@ public class IntIndexQuery extends SecondaryIndexQuery<Long, IntIndexQuery.Respo
         return converter;
     }
 
+    @Override
+    protected Response convertResponse(SecondaryIndexQueryOperation.Response coreResponse)
+    {
+        return new Response(namespace, coreResponse, converter);
+    }
+
     protected IntIndexQuery(Init<Long,?> builder)
     {
         super(builder);
@@ -100,7 +106,7 @@ public class IntIndexQuery extends SecondaryIndexQuery<Long, IntIndexQuery.Respo
         @Override
         protected Response convertResponse(SecondaryIndexQueryOperation.Response coreResponse)
         {
-            return new Response(namespace, coreResponse, converter);
+            return IntIndexQuery.this.convertResponse(coreResponse);
         }
 
         @Override
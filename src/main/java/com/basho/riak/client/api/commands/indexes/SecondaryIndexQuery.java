@@ -16,9 +16,10 @@
 
 package com.basho.riak.client.api.commands.indexes;
 
-import com.basho.riak.client.api.RiakCommand;
+import com.basho.riak.client.api.StreamableRiakCommand;
 import com.basho.riak.client.core.RiakCluster;
 import com.basho.riak.client.core.RiakFuture;
+import com.basho.riak.client.core.StreamingResults;
 import com.basho.riak.client.core.operations.SecondaryIndexQueryOperation;
 import com.basho.riak.client.core.query.Location;
 import com.basho.riak.client.core.query.Namespace;
@@ -36,7 +37,7 @@ import java.util.List;
  * @author Brian Roach <roach at basho dot com>
  * @since 2.0
  */
-public abstract class SecondaryIndexQuery<T, S, U> extends RiakCommand<S, U>
+public abstract class SecondaryIndexQuery<T, S, U> extends StreamableRiakCommand<S, U>
 {
     protected final Namespace namespace;
     protected final String indexName;
@@ -232,6 +233,37 @@ public abstract class SecondaryIndexQuery<T, S, U> extends RiakCommand<S, U>
         return cluster.execute(builder.build());
     }
 
+    /**
+     * Streams the results; each response holds the entries in one message
+     * from Riak, and the last holds the continuation, if any.
+     */
+    @Override
+    protected StreamingResults<S> executeStreaming(RiakCluster cluster)
+    {
+        SecondaryIndexQueryOperation operation =
+                new SecondaryIndexQueryOperation.Builder(this.createCoreQuery())
+                        .withStreamResults(true)
+                        .build();
+        cluster.execute(operation);
+        return operation.getStreamingResults().map(
+            new StreamingResults.Converter<SecondaryIndexQueryOperation.Response, S>()
+            {
+                @Override
+                public S convert(SecondaryIndexQueryOperation.Response coreResponse)
+                {
+                    return convertResponse(coreResponse);
+                }
+            });
+    }
+
+    /**
+     * Converts the response from the core operation, or one chunk of it
+     * when streaming.
+     * @param coreResponse the core response.
+     * @return the response.
+     */
+    protected abstract S convertResponse(SecondaryIndexQueryOperation.Response coreResponse);
+
     @Override
     public boolean equals(Object o)
     {
@@ -18,6 +18,7 @@ package com.basho.riak.client.api.commands.kv;
 import com.basho.riak.client.api.RiakCommand;
 import com.basho.riak.client.api.cap.Quorum;
 import com.basho.riak.client.api.cap.VClock;
+import com.basho.riak.client.core.ObjectCache;
 import com.basho.riak.client.core.RiakCluster;
 import com.basho.riak.client.core.RiakFuture;
 import com.basho.riak.client.core.operations.DeleteOperation;
@@ -85,6 +86,12 @@ public final class DeleteValue extends RiakCommand<Void, Location>
         RiakFuture<Void, Location> coreFuture =
             cluster.execute(buildCoreOperation());
 
+        ObjectCache objectCache = cluster.getObjectCache();
+        if (objectCache != null)
+        {
+            objectCache.invalidate(location, coreFuture);
+        }
+
         CoreFutureAdapter<Void, Location, Void, Location> future =
             new CoreFutureAdapter<Void, Location, Void, Location>(coreFuture)
             {
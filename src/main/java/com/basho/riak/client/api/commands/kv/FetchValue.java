@@ -24,8 +24,11 @@ import com.basho.riak.client.core.RiakFuture;
 import com.basho.riak.client.api.commands.CoreFutureAdapter;
 import com.basho.riak.client.api.commands.RiakOption;
 import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.RiakObject;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 
@@ -87,8 +90,20 @@ public final class FetchValue extends RiakCommand<FetchValue.Response, Location>
     @Override
     protected final RiakFuture<Response, Location> executeAsync(RiakCluster cluster)
     {
-        RiakFuture<FetchOperation.Response, Location> coreFuture =
-            cluster.execute(buildCoreOperation());
+        RiakFuture<FetchOperation.Response, Location> coreFuture;
+        if (cluster.isHedgingEnabled())
+        {
+            coreFuture = cluster.executeHedged(buildCoreOperation(cluster), buildCoreOperation(cluster));
+        }
+        else if (cluster.getRequestCoalescer() != null)
+        {
+            coreFuture = cluster.executeCoalesced(this, buildCoreOperation(cluster));
+        }
+        else
+        {
+            coreFuture = cluster.execute(buildCoreOperation(cluster));
+        }
+        final boolean shared = !cluster.isHedgingEnabled() && cluster.getRequestCoalescer() != null;
 
         CoreFutureAdapter<Response, Location, FetchOperation.Response, Location> future =
             new CoreFutureAdapter<Response, Location, FetchOperation.Response, Location>(coreFuture)
@@ -96,9 +111,21 @@ public final class FetchValue extends RiakCommand<FetchValue.Response, Location>
                 @Override
                 protected Response convertResponse(FetchOperation.Response coreResponse)
                 {
+                    List<RiakObject> values = coreResponse.getObjectList();
+                    if (shared)
+                    {
+                        // Other callers may have the same response; give each their own objects.
+                        List<RiakObject> copies = new ArrayList<>(values.size());
+                        for (RiakObject value : values)
+                        {
+                            copies.add(value.copy());
+                        }
+                        values = copies;
+                    }
+
                     return new Response.Builder().withNotFound(coreResponse.isNotFound())
                                         .withUnchanged(coreResponse.isUnchanged())
-                                        .withValues(coreResponse.getObjectList())
+                                        .withValues(values)
                                         .withLocation(location) // for ORM
                                         .build();
                 }
@@ -114,9 +141,10 @@ public final class FetchValue extends RiakCommand<FetchValue.Response, Location>
 
     }
 
-    private FetchOperation buildCoreOperation()
+    private FetchOperation buildCoreOperation(RiakCluster cluster)
     {
-        FetchOperation.Builder builder = new FetchOperation.Builder(location);
+        FetchOperation.Builder builder = new FetchOperation.Builder(location)
+                                             .withObjectCache(cluster.getObjectCache());
 
         for (Map.Entry<RiakOption<?>, Object> opPair : options.entrySet())
         {
@@ -0,0 +1,701 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.api.commands.kv;
+
+import com.basho.riak.client.api.StreamableRiakCommand;
+import com.basho.riak.client.api.commands.ListenableFuture;
+import com.basho.riak.client.core.Deadline;
+import com.basho.riak.client.core.RiakCluster;
+import com.basho.riak.client.core.RiakFuture;
+import com.basho.riak.client.core.RiakFutureListener;
+import com.basho.riak.client.core.StreamingResults;
+import com.basho.riak.client.core.operations.CoveragePlanOperation;
+import com.basho.riak.client.core.operations.CoveragePlanOperation.Response.CoverageEntry;
+import com.basho.riak.client.core.operations.SecondaryIndexQueryOperation;
+import com.basho.riak.client.core.query.Namespace;
+import com.basho.riak.client.core.util.BinaryValue;
+import com.basho.riak.client.core.util.HostAndPort;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Command used to read every object in a bucket, in parallel.
+ * <script src="https://google-code-prettify.googlecode.com/svn/loader/run_prettify.js"></script>
+ * <p>
+ * The export fetches a {@link CoveragePlan} for the bucket and reads each
+ * entry in it with a {@link FullBucketRead}, a page at a time, on the node
+ * the entry belongs to. Up to a set number of pages are read from each node
+ * at once, so the more nodes there are the faster the bucket is read. If
+ * reading an entry fails, a replacement is planned that avoids the entries
+ * that have failed so far, and reading carries on from the last page read.
+ * </p>
+ * <p>
+ * Executed with {@link com.basho.riak.client.api.RiakClient#executeStreaming(StreamableRiakCommand)}
+ * each page is handed to the caller as soon as it has been read, in no
+ * particular order. Reading stops once a set number of pages are waiting
+ * to be taken.
+ * </p>
+ * <pre class="prettyprint">
+ * {@code
+ * Namespace ns = new Namespace("my_type", "my_bucket");
+ * FullBucketExport export = new FullBucketExport.Builder(ns)
+ *                                   .withReturnBody(true)
+ *                                   .build();
+ * for (FullBucketExport.Response page : client.executeStreaming(export))
+ * {
+ *     for (FullBucketRead.Response.Entry entry : page)
+ *     {
+ *         ...
+ *     }
+ * }}</pre>
+ * <p>
+ * Each page is only handed over once it has been read in full, so an entry
+ * that fails part way through a page is read again from the start of that
+ * page on its replacement, and no object is returned twice.
+ * </p>
+ * <p>
+ * The client must be set up with every node in the cluster, by an address
+ * or name that resolves to the one Riak uses for it. Nodes the client
+ * doesn't know are treated as unavailable.
+ * </p>
+ *
+ * @since 2.1
+ * @see FullBucketRead
+ */
+public class FullBucketExport extends StreamableRiakCommand<FullBucketExport.Response, Namespace>
+{
+    /**
+     * The default number of objects read at a time from each entry in the
+     * coverage plan.
+     * @see Builder#withPageSize(int)
+     */
+    public final static int DEFAULT_PAGE_SIZE = 1000;
+    /**
+     * The default number of pages read at once from each node.
+     * @see Builder#withParallelismPerHost(int)
+     */
+    public final static int DEFAULT_PARALLELISM_PER_HOST = 2;
+    /**
+     * The default number of times reading an entry may fail before the
+     * export fails.
+     * @see Builder#withMaxAttempts(int)
+     */
+    public final static int DEFAULT_MAX_ATTEMPTS = 3;
+    /**
+     * The default number of pages that may wait to be taken before reading
+     * stops, when streaming.
+     * @see Builder#withMaxBufferedPages(int)
+     */
+    public final static int DEFAULT_MAX_BUFFERED_PAGES = 16;
+
+    // Queued once the export is done; taken last.
+    private static final Object END = new Object();
+
+    private final Logger logger = LoggerFactory.getLogger(FullBucketExport.class);
+    private final Namespace namespace;
+    private final boolean returnBody;
+    private final int pageSize;
+    private final int parallelismPerHost;
+    private final int maxAttempts;
+    private final int maxBufferedPages;
+
+    private FullBucketExport(Builder builder)
+    {
+        this.namespace = builder.namespace;
+        this.returnBody = builder.returnBody;
+        this.pageSize = builder.pageSize;
+        this.parallelismPerHost = builder.parallelismPerHost;
+        this.maxAttempts = builder.maxAttempts;
+        this.maxBufferedPages = builder.maxBufferedPages;
+    }
+
+    @Override
+    protected RiakFuture<Response, Namespace> executeAsync(RiakCluster cluster)
+    {
+        Export export = new Export(cluster, false);
+        export.start();
+        return export;
+    }
+
+    /**
+     * Streams the results; each response holds one page read from one
+     * entry in the coverage plan.
+     */
+    @Override
+    protected StreamingResults<Response> executeStreaming(RiakCluster cluster)
+    {
+        Export export = new Export(cluster, true);
+        export.start();
+        return new StreamingResults<Response>(export, export);
+    }
+
+    /**
+     * An entry in the coverage plan, and how far it has been read.
+     */
+    private static class Part
+    {
+        private final CoverageEntry entry;
+        private final HostAndPort host;
+        private final BinaryValue continuation;
+        private final int failures;
+
+        Part(CoverageEntry entry, BinaryValue continuation, int failures)
+        {
+            this.entry = entry;
+            this.host = HostAndPort.fromParts(entry.getHost(), entry.getPort());
+            this.continuation = continuation;
+            this.failures = failures;
+        }
+    }
+
+    private class Export extends ListenableFuture<Response, Namespace> implements StreamingResults.Source<Response>
+    {
+        private final RiakCluster cluster;
+        private final boolean streaming;
+        private final Deadline deadline = Deadline.current();
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private final BlockingQueue<Object> pages = new LinkedBlockingQueue<Object>();
+        // All guarded by this.
+        private final Deque<Part> pending = new ArrayDeque<Part>();
+        private final Map<HostAndPort, Integer> reading = new HashMap<HostAndPort, Integer>();
+        private final List<CoverageEntry> unavailable = new ArrayList<CoverageEntry>();
+        private final List<FullBucketRead.Response.Entry> entries = new ArrayList<FullBucketRead.Response.Entry>();
+        private final Set<RiakFuture<?, ?>> outstanding = new HashSet<RiakFuture<?, ?>>();
+        private int planning;
+        private boolean finished;
+        private volatile Throwable exception;
+        private volatile Response response;
+
+        Export(RiakCluster cluster, boolean streaming)
+        {
+            this.cluster = cluster;
+            this.streaming = streaming;
+        }
+
+        void start()
+        {
+            synchronized (this)
+            {
+                planning++;
+            }
+            plan(new CoveragePlan.Builder(namespace).buildOperation(), null);
+        }
+
+        private void plan(CoveragePlanOperation operation, final Part replaced)
+        {
+            operation.setDeadline(deadline);
+            operation.addListener(new RiakFutureListener<CoveragePlanOperation.Response, Namespace>()
+            {
+                @Override
+                public void handle(RiakFuture<CoveragePlanOperation.Response, Namespace> f)
+                {
+                    planned(f, replaced);
+                }
+            });
+            if (!send(operation))
+            {
+                return;
+            }
+            try
+            {
+                cluster.execute(operation);
+            }
+            catch (IllegalStateException ex)
+            {
+                finish(ex);
+            }
+        }
+
+        private void planned(RiakFuture<CoveragePlanOperation.Response, Namespace> f, Part replaced)
+        {
+            synchronized (this)
+            {
+                outstanding.remove(f);
+            }
+            if (!f.isSuccess())
+            {
+                finish(f.cause());
+                return;
+            }
+
+            synchronized (this)
+            {
+                planning--;
+                for (CoverageEntry entry : f.getNow().entries())
+                {
+                    // Replacements carry on from where the failed entry got to.
+                    pending.add(replaced == null
+                        ? new Part(entry, null, 0)
+                        : new Part(entry, replaced.continuation, replaced.failures));
+                }
+            }
+            dispatch();
+        }
+
+        /**
+         * Starts reading pages from hosts that have room, unless enough are
+         * waiting to be taken.
+         */
+        private void dispatch()
+        {
+            List<Part> parts = new ArrayList<Part>();
+            boolean complete = false;
+            synchronized (this)
+            {
+                if (finished)
+                {
+                    return;
+                }
+                if (!streaming || pages.size() < maxBufferedPages)
+                {
+                    for (Iterator<Part> iterator = pending.iterator(); iterator.hasNext();)
+                    {
+                        Part part = iterator.next();
+                        Integer count = reading.get(part.host);
+                        if (count == null || count < parallelismPerHost)
+                        {
+                            reading.put(part.host, count == null ? 1 : count + 1);
+                            iterator.remove();
+                            parts.add(part);
+                        }
+                    }
+                }
+                complete = parts.isEmpty() && pending.isEmpty() && reading.isEmpty() && planning == 0;
+            }
+
+            if (complete)
+            {
+                finish(null);
+            }
+            for (Part part : parts)
+            {
+                read(part);
+            }
+        }
+
+        private void read(final Part part)
+        {
+            final FullBucketRead read =
+                new FullBucketRead.Builder(namespace, part.entry.getCoverageContext())
+                    .withReturnBody(returnBody)
+                    .withMaxResults(pageSize)
+                    .withPaginationSort(true)
+                    .withContinuation(part.continuation)
+                    .build();
+            SecondaryIndexQueryOperation operation = read.createCoreOperation();
+            operation.setDeadline(deadline);
+            operation.addListener(new RiakFutureListener<SecondaryIndexQueryOperation.Response, SecondaryIndexQueryOperation.Query>()
+            {
+                @Override
+                public void handle(RiakFuture<SecondaryIndexQueryOperation.Response, SecondaryIndexQueryOperation.Query> f)
+                {
+                    pageRead(part, read, f);
+                }
+            });
+            if (!send(operation))
+            {
+                return;
+            }
+            try
+            {
+                cluster.executeOnHost(operation, part.host);
+            }
+            catch (IllegalStateException ex)
+            {
+                finish(ex);
+            }
+        }
+
+        private void pageRead(Part part, FullBucketRead read,
+                              RiakFuture<SecondaryIndexQueryOperation.Response, SecondaryIndexQueryOperation.Query> f)
+        {
+            CoveragePlanOperation replan = null;
+            Throwable failure = null;
+            synchronized (this)
+            {
+                outstanding.remove(f);
+                if (finished)
+                {
+                    return;
+                }
+                int count = reading.remove(part.host);
+                if (count > 1)
+                {
+                    reading.put(part.host, count - 1);
+                }
+
+                if (f.isSuccess())
+                {
+                    FullBucketRead.Response page = read.convertResponse(f.getNow());
+                    if (page.hasContinuation())
+                    {
+                        pending.addFirst(new Part(part.entry, page.getContinuation(), part.failures));
+                    }
+                    if (streaming)
+                    {
+                        if (page.hasEntries())
+                        {
+                            pages.offer(new Response(page.getEntries()));
+                        }
+                    }
+                    else
+                    {
+                        entries.addAll(page.getEntries());
+                    }
+                }
+                else if (part.failures + 1 >= maxAttempts)
+                {
+                    failure = f.cause();
+                }
+                else
+                {
+                    logger.debug("Reading {} from {} failed; replanning", part.entry, part.host, f.cause());
+                    unavailable.add(part.entry);
+                    planning++;
+                    replan = new CoveragePlan.Builder(namespace)
+                                 .withReplaceCoverageEntry(part.entry)
+                                 .withUnavailableCoverageEntries(unavailable)
+                                 .buildOperation();
+                }
+            }
+
+            if (failure != null)
+            {
+                finish(failure);
+            }
+            else if (replan != null)
+            {
+                plan(replan, new Part(part.entry, part.continuation, part.failures + 1));
+            }
+            else
+            {
+                dispatch();
+            }
+        }
+
+        /**
+         * Records an operation about to be sent, so it can be cancelled if
+         * the export fails or is cancelled.
+         * @return false if the export has finished and it shouldn't be sent.
+         */
+        private synchronized boolean send(RiakFuture<?, ?> operation)
+        {
+            return !finished && outstanding.add(operation);
+        }
+
+        private boolean finish(Throwable cause)
+        {
+            List<RiakFuture<?, ?>> abandoned = Collections.emptyList();
+            synchronized (this)
+            {
+                if (finished)
+                {
+                    return false;
+                }
+                finished = true;
+                pending.clear();
+                if (cause instanceof CancellationException)
+                {
+                    pages.clear();
+                }
+                if (cause != null)
+                {
+                    abandoned = new ArrayList<RiakFuture<?, ?>>(outstanding);
+                    outstanding.clear();
+                }
+            }
+
+            // Give back the connections of the pages still being read.
+            for (RiakFuture<?, ?> operation : abandoned)
+            {
+                operation.cancel(false);
+            }
+
+            exception = cause;
+            response = new Response(streaming
+                ? Collections.<FullBucketRead.Response.Entry>emptyList()
+                : entries);
+            pages.offer(END);
+            latch.countDown();
+            notifyListeners();
+            return true;
+        }
+
+        @Override
+        public Response take() throws InterruptedException
+        {
+            Object page = pages.take();
+            if (page == END)
+            {
+                pages.offer(END);
+                return null;
+            }
+            // There's room for another page.
+            dispatch();
+            return (Response) page;
+        }
+
+        @Override
+        public void cancel()
+        {
+            cancel(false);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning)
+        {
+            return finish(new CancellationException("Export cancelled"));
+        }
+
+        @Override
+        public Response get() throws InterruptedException, ExecutionException
+        {
+            latch.await();
+            return result();
+        }
+
+        @Override
+        public Response get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException
+        {
+            if (!latch.await(timeout, unit))
+            {
+                throw new TimeoutException();
+            }
+            return result();
+        }
+
+        private Response result() throws ExecutionException
+        {
+            Throwable cause = exception;
+            if (cause instanceof CancellationException)
+            {
+                throw (CancellationException) cause;
+            }
+            else if (cause != null)
+            {
+                throw new ExecutionException(cause);
+            }
+            return response;
+        }
+
+        @Override
+        public Response getNow()
+        {
+            return isSuccess() ? response : null;
+        }
+
+        @Override
+        public boolean isCancelled()
+        {
+            return exception instanceof CancellationException;
+        }
+
+        @Override
+        public boolean isDone()
+        {
+            return latch.getCount() == 0;
+        }
+
+        @Override
+        public void await() throws InterruptedException
+        {
+            latch.await();
+        }
+
+        @Override
+        public boolean await(long timeout, TimeUnit unit) throws InterruptedException
+        {
+            return latch.await(timeout, unit);
+        }
+
+        @Override
+        public boolean isSuccess()
+        {
+            return isDone() && exception == null;
+        }
+
+        @Override
+        public Throwable cause()
+        {
+            return exception;
+        }
+
+        @Override
+        public Namespace getQueryInfo()
+        {
+            return namespace;
+        }
+    }
+
+    /**
+     * The objects read by a FullBucketExport, or one page of them when streaming.
+     */
+    public static class Response implements Iterable<FullBucketRead.Response.Entry>
+    {
+        private final List<FullBucketRead.Response.Entry> entries;
+
+        Response(List<FullBucketRead.Response.Entry> entries)
+        {
+            this.entries = entries;
+        }
+
+        /**
+         * @return the entries read.
+         */
+        public List<FullBucketRead.Response.Entry> getEntries()
+        {
+            return entries;
+        }
+
+        @Override
+        public Iterator<FullBucketRead.Response.Entry> iterator()
+        {
+            return entries.iterator();
+        }
+    }
+
+    /**
+     * Used to construct a FullBucketExport command.
+     */
+    public static class Builder
+    {
+        private final Namespace namespace;
+        private boolean returnBody;
+        private int pageSize = DEFAULT_PAGE_SIZE;
+        private int parallelismPerHost = DEFAULT_PARALLELISM_PER_HOST;
+        private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+        private int maxBufferedPages = DEFAULT_MAX_BUFFERED_PAGES;
+
+        /**
+         * Construct a Builder for a FullBucketExport.
+         * @param namespace the bucket to export.
+         */
+        public Builder(Namespace namespace)
+        {
+            if (namespace == null)
+            {
+                throw new IllegalArgumentException("Namespace cannot be null");
+            }
+            this.namespace = namespace;
+        }
+
+        /**
+         * Return the objects, as well as their locations.
+         * @param returnBody true to return the objects.
+         * @return a reference to this object.
+         */
+        public Builder withReturnBody(boolean returnBody)
+        {
+            this.returnBody = returnBody;
+            return this;
+        }
+
+        /**
+         * Set how many objects are read at a time from each entry in the
+         * coverage plan.
+         * @param pageSize the number of objects.
+         * @return a reference to this object.
+         * @see #DEFAULT_PAGE_SIZE
+         */
+        public Builder withPageSize(int pageSize)
+        {
+            if (pageSize < 1)
+            {
+                throw new IllegalArgumentException("Page size must be at least 1");
+            }
+            this.pageSize = pageSize;
+            return this;
+        }
+
+        /**
+         * Set how many pages are read at once from each node.
+         * @param parallelismPerHost the number of pages.
+         * @return a reference to this object.
+         * @see #DEFAULT_PARALLELISM_PER_HOST
+         */
+        public Builder withParallelismPerHost(int parallelismPerHost)
+        {
+            if (parallelismPerHost < 1)
+            {
+                throw new IllegalArgumentException("Parallelism per host must be at least 1");
+            }
+            this.parallelismPerHost = parallelismPerHost;
+            return this;
+        }
+
+        /**
+         * Set how many times reading an entry in the coverage plan, or its
+         * replacements, may fail before the export fails.
+         * @param maxAttempts the number of attempts.
+         * @return a reference to this object.
+         * @see #DEFAULT_MAX_ATTEMPTS
+         */
+        public Builder withMaxAttempts(int maxAttempts)
+        {
+            if (maxAttempts < 1)
+            {
+                throw new IllegalArgumentException("Max attempts must be at least 1");
+            }
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * Set how many pages may wait to be taken, when streaming, before
+         * reading stops.
+         * @param maxBufferedPages the number of pages.
+         * @return a reference to this object.
+         * @see #DEFAULT_MAX_BUFFERED_PAGES
+         */
+        public Builder withMaxBufferedPages(int maxBufferedPages)
+        {
+            if (maxBufferedPages < 1)
+            {
+                throw new IllegalArgumentException("Max buffered pages must be at least 1");
+            }
+            this.maxBufferedPages = maxBufferedPages;
+            return this;
+        }
+
+        /**
+         * Construct the command.
+         * @return a new FullBucketExport
+         */
+        public FullBucketExport build()
+        {
+            return new FullBucketExport(this);
+        }
+    }
+}
@@ -70,6 +70,21 @@ public class FullBucketRead extends SecondaryIndexQuery<BinaryValue, FullBucketR
         return converter;
     }
 
+    @Override
+    protected Response convertResponse(SecondaryIndexQueryOperation.Response coreResponse)
+    {
+        return new Response(namespace, coreResponse, converter);
+    }
+
+    /**
+     * Creates the core operation, for a {@link FullBucketExport} to execute
+     * on the host its coverage context belongs to.
+     */
+    SecondaryIndexQueryOperation createCoreOperation()
+    {
+        return new SecondaryIndexQueryOperation.Builder(createCoreQuery()).build();
+    }
+
     @Override
     protected RiakFuture<Response, FullBucketRead> executeAsync(RiakCluster cluster)
     {
@@ -91,7 +106,7 @@ public class FullBucketRead extends SecondaryIndexQuery<BinaryValue, FullBucketR
         @Override
         protected Response convertResponse(SecondaryIndexQueryOperation.Response coreResponse)
         {
-            return new Response(namespace, coreResponse, converter);
+            return FullBucketRead.this.convertResponse(coreResponse);
         }
 
         @Override
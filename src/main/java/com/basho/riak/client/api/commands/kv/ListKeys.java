@@ -15,9 +15,10 @@
  */
 package com.basho.riak.client.api.commands.kv;
 
-import com.basho.riak.client.api.RiakCommand;
+import com.basho.riak.client.api.StreamableRiakCommand;
 import com.basho.riak.client.core.RiakCluster;
 import com.basho.riak.client.core.RiakFuture;
+import com.basho.riak.client.core.StreamingResults;
 import com.basho.riak.client.core.operations.ListKeysOperation;
 import com.basho.riak.client.api.commands.CoreFutureAdapter;
 import com.basho.riak.client.core.query.Location;
@@ -50,7 +51,7 @@ import java.util.List;
  * @author Dave Rusek <drusek at basho dot com>
  * @since 2.0
  */
-public final class ListKeys extends RiakCommand<ListKeys.Response, Namespace>
+public final class ListKeys extends StreamableRiakCommand<ListKeys.Response, Namespace>
 {
 
     private final Namespace namespace;
@@ -66,7 +67,7 @@ public final class ListKeys extends RiakCommand<ListKeys.Response, Namespace>
     protected final RiakFuture<ListKeys.Response, Namespace> executeAsync(RiakCluster cluster)
     {
         RiakFuture<ListKeysOperation.Response, Namespace> coreFuture = 
-            cluster.execute(buildCoreOperation());
+            cluster.execute(buildCoreOperation(false));
         
         CoreFutureAdapter<ListKeys.Response, Namespace, ListKeysOperation.Response, Namespace> future =
             new CoreFutureAdapter<ListKeys.Response, Namespace, ListKeysOperation.Response, Namespace>(coreFuture)
@@ -87,9 +88,29 @@ public final class ListKeys extends RiakCommand<ListKeys.Response, Namespace>
         return future;
     }
     
-    private ListKeysOperation buildCoreOperation()
+    /**
+     * Streams the keys; each response holds the keys in one message from Riak.
+     */
+    @Override
+    protected final StreamingResults<ListKeys.Response> executeStreaming(RiakCluster cluster)
+    {
+        ListKeysOperation operation = buildCoreOperation(true);
+        cluster.execute(operation);
+        return operation.getStreamingResults().map(
+            new StreamingResults.Converter<ListKeysOperation.Response, ListKeys.Response>()
+            {
+                @Override
+                public Response convert(ListKeysOperation.Response coreResponse)
+                {
+                    return new Response(namespace, coreResponse.getKeys());
+                }
+            });
+    }
+
+    private ListKeysOperation buildCoreOperation(boolean streamResults)
     {
-        ListKeysOperation.Builder builder = new ListKeysOperation.Builder(namespace);
+        ListKeysOperation.Builder builder = new ListKeysOperation.Builder(namespace)
+                                                .withStreamResults(streamResults);
 
         if (timeout > 0)
         {
@@ -1,41 +1,51 @@
 package com.basho.riak.client.api.commands.kv;
 
 import com.basho.riak.client.api.RiakCommand;
+import com.basho.riak.client.api.StreamableRiakCommand;
 import com.basho.riak.client.api.commands.ListenableFuture;
 import com.basho.riak.client.api.commands.RiakOption;
 import com.basho.riak.client.core.RiakCluster;
 import com.basho.riak.client.core.RiakFuture;
 import com.basho.riak.client.core.RiakFutureListener;
+import com.basho.riak.client.core.RiakNode;
+import com.basho.riak.client.core.RiakRing;
+import com.basho.riak.client.core.StreamingResults;
 import com.basho.riak.client.core.query.Location;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import static java.util.Collections.unmodifiableList;
 
 /**
- * Runs multiple individual commands together on a worker daemon thread.
+ * Runs multiple individual commands together.
+ * <p>
+ * No thread is dedicated to the commands: the first are sent by the caller,
+ * and each one that completes sends the next from its listener. When the
+ * cluster routes by partition, the locations are grouped by the node holding
+ * them and up to the maximum in flight are sent to each node, so a slow node
+ * holds up only its own keys.
+ * </p>
  * @param <BaseCommand> The type of the individual command you are trying to repeat
- * @param <BaseBuilder> The type of the builder for an individual {@link BaseCommand}
  * @param <ResponseType> The return type of the grouped "multi" command
  * @param <BaseResponseType> The return type of an individual {@link BaseCommand}
- */
-/*
-
  */
 abstract class MultiCommand<BaseCommand extends RiakCommand<BaseResponseType, Location>,
-                                   BaseBuilder extends KvBuilderBase<BaseCommand>,
                                    ResponseType extends Iterable<RiakFuture<BaseResponseType, Location>>,
                                    BaseResponseType>
-        extends RiakCommand<ResponseType, List<Location>>
+        extends StreamableRiakCommand<ResponseType, List<Location>>
 {
     private static final int DEFAULT_MAX_IN_FLIGHT = 10;
 
+    private final Logger logger = LoggerFactory.getLogger(MultiCommand.class);
     private final ArrayList<Location> locations;
     protected final Map<RiakOption<?>, Object> options = new HashMap<>();
     private final int maxInFlight;
@@ -48,41 +58,98 @@ abstract class MultiCommand<BaseCommand extends RiakCommand<BaseResponseType, Lo
         this.maxInFlight = builder.maxInFlight;
     }
 
-
     @Override
     protected RiakFuture<ResponseType, List<Location>> executeAsync(final RiakCluster cluster)
     {
-        List<BaseCommand> operations = buildOperations();
-        MultiFuture future = new MultiFuture(locations);
-
-        Submitter submitter = new Submitter(operations, maxInFlight, cluster, future);
-
-        Thread worker = new Thread(submitter);
-        worker.setDaemon(true);
-        worker.start();
-
+        MultiFuture future = new MultiFuture(buildOperations(), cluster);
+        future.drain();
         return future;
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Executes the commands, returning their results in the order the
+     * locations were added, as soon as each one and those before it complete.
+     * <p>
+     * Each response taken holds the futures, all done, of the next run of
+     * completed commands.
+     * </p>
+     */
+    @Override
+    protected StreamingResults<ResponseType> executeStreaming(RiakCluster cluster)
+    {
+        MultiFuture future = new MultiFuture(buildOperations(), cluster);
+        future.drain();
+        return new StreamingResults<ResponseType>(future, future);
+    }
+
     private List<BaseCommand> buildOperations()
     {
-        List<BaseCommand> baseOperations = new LinkedList<>();
+        List<BaseCommand> baseOperations = new ArrayList<>(locations.size());
 
-        for (Location location : locations)
+        for (int i = 0; i < locations.size(); i++)
         {
-            BaseBuilder builder = createBaseBuilderType(location);
+            baseOperations.add(createBaseCommand(locations.get(i), i));
+        }
 
-            for (RiakOption<?> option : options.keySet())
+        return baseOperations;
+    }
+
+    /**
+     * Builds an individual command with this command's options.
+     * @param builder the builder for the individual command.
+     * @return the individual command.
+     */
+    protected final BaseCommand buildWithOptions(KvBuilderBase<BaseCommand> builder)
+    {
+        for (Map.Entry<RiakOption<?>, Object> option : options.entrySet())
+        {
+            builder.addOption(option.getKey(), option.getValue());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Groups the locations by the node holding them, if the cluster knows.
+     * @return the indexes of the locations in each group, in order.
+     */
+    private List<int[]> groupByNode(RiakCluster cluster)
+    {
+        RiakRing ring = cluster.getRing();
+        if (ring == null)
+        {
+            int[] all = new int[locations.size()];
+            for (int i = 0; i < all.length; i++)
             {
-                builder.addOption(option, options.get(option));
+                all[i] = i;
             }
-
-            baseOperations.add(builder.build());
+            return Collections.singletonList(all);
         }
 
-        return baseOperations;
+        Map<RiakNode, List<Integer>> byNode = new LinkedHashMap<>();
+        for (int i = 0; i < locations.size(); i++)
+        {
+            // Keys whose owner isn't known share the null group.
+            RiakNode owner = ring.getOwner(locations.get(i));
+            List<Integer> group = byNode.get(owner);
+            if (group == null)
+            {
+                group = new ArrayList<>();
+                byNode.put(owner, group);
+            }
+            group.add(i);
+        }
 
+        List<int[]> groups = new ArrayList<>(byNode.size());
+        for (List<Integer> group : byNode.values())
+        {
+            int[] indexes = new int[group.size()];
+            for (int i = 0; i < indexes.length; i++)
+            {
+                indexes[i] = group.get(i);
+            }
+            groups.add(indexes);
+        }
+        return groups;
     }
 
     @Override
@@ -97,7 +164,7 @@ abstract class MultiCommand<BaseCommand extends RiakCommand<BaseResponseType, Lo
             return false;
         }
 
-        MultiCommand<?, ?, ?, ?> that = (MultiCommand<?, ?, ?, ?>) o;
+        MultiCommand<?, ?, ?> that = (MultiCommand<?, ?, ?>) o;
 
         if (maxInFlight != that.maxInFlight)
         {
@@ -127,7 +194,7 @@ abstract class MultiCommand<BaseCommand extends RiakCommand<BaseResponseType, Lo
     }
 
     protected abstract ResponseType createResponseType(List<RiakFuture<BaseResponseType, Location>> futures);
-    protected abstract BaseBuilder createBaseBuilderType(Location location);
+    protected abstract BaseCommand createBaseCommand(Location location, int index);
     protected abstract RiakFuture<BaseResponseType, Location> executeBaseCommandAsync(BaseCommand command, RiakCluster cluster);
 
     protected static abstract class Builder<BuiltType, ConcreteBuilder extends Builder<BuiltType, ConcreteBuilder>>
@@ -136,6 +203,51 @@ abstract class MultiCommand<BaseCommand extends RiakCommand<BaseResponseType, Lo
         private Map<RiakOption<?>, Object> options = new HashMap<>();
         private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
 
+        void add(Location location)
+        {
+            locations.add(location);
+        }
+
+        /**
+         * Set the maximum number of requests to be in progress simultaneously.
+         * <p>
+         * As noted, Riak does not actually have any Batch or Multi operation functionality. This
+         * operation simulates it by sending multiple requests. This
+         * parameter controls how many outstanding requests are allowed simultaneously
+         * to each node or, if the cluster doesn't know which node holds a key, in total.
+         * </p>
+         *
+         * @param maxInFlight the max number of outstanding requests.
+         * @return a reference to this object.
+         */
+        public ConcreteBuilder withMaxInFlight(int maxInFlight)
+        {
+            this.maxInFlight = maxInFlight;
+            return self();
+        }
+
+        /**
+         * A {@link RiakOption} to use with each operation.
+         *
+         * @param option an option
+         * @param value  the option's associated value
+         * @param <U>    the type of the option's value
+         * @return a reference to this object.
+         */
+        public <U> ConcreteBuilder withOption(RiakOption<U> option, U value)
+        {
+            this.options.put(option, value);
+            return self();
+        }
+
+        protected abstract ConcreteBuilder self();
+
+        public abstract BuiltType build();
+    }
+
+    protected static abstract class LocationBuilder<BuiltType, ConcreteBuilder extends LocationBuilder<BuiltType, ConcreteBuilder>>
+            extends Builder<BuiltType, ConcreteBuilder>
+    {
         /**
          * Add a location to the list of locations to interact with as part of
          * this operation.
@@ -145,7 +257,7 @@ abstract class MultiCommand<BaseCommand extends RiakCommand<BaseResponseType, Lo
          */
         public ConcreteBuilder addLocation(Location location)
         {
-            locations.add(location);
+            add(location);
             return self();
         }
 
@@ -158,7 +270,10 @@ abstract class MultiCommand<BaseCommand extends RiakCommand<BaseResponseType, Lo
          */
         public ConcreteBuilder addLocations(Location... location)
         {
-            locations.addAll(Arrays.asList(location));
+            for (Location loc : location)
+            {
+                add(loc);
+            }
             return self();
         }
 
@@ -173,45 +288,10 @@ abstract class MultiCommand<BaseCommand extends RiakCommand<BaseResponseType, Lo
         {
             for (Location loc : location)
             {
-                locations.add(loc);
+                add(loc);
             }
             return self();
         }
-
-        /**
-         * Set the maximum number of requests to be in progress simultaneously.
-         * <p>
-         * As noted, Riak does not actually have any Batch or Multi operation functionality. This
-         * operation simulates it by sending multiple requests. This
-         * parameter controls how many outstanding requests are allowed simultaneously.
-         * </p>
-         *
-         * @param maxInFlight the max number of outstanding requests.
-         * @return a reference to this object.
-         */
-        public ConcreteBuilder withMaxInFlight(int maxInFlight)
-        {
-            this.maxInFlight = maxInFlight;
-            return self();
-        }
-
-        /**
-         * A {@link RiakOption} to use with each operation.
-         *
-         * @param option an option
-         * @param value  the option's associated value
-         * @param <U>    the type of the option's value
-         * @return a reference to this object.
-         */
-        public <U> ConcreteBuilder withOption(RiakOption<U> option, U value)
-        {
-            this.options.put(option, value);
-            return self();
-        }
-
-        protected abstract ConcreteBuilder self();
-
-        public abstract BuiltType build();
     }
 
     public static class Response<BaseResponseType> implements Iterable<RiakFuture<BaseResponseType, Location>>
@@ -236,102 +316,234 @@ abstract class MultiCommand<BaseCommand extends RiakCommand<BaseResponseType, Lo
 
     }
 
-    class Submitter implements Runnable, RiakFutureListener<BaseResponseType, Location>
+    /**
+     * The locations held by one node, and how many of them are in flight.
+     */
+    private static final class Group
+    {
+        private final int[] indexes;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        // Only read and written while draining.
+        private int next;
+
+        Group(int[] indexes)
+        {
+            this.indexes = indexes;
+        }
+    }
+
+    class MultiFuture extends ListenableFuture<ResponseType,List<Location>>
+            implements StreamingResults.Source<ResponseType>
     {
-        private final Logger logger = LoggerFactory.getLogger(this.getClass());
+        private final CountDownLatch latch = new CountDownLatch(1);
         private final List<BaseCommand> commands;
-        private final Semaphore inFlight;
-        private final AtomicInteger received = new AtomicInteger();
         private final RiakCluster cluster;
-        private final MultiFuture multiFuture;
+        private final List<Group> groups = new ArrayList<>();
+        private final AtomicReferenceArray<RiakFuture<BaseResponseType, Location>> futures;
+        // Guarded by this, as is taken.
+        private final boolean[] completed;
+        private int taken;
+        private final AtomicInteger draining = new AtomicInteger();
+        private final AtomicInteger submitted = new AtomicInteger();
+        private final AtomicInteger received = new AtomicInteger();
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private volatile boolean stopped;
+        private volatile Throwable exception;
 
-        Submitter(List<BaseCommand> commands,
-                         int maxInFlight,
-                         RiakCluster cluster,
-                         MultiFuture multiFuture)
+        MultiFuture(List<BaseCommand> commands, RiakCluster cluster)
         {
             this.commands = commands;
             this.cluster = cluster;
-            this.multiFuture = multiFuture;
-            inFlight = new Semaphore(maxInFlight);
+            this.futures = new AtomicReferenceArray<>(commands.size());
+            this.completed = new boolean[commands.size()];
+            for (int[] indexes : groupByNode(cluster))
+            {
+                groups.add(new Group(indexes));
+            }
+
+            // If we have no locations, then we have no work to do.
+            if (commands.isEmpty())
+            {
+                finish();
+            }
         }
 
-        @Override
-        public void run()
+        /**
+         * Sends every command there is room for. Whichever thread is here
+         * first sends for any that arrive while it is, so a command that
+         * completes as it is sent doesn't recurse.
+         */
+        void drain()
         {
-            logger.debug("Running daemon worker thread.");
-            for (BaseCommand command : commands)
+            if (draining.getAndIncrement() != 0)
             {
-                try
-                {
-                    inFlight.acquire();
-                }
-                catch (InterruptedException ex)
+                return;
+            }
+
+            do
+            {
+                boolean sent = true;
+                while (sent && !stopped)
                 {
-                    logger.error("Daemon worker thread interrupted.");
-                    multiFuture.setFailed(ex);
-                    break;
+                    sent = false;
+                    // One to each node in turn.
+                    for (Group group : groups)
+                    {
+                        if (!stopped && group.next < group.indexes.length
+                            && group.inFlight.get() < maxInFlight)
+                        {
+                            group.inFlight.incrementAndGet();
+                            submitted.incrementAndGet();
+                            send(group.indexes[group.next++], group);
+                            sent = true;
+                        }
+                    }
                 }
+            }
+            while (draining.decrementAndGet() != 0);
+        }
 
-                RiakFuture<BaseResponseType, Location> future = executeBaseCommandAsync(command, cluster);
-                future.addListener(this);
+        private void send(final int index, final Group group)
+        {
+            RiakFuture<BaseResponseType, Location> future;
+            try
+            {
+                future = executeBaseCommandAsync(commands.get(index), cluster);
             }
+            catch (RuntimeException ex)
+            {
+                logger.error("MultiCommand individual command could not be executed.", ex);
+                exception = ex;
+                stopped = true;
+                received(index, group);
+                return;
+            }
+
+            futures.set(index, future);
+            future.addListener(new RiakFutureListener<BaseResponseType, Location>()
+            {
+                @Override
+                public void handle(RiakFuture<BaseResponseType, Location> f)
+                {
+                    received(index, group);
+                }
+            });
         }
 
-        @Override
-        public void handle(RiakFuture<BaseResponseType, Location> f)
+        private void received(int index, Group group)
         {
             logger.debug("Received MultiCommand individual result.");
-            multiFuture.addFetchFuture(f);
-            inFlight.release();
-            int completed = received.incrementAndGet();
-            if (completed == commands.size())
+            group.inFlight.decrementAndGet();
+            synchronized (this)
             {
-                multiFuture.setCompleted();
+                completed[index] = true;
+                notifyAll();
             }
-        }
 
-    }
+            int count = received.incrementAndGet();
+            if (count == (stopped ? submitted.get() : commands.size()))
+            {
+                finish();
+            }
+            else
+            {
+                drain();
+            }
+        }
 
-    class MultiFuture extends ListenableFuture<ResponseType,List<Location>>
-    {
-        private final CountDownLatch latch = new CountDownLatch(1);
-        private final List<Location> locations;
-        private final List<RiakFuture<BaseResponseType, Location>> futures;
-        private volatile Throwable exception;
+        private void finish()
+        {
+            if (finished.compareAndSet(false, true))
+            {
+                latch.countDown();
+                synchronized (this)
+                {
+                    notifyAll();
+                }
+                notifyListeners();
+            }
+        }
 
-        MultiFuture(List<Location> locations)
+        private List<RiakFuture<BaseResponseType, Location>> responses()
         {
-            this.locations = locations;
-            futures = Collections.synchronizedList(new LinkedList<RiakFuture<BaseResponseType, Location>>());
+            List<RiakFuture<BaseResponseType, Location>> responses = new ArrayList<>(commands.size());
+            for (int i = 0; i < commands.size(); i++)
+            {
+                RiakFuture<BaseResponseType, Location> future = futures.get(i);
+                if (future != null)
+                {
+                    responses.add(future);
+                }
+            }
+            return responses;
+        }
 
-            // If we have no locations, then we have no work to do.
-            if(this.locations.isEmpty())
+        @Override
+        public synchronized ResponseType take() throws InterruptedException
+        {
+            while (!isCancelled())
             {
-                setCompleted();
+                // Once finished, any command not completed was never sent.
+                boolean done = isDone();
+                List<RiakFuture<BaseResponseType, Location>> run = new ArrayList<>();
+                while (taken < completed.length && (completed[taken] || done))
+                {
+                    RiakFuture<BaseResponseType, Location> future = futures.get(taken++);
+                    if (future != null)
+                    {
+                        run.add(future);
+                    }
+                }
+
+                if (!run.isEmpty())
+                {
+                    return createResponseType(run);
+                }
+                else if (taken == completed.length)
+                {
+                    return null;
+                }
+                wait();
             }
+            return null;
+        }
+
+        @Override
+        public void cancel()
+        {
+            cancel(false);
         }
 
+        /**
+         * Stops sending commands. Those already sent aren't cancelled.
+         */
         @Override
         public boolean cancel(boolean mayInterruptIfRunning)
         {
-            return false;
+            if (isDone())
+            {
+                return false;
+            }
+            exception = new CancellationException("MultiCommand cancelled");
+            stopped = true;
+            finish();
+            return true;
         }
 
         @Override
-        public ResponseType get() throws InterruptedException
+        public ResponseType get() throws InterruptedException, ExecutionException
         {
             latch.await();
-            return createResponseType(futures);
+            return response();
         }
 
         @Override
-        public ResponseType get(long timeout, TimeUnit unit) throws InterruptedException
+        public ResponseType get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException
         {
             latch.await(timeout, unit);
             if (isDone())
             {
-                return createResponseType(futures);
+                return response();
             }
             else
             {
@@ -339,12 +551,26 @@ abstract class MultiCommand<BaseCommand extends RiakCommand<BaseResponseType, Lo
             }
         }
 
+        private ResponseType response() throws ExecutionException
+        {
+            Throwable cause = exception;
+            if (cause instanceof CancellationException)
+            {
+                throw (CancellationException) cause;
+            }
+            else if (cause != null)
+            {
+                throw new ExecutionException(cause);
+            }
+            return createResponseType(responses());
+        }
+
         @Override
         public ResponseType getNow()
         {
-            if (isDone())
+            if (isSuccess())
             {
-                return createResponseType(futures);
+                return createResponseType(responses());
             }
             else
             {
@@ -355,7 +581,7 @@ abstract class MultiCommand<BaseCommand extends RiakCommand<BaseResponseType, Lo
         @Override
         public boolean isCancelled()
         {
-            return false;
+            return exception instanceof CancellationException;
         }
 
         @Override
@@ -393,24 +619,5 @@ abstract class MultiCommand<BaseCommand extends RiakCommand<BaseResponseType, Lo
         {
             return exception;
         }
-
-        private void addFetchFuture(RiakFuture<BaseResponseType, Location> future)
-        {
-            futures.add(future);
-        }
-
-        private void setCompleted()
-        {
-            latch.countDown();
-            notifyListeners();
-        }
-
-        private void setFailed(Throwable t)
-        {
-            this.exception = t;
-            latch.countDown();
-            notifyListeners();
-        }
-
     }
 }
@@ -10,8 +10,10 @@ import java.util.List;
 /**
  * Command used to delete multiple values from Riak.
  * <p>
- * Riak itself does not support pipelining of requests. MultiDelete addresses this issue by using a thread to
- * parallelize and manage a set of async delete operations for a given set of keys.
+ * Riak itself does not support pipelining of requests. MultiDelete addresses this issue by
+ * parallelizing and managing a set of async delete operations for a given set of keys.
+ * No thread is used to do so: each operation that completes sends the next. When
+ * the cluster routes by partition, the keys are grouped by the node holding them.
  * </p>
  * <p>
  * The result of executing this command is a {@code List} of {@link RiakFuture} objects, each one representing a single
@@ -24,7 +26,7 @@ import java.util.List;
  * MultiDelete.Response response = client.execute(multiDelete);
  * </p>
  * <p>
- * The maximum number of concurrent requests defaults to 10. This can be changed
+ * The maximum number of concurrent requests to each node defaults to 10. This can be changed
  * when constructing the operation.
  * </p>
  * <p>
@@ -34,15 +36,15 @@ import java.util.List;
  * or worse they could time out.
  * </p>
  * <p>
- * Be aware that for responsiveness to the caller thread, the requests are run on a Daemon worker thread.
- * Shutting down the client JVM before the future is complete will result in unexpected behavior,
- * and only a subset objects may have been deleted.
+ * Executed with {@link com.basho.riak.client.api.RiakClient#executeStreaming(com.basho.riak.client.api.StreamableRiakCommand)},
+ * each response holds the next operations to complete, in the order their locations
+ * were added, as soon as they and those before them have.
  * </p>
  * @author Gerard Stannard <gerards at tacklocal dot com>
  * @author Alex Moore <amoore at basho dot com>
  * @since 2.0.7
  */
-public final class MultiDelete extends MultiCommand<DeleteValue, DeleteValue.Builder, MultiDelete.Response, Void>
+public final class MultiDelete extends MultiCommand<DeleteValue, MultiDelete.Response, Void>
 {
     private MultiDelete(Builder builder)
     {
@@ -56,9 +58,9 @@ public final class MultiDelete extends MultiCommand<DeleteValue, DeleteValue.Bui
     }
 
     @Override
-    protected DeleteValue.Builder createBaseBuilderType(Location location)
+    protected DeleteValue createBaseCommand(Location location, int index)
     {
-        return new DeleteValue.Builder(location);
+        return buildWithOptions(new DeleteValue.Builder(location));
     }
 
     @Override
@@ -70,7 +72,7 @@ public final class MultiDelete extends MultiCommand<DeleteValue, DeleteValue.Bui
     /**
      * Used to construct a MultiDelete command.
      */
-    public static class Builder extends MultiCommand.Builder<MultiDelete, Builder>
+    public static class Builder extends MultiCommand.LocationBuilder<MultiDelete, Builder>
     {
         /**
          * Set the Riak-side timeout value.
@@ -26,8 +26,10 @@ import java.util.List;
  * Command used to fetch multiple values from Riak.
  * <script src="https://google-code-prettify.googlecode.com/svn/loader/run_prettify.js"></script>
  * <p>
- * Riak itself does not support pipelining of requests. MutliFetch addresses this issue by using a thread to
- * parallelize and manage a set of async fetch operations for a given set of keys.
+ * Riak itself does not support pipelining of requests. MultiFetch addresses this issue by
+ * parallelizing and managing a set of async fetch operations for a given set of keys.
+ * No thread is used to do so: each operation that completes sends the next. When
+ * the cluster routes by partition, the keys are grouped by the node holding them.
  * </p>
  * <p>
  * The result of executing this command is a {@code List} of {@link RiakFuture} objects, each one representing a single
@@ -53,7 +55,7 @@ import java.util.List;
  * }}</pre>
  * </p>
  * <p>
- * The maximum number of concurrent requests defaults to 10. This can be changed
+ * The maximum number of concurrent requests to each node defaults to 10. This can be changed
  * when constructing the operation.
  * </p>
  * <p>
@@ -63,14 +65,15 @@ import java.util.List;
  * or worse they could time out.
  * </p>
  * <p>
- * Be aware that for responsiveness to the caller thread, the requests are run on a Daemon worker thread.
- * Shutting down the client JVM before the future is complete will result in unexpected behavior, and an incomplete result.
+ * Executed with {@link com.basho.riak.client.api.RiakClient#executeStreaming(com.basho.riak.client.api.StreamableRiakCommand)},
+ * each response holds the next operations to complete, in the order their locations
+ * were added, as soon as they and those before them have.
  * </p>
  *
  * @author Dave Rusek <drusek at basho dot com>
  * @since 2.0
  */
-public final class MultiFetch extends MultiCommand<FetchValue, FetchValue.Builder, MultiFetch.Response, FetchValue.Response>
+public final class MultiFetch extends MultiCommand<FetchValue, MultiFetch.Response, FetchValue.Response>
 {
     private MultiFetch(Builder builder)
     {
@@ -84,9 +87,9 @@ public final class MultiFetch extends MultiCommand<FetchValue, FetchValue.Builde
     }
 
     @Override
-    protected FetchValue.Builder createBaseBuilderType(Location location)
+    protected FetchValue createBaseCommand(Location location, int index)
     {
-        return new FetchValue.Builder(location);
+        return buildWithOptions(new FetchValue.Builder(location));
     }
 
     @Override
@@ -98,7 +101,7 @@ public final class MultiFetch extends MultiCommand<FetchValue, FetchValue.Builde
     /**
      * Used to construct a MutiFetch command.
      */
-    public static class Builder extends MultiCommand.Builder<MultiFetch, Builder>
+    public static class Builder extends MultiCommand.LocationBuilder<MultiFetch, Builder>
     {
         /**
          * Set the Riak-side timeout value.
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.api.commands.kv;
+
+import com.basho.riak.client.api.commands.RiakOption;
+import com.basho.riak.client.api.commands.kv.StoreValue.Option;
+import com.basho.riak.client.core.RiakCluster;
+import com.basho.riak.client.core.RiakFuture;
+import com.basho.riak.client.core.query.Location;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command used to store multiple values in Riak.
+ * <script src="https://google-code-prettify.googlecode.com/svn/loader/run_prettify.js"></script>
+ * <p>
+ * Like {@link MultiFetch}, MultiStore parallelizes and manages a set of async
+ * store operations, one for each value added. No thread is used to do so: each
+ * operation that completes sends the next. When the cluster routes by
+ * partition, the values are grouped by the node holding their key.
+ * </p>
+ * <p>
+ * The result of executing this command is a {@code List} of {@link RiakFuture} objects, each one representing a single
+ * store operation, in the order the values were added. The returned {@code RiakFuture} that contains that list
+ * completes when all the StoreValue operations contained have finished.
+ * <p/>
+ * <pre class="prettyprint">
+ * {@code
+ * MultiStore multiStore = new MultiStore.Builder()
+ *     .addValue(location1, pojo1)
+ *     .addValue(location2, pojo2)
+ *     .build();
+ * MultiStore.Response response = client.execute(multiStore);
+ * for (RiakFuture<StoreValue.Response, Location> f : response)
+ * {
+ *     try
+ *     {
+ *         f.get();
+ *     }
+ *     catch (ExecutionException e)
+ *     {
+ *         // log error, retry, etc.
+ *     }
+ * }}</pre>
+ * </p>
+ * <p>
+ * The maximum number of concurrent requests to each node defaults to 10. This can be changed
+ * when constructing the operation.
+ * </p>
+ * <p>
+ * Executed with {@link com.basho.riak.client.api.RiakClient#executeStreaming(com.basho.riak.client.api.StreamableRiakCommand)},
+ * each response holds the next operations to complete, in the order their values
+ * were added, as soon as they and those before them have.
+ * </p>
+ *
+ * @since 2.1
+ */
+public final class MultiStore extends MultiCommand<StoreValue, MultiStore.Response, StoreValue.Response>
+{
+    private final List<Object> values;
+
+    private MultiStore(Builder builder)
+    {
+        super(builder);
+        this.values = builder.values;
+    }
+
+    @Override
+    protected Response createResponseType(List<RiakFuture<StoreValue.Response, Location>> riakFutures)
+    {
+        return new Response(riakFutures);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected StoreValue createBaseCommand(Location location, int index)
+    {
+        StoreValue.Builder builder = new StoreValue.Builder(values.get(index)).withLocation(location);
+        for (Map.Entry<RiakOption<?>, Object> option : options.entrySet())
+        {
+            builder.withOption((Option<Object>) option.getKey(), option.getValue());
+        }
+        return builder.build();
+    }
+
+    @Override
+    protected RiakFuture<StoreValue.Response, Location> executeBaseCommandAsync(StoreValue command, RiakCluster cluster)
+    {
+        return command.executeAsync(cluster);
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        return super.equals(o) && values.equals(((MultiStore) o).values);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * super.hashCode() + values.hashCode();
+    }
+
+    /**
+     * Used to construct a MultiStore command.
+     */
+    public static class Builder extends MultiCommand.Builder<MultiStore, Builder>
+    {
+        private final List<Object> values = new ArrayList<>();
+
+        /**
+         * Add a value to store as part of this operation.
+         * <p>
+         * The value may be a {@link com.basho.riak.client.core.query.RiakObject}
+         * or your own POJO, as with {@link StoreValue}.
+         * </p>
+         *
+         * @param location the location to store the value in.
+         * @param value the value to store.
+         * @return a reference to this object.
+         */
+        public Builder addValue(Location location, Object value)
+        {
+            if (location == null)
+            {
+                throw new IllegalArgumentException("Location cannot be null");
+            }
+            add(location);
+            values.add(value);
+            return this;
+        }
+
+        /**
+         * Set the Riak-side timeout value.
+         * <p>
+         * By default, riak has a 60s timeout for operations. Setting
+         * this value will override that default for each store.
+         * </p>
+         *
+         * @param timeout the timeout in milliseconds to be sent to riak.
+         * @return a reference to this object.
+         */
+        public Builder withTimeout(int timeout)
+        {
+            withOption(Option.TIMEOUT, timeout);
+            return this;
+        }
+
+        /**
+         * Build a {@link MultiStore} operation from this builder
+         *
+         * @return an initialized {@link MultiStore} operation
+         */
+        @Override
+        public MultiStore build()
+        {
+            return new MultiStore(this);
+        }
+
+        @Override
+        protected Builder self()
+        {
+            return this;
+        }
+    }
+
+    /**
+     * The response from Riak for a MultiStore command.
+     */
+    public static class Response extends MultiCommand.Response<StoreValue.Response>
+    {
+        Response(List<RiakFuture<StoreValue.Response, Location>> responses)
+        {
+            super(responses);
+        }
+    }
+}
@@ -20,6 +20,7 @@ import com.basho.riak.client.api.cap.VClock;
 import com.basho.riak.client.api.convert.Converter;
 import com.basho.riak.client.api.convert.Converter.OrmExtracted;
 import com.basho.riak.client.api.convert.ConverterFactory;
+import com.basho.riak.client.core.ObjectCache;
 import com.basho.riak.client.core.RiakCluster;
 import com.basho.riak.client.core.operations.StoreOperation;
 import com.basho.riak.client.api.RiakCommand;
@@ -116,6 +117,12 @@ public final class StoreValue extends RiakCommand<StoreValue.Response, Location>
         
         RiakFuture<StoreOperation.Response, Location> coreFuture =
             cluster.execute(buildCoreOperation(orm));
+
+        ObjectCache objectCache = cluster.getObjectCache();
+        if (objectCache != null && orm.hasKey())
+        {
+            objectCache.invalidate(new Location(orm.getNamespace(), orm.getKey()), coreFuture);
+        }
         
         CoreFutureAdapter<Response, Location, StoreOperation.Response, Location> future = 
             new CoreFutureAdapter<Response, Location, StoreOperation.Response, Location>(coreFuture)
@@ -13,12 +13,13 @@
  */
 package com.basho.riak.client.api.commands.mapreduce;
 
-import com.basho.riak.client.api.RiakCommand;
+import com.basho.riak.client.api.StreamableRiakCommand;
 import com.basho.riak.client.api.RiakException;
 import com.basho.riak.client.api.commands.CoreFutureAdapter;
 import com.basho.riak.client.api.convert.ConversionException;
 import com.basho.riak.client.core.RiakCluster;
 import com.basho.riak.client.core.RiakFuture;
+import com.basho.riak.client.core.StreamingResults;
 import com.basho.riak.client.core.operations.MapReduceOperation;
 import com.basho.riak.client.core.query.functions.Function;
 import com.basho.riak.client.core.util.BinaryValue;
@@ -46,7 +47,7 @@ import java.util.Map;
  * @author Dave Rusek <drusek at basho dot com>
  * @since 2.0
  */
-public abstract class MapReduce extends RiakCommand<MapReduce.Response, BinaryValue>
+public abstract class MapReduce extends StreamableRiakCommand<MapReduce.Response, BinaryValue>
 {
     private final MapReduceSpec spec;
 
@@ -59,19 +60,7 @@ public abstract class MapReduce extends RiakCommand<MapReduce.Response, BinaryVa
     @Override
     protected RiakFuture<Response, BinaryValue> executeAsync(RiakCluster cluster)
     {
-
-        BinaryValue jobSpec;
-        try
-        {
-            String spec = writeSpec();
-            jobSpec = BinaryValue.create(spec);
-        }
-        catch (RiakException e)
-        {
-            throw new RuntimeException(e);
-        }
-
-        MapReduceOperation operation = new MapReduceOperation.Builder(jobSpec).build();
+        MapReduceOperation operation = buildCoreOperation(false);
 
         final RiakFuture<MapReduceOperation.Response, BinaryValue> coreFuture = cluster.execute(operation);
 
@@ -97,6 +86,42 @@ public abstract class MapReduce extends RiakCommand<MapReduce.Response, BinaryVa
 
     }
 
+    /**
+     * Streams the results; each response holds the results in one message
+     * from Riak, which may be part of a phase's results.
+     */
+    @Override
+    protected StreamingResults<Response> executeStreaming(RiakCluster cluster)
+    {
+        MapReduceOperation operation = buildCoreOperation(true);
+        cluster.execute(operation);
+        return operation.getStreamingResults().map(
+            new StreamingResults.Converter<MapReduceOperation.Response, Response>()
+            {
+                @Override
+                public Response convert(MapReduceOperation.Response coreResponse)
+                {
+                    return new Response(coreResponse.getResults());
+                }
+            });
+    }
+
+    private MapReduceOperation buildCoreOperation(boolean streamResults)
+    {
+        BinaryValue jobSpec;
+        try
+        {
+            String spec = writeSpec();
+            jobSpec = BinaryValue.create(spec);
+        }
+        catch (RiakException e)
+        {
+            throw new RuntimeException(e);
+        }
+
+        return new MapReduceOperation.Builder(jobSpec).withStreamResults(streamResults).build();
+    }
+
     /**
      * Creates the JSON string of the M/R job for submitting to the client
      * <p/>
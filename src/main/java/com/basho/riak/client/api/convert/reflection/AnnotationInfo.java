@@ -13,16 +13,12 @@
  */
 package com.basho.riak.client.api.convert.reflection;
 
-import static com.basho.riak.client.api.convert.reflection.ClassUtil.getFieldValue;
-import static com.basho.riak.client.api.convert.reflection.ClassUtil.setFieldValue;
-import static com.basho.riak.client.api.convert.reflection.ClassUtil.getMethodValue;
-import static com.basho.riak.client.api.convert.reflection.ClassUtil.setMethodValue;
-
 import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -39,6 +35,7 @@ import com.basho.riak.client.core.query.indexes.RiakIndexes;
 import com.basho.riak.client.core.query.indexes.StringBinIndex;
 import com.basho.riak.client.core.query.links.RiakLinks;
 import com.basho.riak.client.core.util.BinaryValue;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
 import java.math.BigInteger;
 import java.util.HashSet;
@@ -82,9 +79,11 @@ public class AnnotationInfo
     private final Field riakBucketTypeField;
     private final Method riakBucketTypeSetter;
     private final Method riakBucketTypeGetter;
+    private final Map<Member, MemberAccessor> accessors;
 
     private AnnotationInfo(Builder builder)
     {
+        this.accessors = new IdentityHashMap<Member, MemberAccessor>(builder.accessors);
         this.riakKeyField = builder.riakKeyField;
         this.riakKeyGetter = builder.riakKeyGetter;
         this.riakKeySetter = builder.riakKeySetter;
@@ -949,6 +948,26 @@ public class AnnotationInfo
         
     }
 
+    private Object getFieldValue(Field f, Object obj)
+    {
+        return accessors.get(f).get(obj);
+    }
+
+    private void setFieldValue(Field f, Object obj, Object value)
+    {
+        accessors.get(f).set(obj, value);
+    }
+
+    private Object getMethodValue(Method m, Object obj)
+    {
+        return accessors.get(m).get(obj);
+    }
+
+    private void setMethodValue(Method m, Object obj, Object value)
+    {
+        accessors.get(m).set(obj, value);
+    }
+
     public static class Builder
     {
 
@@ -981,7 +1000,8 @@ public class AnnotationInfo
         private final List<UsermetaMethod> usermetaMethods;
         private final List<RiakIndexField> indexFields;
         private final List<RiakIndexMethod> indexMethods;
-        
+        private final Map<Member, MemberAccessor> accessors =
+            new IdentityHashMap<Member, MemberAccessor>();
 
         /**
          * Constructs a builder for a new AnnotationInfo
@@ -1007,7 +1027,7 @@ public class AnnotationInfo
         public Builder withRiakKeyField(Field f)
         {
             validateStringOrByteField(f, "@RiakKey");
-            this.riakKeyField = ClassUtil.checkAndFixAccess(f);
+            this.riakKeyField = accessible(f);
             return this;
         }
 
@@ -1020,7 +1040,7 @@ public class AnnotationInfo
         public Builder withRiakKeyGetter(Method m)
         {
             validateStringOrByteMethod(m, "@RiakKey");
-            this.riakKeyGetter = ClassUtil.checkAndFixAccess(m);
+            this.riakKeyGetter = accessible(m);
             return this;
         }
 
@@ -1033,7 +1053,7 @@ public class AnnotationInfo
         public Builder withRiakKeySetter(Method m)
         {
             validateStringOrByteMethod(m, "@RiakKey");
-            this.riakKeySetter = ClassUtil.checkAndFixAccess(m);
+            this.riakKeySetter = accessible(m);
             return this;
         }
 
@@ -1046,7 +1066,7 @@ public class AnnotationInfo
         public Builder withRiakLinksField(Field f)
         {
             validateRiakLinksField(f);
-            this.riakLinksField = ClassUtil.checkAndFixAccess(f);
+            this.riakLinksField = accessible(f);
             return this;
         }
 
@@ -1059,7 +1079,7 @@ public class AnnotationInfo
         public Builder withRiakLinksGetter(Method m)
         {
             validateRiakLinksMethod(m);
-            this.riakLinksGetter = ClassUtil.checkAndFixAccess(m);
+            this.riakLinksGetter = accessible(m);
             return this;
         }
 
@@ -1073,7 +1093,7 @@ public class AnnotationInfo
         public Builder withRiakLinksSetter(Method m)
         {
             validateRiakLinksMethod(m);
-            this.riakLinksSetter = ClassUtil.checkAndFixAccess(m);
+            this.riakLinksSetter = accessible(m);
             return this;
         }
 
@@ -1085,7 +1105,7 @@ public class AnnotationInfo
          */
         public Builder addRiakUsermetaField(Field f)
         {
-            this.usermetaFields.add(new UsermetaField(ClassUtil.checkAndFixAccess(f)));
+            this.usermetaFields.add(new UsermetaField(accessible(f)));
             return this;
         }
 
@@ -1097,7 +1117,7 @@ public class AnnotationInfo
          */
         public Builder addRiakUsermetaMethod(Method m)
         {
-            this.usermetaMethods.add(new UsermetaMethod(ClassUtil.checkAndFixAccess(m)));
+            this.usermetaMethods.add(new UsermetaMethod(accessible(m)));
             return this;
         }
 
@@ -1109,7 +1129,7 @@ public class AnnotationInfo
          */
         public Builder addRiakIndexMethod(Method m)
         {
-            this.indexMethods.add(new RiakIndexMethod(ClassUtil.checkAndFixAccess(m)));
+            this.indexMethods.add(new RiakIndexMethod(accessible(m)));
             return this;
         }
 
@@ -1121,7 +1141,7 @@ public class AnnotationInfo
          */
         public Builder addRiakIndexField(Field f)
         {
-            this.indexFields.add(new RiakIndexField(ClassUtil.checkAndFixAccess(f)));
+            this.indexFields.add(new RiakIndexField(accessible(f)));
             return this;
         }
 
@@ -1134,7 +1154,7 @@ public class AnnotationInfo
         public Builder withRiakVClockField(Field f)
         {
             validateVClockField(f);
-            this.riakVClockField = ClassUtil.checkAndFixAccess(f);
+            this.riakVClockField = accessible(f);
             return this;
         }
 
@@ -1147,7 +1167,7 @@ public class AnnotationInfo
         public Builder withRiakVClockSetter(Method m)
         {
             validateVClockMethod(m);
-            this.riakVClockSetter = ClassUtil.checkAndFixAccess(m);
+            this.riakVClockSetter = accessible(m);
             return this;
         }
 
@@ -1160,119 +1180,119 @@ public class AnnotationInfo
         public Builder withRiakVClockGetter(Method m)
         {
             validateVClockMethod(m);
-            this.riakVClockGetter = ClassUtil.checkAndFixAccess(m);
+            this.riakVClockGetter = accessible(m);
             return this;
         }
 
         public Builder withRiakTombstoneField(Field f)
         {
             validateTombstoneField(f);
-            this.riakTombstoneField = ClassUtil.checkAndFixAccess(f);
+            this.riakTombstoneField = accessible(f);
             return this;
         }
 
         public Builder withRiakTombstoneSetter(Method m)
         {
             validateTombstoneMethod(m);
-            this.riakTombstoneSetter = ClassUtil.checkAndFixAccess(m);
+            this.riakTombstoneSetter = accessible(m);
             return this;
         }
 
         public Builder withRiakTombstoneGetter(Method m)
         {
             validateTombstoneMethod(m);
-            this.riakTombstoneGetter = ClassUtil.checkAndFixAccess(m);
+            this.riakTombstoneGetter = accessible(m);
             return this;
         }
         
         public Builder withRiakContentTypeField(Field f)
         {
             validateContentTypeField(f);
-            this.riakContentTypeField = ClassUtil.checkAndFixAccess(f);
+            this.riakContentTypeField = accessible(f);
             return this;
         }
 
         public Builder withRiakContentTypeSetter(Method m)
         {
             validateContentTypeMethod(m);
-            this.riakContentTypeSetter = ClassUtil.checkAndFixAccess(m);
+            this.riakContentTypeSetter = accessible(m);
             return this;
         }
         
         public Builder withRiakContentTypeGetter(Method m)
         {
             validateContentTypeMethod(m);
-            this.riakContentTypeGetter = ClassUtil.checkAndFixAccess(m);
+            this.riakContentTypeGetter = accessible(m);
             return this;
         }
         
         public Builder withRiakLastModifiedField(Field f)
         {
             validateLastModifiedField(f);
-            this.riakLastModifiedField = ClassUtil.checkAndFixAccess(f);
+            this.riakLastModifiedField = accessible(f);
             return this;
         }
         
         public Builder withRiakLastModifiedSetter(Method m)
         {
             validateLastModifiedMethod(m);
-            this.riakLastModified = ClassUtil.checkAndFixAccess(m);
+            this.riakLastModified = accessible(m);
             return this;
         }
         
         public Builder withRiakVTagField(Field f)
         {
             validateVTagField(f);
-            this.riakVTagField = ClassUtil.checkAndFixAccess(f);
+            this.riakVTagField = accessible(f);
             return this;
         }
         
         public Builder withRiakVTagSetter(Method m)
         {
             validateVTagMethod(m);
-            this.riakVTagSetter = ClassUtil.checkAndFixAccess(m);
+            this.riakVTagSetter = accessible(m);
             return this;
         }
         
         public Builder withRiakBucketNameField(Field f)
         {
             validateStringOrByteField(f, "@RiakBucketName");
-            this.riakBucketNameField = ClassUtil.checkAndFixAccess(f);
+            this.riakBucketNameField = accessible(f);
             return this;
         }
         
         public Builder withRiakBucketNameSetter(Method m)
         {
             validateStringOrByteMethod(m, "@RiakBucketName");
-            this.riakBucketNameSetter = ClassUtil.checkAndFixAccess(m);
+            this.riakBucketNameSetter = accessible(m);
             return this;
         }
         
         public Builder withRiakBucketNameGetter(Method m)
         {
             validateStringOrByteMethod(m, "@RiakBucketName");            
-            this.riakBucketNameGetter = ClassUtil.checkAndFixAccess(m);
+            this.riakBucketNameGetter = accessible(m);
             return this;
         }
         
         public Builder withRiakBucketTypeField(Field f)
         {
             validateStringOrByteField(f, "@RiakBucketType");
-            this.riakBucketTypeField = ClassUtil.checkAndFixAccess(f);
+            this.riakBucketTypeField = accessible(f);
             return this;
         }
         
         public Builder withRiakBucketTypeSetter(Method m)
         {
             validateStringOrByteMethod(m, "@RiakBucketType");
-            this.riakBucketTypeSetter = ClassUtil.checkAndFixAccess(m);
+            this.riakBucketTypeSetter = accessible(m);
             return this;
         }
         
         public Builder withRiakBucketTypeGetter(Method m)
         {
             validateStringOrByteMethod(m, "@RiakBucketType");
-            this.riakBucketTypeGetter = ClassUtil.checkAndFixAccess(m);
+            this.riakBucketTypeGetter = accessible(m);
             return this;
         }
         
@@ -1282,6 +1302,17 @@ public class AnnotationInfo
             return new AnnotationInfo(this);
         }
 
+        /**
+         * Makes a member accessible and creates its accessor, so the
+         * domain objects' values aren't read and written by reflection.
+         */
+        private <T extends Member> T accessible(T member)
+        {
+            ClassUtil.checkAndFixAccess(member);
+            accessors.put(member, MemberAccessor.of(member));
+            return member;
+        }
+
         private void validateRiakLinksField(Field riakLinksField)
         {
 
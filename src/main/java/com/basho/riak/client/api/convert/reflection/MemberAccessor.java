@@ -0,0 +1,182 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.api.convert.reflection;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+
+/**
+ * Reads or writes one annotated field, or calls one annotated getter or
+ * setter.
+ * <p>
+ * Accessors are created when a class is scanned. Each one is a
+ * {@link MethodHandle} adapted to take and return {@code Object}, which
+ * avoids the access checks, argument array and exception wrapping of
+ * {@link Field#get(Object)} and {@link Method#invoke(Object, Object...)}
+ * on every call. Where a handle can't be had (e.g. to write a final field),
+ * the accessor falls back to reflection.
+ * </p>
+ *
+ * @since 2.1
+ */
+final class MemberAccessor
+{
+    private static final MethodType GETTER = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final Field field;
+    private final Method method;
+    private final MethodHandle getter;
+    private final MethodHandle setter;
+
+    private MemberAccessor(Field field, Method method, MethodHandle getter, MethodHandle setter)
+    {
+        this.field = field;
+        this.method = method;
+        this.getter = getter;
+        this.setter = setter;
+    }
+
+    /**
+     * Creates an accessor for a field or method that has been made
+     * accessible.
+     * @param member the field, getter or setter.
+     * @return the accessor.
+     */
+    static MemberAccessor of(Member member)
+    {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        if (member instanceof Field)
+        {
+            Field f = (Field) member;
+            MethodHandle getter = null;
+            MethodHandle setter = null;
+            try
+            {
+                getter = lookup.unreflectGetter(f).asType(GETTER);
+            }
+            catch (IllegalAccessException ex)
+            {
+                // Fall back to Field.get()
+            }
+            try
+            {
+                setter = lookup.unreflectSetter(f).asType(SETTER);
+            }
+            catch (IllegalAccessException ex)
+            {
+                // Fall back to Field.set()
+            }
+            return new MemberAccessor(f, null, getter, setter);
+        }
+        else
+        {
+            Method m = (Method) member;
+            MethodHandle handle = null;
+            try
+            {
+                handle = lookup.unreflect(m).asType(m.getParameterTypes().length == 0 ? GETTER : SETTER);
+            }
+            catch (IllegalAccessException ex)
+            {
+                // Fall back to Method.invoke()
+            }
+            return new MemberAccessor(null, m, handle, handle);
+        }
+    }
+
+    /**
+     * Returns the field's value or the getter's result.
+     * @param obj the domain object.
+     * @return the value.
+     * @throws IllegalStateException if the value can't be read.
+     */
+    Object get(Object obj)
+    {
+        if (getter == null)
+        {
+            return field != null
+                ? ClassUtil.getFieldValue(field, obj)
+                : ClassUtil.getMethodValue(method, obj);
+        }
+
+        try
+        {
+            return (Object) getter.invokeExact(obj);
+        }
+        catch (Error e)
+        {
+            throw e;
+        }
+        catch (Throwable t)
+        {
+            throw new IllegalStateException(field != null
+                                                ? "Unable to get Riak annotated field value"
+                                                : "Unable to get Riak annotated method value", t);
+        }
+    }
+
+    /**
+     * Sets the field's value or calls the setter.
+     * @param obj the domain object.
+     * @param value the value.
+     * @throws IllegalArgumentException if a field's value is of the wrong type.
+     * @throws IllegalStateException if the value can't be written.
+     */
+    void set(Object obj, Object value)
+    {
+        if (setter == null)
+        {
+            if (field != null)
+            {
+                ClassUtil.setFieldValue(field, obj, value);
+            }
+            else
+            {
+                ClassUtil.setMethodValue(method, obj, value);
+            }
+            return;
+        }
+
+        try
+        {
+            setter.invokeExact(obj, value);
+        }
+        catch (Error e)
+        {
+            throw e;
+        }
+        catch (ClassCastException | NullPointerException e)
+        {
+            // As thrown by Field.set()
+            if (field != null)
+            {
+                throw new IllegalArgumentException("Unable to set Riak annotated field value", e);
+            }
+            throw new IllegalStateException("Unable to set Riak annotated method value", e);
+        }
+        catch (Throwable t)
+        {
+            throw new IllegalStateException(field != null
+                                                ? "Unable to set Riak annotated field value"
+                                                : "Unable to set Riak annotated method value", t);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+import io.netty.channel.Channel;
+
+/**
+ * An idle connection held by a {@link ConnectionPool}, and when it became idle.
+ *
+ * @since 2.1
+ */
+class ChannelWithIdleTime
+{
+    private final Channel channel;
+    private final long idleStart;
+
+    ChannelWithIdleTime(Channel channel)
+    {
+        this.channel = channel;
+        idleStart = System.nanoTime();
+    }
+
+    Channel getChannel()
+    {
+        return channel;
+    }
+
+    long getIdleStart()
+    {
+        return idleStart;
+    }
+}
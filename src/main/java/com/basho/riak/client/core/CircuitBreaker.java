@@ -0,0 +1,225 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+/**
+ * Tracks the outcomes of the operations a {@link RiakNode} carries out and
+ * decides when the node should be taken out of service.
+ * <p>
+ * Outcomes are kept in a window of the most recent operations, so a node
+ * that starts failing under load is detected within a few milliseconds
+ * rather than at its next health check.
+ * </p>
+ *
+ * @since 2.1
+ * @see CircuitBreakerPolicy
+ */
+public final class CircuitBreaker
+{
+    /**
+     * The states of a CircuitBreaker.
+     */
+    public enum State
+    {
+        /**
+         * Operations are allowed and their outcomes recorded.
+         */
+        CLOSED,
+        /**
+         * The breaker has tripped; no operations are allowed.
+         */
+        OPEN,
+        /**
+         * A limited number of probe operations are allowed to decide
+         * whether to close the breaker or open it again.
+         */
+        HALF_OPEN
+    }
+
+    enum Transition
+    {
+        NONE, OPENED, CLOSED
+    }
+
+    private static final byte FAILED = 1;
+    private static final byte SLOW = 2;
+
+    private final CircuitBreakerPolicy policy;
+    // Guarded by this.
+    private final byte[] window;
+    private int next;
+    private int calls;
+    private int failures;
+    private int slowCalls;
+    private int probesAllowed;
+    private int probesSucceeded;
+    private long tripCount;
+
+    private volatile State state = State.CLOSED;
+
+    CircuitBreaker(CircuitBreakerPolicy policy)
+    {
+        this.policy = policy;
+        this.window = new byte[policy.getWindowSize()];
+    }
+
+    /**
+     * @return the policy this breaker was configured with.
+     */
+    public CircuitBreakerPolicy getPolicy()
+    {
+        return policy;
+    }
+
+    /**
+     * @return the current state of this breaker.
+     */
+    public State getState()
+    {
+        return state;
+    }
+
+    /**
+     * @return the number of times this breaker has tripped.
+     */
+    public synchronized long getTripCount()
+    {
+        return tripCount;
+    }
+
+    /**
+     * Decides whether an operation may be carried out.
+     * <p>
+     * While half open this hands out the policy's probe count and turns
+     * away everything else.
+     * </p>
+     * @return true if it may.
+     */
+    boolean allowRequest()
+    {
+        if (state == State.CLOSED)
+        {
+            return true;
+        }
+        synchronized (this)
+        {
+            if (state == State.HALF_OPEN && probesAllowed < policy.getProbeCount())
+            {
+                probesAllowed++;
+                return true;
+            }
+            return state == State.CLOSED;
+        }
+    }
+
+    /**
+     * Gives back a probe that was allowed but has no outcome to record,
+     * e.g. because the node had no connection for it.
+     */
+    synchronized void release()
+    {
+        if (state == State.HALF_OPEN && probesAllowed > probesSucceeded)
+        {
+            probesAllowed--;
+        }
+    }
+
+    /**
+     * Records the outcome of an operation.
+     * @param elapsedNanos how long the operation took.
+     * @param success false if the node failed it.
+     * @return {@link Transition#OPENED} if this tripped the breaker,
+     * {@link Transition#CLOSED} if it closed it.
+     */
+    synchronized Transition record(long elapsedNanos, boolean success)
+    {
+        long slowNanos = policy.getSlowCallDurationInNanos();
+        boolean slow = slowNanos > 0 && elapsedNanos >= slowNanos;
+
+        switch (state)
+        {
+            case CLOSED:
+                add((byte) ((success ? 0 : FAILED) | (slow ? SLOW : 0)));
+                if (calls >= policy.getMinimumCalls() &&
+                    (failures * 100 >= policy.getFailureRateThreshold() * calls ||
+                        (slowNanos > 0 && slowCalls * 100 >= policy.getSlowCallRateThreshold() * calls)))
+                {
+                    open();
+                    return Transition.OPENED;
+                }
+                return Transition.NONE;
+            case HALF_OPEN:
+                if (!success || slow)
+                {
+                    open();
+                    return Transition.OPENED;
+                }
+                if (++probesSucceeded >= policy.getProbeCount())
+                {
+                    state = State.CLOSED;
+                    return Transition.CLOSED;
+                }
+                return Transition.NONE;
+            default:
+                // Stragglers written before the breaker tripped.
+                return Transition.NONE;
+        }
+    }
+
+    /**
+     * Lets probe operations through once the open duration has passed.
+     * @return true if the breaker was open.
+     */
+    synchronized boolean halfOpen()
+    {
+        if (state != State.OPEN)
+        {
+            return false;
+        }
+        probesAllowed = 0;
+        probesSucceeded = 0;
+        state = State.HALF_OPEN;
+        return true;
+    }
+
+    private void add(byte outcome)
+    {
+        if (calls == window.length)
+        {
+            byte evicted = window[next];
+            failures -= evicted & FAILED;
+            slowCalls -= (evicted & SLOW) >> 1;
+        }
+        else
+        {
+            calls++;
+        }
+        window[next] = outcome;
+        failures += outcome & FAILED;
+        slowCalls += (outcome & SLOW) >> 1;
+        next = (next + 1) % window.length;
+    }
+
+    private void open()
+    {
+        state = State.OPEN;
+        tripCount++;
+        next = 0;
+        calls = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+}
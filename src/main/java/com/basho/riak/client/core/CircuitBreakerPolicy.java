@@ -0,0 +1,284 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configures the {@link CircuitBreaker} of each {@link RiakNode}.
+ * <p>
+ * A node's breaker keeps the outcomes of the last {@code windowSize}
+ * operations it carried out. Once it has seen at least {@code minimumCalls}
+ * of them, it trips when the share that failed, or the share that took
+ * longer than the slow call duration, reaches its threshold. The node is
+ * then taken out of service for the open duration, after which it is
+ * sent {@code probeCount} operations; if they all succeed it is restored,
+ * otherwise it is taken out of service again.
+ * </p>
+ * <p>
+ * Slow calls aren't counted unless a slow call duration is set, as what is
+ * slow depends on the application.
+ * </p>
+ *
+ * @since 2.1
+ * @see RiakNode.Builder#withCircuitBreaker(CircuitBreakerPolicy)
+ */
+public class CircuitBreakerPolicy
+{
+    private final int windowSize;
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final long slowCallDurationInNanos;
+    private final int slowCallRateThreshold;
+    private final long openDurationInNanos;
+    private final int probeCount;
+
+    private CircuitBreakerPolicy(Builder builder)
+    {
+        this.windowSize = builder.windowSize;
+        this.minimumCalls = Math.min(builder.minimumCalls, builder.windowSize);
+        this.failureRateThreshold = builder.failureRateThreshold;
+        this.slowCallDurationInNanos = TimeUnit.MILLISECONDS.toNanos(builder.slowCallDuration);
+        this.slowCallRateThreshold = builder.slowCallRateThreshold;
+        this.openDurationInNanos = TimeUnit.MILLISECONDS.toNanos(builder.openDuration);
+        this.probeCount = builder.probeCount;
+    }
+
+    /**
+     * @return the number of recent outcomes a breaker keeps.
+     */
+    public int getWindowSize()
+    {
+        return windowSize;
+    }
+
+    /**
+     * @return the number of outcomes a breaker needs before it can trip.
+     */
+    public int getMinimumCalls()
+    {
+        return minimumCalls;
+    }
+
+    /**
+     * @return the percentage of failed operations that trips a breaker.
+     */
+    public int getFailureRateThreshold()
+    {
+        return failureRateThreshold;
+    }
+
+    /**
+     * @return the time, in nanoseconds, above which an operation is slow;
+     * 0 if slow operations aren't counted.
+     */
+    public long getSlowCallDurationInNanos()
+    {
+        return slowCallDurationInNanos;
+    }
+
+    /**
+     * @return the percentage of slow operations that trips a breaker.
+     */
+    public int getSlowCallRateThreshold()
+    {
+        return slowCallRateThreshold;
+    }
+
+    /**
+     * @return the time, in nanoseconds, a node is out of service once its
+     * breaker trips.
+     */
+    public long getOpenDurationInNanos()
+    {
+        return openDurationInNanos;
+    }
+
+    /**
+     * @return the number of operations that must succeed to restore a node.
+     */
+    public int getProbeCount()
+    {
+        return probeCount;
+    }
+
+    /**
+     * Builder used to construct a CircuitBreakerPolicy.
+     */
+    public static class Builder
+    {
+        /**
+         * The default number of recent outcomes a breaker keeps.
+         * @see #withWindowSize(int)
+         */
+        public final static int DEFAULT_WINDOW_SIZE = 50;
+        /**
+         * The default number of outcomes a breaker needs before it can trip.
+         * @see #withMinimumCalls(int)
+         */
+        public final static int DEFAULT_MINIMUM_CALLS = 20;
+        /**
+         * The default percentage of failed operations that trips a breaker.
+         * @see #withFailureRateThreshold(int)
+         */
+        public final static int DEFAULT_FAILURE_RATE_THRESHOLD = 50;
+        /**
+         * The default percentage of slow operations that trips a breaker.
+         * @see #withSlowCallThreshold(int, int)
+         */
+        public final static int DEFAULT_SLOW_CALL_RATE_THRESHOLD = 50;
+        /**
+         * The default time, in milliseconds, a node is out of service once
+         * its breaker trips.
+         * @see #withOpenDuration(int)
+         */
+        public final static int DEFAULT_OPEN_DURATION = 2000;
+        /**
+         * The default number of operations that must succeed to restore a node.
+         * @see #withProbeCount(int)
+         */
+        public final static int DEFAULT_PROBE_COUNT = 3;
+
+        private int windowSize = DEFAULT_WINDOW_SIZE;
+        private int minimumCalls = DEFAULT_MINIMUM_CALLS;
+        private int failureRateThreshold = DEFAULT_FAILURE_RATE_THRESHOLD;
+        private int slowCallDuration;
+        private int slowCallRateThreshold = DEFAULT_SLOW_CALL_RATE_THRESHOLD;
+        private int openDuration = DEFAULT_OPEN_DURATION;
+        private int probeCount = DEFAULT_PROBE_COUNT;
+
+        /**
+         * Set the number of recent outcomes a breaker keeps.
+         * @param windowSize the number of outcomes.
+         * @return a reference to this object.
+         * @see #DEFAULT_WINDOW_SIZE
+         */
+        public Builder withWindowSize(int windowSize)
+        {
+            if (windowSize < 1)
+            {
+                throw new IllegalArgumentException("Window size must be at least 1");
+            }
+            this.windowSize = windowSize;
+            return this;
+        }
+
+        /**
+         * Set the number of outcomes a breaker needs before it can trip.
+         * <p>
+         * This keeps a breaker from tripping on the first failure after a
+         * node starts or is restored. It is capped at the window size.
+         * </p>
+         * @param minimumCalls the number of outcomes.
+         * @return a reference to this object.
+         * @see #DEFAULT_MINIMUM_CALLS
+         */
+        public Builder withMinimumCalls(int minimumCalls)
+        {
+            if (minimumCalls < 1)
+            {
+                throw new IllegalArgumentException("Minimum calls must be at least 1");
+            }
+            this.minimumCalls = minimumCalls;
+            return this;
+        }
+
+        /**
+         * Set the percentage of failed operations that trips a breaker.
+         * @param failureRateThreshold a percentage from 1 to 100.
+         * @return a reference to this object.
+         * @see #DEFAULT_FAILURE_RATE_THRESHOLD
+         */
+        public Builder withFailureRateThreshold(int failureRateThreshold)
+        {
+            checkPercentage(failureRateThreshold);
+            this.failureRateThreshold = failureRateThreshold;
+            return this;
+        }
+
+        /**
+         * Trip breakers when too many operations are slow.
+         * @param slowCallDuration the time, in milliseconds, above which an
+         * operation is slow; 0 to not count slow operations.
+         * @param slowCallRateThreshold a percentage from 1 to 100.
+         * @return a reference to this object.
+         * @see #DEFAULT_SLOW_CALL_RATE_THRESHOLD
+         */
+        public Builder withSlowCallThreshold(int slowCallDuration, int slowCallRateThreshold)
+        {
+            if (slowCallDuration < 0)
+            {
+                throw new IllegalArgumentException("Slow call duration cannot be negative");
+            }
+            checkPercentage(slowCallRateThreshold);
+            this.slowCallDuration = slowCallDuration;
+            this.slowCallRateThreshold = slowCallRateThreshold;
+            return this;
+        }
+
+        /**
+         * Set the time a node is out of service once its breaker trips.
+         * @param openDuration the time in milliseconds.
+         * @return a reference to this object.
+         * @see #DEFAULT_OPEN_DURATION
+         */
+        public Builder withOpenDuration(int openDuration)
+        {
+            if (openDuration < 1)
+            {
+                throw new IllegalArgumentException("Open duration must be at least 1");
+            }
+            this.openDuration = openDuration;
+            return this;
+        }
+
+        /**
+         * Set the number of operations that must succeed to restore a node.
+         * <p>
+         * While these are outstanding the node turns away any others.
+         * </p>
+         * @param probeCount the number of operations.
+         * @return a reference to this object.
+         * @see #DEFAULT_PROBE_COUNT
+         */
+        public Builder withProbeCount(int probeCount)
+        {
+            if (probeCount < 1)
+            {
+                throw new IllegalArgumentException("Probe count must be at least 1");
+            }
+            this.probeCount = probeCount;
+            return this;
+        }
+
+        private static void checkPercentage(int percentage)
+        {
+            if (percentage < 1 || percentage > 100)
+            {
+                throw new IllegalArgumentException("Threshold must be from 1 to 100 percent");
+            }
+        }
+
+        /**
+         * Construct the CircuitBreakerPolicy.
+         * @return a new CircuitBreakerPolicy.
+         */
+        public CircuitBreakerPolicy build()
+        {
+            return new CircuitBreakerPolicy(this);
+        }
+    }
+}
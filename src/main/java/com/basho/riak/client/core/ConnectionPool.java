@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
+import java.util.List;
+
+/**
+ * The pool of connections to a single {@link RiakNode}.
+ * <p>
+ * A pool tracks two things: how many connections are checked out (in use or
+ * being opened), bounded by the node's maximum connections, and the idle
+ * connections that are open but not in use. The node opens, closes and
+ * watches the connections themselves; the pool never blocks and never
+ * touches a channel's pipeline or listeners.
+ * </p>
+ * <p>
+ * Checking out a connection is a two step process: {@link #tryAcquire()} a
+ * permit, then {@link #pollIdle()} for an idle connection or open a new one.
+ * Returning it is the reverse: {@link #offerIdle(Channel)} if it is still
+ * usable, then {@link #release()} the permit.
+ * </p>
+ *
+ * @since 2.1
+ * @see ConnectionPoolFactory
+ */
+public interface ConnectionPool
+{
+    /**
+     * Takes a permit to check out a connection, if one is available.
+     * @return true if a permit was taken.
+     */
+    boolean tryAcquire();
+
+    /**
+     * Gives back a permit taken by {@link #tryAcquire()}.
+     */
+    void release();
+
+    /**
+     * @return the number of connections that could be checked out right now.
+     */
+    int availablePermits();
+
+    /**
+     * @return the maximum number of connections that can be checked out.
+     */
+    int getMaxConnections();
+
+    /**
+     * Changes the maximum number of connections that can be checked out.
+     * @param maxConnections the new maximum.
+     */
+    void setMaxConnections(int maxConnections);
+
+    /**
+     * Removes an open idle connection from the pool.
+     * Idle connections found to be closed are discarded.
+     * @return an open connection, or null if there are none.
+     */
+    Channel pollIdle();
+
+    /**
+     * Removes an open idle connection from the pool, preferring one
+     * registered on the given event loop.
+     * @param eventLoop the preferred event loop.
+     * @return an open connection, on the preferred event loop if there is
+     * one, or null if there are none.
+     */
+    Channel pollIdle(EventLoop eventLoop);
+
+    /**
+     * Adds a connection to the idle connections.
+     * @param channel the connection, which must be open.
+     */
+    void offerIdle(Channel channel);
+
+    /**
+     * @return true if there may be idle connections.
+     */
+    boolean hasIdle();
+
+    /**
+     * @return the (approximate) number of idle connections.
+     */
+    int idleCount();
+
+    /**
+     * Removes connections that have been idle for longer than the timeout,
+     * least recently used first.
+     * @param idleTimeoutInNanos how long a connection may be idle.
+     * @param maxToRemove the most connections to remove.
+     * @return the removed connections, for the caller to close.
+     */
+    List<Channel> removeIdle(long idleTimeoutInNanos, int maxToRemove);
+
+    /**
+     * Removes all idle connections.
+     * @return the removed connections, for the caller to close.
+     */
+    List<Channel> removeAllIdle();
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+/**
+ * Provides a factory method for {@link ConnectionPool}s.
+ * <p>
+ * Each {@link RiakNode} needs its own pool. When configuring a RiakNode, a
+ * ConnectionPoolFactory is supplied for this purpose.
+ * </p>
+ *
+ * @since 2.1
+ * @see RiakNode.Builder#withConnectionPoolFactory(ConnectionPoolFactory)
+ */
+public interface ConnectionPoolFactory
+{
+    /**
+     * @param maxConnections the maximum number of connections; less than 1 means unlimited.
+     * @return a new, empty pool.
+     */
+    ConnectionPool makePool(int maxConnections);
+}
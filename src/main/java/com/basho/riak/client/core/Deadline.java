@@ -0,0 +1,143 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A point in time by which an operation must complete.
+ * <p>
+ * A deadline can be set on a {@link FutureOperation} directly, or attached to
+ * the current thread so that every operation the thread executes without one
+ * of its own inherits it:
+ * </p>
+ * <pre>
+ * Deadline previous = Deadline.after(500, TimeUnit.MILLISECONDS).attach();
+ * try
+ * {
+ *     // operations executed here must complete within 500ms
+ * }
+ * finally
+ * {
+ *     Deadline.restore(previous);
+ * }
+ * </pre>
+ * <p>
+ * Listeners on an operation with a deadline run with that deadline attached,
+ * so operations they execute in turn share it.
+ * </p>
+ *
+ * @since 2.1
+ */
+public final class Deadline
+{
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<Deadline>();
+
+    // System.nanoTime() based.
+    private final long deadlineNanos;
+
+    private Deadline(long deadlineNanos)
+    {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Creates a deadline the given amount of time from now.
+     * @param timeout the amount of time.
+     * @param unit the unit of the timeout.
+     * @return a new Deadline.
+     */
+    public static Deadline after(long timeout, TimeUnit unit)
+    {
+        return new Deadline(System.nanoTime() + unit.toNanos(timeout));
+    }
+
+    /**
+     * Returns the deadline attached to the current thread.
+     * @return the deadline, or null if there isn't one.
+     */
+    public static Deadline current()
+    {
+        return CURRENT.get();
+    }
+
+    /**
+     * Attaches this deadline to the current thread.
+     * @return the deadline previously attached, to be passed to {@link #restore(Deadline)}.
+     */
+    public Deadline attach()
+    {
+        Deadline previous = CURRENT.get();
+        CURRENT.set(this);
+        return previous;
+    }
+
+    /**
+     * Restores the deadline attached to the current thread before a call to
+     * {@link #attach()}.
+     * @param previous the value returned by {@code attach()}; may be null.
+     */
+    public static void restore(Deadline previous)
+    {
+        if (previous == null)
+        {
+            CURRENT.remove();
+        }
+        else
+        {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Returns the time left before this deadline.
+     * @param unit the unit to return the time in.
+     * @return the time left, or 0 if this deadline has passed.
+     */
+    public long getRemainingTime(TimeUnit unit)
+    {
+        long remaining = deadlineNanos - System.nanoTime();
+        return remaining > 0 ? unit.convert(remaining, TimeUnit.NANOSECONDS) : 0;
+    }
+
+    /**
+     * @return true if this deadline has passed.
+     */
+    public boolean isExpired()
+    {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Returns whichever of this deadline and another comes first.
+     * @param other another deadline; may be null.
+     * @return the earlier deadline.
+     */
+    public Deadline earliest(Deadline other)
+    {
+        if (other == null || deadlineNanos - other.deadlineNanos <= 0)
+        {
+            return this;
+        }
+        return other;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Deadline{remaining=" + getRemainingTime(TimeUnit.MILLISECONDS) + "ms}";
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+
+/**
+ * The default connection pool.
+ * <p>
+ * Idle connections are kept in a single LIFO deque and checked out
+ * connections are counted with a semaphore. Simple and fair, but every
+ * thread using the node contends on the same two structures.
+ * </p>
+ *
+ * @since 2.1
+ * @see StripedConnectionPool
+ */
+public class DefaultConnectionPool implements ConnectionPool
+{
+    /**
+     * Makes DefaultConnectionPools.
+     */
+    public static final ConnectionPoolFactory FACTORY = new ConnectionPoolFactory()
+    {
+        @Override
+        public ConnectionPool makePool(int maxConnections)
+        {
+            return new DefaultConnectionPool(maxConnections);
+        }
+    };
+
+    private final LinkedBlockingDeque<ChannelWithIdleTime> available =
+        new LinkedBlockingDeque<ChannelWithIdleTime>();
+    private final Sync permits;
+
+    public DefaultConnectionPool(int maxConnections)
+    {
+        permits = new Sync(maxConnections < 1 ? Integer.MAX_VALUE : maxConnections);
+    }
+
+    @Override
+    public boolean tryAcquire()
+    {
+        return permits.tryAcquire();
+    }
+
+    @Override
+    public void release()
+    {
+        permits.release();
+    }
+
+    @Override
+    public int availablePermits()
+    {
+        return permits.availablePermits();
+    }
+
+    @Override
+    public int getMaxConnections()
+    {
+        return permits.getMaxPermits();
+    }
+
+    @Override
+    public void setMaxConnections(int maxConnections)
+    {
+        permits.setMaxPermits(maxConnections);
+    }
+
+    @Override
+    public Channel pollIdle()
+    {
+        ChannelWithIdleTime cwi;
+        while ((cwi = available.poll()) != null)
+        {
+            Channel channel = cwi.getChannel();
+            if (channel.isOpen())
+            {
+                return channel;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Channel pollIdle(EventLoop eventLoop)
+    {
+        for (ChannelWithIdleTime cwi : available)
+        {
+            Channel channel = cwi.getChannel();
+            if (channel.eventLoop() == eventLoop && channel.isOpen() && available.remove(cwi))
+            {
+                return channel;
+            }
+        }
+        return pollIdle();
+    }
+
+    @Override
+    public void offerIdle(Channel channel)
+    {
+        available.offerFirst(new ChannelWithIdleTime(channel));
+    }
+
+    @Override
+    public boolean hasIdle()
+    {
+        return !available.isEmpty();
+    }
+
+    @Override
+    public int idleCount()
+    {
+        return available.size();
+    }
+
+    @Override
+    public List<Channel> removeIdle(long idleTimeoutInNanos, int maxToRemove)
+    {
+        List<Channel> removed = new LinkedList<Channel>();
+        // Note this will not throw a ConncurrentModificationException
+        // and if hasNext() returns true you are guaranteed that
+        // the next() will return a value (even if it has already
+        // been removed from the Deque between those calls).
+        Iterator<ChannelWithIdleTime> i = available.descendingIterator();
+        while (i.hasNext() && removed.size() < maxToRemove)
+        {
+            ChannelWithIdleTime cwi = i.next();
+            if (cwi.getIdleStart() + idleTimeoutInNanos < System.nanoTime())
+            {
+                if (available.remove(cwi))
+                {
+                    removed.add(cwi.getChannel());
+                }
+            }
+            else
+            {
+                // Since we are descending and this is a LIFO,
+                // if the current connection hasn't been idle beyond
+                // the threshold, there's no reason to descend further
+                break;
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public List<Channel> removeAllIdle()
+    {
+        List<Channel> removed = new LinkedList<Channel>();
+        ChannelWithIdleTime cwi;
+        while ((cwi = available.poll()) != null)
+        {
+            removed.add(cwi.getChannel());
+        }
+        return removed;
+    }
+
+    private static class Sync extends Semaphore
+    {
+        private static final long serialVersionUID = -5118488872281021072L;
+        private volatile int maxPermits;
+
+        public Sync(int numPermits)
+        {
+            super(numPermits);
+            this.maxPermits = numPermits;
+        }
+
+        public Sync(int numPermits, boolean fair)
+        {
+            super(numPermits, fair);
+            this.maxPermits = numPermits;
+        }
+
+        public int getMaxPermits()
+        {
+            return maxPermits;
+        }
+
+        // Synchronized because we're (potentially) changing this.maxPermits
+        synchronized void setMaxPermits(int maxPermits)
+        {
+            int diff = maxPermits - this.maxPermits;
+
+            if (diff == 0)
+            {
+                return;
+            }
+            else if (diff > 0)
+            {
+                release(diff);
+            }
+            else if (diff < 0)
+            {
+                reducePermits(diff);
+            }
+
+            this.maxPermits = maxPermits;
+        }
+
+    }
+}
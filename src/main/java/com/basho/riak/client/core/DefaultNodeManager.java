@@ -74,10 +74,18 @@ public class DefaultNodeManager implements NodeManager, NodeStateListener
             {
                 int startIndex = index.getAndIncrement();
                 int currentIndex = startIndex;
+                boolean skippedPrevious = false;
 
                 do
                 {
-                    if (healthy.get(Math.abs(currentIndex % healthy.size())).execute(operation))
+                    RiakNode node = healthy.get(Math.abs(currentIndex % healthy.size()));
+                    // Try the node the operation was last sent to only if no
+                    // other will take it.
+                    if (node == previousNode)
+                    {
+                        skippedPrevious = true;
+                    }
+                    else if (node.execute(operation))
                     {
                         executed = true;
                         break;
@@ -85,6 +93,11 @@ public class DefaultNodeManager implements NodeManager, NodeStateListener
                     currentIndex++;
                 }
                 while (Math.abs(currentIndex % healthy.size()) != Math.abs(startIndex % healthy.size()));
+
+                if (!executed && skippedPrevious)
+                {
+                    executed = previousNode.execute(operation);
+                }
             }
             else if (healthy.size() == 1)
             {
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The default {@link RetryPolicy}: exponential backoff with jitter, limited
+ * by a retry budget.
+ * <p>
+ * The n<sup>th</sup> retry waits a random time between zero and the initial
+ * backoff times 2<sup>n-1</sup>, capped at the maximum backoff. Spreading
+ * retries out at random keeps the clients of a node that flaps from all
+ * retrying at the same moment.
+ * </p>
+ * <p>
+ * The budget is a token bucket shared by every operation on the cluster.
+ * It starts full; each failure takes a token and each success puts back a
+ * fraction of one. Retries stop while the bucket is less than half full,
+ * so when most operations are failing the cluster isn't also hit with
+ * every one of them again.
+ * </p>
+ * <p>
+ * Operations that aren't {@link FutureOperation#isIdempotent() idempotent}
+ * are only retried if the failed attempt was never written to a
+ * connection; otherwise Riak may already have carried them out.
+ * </p>
+ *
+ * @since 2.1
+ */
+public class ExponentialBackoffRetryPolicy implements RetryPolicy
+{
+    private static final long TOKEN = 1000;
+
+    private final long initialBackoffInNanos;
+    private final long maxBackoffInNanos;
+    private final long maxTokens;
+    private final long tokensPerSuccess;
+    private final boolean retryNonIdempotent;
+    private final AtomicLong tokens;
+
+    private ExponentialBackoffRetryPolicy(Builder builder)
+    {
+        this.initialBackoffInNanos = TimeUnit.MILLISECONDS.toNanos(builder.initialBackoff);
+        this.maxBackoffInNanos = TimeUnit.MILLISECONDS.toNanos(builder.maxBackoff);
+        this.maxTokens = builder.retryBudget * TOKEN;
+        this.tokensPerSuccess = (long) (builder.tokenRatio * TOKEN);
+        this.retryNonIdempotent = builder.retryNonIdempotent;
+        this.tokens = new AtomicLong(maxTokens);
+    }
+
+    @Override
+    public long getRetryDelay(FutureOperation operation, int attempts, boolean written)
+    {
+        if (written && !retryNonIdempotent && !operation.isIdempotent())
+        {
+            return NO_RETRY;
+        }
+        if (maxTokens > 0 && !takeToken())
+        {
+            return NO_RETRY;
+        }
+
+        int doublings = Math.min(Math.max(attempts - 1, 0), 62);
+        long backoff = initialBackoffInNanos > (maxBackoffInNanos >>> doublings)
+            ? maxBackoffInNanos : initialBackoffInNanos << doublings;
+        return backoff == 0 ? 0 : ThreadLocalRandom.current().nextLong(backoff + 1);
+    }
+
+    /**
+     * Charges a failure to the budget.
+     * @return true if enough of the budget remains to retry.
+     */
+    private boolean takeToken()
+    {
+        long current;
+        long updated;
+        do
+        {
+            current = tokens.get();
+            updated = Math.max(0, current - TOKEN);
+        }
+        while (!tokens.compareAndSet(current, updated));
+        return updated > maxTokens / 2;
+    }
+
+    @Override
+    public void operationSucceeded(FutureOperation operation)
+    {
+        if (maxTokens == 0)
+        {
+            return;
+        }
+        long current;
+        do
+        {
+            current = tokens.get();
+            if (current >= maxTokens)
+            {
+                return;
+            }
+        }
+        while (!tokens.compareAndSet(current, Math.min(maxTokens, current + tokensPerSuccess)));
+    }
+
+    /**
+     * @return the retry budget's remaining tokens.
+     */
+    public double getAvailableTokens()
+    {
+        return (double) tokens.get() / TOKEN;
+    }
+
+    /**
+     * Builder used to construct an ExponentialBackoffRetryPolicy.
+     */
+    public static class Builder
+    {
+        /**
+         * The default backoff, in milliseconds, before the first retry.
+         * @see #withInitialBackoff(int)
+         */
+        public final static int DEFAULT_INITIAL_BACKOFF = 5;
+        /**
+         * The default cap, in milliseconds, on the backoff before a retry.
+         * @see #withMaxBackoff(int)
+         */
+        public final static int DEFAULT_MAX_BACKOFF = 500;
+        /**
+         * The default size of the retry budget, in tokens.
+         * @see #withRetryBudget(int, double)
+         */
+        public final static int DEFAULT_RETRY_BUDGET = 100;
+        /**
+         * The default share of a token each success returns to the budget.
+         * @see #withRetryBudget(int, double)
+         */
+        public final static double DEFAULT_TOKEN_RATIO = 0.1;
+
+        private int initialBackoff = DEFAULT_INITIAL_BACKOFF;
+        private int maxBackoff = DEFAULT_MAX_BACKOFF;
+        private int retryBudget = DEFAULT_RETRY_BUDGET;
+        private double tokenRatio = DEFAULT_TOKEN_RATIO;
+        private boolean retryNonIdempotent;
+
+        /**
+         * Set the most time to wait before the first retry.
+         * <p>
+         * A value of 0 retries immediately every time.
+         * </p>
+         * @param initialBackoff the backoff in milliseconds.
+         * @return a reference to this object.
+         * @see #DEFAULT_INITIAL_BACKOFF
+         */
+        public Builder withInitialBackoff(int initialBackoff)
+        {
+            if (initialBackoff < 0)
+            {
+                throw new IllegalArgumentException("Initial backoff cannot be negative");
+            }
+            this.initialBackoff = initialBackoff;
+            return this;
+        }
+
+        /**
+         * Set the most time to wait before any retry.
+         * @param maxBackoff the backoff in milliseconds.
+         * @return a reference to this object.
+         * @see #DEFAULT_MAX_BACKOFF
+         */
+        public Builder withMaxBackoff(int maxBackoff)
+        {
+            if (maxBackoff < 0)
+            {
+                throw new IllegalArgumentException("Max backoff cannot be negative");
+            }
+            this.maxBackoff = maxBackoff;
+            return this;
+        }
+
+        /**
+         * Set the retry budget.
+         * @param retryBudget the number of tokens in the bucket; 0 disables
+         * the budget.
+         * @param tokenRatio the share of a token each success returns.
+         * @return a reference to this object.
+         * @see #DEFAULT_RETRY_BUDGET
+         * @see #DEFAULT_TOKEN_RATIO
+         */
+        public Builder withRetryBudget(int retryBudget, double tokenRatio)
+        {
+            if (retryBudget < 0)
+            {
+                throw new IllegalArgumentException("Retry budget cannot be negative");
+            }
+            if (tokenRatio <= 0 || tokenRatio > 1)
+            {
+                throw new IllegalArgumentException("Token ratio must be greater than 0 and at most 1");
+            }
+            this.retryBudget = retryBudget;
+            this.tokenRatio = tokenRatio;
+            return this;
+        }
+
+        /**
+         * Set whether to retry operations that aren't idempotent after they
+         * have been written.
+         * <p>
+         * By default they aren't, as Riak may have carried out the failed
+         * attempt; e.g. a counter may have been incremented or an object
+         * stored without a vclock may gain a sibling.
+         * </p>
+         * @param retryNonIdempotent true to retry them anyway.
+         * @return a reference to this object.
+         */
+        public Builder withNonIdempotentRetries(boolean retryNonIdempotent)
+        {
+            this.retryNonIdempotent = retryNonIdempotent;
+            return this;
+        }
+
+        /**
+         * Construct the ExponentialBackoffRetryPolicy.
+         * @return a new ExponentialBackoffRetryPolicy.
+         */
+        public ExponentialBackoffRetryPolicy build()
+        {
+            return new ExponentialBackoffRetryPolicy(this);
+        }
+    }
+}
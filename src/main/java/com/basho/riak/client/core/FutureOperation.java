@@ -16,15 +16,18 @@
 package com.basho.riak.client.core;
 
 
+import io.netty.channel.Channel;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -89,99 +92,211 @@ public abstract class FutureOperation<T, U, S> implements RiakFuture<T,S>
         CLEANUP_WAIT
     }
 
+    // Sorted, for stateCheck()
+    private static final State[] LIVE_STATES = { State.CREATED, State.WRITTEN, State.RETRY };
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<FutureOperation, State> STATE_UPDATER =
+        AtomicReferenceFieldUpdater.newUpdater(FutureOperation.class, State.class, "state");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<FutureOperation, Throwable> ABORT_CAUSE_UPDATER =
+        AtomicReferenceFieldUpdater.newUpdater(FutureOperation.class, Throwable.class, "abortCause");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<FutureOperation, Object> LISTENERS_UPDATER =
+        AtomicReferenceFieldUpdater.newUpdater(FutureOperation.class, Object.class, "listeners");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<FutureOperation, Waiter> WAITERS_UPDATER =
+        AtomicReferenceFieldUpdater.newUpdater(FutureOperation.class, Waiter.class, "waiters");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<FutureOperation> ATTEMPT_OPEN_UPDATER =
+        AtomicIntegerFieldUpdater.newUpdater(FutureOperation.class, "attemptOpen");
+
+    // Replaces the listeners once they've been fired.
+    private static final Object FIRED = new Object();
+    // Replaces the waiters once they've been released.
+    private static final Waiter RELEASED = new Waiter(null);
 
     private final Logger logger = LoggerFactory.getLogger(FutureOperation.class);
-    private final CountDownLatch latch = new CountDownLatch(1);
     private volatile OperationRetrier retrier;
     private volatile int remainingTries = 1;
-    private volatile List<U> rawResponse = new LinkedList<U>();
+    // Responses are only added by the thread reading them off the connection,
+    // before it moves the state on. Most operations have a single response,
+    // kept inline; streaming operations spill over into a list.
+    private int responseCount;
+    private U firstResponse;
+    private List<U> responses;
     private volatile Throwable exception;
+    // Claimed by the first call to abort(); only the cause if it then cancels us.
+    private volatile Throwable abortCause;
     private volatile T converted;
     private volatile State state = State.CREATED;
     private volatile RiakNode lastNode;
+    private volatile long lastNodeTime;
+    // 1 from the last node taking this operation until that attempt ends.
+    private volatile int attemptOpen;
+    private volatile long executionStart;
+    private volatile OperationTrace trace;
+    private volatile OperationPriority priority;
+    private volatile Deadline deadline;
+    private volatile boolean lastAttemptWritten;
 
-    private final ReentrantLock listenersLock = new ReentrantLock();
-    private final HashSet<RiakFutureListener<T,S>> listeners = new HashSet<>();
-    private volatile boolean listenersFired = false;
+    // Null, a single listener, an Object[] of them, or FIRED.
+    private volatile Object listeners;
+    // A stack of threads blocked waiting for completion, or RELEASED.
+    private volatile Waiter waiters;
 
     @Override
     public void addListener(RiakFutureListener<T,S> listener)
     {
-
-        boolean fireNow = false;
-        listenersLock.lock();
-        try
+        for (;;)
         {
-            if (listenersFired)
+            Object current = listeners;
+            Object updated;
+            if (current == FIRED)
+            {
+                // the future has already been completed, fire on caller's thread
+                Deadline previous = attachDeadline();
+                try
+                {
+                    listener.handle(this);
+                }
+                finally
+                {
+                    Deadline.restore(previous);
+                }
+                return;
+            }
+            else if (current == null)
+            {
+                updated = listener;
+            }
+            else if (current instanceof Object[])
+            {
+                Object[] array = (Object[]) current;
+                if (indexOf(array, listener) >= 0)
+                {
+                    return;
+                }
+                array = Arrays.copyOf(array, array.length + 1);
+                array[array.length - 1] = listener;
+                updated = array;
+            }
+            else if (current.equals(listener))
             {
-                fireNow = true;
+                return;
             }
             else
             {
-                listeners.add(listener);
+                updated = new Object[] { current, listener };
             }
-        }
-        finally
-        {
-            listenersLock.unlock();
-        }
 
-        // the future has already been completed, fire on caller's thread
-        if (fireNow)
-        {
-            listener.handle(this);
+            if (LISTENERS_UPDATER.compareAndSet(this, current, updated))
+            {
+                return;
+            }
         }
-
     }
 
     @Override
     public void removeListener(RiakFutureListener<T,S> listener)
     {
-        listenersLock.lock();
-        try
+        for (;;)
         {
-            if (!listenersFired)
+            Object current = listeners;
+            Object updated;
+            if (current == null || current == FIRED)
+            {
+                // we don't care, they've already been fired
+                return;
+            }
+            else if (current instanceof Object[])
+            {
+                Object[] array = (Object[]) current;
+                int index = indexOf(array, listener);
+                if (index < 0)
+                {
+                    return;
+                }
+                else if (array.length == 2)
+                {
+                    updated = array[1 - index];
+                }
+                else
+                {
+                    Object[] smaller = new Object[array.length - 1];
+                    System.arraycopy(array, 0, smaller, 0, index);
+                    System.arraycopy(array, index + 1, smaller, index, smaller.length - index);
+                    updated = smaller;
+                }
+            }
+            else if (current.equals(listener))
             {
-                listeners.remove(listener);
-            } // else, we don't care, they've already been fired
+                updated = null;
+            }
+            else
+            {
+                return;
+            }
+
+            if (LISTENERS_UPDATER.compareAndSet(this, current, updated))
+            {
+                return;
+            }
         }
-        finally
+    }
+
+    private static int indexOf(Object[] array, Object listener)
+    {
+        for (int i = 0; i < array.length; i++)
         {
-            listenersLock.unlock();
+            if (array[i].equals(listener))
+            {
+                return i;
+            }
         }
+        return -1;
     }
 
+    @SuppressWarnings("unchecked")
     private void fireListeners()
     {
+        Object current = LISTENERS_UPDATER.getAndSet(this, FIRED);
+        if (current == null || current == FIRED)
+        {
+            return;
+        }
 
-        boolean fireNow = false;
-        listenersLock.lock();
+        // Anything the listeners execute inherits our deadline.
+        Deadline previous = attachDeadline();
         try
         {
-            if (!listenersFired)
+            if (current instanceof Object[])
             {
-                fireNow = true;
-                listenersFired = true;
+                for (Object listener : (Object[]) current)
+                {
+                    ((RiakFutureListener<T,S>) listener).handle(this);
+                }
+            }
+            else
+            {
+                ((RiakFutureListener<T,S>) current).handle(this);
             }
         }
         finally
         {
-            listenersLock.unlock();
-        }
-
-        if (fireNow)
-        {
-            for (RiakFutureListener<T,S> listener : listeners)
-            {
-                listener.handle(this);
-            }
+            Deadline.restore(previous);
         }
+    }
 
+    private Deadline attachDeadline()
+    {
+        Deadline d = deadline;
+        return d != null ? d.attach() : Deadline.current();
     }
 
-    final synchronized void setRetrier(OperationRetrier retrier, int numTries)
+    final void setRetrier(OperationRetrier retrier, int numTries)
     {
-        stateCheck(State.CREATED);
+        stateCheck(state, State.CREATED);
         this.retrier = retrier;
         this.remainingTries = numTries;
     }
@@ -194,33 +309,246 @@ public abstract class FutureOperation<T, U, S> implements RiakFuture<T,S>
     final void setLastNode(RiakNode node)
     {
         this.lastNode = node;
+        this.lastNodeTime = System.nanoTime();
+        this.attemptOpen = 1;
+        traceEvent(TraceEvent.NODE_SELECTED);
+        node.attemptStarted();
+    }
+
+    /**
+     * Called by the node this operation was last given to if it turned the
+     * operation away, so no attempt there is reported as having ended.
+     */
+    final void attemptRejected()
+    {
+        RiakNode node = lastNode;
+        if (node != null && ATTEMPT_OPEN_UPDATER.compareAndSet(this, 1, 0))
+        {
+            node.attemptRejected();
+        }
+    }
+
+    /**
+     * Sets the trace this operation reports its events to.
+     * @param trace the trace, or null to not trace this operation.
+     */
+    final void setTrace(OperationTrace trace)
+    {
+        this.trace = trace;
+    }
+
+    /**
+     * Reports an event to this operation's trace, if it is being traced.
+     * @param event the event.
+     */
+    final void traceEvent(TraceEvent event)
+    {
+        OperationTrace t = trace;
+        if (t != null)
+        {
+            t.event(event, System.nanoTime(), lastNode);
+        }
+    }
+
+    private void traceCompleted(Throwable cause)
+    {
+        OperationTrace t = trace;
+        if (t != null)
+        {
+            t.completed(System.nanoTime(), cause);
+        }
+    }
+
+    /**
+     * @return when the cluster executed this operation, from {@link System#nanoTime()}.
+     */
+    final long getExecutionStart()
+    {
+        return executionStart;
+    }
+
+    final void setExecutionStart(long executionStart)
+    {
+        this.executionStart = executionStart;
+    }
+
+    /**
+     * Tells the node this operation was last given to that the attempt
+     * there has ended, once per attempt.
+     * @param cause the reason it failed, or null if it succeeded.
+     */
+    private void attemptFinished(Throwable cause)
+    {
+        RiakNode node = lastNode;
+        if (node != null && ATTEMPT_OPEN_UPDATER.compareAndSet(this, 1, 0))
+        {
+            node.attemptFinished(System.nanoTime() - lastNodeTime, cause);
+        }
+    }
+
+    /**
+     * @return true if the last failed attempt was written to a connection.
+     */
+    final boolean wasLastAttemptWritten()
+    {
+        return lastAttemptWritten;
+    }
+
+    /**
+     * Returns the priority of this operation if it has to wait in the
+     * cluster's operation queue.
+     * @return the priority set with {@link #setPriority(OperationPriority)},
+     * or else the default for this type of operation.
+     */
+    public final OperationPriority getPriority()
+    {
+        OperationPriority p = priority;
+        return p != null ? p : defaultPriority();
+    }
+
+    /**
+     * Sets the priority of this operation if it has to wait in the cluster's
+     * operation queue.
+     * @param priority the priority, or null for the default.
+     */
+    public final void setPriority(OperationPriority priority)
+    {
+        this.priority = priority;
+    }
+
+    /**
+     * Returns the deadline by which this operation must complete.
+     * @return the deadline, or null if there isn't one.
+     */
+    public final Deadline getDeadline()
+    {
+        return deadline;
+    }
+
+    /**
+     * Sets the deadline by which this operation must complete.
+     * <p>
+     * If the operation has not completed by then it is failed with a
+     * {@link TimeoutException} and the connection it is using, if any, is
+     * closed. An operation executed without a deadline inherits the one
+     * attached to the executing thread, if any; see {@link Deadline}.
+     * Must be set before the operation is executed.
+     * </p>
+     * @param deadline the deadline, or null for none.
+     */
+    public final void setDeadline(Deadline deadline)
+    {
+        this.deadline = deadline;
+    }
+
+    /**
+     * Sets the deadline by which this operation must complete to the given
+     * amount of time from now.
+     * @param timeout the amount of time.
+     * @param unit the unit of the timeout.
+     * @see #setDeadline(Deadline)
+     */
+    public final void setDeadline(long timeout, TimeUnit unit)
+    {
+        setDeadline(Deadline.after(timeout, unit));
+    }
+
+    /**
+     * The priority of this type of operation unless one is set.
+     * @return {@link OperationPriority#NORMAL}
+     */
+    protected OperationPriority defaultPriority()
+    {
+        return OperationPriority.NORMAL;
+    }
+
+    /**
+     * Returns whether carrying out this operation more than once has the
+     * same effect as carrying it out once.
+     * <p>
+     * A {@link RetryPolicy} may decline to retry an operation that isn't,
+     * once an attempt at it may have reached Riak.
+     * </p>
+     * @return true unless overridden.
+     */
+    public boolean isIdempotent()
+    {
+        return true;
     }
 
     // Exposed for testing.
-    public synchronized final void setResponse(RiakMessage rawResponse)
+    public final void setResponse(RiakMessage rawResponse)
     {
-        stateCheck(State.CREATED, State.WRITTEN, State.RETRY);
+        State current = state;
+        if (current == State.CANCELLED)
+        {
+            return;
+        }
+        stateCheck(current, LIVE_STATES);
         U decodedMessage = decode(rawResponse);
-        this.rawResponse.add(decodedMessage);
-        exception = null;
+        processResponse(decodedMessage);
         if (done(decodedMessage))
         {
+            exception = null;
+            if (transition(State.CLEANUP_WAIT, LIVE_STATES) == null)
+            {
+                return;
+            }
             logger.debug("Setting to Cleanup Wait State");
-            remainingTries--;
+            int remaining = --remainingTries;
+            attemptFinished(null);
+            traceEvent(TraceEvent.RESPONSE_RECEIVED);
             if (retrier != null)
             {
-                retrier.operationComplete(this, remainingTries);
+                retrier.operationComplete(this, remaining);
             }
-            state = State.CLEANUP_WAIT;
         }
     }
 
-    public synchronized final void setComplete()
+    /**
+     * Keeps a decoded response for {@link #convert(List)}.
+     * @param response the response.
+     */
+    void processResponse(U response)
     {
+        if (responseCount == 0)
+        {
+            firstResponse = response;
+        }
+        else
+        {
+            if (responses == null)
+            {
+                responses = new ArrayList<U>();
+                responses.add(firstResponse);
+            }
+            responses.add(response);
+        }
+        responseCount++;
+    }
+
+    private List<U> rawResponse()
+    {
+        switch (responseCount)
+        {
+            case 0:
+                return Collections.emptyList();
+            case 1:
+                return Collections.singletonList(firstResponse);
+            default:
+                return responses;
+        }
+    }
+
+    public final void setComplete()
+    {
+        if (transition(State.COMPLETE, State.CLEANUP_WAIT) == null)
+        {
+            return;
+        }
         logger.debug("Setting Complete on future");
-        stateCheck(State.CLEANUP_WAIT);
-        state = State.COMPLETE;
-        latch.countDown();
+        traceCompleted(exception);
+        releaseWaiters();
         fireListeners();
     }
 
@@ -235,59 +563,210 @@ public abstract class FutureOperation<T, U, S> implements RiakFuture<T,S>
         return true;
     }
 
-    synchronized final void setException(Throwable t)
+    final void setException(Throwable t)
     {
-        stateCheck(State.CREATED, State.WRITTEN, State.RETRY);
-        this.exception = t;
+        fail(t, true);
+    }
 
-        remainingTries--;
-        if (remainingTries == 0)
+    /**
+     * Fails an operation waiting to be retried with the exception from its
+     * last attempt, rather than retrying it.
+     * @return true if it was failed, false if it was aborted first.
+     */
+    final boolean stopRetrying()
+    {
+        if (transition(State.CLEANUP_WAIT, State.RETRY) == null)
+        {
+            return false;
+        }
+        remainingTries = 0;
+        setComplete();
+        return true;
+    }
+
+    /**
+     * Fails the operation without retrying it, if it isn't already done.
+     * @param t the cause.
+     */
+    final void failWithoutRetry(Throwable t)
+    {
+        fail(t, false);
+    }
+
+    private void fail(Throwable t, boolean retry)
+    {
+        State previous;
+        int remaining;
+        for (;;)
+        {
+            previous = state;
+            if (previous == State.CANCELLED || (!retry && !isLive(previous)))
+            {
+                return;
+            }
+            stateCheck(previous, LIVE_STATES);
+            this.exception = t;
+            remaining = retry && canRetry() ? remainingTries - 1 : 0;
+            // Connection should be returned before calling setComplete()
+            State next = remaining == 0 ? State.CLEANUP_WAIT : State.RETRY;
+            if (STATE_UPDATER.compareAndSet(this, previous, next))
+            {
+                break;
+            }
+        }
+
+        remainingTries = remaining;
+        lastAttemptWritten = previous == State.WRITTEN;
+        attemptFinished(t);
+        if (remaining == 0)
         {
-            // Connection should be returned before calling
-            state = State.CLEANUP_WAIT;
             setComplete();
         }
         else
         {
-            state = State.RETRY;
+            traceEvent(TraceEvent.RETRY);
         }
 
         if (retrier != null)
         {
-            retrier.operationFailed(this, remainingTries);
+            retrier.operationFailed(this, remaining);
         }
+    }
+
+    /**
+     * Whether a failed attempt at this operation may be retried at all.
+     * @return true
+     */
+    boolean canRetry()
+    {
+        return true;
+    }
 
+    /**
+     * Called with the channel this operation is about to be written to.
+     * @param channel the channel.
+     */
+    void setChannel(Channel channel)
+    {
     }
 
-    public synchronized final Object channelMessage()
+    /**
+     * Returns the message to write to Riak and marks this operation written.
+     * <p>
+     * Only an operation that hasn't been written, or is being retried, is
+     * written. One that was failed, completed or aborted while its write was
+     * queued is left as it is and {@code null} is returned, so the caller
+     * drops the write.
+     * </p>
+     * @return the message, or {@code null} if it should not be written.
+     */
+    public final Object channelMessage()
     {
         final Object message = createChannelMessage();
-        state = State.WRITTEN;
-        return message;
+        for (;;)
+        {
+            State current = state;
+            if (current != State.CREATED && current != State.RETRY)
+            {
+                return null;
+            }
+            if (STATE_UPDATER.compareAndSet(this, current, State.WRITTEN))
+            {
+                traceEvent(TraceEvent.WRITTEN);
+                return message;
+            }
+        }
     }
 
+    /**
+     * Cancels this operation if it has not completed.
+     * <p>
+     * The operation fails with a {@link CancellationException}. If it has
+     * already been written to Riak the connection it was written to is closed,
+     * as there is no way to tell Riak to stop working on it.
+     * </p>
+     * @param mayInterruptIfRunning ignored.
+     * @return true if the operation was cancelled, false if it had already completed.
+     */
     @Override
     public final boolean cancel(boolean mayInterruptIfRunning)
     {
-        return false;
+        return abort(new CancellationException("Operation cancelled"));
+    }
+
+    /**
+     * Fails this operation immediately, wherever it is, if it has not completed.
+     * <p>
+     * Any retrier is told the operation failed with no retries remaining, and
+     * the node it was last sent to reclaims the connection it is using.
+     * </p>
+     * @param cause the exception to fail the operation with.
+     * @return true if the operation was aborted, false if it had already completed.
+     */
+    final boolean abort(Throwable cause)
+    {
+        if (!ABORT_CAUSE_UPDATER.compareAndSet(this, null, cause))
+        {
+            // Already aborted, or lost to a completion.
+            return false;
+        }
+        State previous;
+        do
+        {
+            previous = state;
+            if (!isLive(previous))
+            {
+                return false;
+            }
+        }
+        while (!STATE_UPDATER.compareAndSet(this, previous, State.CANCELLED));
+
+        logger.debug("Aborting operation; {}", cause.toString());
+        attemptFinished(cause);
+        remainingTries = 0;
+        traceCompleted(cause);
+
+        if (retrier != null)
+        {
+            retrier.operationFailed(this, 0);
+        }
+
+        RiakNode node = lastNode;
+        if (node != null)
+        {
+            node.operationAborted(this);
+        }
+
+        releaseWaiters();
+        fireListeners();
+        return true;
+    }
+
+    /**
+     * @return true if this operation was cancelled or its deadline passed.
+     */
+    final boolean isAborted()
+    {
+        return state == State.CANCELLED;
     }
 
     @Override
     public final boolean isCancelled()
     {
-        return state == State.CANCELLED;
+        return state == State.CANCELLED && abortCause instanceof CancellationException;
     }
 
     @Override
     public final boolean isDone()
     {
-        return state == State.COMPLETE || state == State.CLEANUP_WAIT;
+        State current = state;
+        return current == State.COMPLETE || current == State.CLEANUP_WAIT || current == State.CANCELLED;
     }
 
     @Override
     public final boolean isSuccess()
     {
-        return (isDone() && exception == null);
+        return (isDone() && failure() == null);
     }
 
     @Override
@@ -299,14 +778,19 @@ public abstract class FutureOperation<T, U, S> implements RiakFuture<T,S>
         }
         else
         {
-            return exception;
+            return failure();
         }
     }
 
+    private Throwable failure()
+    {
+        return state == State.CANCELLED ? abortCause : exception;
+    }
+
     @Override
     public final T get() throws InterruptedException, ExecutionException
     {
-        latch.await();
+        await();
 
         throwExceptionIfSet();
 
@@ -320,9 +804,14 @@ public abstract class FutureOperation<T, U, S> implements RiakFuture<T,S>
 
     private void throwExceptionIfSet() throws ExecutionException
     {
-        if (exception != null)
+        Throwable failure = failure();
+        if (failure instanceof CancellationException)
+        {
+            throw (CancellationException) failure;
+        }
+        else if (failure != null)
         {
-            throw new ExecutionException(exception);
+            throw new ExecutionException(failure);
         }
     }
 
@@ -330,7 +819,7 @@ public abstract class FutureOperation<T, U, S> implements RiakFuture<T,S>
     {
         try
         {
-            converted = convert(rawResponse);
+            converted = convertResponse();
         }
         catch(IllegalArgumentException ex)
         {
@@ -339,10 +828,18 @@ public abstract class FutureOperation<T, U, S> implements RiakFuture<T,S>
         }
     }
 
+    private T convertResponse()
+    {
+        traceEvent(TraceEvent.CONVERTING);
+        T result = convert(rawResponse());
+        traceEvent(TraceEvent.CONVERTED);
+        return result;
+    }
+
     @Override
     public final T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException
     {
-        boolean succeed = latch.await(timeout, unit);
+        boolean succeed = await(timeout, unit);
 
         if (!succeed)
         {
@@ -362,11 +859,11 @@ public abstract class FutureOperation<T, U, S> implements RiakFuture<T,S>
     @Override
     public final T getNow()
     {
-        if (latch.getCount() < 1)
+        if (isReleased())
         {
             if (null == converted)
             {
-                converted = convert(rawResponse);
+                converted = convertResponse();
             }
 
             return converted;
@@ -380,13 +877,93 @@ public abstract class FutureOperation<T, U, S> implements RiakFuture<T,S>
     @Override
     public final void await() throws InterruptedException
     {
-        latch.await();
+        if (!isReleased())
+        {
+            awaitRelease(false, 0);
+        }
     }
 
     @Override
     public final boolean await(long timeout, TimeUnit unit) throws InterruptedException
     {
-        return latch.await(timeout, unit);
+        return isReleased() || awaitRelease(true, unit.toNanos(timeout));
+    }
+
+    /**
+     * @return true once the operation has completed and its connection has
+     * been returned, or it was aborted.
+     */
+    private boolean isReleased()
+    {
+        State current = state;
+        return current == State.COMPLETE || current == State.CANCELLED;
+    }
+
+    private boolean awaitRelease(boolean timed, long nanos) throws InterruptedException
+    {
+        final long deadlineNanos = timed ? System.nanoTime() + nanos : 0;
+        Waiter waiter = new Waiter(Thread.currentThread());
+        Waiter head;
+        do
+        {
+            head = waiters;
+            if (head == RELEASED)
+            {
+                return true;
+            }
+            waiter.next = head;
+        }
+        while (!WAITERS_UPDATER.compareAndSet(this, head, waiter));
+
+        try
+        {
+            // Whoever releases us moves the state on before unparking, so
+            // checking it after we're on the stack can't miss the wake up.
+            for (;;)
+            {
+                if (isReleased())
+                {
+                    return true;
+                }
+                if (Thread.interrupted())
+                {
+                    throw new InterruptedException();
+                }
+                if (timed)
+                {
+                    long remaining = deadlineNanos - System.nanoTime();
+                    if (remaining <= 0)
+                    {
+                        return false;
+                    }
+                    LockSupport.parkNanos(this, remaining);
+                }
+                else
+                {
+                    LockSupport.park(this);
+                }
+            }
+        }
+        finally
+        {
+            // Timed out or interrupted waiters stay on the stack until it's
+            // released; there's nothing to unpark.
+            waiter.thread = null;
+        }
+    }
+
+    private void releaseWaiters()
+    {
+        Waiter waiter = WAITERS_UPDATER.getAndSet(this, RELEASED);
+        while (waiter != null && waiter != RELEASED)
+        {
+            Thread thread = waiter.thread;
+            if (thread != null)
+            {
+                LockSupport.unpark(thread);
+            }
+            waiter = waiter.next;
+        }
     }
 
     protected U checkAndGetSingleResponse(List<U> responses)
@@ -400,15 +977,44 @@ public abstract class FutureOperation<T, U, S> implements RiakFuture<T,S>
         return responses.get(0);
     }
 
-    private void stateCheck(State... allowedStates)
+    private static boolean isLive(State state)
+    {
+        return state == State.CREATED || state == State.WRITTEN || state == State.RETRY;
+    }
+
+    /**
+     * Moves this operation to the next state.
+     * @param next the state to move to.
+     * @param allowedStates the states it can move from.
+     * @return the state moved from, or null if the operation was aborted.
+     * @throws IllegalStateException if it is in any other state.
+     */
+    private State transition(State next, State... allowedStates)
     {
-        if (Arrays.binarySearch(allowedStates, state) < 0)
+        for (;;)
+        {
+            State current = state;
+            if (current == State.CANCELLED)
+            {
+                return null;
+            }
+            stateCheck(current, allowedStates);
+            if (STATE_UPDATER.compareAndSet(this, current, next))
+            {
+                return current;
+            }
+        }
+    }
+
+    private void stateCheck(State current, State... allowedStates)
+    {
+        if (Arrays.binarySearch(allowedStates, current) < 0)
         {
             logger.debug("IllegalStateException; required: {} current: {} ",
-                         Arrays.toString(allowedStates), state);
+                         Arrays.toString(allowedStates), current);
             throw new IllegalStateException("required: "
                                                     + Arrays.toString(allowedStates)
-                                                    + " current: " + state);
+                                                    + " current: " + current);
         }
     }
 
@@ -421,4 +1027,14 @@ public abstract class FutureOperation<T, U, S> implements RiakFuture<T,S>
     @Override
     abstract public S getQueryInfo();
 
+    private static final class Waiter
+    {
+        volatile Thread thread;
+        volatile Waiter next;
+
+        Waiter(Thread thread)
+        {
+            this.thread = thread;
+        }
+    }
 }
@@ -0,0 +1,306 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The future for a read that may be hedged.
+ * <p>
+ * The primary operation is executed straight away. If it hasn't completed
+ * by the hedge delay and the budget allows, the hedge, a duplicate of it,
+ * is sent to another node. The first to succeed provides the result; if
+ * both fail, the last failure does. The loser is left to complete on its
+ * own rather than cancelled, which would close its connection.
+ * </p>
+ *
+ * @param <V> the response type.
+ * @param <S> the query info type.
+ * @since 2.1
+ */
+final class HedgedFuture<V, S> implements RiakFuture<V, S>, RiakFutureListener<V, S>, Runnable
+{
+    private final Logger logger = LoggerFactory.getLogger(HedgedFuture.class);
+    private final RiakCluster cluster;
+    private final HedgingStatistics statistics;
+    private final FutureOperation<V, ?, S> primary;
+    private final FutureOperation<V, ?, S> hedge;
+    private final long startNanos = System.nanoTime();
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private final HashSet<RiakFutureListener<V, S>> listeners = new HashSet<RiakFutureListener<V, S>>();
+
+    // Guarded by this.
+    private int outstanding = 1;
+    private boolean hedged;
+    private boolean cancelled;
+    private RiakFuture<V, S> result;
+    private boolean listenersFired;
+
+    private volatile ScheduledFuture<?> timer;
+
+    HedgedFuture(RiakCluster cluster, HedgingStatistics statistics,
+                 FutureOperation<V, ?, S> primary, FutureOperation<V, ?, S> hedge)
+    {
+        this.cluster = cluster;
+        this.statistics = statistics;
+        this.primary = primary;
+        this.hedge = hedge;
+    }
+
+    /**
+     * Starts waiting on the primary, which must already have been executed.
+     */
+    void start(ScheduledExecutorService executor)
+    {
+        primary.addListener(this);
+        if (!isDone())
+        {
+            timer = executor.schedule(this, statistics.getHedgeDelay(TimeUnit.NANOSECONDS),
+                                      TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Sends the hedge once the delay has passed.
+     */
+    @Override
+    public void run()
+    {
+        synchronized (this)
+        {
+            if (result != null || cancelled || !statistics.tryAcquireHedge())
+            {
+                return;
+            }
+            outstanding++;
+        }
+
+        hedge.setDeadline(primary.getDeadline());
+        if (cluster.executeHedge(hedge, primary.getLastNode()))
+        {
+            logger.debug("Hedged operation {} with {}",
+                         System.identityHashCode(primary), System.identityHashCode(hedge));
+            boolean cancelNow;
+            synchronized (this)
+            {
+                hedged = true;
+                cancelNow = cancelled;
+            }
+            hedge.addListener(this);
+            if (cancelNow)
+            {
+                hedge.cancel(false);
+            }
+        }
+        else
+        {
+            statistics.releaseHedge();
+            boolean finished = false;
+            synchronized (this)
+            {
+                if (--outstanding == 0 && result == null)
+                {
+                    // The primary failed while we were trying.
+                    result = primary;
+                    finished = true;
+                }
+            }
+            if (finished)
+            {
+                complete();
+            }
+        }
+    }
+
+    @Override
+    public void handle(RiakFuture<V, S> f)
+    {
+        if (f == primary && f.isSuccess())
+        {
+            statistics.recordLatency(System.nanoTime() - startNanos);
+        }
+
+        synchronized (this)
+        {
+            outstanding--;
+            if (result != null || (!f.isSuccess() && outstanding > 0))
+            {
+                return;
+            }
+            result = f;
+        }
+
+        if (f == hedge && f.isSuccess())
+        {
+            statistics.recordHedgeWon();
+        }
+        complete();
+    }
+
+    private void complete()
+    {
+        ScheduledFuture<?> t = timer;
+        if (t != null)
+        {
+            t.cancel(false);
+        }
+        latch.countDown();
+
+        synchronized (this)
+        {
+            listenersFired = true;
+        }
+        for (RiakFutureListener<V, S> listener : listeners)
+        {
+            listener.handle(this);
+        }
+    }
+
+    private synchronized RiakFuture<V, S> result()
+    {
+        return result;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning)
+    {
+        boolean sendHedgeCancel;
+        synchronized (this)
+        {
+            if (result != null)
+            {
+                return false;
+            }
+            cancelled = true;
+            sendHedgeCancel = hedged;
+        }
+
+        boolean didCancel = primary.cancel(mayInterruptIfRunning);
+        if (sendHedgeCancel)
+        {
+            didCancel |= hedge.cancel(mayInterruptIfRunning);
+        }
+        return didCancel;
+    }
+
+    @Override
+    public V get() throws InterruptedException, ExecutionException
+    {
+        latch.await();
+        return result().get();
+    }
+
+    @Override
+    public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException
+    {
+        if (!latch.await(timeout, unit))
+        {
+            throw new TimeoutException();
+        }
+        return result().get();
+    }
+
+    @Override
+    public V getNow()
+    {
+        RiakFuture<V, S> f = result();
+        return f == null ? null : f.getNow();
+    }
+
+    @Override
+    public boolean isCancelled()
+    {
+        RiakFuture<V, S> f = result();
+        return f != null && f.isCancelled();
+    }
+
+    @Override
+    public boolean isDone()
+    {
+        return latch.getCount() == 0;
+    }
+
+    @Override
+    public boolean isSuccess()
+    {
+        RiakFuture<V, S> f = result();
+        return isDone() && f.isSuccess();
+    }
+
+    @Override
+    public Throwable cause()
+    {
+        RiakFuture<V, S> f = result();
+        return isDone() ? f.cause() : null;
+    }
+
+    @Override
+    public S getQueryInfo()
+    {
+        return primary.getQueryInfo();
+    }
+
+    @Override
+    public void await() throws InterruptedException
+    {
+        latch.await();
+    }
+
+    @Override
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        return latch.await(timeout, unit);
+    }
+
+    @Override
+    public void addListener(RiakFutureListener<V, S> listener)
+    {
+        boolean fireNow;
+        synchronized (this)
+        {
+            fireNow = listenersFired;
+            if (!fireNow)
+            {
+                listeners.add(listener);
+            }
+        }
+
+        if (fireNow)
+        {
+            listener.handle(this);
+        }
+    }
+
+    @Override
+    public void removeListener(RiakFutureListener<V, S> listener)
+    {
+        synchronized (this)
+        {
+            if (!listenersFired)
+            {
+                listeners.remove(listener);
+            }
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * When and how often a {@link RiakCluster} hedges reads.
+ * <p>
+ * A hedged read sends a duplicate of a read to a second node if the first
+ * has not answered within a high percentile of recent read latencies, and
+ * takes whichever answer comes first. This cuts the tail latency caused by
+ * a single slow node at the cost of a small amount of extra load, which is
+ * capped as a percentage of reads.
+ * </p>
+ * <pre class="prettyprint">
+ * {@code
+ * HedgingPolicy policy = new HedgingPolicy.Builder()
+ *                            .withPercentile(95)
+ *                            .withMaxHedgePercent(5)
+ *                            .build();
+ * RiakCluster cluster = new RiakCluster.Builder(nodes)
+ *                            .withHedgingPolicy(policy)
+ *                            .build();}</pre>
+ *
+ * @since 2.1
+ * @see RiakCluster#getHedgingStatistics()
+ */
+public final class HedgingPolicy
+{
+    private final double percentile;
+    private final long minimumDelayInNanos;
+    private final double maxHedgePercent;
+    private final int sampleWindow;
+
+    private HedgingPolicy(Builder builder)
+    {
+        this.percentile = builder.percentile;
+        this.minimumDelayInNanos = TimeUnit.MILLISECONDS.toNanos(builder.minimumDelay);
+        this.maxHedgePercent = builder.maxHedgePercent;
+        this.sampleWindow = builder.sampleWindow;
+    }
+
+    /**
+     * @return the percentile of recent read latencies after which a read is hedged.
+     */
+    public double getPercentile()
+    {
+        return percentile;
+    }
+
+    /**
+     * @param unit the unit to return the delay in.
+     * @return the least time to wait before hedging a read.
+     */
+    public long getMinimumDelay(TimeUnit unit)
+    {
+        return unit.convert(minimumDelayInNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return the most hedges that may be sent, as a percentage of reads.
+     */
+    public double getMaxHedgePercent()
+    {
+        return maxHedgePercent;
+    }
+
+    /**
+     * @return the number of reads the latency percentile is calculated over.
+     */
+    public int getSampleWindow()
+    {
+        return sampleWindow;
+    }
+
+    /**
+     * Builder used to construct a HedgingPolicy.
+     */
+    public static class Builder
+    {
+        /**
+         * The default percentile of read latencies after which reads are hedged.
+         * @see #withPercentile(double)
+         */
+        public final static double DEFAULT_PERCENTILE = 95;
+        /**
+         * The default least time, in milliseconds, to wait before hedging a read.
+         * @see #withMinimumDelay(int)
+         */
+        public final static int DEFAULT_MINIMUM_DELAY = 5;
+        /**
+         * The default cap on hedges, as a percentage of reads.
+         * @see #withMaxHedgePercent(double)
+         */
+        public final static double DEFAULT_MAX_HEDGE_PERCENT = 5;
+        /**
+         * The default number of reads the latency percentile is calculated over.
+         * @see #withSampleWindow(int)
+         */
+        public final static int DEFAULT_SAMPLE_WINDOW = 1000;
+
+        private double percentile = DEFAULT_PERCENTILE;
+        private int minimumDelay = DEFAULT_MINIMUM_DELAY;
+        private double maxHedgePercent = DEFAULT_MAX_HEDGE_PERCENT;
+        private int sampleWindow = DEFAULT_SAMPLE_WINDOW;
+
+        /**
+         * Set the percentile of recent read latencies after which a read is
+         * hedged.
+         * @param percentile the percentile, from 0 to 100.
+         * @return a reference to this object.
+         * @see #DEFAULT_PERCENTILE
+         */
+        public Builder withPercentile(double percentile)
+        {
+            if (percentile < 0 || percentile > 100)
+            {
+                throw new IllegalArgumentException("Percentile must be between 0 and 100");
+            }
+            this.percentile = percentile;
+            return this;
+        }
+
+        /**
+         * Set the least time to wait before hedging a read.
+         * <p>
+         * This is also the delay used until enough reads have completed to
+         * calculate the percentile.
+         * </p>
+         * @param minimumDelay the delay in milliseconds.
+         * @return a reference to this object.
+         * @see #DEFAULT_MINIMUM_DELAY
+         */
+        public Builder withMinimumDelay(int minimumDelay)
+        {
+            if (minimumDelay < 0)
+            {
+                throw new IllegalArgumentException("Minimum delay cannot be negative");
+            }
+            this.minimumDelay = minimumDelay;
+            return this;
+        }
+
+        /**
+         * Set the most hedges that may be sent, as a percentage of reads.
+         * <p>
+         * Once this many have been sent, slow reads are not hedged until
+         * enough further reads have been made. Only a few hedges' worth of
+         * allowance is saved up while reads aren't hedged, so the
+         * percentage holds over recent reads rather than every read made.
+         * </p>
+         * @param maxHedgePercent the percentage, from 0 to 100.
+         * @return a reference to this object.
+         * @see #DEFAULT_MAX_HEDGE_PERCENT
+         */
+        public Builder withMaxHedgePercent(double maxHedgePercent)
+        {
+            if (maxHedgePercent < 0 || maxHedgePercent > 100)
+            {
+                throw new IllegalArgumentException("Max hedge percent must be between 0 and 100");
+            }
+            this.maxHedgePercent = maxHedgePercent;
+            return this;
+        }
+
+        /**
+         * Set the number of reads the latency percentile is calculated over.
+         * <p>
+         * Latencies are collected in windows of this many reads; the
+         * percentile is taken from the last complete window, so the delay
+         * follows changes in latency without jittering from read to read.
+         * </p>
+         * @param sampleWindow the number of reads.
+         * @return a reference to this object.
+         * @see #DEFAULT_SAMPLE_WINDOW
+         */
+        public Builder withSampleWindow(int sampleWindow)
+        {
+            if (sampleWindow < 1)
+            {
+                throw new IllegalArgumentException("Sample window must be at least 1");
+            }
+            this.sampleWindow = sampleWindow;
+            return this;
+        }
+
+        /**
+         * Construct the HedgingPolicy.
+         * @return a new HedgingPolicy.
+         */
+        public HedgingPolicy build()
+        {
+            return new HedgingPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+import com.basho.riak.client.core.util.Histogram;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Statistics for a {@link RiakCluster}'s hedged reads.
+ * <p>
+ * These also drive hedging itself: the delay before a read is hedged is
+ * taken from the latencies recorded here, and the number of hedges sent is
+ * held to the {@link HedgingPolicy}'s share of the reads made.
+ * </p>
+ * <p>
+ * The share is kept with a token bucket: each read adds the policy's share of
+ * a hedge to the budget and each hedge takes one whole hedge from it. The
+ * budget holds at most {@value #MAX_SAVED_HEDGES} hedges, so a client that
+ * has run for a long time without hedging can't spend a large saved
+ * allowance all at once when the cluster slows down.
+ * </p>
+ *
+ * @since 2.1
+ * @see RiakCluster#getHedgingStatistics()
+ */
+public final class HedgingStatistics
+{
+    /**
+     * The most hedges the budget can hold.
+     */
+    static final int MAX_SAVED_HEDGES = 10;
+    // The budget is kept in millionths of a hedge.
+    private static final long HEDGE = 1000000;
+
+    private final HedgingPolicy policy;
+    private final long creditPerRead;
+    private final AtomicLong budget = new AtomicLong();
+    private final AtomicLong reads = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgesWon = new AtomicLong();
+    private final AtomicReference<Histogram> currentWindow =
+        new AtomicReference<Histogram>(new Histogram());
+    private volatile Histogram lastWindow;
+
+    HedgingStatistics(HedgingPolicy policy)
+    {
+        this.policy = policy;
+        this.creditPerRead = Math.round(HEDGE * policy.getMaxHedgePercent() / 100);
+    }
+
+    void recordRead()
+    {
+        reads.incrementAndGet();
+        long max = MAX_SAVED_HEDGES * HEDGE;
+        long current;
+        do
+        {
+            current = budget.get();
+            if (current >= max)
+            {
+                return;
+            }
+        }
+        while (!budget.compareAndSet(current, Math.min(max, current + creditPerRead)));
+    }
+
+    /**
+     * Records the latency of a read answered by the node it was first sent to.
+     */
+    void recordLatency(long latencyInNanos)
+    {
+        Histogram window = currentWindow.get();
+        window.record(latencyInNanos);
+        if (window.getCount() >= policy.getSampleWindow()
+                && currentWindow.compareAndSet(window, new Histogram()))
+        {
+            lastWindow = window;
+        }
+    }
+
+    /**
+     * Takes a hedge from the budget.
+     * @return false if sending another hedge would exceed the policy's
+     * share of recent reads.
+     */
+    boolean tryAcquireHedge()
+    {
+        long current;
+        do
+        {
+            current = budget.get();
+            if (current < HEDGE)
+            {
+                return false;
+            }
+        }
+        while (!budget.compareAndSet(current, current - HEDGE));
+        hedges.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Returns a hedge that could not be sent to the budget.
+     */
+    void releaseHedge()
+    {
+        hedges.decrementAndGet();
+        budget.addAndGet(HEDGE);
+    }
+
+    void recordHedgeWon()
+    {
+        hedgesWon.incrementAndGet();
+    }
+
+    /**
+     * @return the number of reads made with hedging enabled.
+     */
+    public long getReadCount()
+    {
+        return reads.get();
+    }
+
+    /**
+     * @return the number of hedges sent.
+     */
+    public long getHedgeCount()
+    {
+        return hedges.get();
+    }
+
+    /**
+     * @return the number of hedges that were answered before the read they
+     * duplicated.
+     */
+    public long getHedgesWonCount()
+    {
+        return hedgesWon.get();
+    }
+
+    /**
+     * Returns how long a read is currently given before it is hedged.
+     * @param unit the unit to return the delay in.
+     * @return the policy's percentile of the last window of read latencies,
+     * or its minimum delay if that is longer.
+     */
+    public long getHedgeDelay(TimeUnit unit)
+    {
+        Histogram window = lastWindow;
+        if (window == null)
+        {
+            window = currentWindow.get();
+        }
+        long delay = Math.max(policy.getMinimumDelay(TimeUnit.NANOSECONDS),
+                              window.getValueAtPercentile(policy.getPercentile()));
+        return unit.convert(delay, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+import com.basho.riak.client.core.util.Histogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link RiakMetrics} that keeps its metrics in memory.
+ * <p>
+ * Latencies are kept in a {@link Histogram} per type of operation, in
+ * nanoseconds. Recording allocates nothing once an operation type has
+ * been seen.
+ * </p>
+ *
+ * @since 2.1
+ */
+public class HistogramMetrics implements RiakMetrics
+{
+    private final ConcurrentMap<Class<?>, OperationMetrics> operations =
+        new ConcurrentHashMap<Class<?>, OperationMetrics>();
+    private final List<RiakNode> nodes = new CopyOnWriteArrayList<RiakNode>();
+    private final Histogram queueDepth = new Histogram();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong healthChecksPassed = new AtomicLong();
+    private final AtomicLong healthChecksFailed = new AtomicLong();
+
+    @Override
+    public void nodeAdded(RiakNode node)
+    {
+        nodes.add(node);
+    }
+
+    @Override
+    public void nodeRemoved(RiakNode node)
+    {
+        nodes.remove(node);
+    }
+
+    @Override
+    public void operationCompleted(FutureOperation<?, ?, ?> operation, long latencyInNanos, boolean success)
+    {
+        OperationMetrics metrics = operations.get(operation.getClass());
+        if (metrics == null)
+        {
+            OperationMetrics newMetrics = new OperationMetrics();
+            metrics = operations.putIfAbsent(operation.getClass(), newMetrics);
+            if (metrics == null)
+            {
+                metrics = newMetrics;
+            }
+        }
+        metrics.latency.record(latencyInNanos);
+        if (!success)
+        {
+            metrics.failures.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void operationRetried(FutureOperation<?, ?, ?> operation, int attempts)
+    {
+        retries.incrementAndGet();
+    }
+
+    @Override
+    public void operationQueued(int depth)
+    {
+        queueDepth.record(depth);
+    }
+
+    @Override
+    public void bytesWritten(RiakNode node, int bytes)
+    {
+        bytesWritten.addAndGet(bytes);
+    }
+
+    @Override
+    public void bytesRead(RiakNode node, int bytes)
+    {
+        bytesRead.addAndGet(bytes);
+    }
+
+    @Override
+    public void healthCheckCompleted(RiakNode node, boolean healthy)
+    {
+        if (healthy)
+        {
+            healthChecksPassed.incrementAndGet();
+        }
+        else
+        {
+            healthChecksFailed.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the latencies, in nanoseconds, of a type of operation.
+     * @param operationType the class of the operation.
+     * @return the histogram, or null if no operation of the type has completed.
+     */
+    public Histogram getLatency(Class<? extends FutureOperation> operationType)
+    {
+        OperationMetrics metrics = operations.get(operationType);
+        return metrics == null ? null : metrics.latency;
+    }
+
+    /**
+     * Returns the number of operations of a type that failed.
+     * @param operationType the class of the operation.
+     * @return the number of failures.
+     */
+    public long getFailureCount(Class<? extends FutureOperation> operationType)
+    {
+        OperationMetrics metrics = operations.get(operationType);
+        return metrics == null ? 0 : metrics.failures.get();
+    }
+
+    /**
+     * @return the types of operation that have completed.
+     */
+    public List<Class<?>> getOperationTypes()
+    {
+        List<Class<?>> types = new ArrayList<Class<?>>();
+        for (Map.Entry<Class<?>, OperationMetrics> entry : operations.entrySet())
+        {
+            types.add(entry.getKey());
+        }
+        return types;
+    }
+
+    /**
+     * @return the depths of the operation queue as operations were added to it.
+     */
+    public Histogram getQueueDepth()
+    {
+        return queueDepth;
+    }
+
+    /**
+     * @return the number of retries scheduled.
+     */
+    public long getRetryCount()
+    {
+        return retries.get();
+    }
+
+    /**
+     * @return the number of bytes written to all nodes.
+     */
+    public long getBytesWritten()
+    {
+        return bytesWritten.get();
+    }
+
+    /**
+     * @return the number of bytes read from all nodes.
+     */
+    public long getBytesRead()
+    {
+        return bytesRead.get();
+    }
+
+    /**
+     * @return the number of health checks that succeeded.
+     */
+    public long getHealthChecksPassed()
+    {
+        return healthChecksPassed.get();
+    }
+
+    /**
+     * @return the number of health checks that failed.
+     */
+    public long getHealthChecksFailed()
+    {
+        return healthChecksFailed.get();
+    }
+
+    /**
+     * @return the number of idle connections across all nodes.
+     */
+    public int getIdleConnectionCount()
+    {
+        int count = 0;
+        for (RiakNode node : nodes)
+        {
+            count += node.getIdleConnectionCount();
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of connections in use across all nodes.
+     */
+    public int getInUseConnectionCount()
+    {
+        int count = 0;
+        for (RiakNode node : nodes)
+        {
+            count += node.getInUseConnectionCount();
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of operations waiting for a connection across all nodes.
+     */
+    public int getPendingOperationCount()
+    {
+        int count = 0;
+        for (RiakNode node : nodes)
+        {
+            count += node.getPendingOperationCount();
+        }
+        return count;
+    }
+
+    private static class OperationMetrics
+    {
+        private final Histogram latency = new Histogram();
+        private final AtomicLong failures = new AtomicLong();
+    }
+}
@@ -0,0 +1,381 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+import com.basho.riak.client.core.RiakNode.State;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link NodeManager} that sends operations to the least loaded nodes.
+ * <p>
+ * For each node it tracks the number of operations outstanding and an
+ * exponentially weighted moving average (EWMA) of their response times,
+ * measured from each attempt at a {@link FutureOperation} being given to the
+ * node until that attempt ends. The nodes report every attempt, including
+ * those not routed by this NodeManager, such as
+ * {@link RiakCluster#executeOnHost(FutureOperation, com.basho.riak.client.core.util.HostAndPort)}.
+ * The load on a node is its average response time multiplied by its
+ * outstanding operations, plus one. Each operation is offered to the less
+ * loaded of two healthy nodes picked at random (the "power of two choices"),
+ * which keeps a slow or overloaded node from being sent its full share
+ * without the herding that always picking the least loaded node causes.
+ * </p>
+ * <p>
+ * An operation that fails counts against the node it failed on at twice
+ * that node's average response time, so a node that fails fast doesn't
+ * look fast. The failure is recorded as soon as the attempt ends, even if
+ * the operation is then retried on another node.
+ * </p>
+ * <p>
+ * The healthy nodes are kept in a copy-on-write array, so picking a node
+ * takes no locks.
+ * </p>
+ *
+ * @since 2.1
+ */
+public class LatencyAwareNodeManager implements NodeManager, NodeStateListener
+{
+    /**
+     * The default weight given to each new response time in the average.
+     * @see #LatencyAwareNodeManager(double)
+     */
+    public final static double DEFAULT_EWMA_WEIGHT = 0.2;
+
+    private static final NodeStats[] NO_NODES = new NodeStats[0];
+
+    private final Logger logger = LoggerFactory.getLogger(LatencyAwareNodeManager.class);
+    private final double ewmaWeight;
+
+    // Copy-on-write; written while holding this object's lock.
+    private volatile NodeStats[] healthy = NO_NODES;
+    private final List<NodeStats> unhealthy = new ArrayList<NodeStats>();
+
+    public LatencyAwareNodeManager()
+    {
+        this(DEFAULT_EWMA_WEIGHT);
+    }
+
+    /**
+     * Constructs a LatencyAwareNodeManager.
+     * @param ewmaWeight the weight given to each new response time in a
+     * node's average, greater than 0 and at most 1. Larger values follow
+     * changes faster but are noisier.
+     */
+    public LatencyAwareNodeManager(double ewmaWeight)
+    {
+        if (ewmaWeight <= 0 || ewmaWeight > 1)
+        {
+            throw new IllegalArgumentException("EWMA weight must be greater than 0 and at most 1");
+        }
+        this.ewmaWeight = ewmaWeight;
+    }
+
+    @Override
+    public synchronized void init(List<RiakNode> nodes)
+    {
+        NodeStats[] added = new NodeStats[nodes.size()];
+        for (int i = 0; i < added.length; i++)
+        {
+            added[i] = new NodeStats(nodes.get(i));
+            nodes.get(i).setAttemptListener(added[i]);
+        }
+        healthy = concat(healthy, added);
+    }
+
+    @Override
+    public boolean executeOnNode(FutureOperation operation, RiakNode previousNode)
+    {
+        NodeStats[] nodes = healthy;
+        switch (nodes.length)
+        {
+            case 0:
+                return false;
+            case 1:
+                return execute(nodes[0], operation);
+            default:
+                break;
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(nodes.length);
+        int second = random.nextInt(nodes.length - 1);
+        if (second >= first)
+        {
+            second++;
+        }
+
+        NodeStats a = nodes[first];
+        NodeStats b = nodes[second];
+        // Never prefer the node the operation was last sent to.
+        if (a.node == previousNode || (b.node != previousNode && b.load() < a.load()))
+        {
+            NodeStats t = a;
+            a = b;
+            b = t;
+        }
+
+        if (execute(a, operation) || (b.node != previousNode && execute(b, operation)))
+        {
+            return true;
+        }
+
+        // Both choices are out of connections; try the rest before giving up,
+        // leaving the previous node until last.
+        NodeStats previous = null;
+        for (NodeStats stats : nodes)
+        {
+            if (stats.node == previousNode)
+            {
+                previous = stats;
+            }
+            else if (stats != a && stats != b && execute(stats, operation))
+            {
+                return true;
+            }
+        }
+        return previous != null && execute(previous, operation);
+    }
+
+    private boolean execute(NodeStats stats, FutureOperation operation)
+    {
+        // The node reports the attempt to its stats, which also covers
+        // operations given to it without going through this NodeManager.
+        return stats.node.execute(operation);
+    }
+
+    /**
+     * Returns the average response time of a node.
+     * @param node the node.
+     * @param unit the unit to return the time in.
+     * @return the exponentially weighted moving average of the node's
+     * response times, or 0 if it has none or isn't managed by this NodeManager.
+     */
+    public long getResponseTime(RiakNode node, TimeUnit unit)
+    {
+        NodeStats stats = find(node);
+        return stats == null ? 0 : unit.convert(stats.ewmaNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the number of operations outstanding on a node.
+     * @param node the node.
+     * @return the number of operations, or 0 if the node isn't managed by
+     * this NodeManager.
+     */
+    public int getInFlightCount(RiakNode node)
+    {
+        NodeStats stats = find(node);
+        return stats == null ? 0 : stats.inFlight.get();
+    }
+
+    private synchronized NodeStats find(RiakNode node)
+    {
+        for (NodeStats stats : healthy)
+        {
+            if (stats.node == node)
+            {
+                return stats;
+            }
+        }
+        for (NodeStats stats : unhealthy)
+        {
+            if (stats.node == node)
+            {
+                return stats;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void nodeStateChanged(RiakNode node, State state)
+    {
+        switch (state)
+        {
+            case RUNNING:
+                synchronized (this)
+                {
+                    NodeStats stats = removeFrom(unhealthy, node);
+                    if (stats != null)
+                    {
+                        healthy = concat(healthy, stats);
+                        logger.info("NodeManager moved node to healthy list; {}:{}",
+                                    node.getRemoteAddress(), node.getPort());
+                    }
+                }
+                break;
+            case HEALTH_CHECKING:
+                synchronized (this)
+                {
+                    NodeStats stats = removeHealthy(node);
+                    if (stats != null)
+                    {
+                        unhealthy.add(stats);
+                        logger.info("NodeManager moved node to unhealthy list; {}:{}",
+                                    node.getRemoteAddress(), node.getPort());
+                    }
+                }
+                break;
+            case SHUTTING_DOWN:
+            case SHUTDOWN:
+                boolean removed;
+                synchronized (this)
+                {
+                    removed = removeHealthy(node) != null;
+                    if (!removed)
+                    {
+                        removeFrom(unhealthy, node);
+                    }
+                }
+                if (removed)
+                {
+                    logger.info("NodeManager removed node due to it shutting down; {}:{}",
+                                node.getRemoteAddress(), node.getPort());
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public synchronized void addNode(RiakNode newNode)
+    {
+        NodeStats stats = new NodeStats(newNode);
+        newNode.setAttemptListener(stats);
+        healthy = concat(healthy, stats);
+    }
+
+    @Override
+    public boolean removeNode(RiakNode node)
+    {
+        boolean removed;
+        synchronized (this)
+        {
+            removed = removeHealthy(node) != null || removeFrom(unhealthy, node) != null;
+        }
+
+        if (removed)
+        {
+            node.removeStateListener(this);
+            node.setAttemptListener(null);
+            node.shutdown();
+            logger.info("NodeManager removed and shutdown node; {}:{}",
+                        node.getRemoteAddress(), node.getPort());
+        }
+        return removed;
+    }
+
+    // Must hold this object's lock.
+    private NodeStats removeHealthy(RiakNode node)
+    {
+        NodeStats[] nodes = healthy;
+        for (int i = 0; i < nodes.length; i++)
+        {
+            if (nodes[i].node == node)
+            {
+                NodeStats[] copy = new NodeStats[nodes.length - 1];
+                System.arraycopy(nodes, 0, copy, 0, i);
+                System.arraycopy(nodes, i + 1, copy, i, nodes.length - i - 1);
+                healthy = copy;
+                return nodes[i];
+            }
+        }
+        return null;
+    }
+
+    private static NodeStats removeFrom(List<NodeStats> list, RiakNode node)
+    {
+        for (int i = 0; i < list.size(); i++)
+        {
+            if (list.get(i).node == node)
+            {
+                return list.remove(i);
+            }
+        }
+        return null;
+    }
+
+    private static NodeStats[] concat(NodeStats[] nodes, NodeStats... added)
+    {
+        NodeStats[] copy = Arrays.copyOf(nodes, nodes.length + added.length);
+        System.arraycopy(added, 0, copy, nodes.length, added.length);
+        return copy;
+    }
+
+    private final class NodeStats implements NodeAttemptListener
+    {
+        private final RiakNode node;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicLong ewmaNanos = new AtomicLong();
+
+        NodeStats(RiakNode node)
+        {
+            this.node = node;
+        }
+
+        /**
+         * The expected time for an operation sent now to complete, in
+         * arbitrary units. Nodes with no history look idle, so they are
+         * tried straight away.
+         */
+        double load()
+        {
+            return (ewmaNanos.get() + 1.0) * (inFlight.get() + 1);
+        }
+
+        void recordResponseTime(long nanos, boolean success)
+        {
+            long current;
+            long updated;
+            do
+            {
+                current = ewmaNanos.get();
+                long sample = success ? nanos : Math.max(nanos, 2 * current);
+                updated = current == 0 ? sample : (long) (current + ewmaWeight * (sample - current));
+            }
+            while (!ewmaNanos.compareAndSet(current, updated));
+        }
+
+        @Override
+        public void attemptStarted(RiakNode node)
+        {
+            inFlight.incrementAndGet();
+        }
+
+        @Override
+        public void attemptRejected(RiakNode node)
+        {
+            inFlight.decrementAndGet();
+        }
+
+        @Override
+        public void attemptFinished(RiakNode node, long elapsedNanos, Throwable cause)
+        {
+            inFlight.decrementAndGet();
+            recordResponseTime(elapsedNanos, cause == null);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+/**
+ * A {@link RiakMetrics} that discards everything.
+ * <p>
+ * This is the default. When a cluster is using {@link #INSTANCE} it skips
+ * taking the timings it would otherwise report.
+ * </p>
+ *
+ * @since 2.1
+ */
+public class NoOpRiakMetrics implements RiakMetrics
+{
+    /**
+     * The shared instance.
+     */
+    public static final NoOpRiakMetrics INSTANCE = new NoOpRiakMetrics();
+
+    protected NoOpRiakMetrics()
+    {
+    }
+
+    @Override
+    public void nodeAdded(RiakNode node)
+    {
+    }
+
+    @Override
+    public void nodeRemoved(RiakNode node)
+    {
+    }
+
+    @Override
+    public void operationCompleted(FutureOperation<?, ?, ?> operation, long latencyInNanos, boolean success)
+    {
+    }
+
+    @Override
+    public void operationRetried(FutureOperation<?, ?, ?> operation, int attempts)
+    {
+    }
+
+    @Override
+    public void operationQueued(int depth)
+    {
+    }
+
+    @Override
+    public void bytesWritten(RiakNode node, int bytes)
+    {
+    }
+
+    @Override
+    public void bytesRead(RiakNode node, int bytes)
+    {
+    }
+
+    @Override
+    public void healthCheckCompleted(RiakNode node, boolean healthy)
+    {
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+/**
+ * Notified when an attempt at an operation on a {@link RiakNode} starts and
+ * ends.
+ * <p>
+ * Used by a {@link LatencyAwareNodeManager} to count the attempts outstanding
+ * on each node and to charge each one to the node it was made on, whether or
+ * not the operation is then retried elsewhere. Every attempt the node is
+ * given is reported, however the node was chosen.
+ * </p>
+ *
+ * @since 2.1
+ */
+interface NodeAttemptListener
+{
+    /**
+     * An operation has been given to the node. Followed by exactly one call
+     * to {@link #attemptRejected(RiakNode)} or
+     * {@link #attemptFinished(RiakNode, long, Throwable)}.
+     * @param node the node.
+     */
+    void attemptStarted(RiakNode node);
+
+    /**
+     * The node turned away the operation it was given, so no attempt was made.
+     * @param node the node.
+     */
+    void attemptRejected(RiakNode node);
+
+    /**
+     * An attempt the node accepted has succeeded, failed or been aborted.
+     * @param node the node.
+     * @param elapsedNanos the time since the operation was given to the node.
+     * @param cause the reason the attempt failed, or null if it succeeded.
+     */
+    void attemptFinished(RiakNode node, long elapsedNanos, Throwable cause);
+}
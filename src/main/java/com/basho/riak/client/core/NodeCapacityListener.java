@@ -0,0 +1,35 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+/**
+ * Notified when a {@link RiakNode} may be able to take another operation.
+ * <p>
+ * Used by a {@link RiakCluster} to drain its operation queue as soon as a
+ * connection is returned to a node's pool.
+ * </p>
+ *
+ * @since 2.1
+ */
+interface NodeCapacityListener
+{
+    /**
+     * A connection was returned to the node's pool, or room freed on a
+     * pipelined connection.
+     * @param node the node.
+     */
+    void capacityAvailable(RiakNode node);
+}
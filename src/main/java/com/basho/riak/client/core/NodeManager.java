@@ -25,6 +25,13 @@ import java.util.List;
 public interface NodeManager extends NodeStateListener
 {
     void init(List<RiakNode> nodes);
+    /**
+     * Executes the operation on one of the nodes.
+     * @param operation the operation to execute.
+     * @param previousNode the node the operation, or one like it, was last
+     * sent to, to be avoided if another node can take it; null if none.
+     * @return true if a node accepted the operation.
+     */
     boolean executeOnNode(FutureOperation operation, RiakNode previousNode);
     void addNode(RiakNode newNode);
     boolean removeNode(RiakNode node);
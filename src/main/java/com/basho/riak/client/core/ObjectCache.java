@@ -0,0 +1,291 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+import com.basho.riak.client.api.cap.VClock;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.RiakObject;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * A bounded, client-side cache of fetched objects.
+ * <p>
+ * When a {@link RiakCluster} is given an ObjectCache, fetches of a
+ * {@link Location} that has been fetched before send the cached vector clock
+ * to Riak with {@code if_modified}. If Riak answers that the object is
+ * unchanged, the cached siblings are returned and neither the payload nor its
+ * conversion is paid for again. Every hit is revalidated this way, so the cache
+ * never returns an object that has since changed in Riak.
+ * </p>
+ * <p>
+ * Entries are evicted least recently used first once their estimated size
+ * exceeds the maximum. The estimate counts the values' and vector clock's bytes
+ * plus a fixed overhead per object; objects bigger than the whole cache are not
+ * cached at all. Stores and deletes made through this client invalidate the
+ * location they write to.
+ * </p>
+ *
+ * @since 2.1
+ * @see RiakCluster.Builder#withObjectCache(ObjectCache)
+ */
+public final class ObjectCache
+{
+    /**
+     * The default maximum size of the cache, 64MB.
+     * @see #ObjectCache(long)
+     */
+    public final static long DEFAULT_MAX_SIZE_IN_BYTES = 64 * 1024 * 1024;
+
+    /**
+     * The estimated cost of a RiakObject and its metadata, less its value.
+     */
+    final static int OBJECT_OVERHEAD = 256;
+
+    private final long maxSizeInBytes;
+    private final LinkedHashMap<Location, Entry> entries =
+        new LinkedHashMap<Location, Entry>(16, 0.75f, true);
+    private long sizeInBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Constructs an ObjectCache holding up to
+     * {@link #DEFAULT_MAX_SIZE_IN_BYTES}.
+     */
+    public ObjectCache()
+    {
+        this(DEFAULT_MAX_SIZE_IN_BYTES);
+    }
+
+    /**
+     * Constructs an ObjectCache.
+     * @param maxSizeInBytes the estimated size of the objects the cache may hold.
+     */
+    public ObjectCache(long maxSizeInBytes)
+    {
+        if (maxSizeInBytes <= 0)
+        {
+            throw new IllegalArgumentException("Max size must be greater than zero.");
+        }
+        this.maxSizeInBytes = maxSizeInBytes;
+    }
+
+    /**
+     * Returns the cached entry for a location, if there is one.
+     * @param location the location being fetched.
+     * @return the entry to revalidate, or null.
+     */
+    public synchronized Entry get(Location location)
+    {
+        Entry entry = entries.get(location);
+        if (entry == null)
+        {
+            misses++;
+        }
+        return entry;
+    }
+
+    /**
+     * Returns copies of an entry's objects, after Riak has answered that they
+     * are unchanged.
+     * @param entry the entry returned by {@link #get(Location)}
+     * @return the objects, which the caller is free to modify.
+     */
+    public List<RiakObject> unchanged(Entry entry)
+    {
+        synchronized (this)
+        {
+            hits++;
+        }
+        return copyOf(entry.objects);
+    }
+
+    /**
+     * Caches the objects fetched from a location, replacing any entry for it.
+     * @param location the location fetched.
+     * @param objects the objects (all the siblings) Riak returned.
+     */
+    public void put(Location location, List<RiakObject> objects)
+    {
+        VClock vclock = objects.isEmpty() ? null : objects.get(0).getVClock();
+        if (vclock == null)
+        {
+            invalidate(location);
+            return;
+        }
+
+        long size = vclock.getBytes().length;
+        for (RiakObject object : objects)
+        {
+            size += OBJECT_OVERHEAD + (object.hasValue() ? object.getValue().length() : 0);
+        }
+        if (size > maxSizeInBytes)
+        {
+            invalidate(location);
+            return;
+        }
+
+        Entry entry = new Entry(vclock, copyOf(objects), size);
+        synchronized (this)
+        {
+            Entry previous = entries.put(location, entry);
+            if (previous != null)
+            {
+                sizeInBytes -= previous.size;
+            }
+            sizeInBytes += size;
+
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (sizeInBytes > maxSizeInBytes)
+            {
+                sizeInBytes -= eldest.next().size;
+                eldest.remove();
+                evictions++;
+            }
+        }
+    }
+
+    /**
+     * Removes the entry for a location.
+     * @param location the location written to.
+     */
+    public synchronized void invalidate(Location location)
+    {
+        Entry entry = entries.remove(location);
+        if (entry != null)
+        {
+            sizeInBytes -= entry.size;
+        }
+    }
+
+    /**
+     * Removes the entry for a location now and again once a write to it has
+     * completed, so a fetch that was in flight during the write isn't kept.
+     * @param location the location written to.
+     * @param future the future for the write.
+     */
+    public <V, T> void invalidate(final Location location, RiakFuture<V, T> future)
+    {
+        invalidate(location);
+        future.addListener(new RiakFutureListener<V, T>()
+        {
+            @Override
+            public void handle(RiakFuture<V, T> f)
+            {
+                invalidate(location);
+            }
+        });
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public synchronized void clear()
+    {
+        entries.clear();
+        sizeInBytes = 0;
+    }
+
+    /**
+     * Returns the number of locations cached.
+     * @return the number of entries.
+     */
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Returns the estimated size of the cached objects.
+     * @return the size in bytes.
+     */
+    public synchronized long getSizeInBytes()
+    {
+        return sizeInBytes;
+    }
+
+    /**
+     * Returns the number of fetches Riak answered as unchanged, which were
+     * served from the cache.
+     * @return the number of hits.
+     */
+    public synchronized long getHitCount()
+    {
+        return hits;
+    }
+
+    /**
+     * Returns the number of fetches of a location that wasn't cached.
+     * @return the number of misses.
+     */
+    public synchronized long getMissCount()
+    {
+        return misses;
+    }
+
+    /**
+     * Returns the number of entries evicted to keep within the maximum size.
+     * @return the number of evictions.
+     */
+    public synchronized long getEvictionCount()
+    {
+        return evictions;
+    }
+
+    /**
+     * Copies objects so neither the cache nor its callers see each other's
+     * changes.
+     */
+    private static List<RiakObject> copyOf(List<RiakObject> objects)
+    {
+        List<RiakObject> copies = new ArrayList<RiakObject>(objects.size());
+        for (RiakObject object : objects)
+        {
+            copies.add(object.copy());
+        }
+        return copies;
+    }
+
+    /**
+     * The cached siblings for a location.
+     */
+    public static final class Entry
+    {
+        private final VClock vclock;
+        private final List<RiakObject> objects;
+        private final long size;
+
+        Entry(VClock vclock, List<RiakObject> objects, long size)
+        {
+            this.vclock = vclock;
+            this.objects = objects;
+            this.size = size;
+        }
+
+        /**
+         * Returns the vector clock to revalidate the entry with.
+         * @return the vclock Riak returned with the objects.
+         */
+        public VClock getVClock()
+        {
+            return vclock;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+/**
+ * The priority of an operation waiting in a {@link RiakCluster}'s operation queue.
+ * <p>
+ * When a connection frees up, queued operations of a higher priority are
+ * generally executed before any of a lower priority, so interactive requests
+ * are not stuck behind a backlog of bulk work. Each lower priority still gets
+ * a small share of the freed connections so it isn't starved by a steady
+ * stream of higher priority work. Operations of the same priority are
+ * executed in the order they were queued.
+ * </p>
+ *
+ * @since 2.1
+ * @see FutureOperation#setPriority(OperationPriority)
+ * @see RiakCluster.Builder#withOperationQueueMaxDepth(int)
+ */
+public enum OperationPriority
+{
+    /**
+     * Requests a user is waiting on; by default, single object and data type fetches.
+     */
+    INTERACTIVE,
+    /**
+     * The default.
+     */
+    NORMAL,
+    /**
+     * Background work; by default, list keys/buckets, 2i and MapReduce queries.
+     */
+    BULK
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The bounded queue of operations waiting for a connection in a {@link RiakCluster}.
+ * <p>
+ * There is one lock-free FIFO per {@link OperationPriority}; operations are
+ * taken from the highest priority FIFO that isn't empty. The queue only
+ * holds the operations: the cluster decides when to drain it.
+ * </p>
+ * <p>
+ * So that a steady stream of interactive requests can't starve the lower
+ * priorities until they time out, each one is guaranteed a minimum share
+ * of the polls: one in {@value #LOWER_PRIORITY_SHARE} starts at
+ * {@link OperationPriority#NORMAL}, and one in
+ * {@value #LOWER_PRIORITY_SHARE}&sup2; at {@link OperationPriority#BULK}.
+ * </p>
+ *
+ * @since 2.1
+ */
+final class OperationQueue
+{
+    /**
+     * One poll in this many starts at the next lower priority, one in its
+     * square at the priority below that.
+     */
+    static final int LOWER_PRIORITY_SHARE = 4;
+
+    private final ConcurrentLinkedDeque<Entry>[] queues;
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicInteger turns = new AtomicInteger();
+    private final int maxDepth;
+    private final OperationQueueStatistics statistics;
+
+    @SuppressWarnings("unchecked")
+    OperationQueue(int maxDepth)
+    {
+        this.maxDepth = maxDepth;
+        queues = new ConcurrentLinkedDeque[OperationPriority.values().length];
+        for (int i = 0; i < queues.length; i++)
+        {
+            queues[i] = new ConcurrentLinkedDeque<Entry>();
+        }
+        statistics = new OperationQueueStatistics(this);
+    }
+
+    /**
+     * Adds an operation to the back of its priority's FIFO.
+     * @param operation the operation.
+     * @param deadline the System.nanoTime() after which the operation
+     * should be failed rather than executed, or 0 for none.
+     * @return the depth of the queue including the operation, or 0 if the
+     * queue is full and the operation was not added.
+     */
+    int offer(FutureOperation operation, long deadline)
+    {
+        int newDepth;
+        do
+        {
+            int current = depth.get();
+            if (current >= maxDepth)
+            {
+                statistics.recordRejected();
+                return 0;
+            }
+            newDepth = current + 1;
+        }
+        while (!depth.compareAndSet(newDepth - 1, newDepth));
+
+        queues[operation.getPriority().ordinal()].offer(new Entry(operation, System.nanoTime(), deadline));
+        statistics.recordEnqueued(newDepth);
+        return newDepth;
+    }
+
+    /**
+     * Removes the oldest operation of the highest priority, or on a lower
+     * priority's turn, of that priority if it has one.
+     * @return the entry, or null if the queue is empty.
+     */
+    Entry poll()
+    {
+        Entry entry = queues[firstPriority(turns.getAndIncrement())].poll();
+        if (entry != null)
+        {
+            depth.decrementAndGet();
+            return entry;
+        }
+
+        for (ConcurrentLinkedDeque<Entry> queue : queues)
+        {
+            entry = queue.poll();
+            if (entry != null)
+            {
+                depth.decrementAndGet();
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Puts an entry taken with {@link #poll()} back at the front of its FIFO.
+     * @param entry the entry.
+     */
+    void offerFirst(Entry entry)
+    {
+        // The entry wasn't executed, so its priority keeps its turn.
+        turns.decrementAndGet();
+        depth.incrementAndGet();
+        queues[entry.operation.getPriority().ordinal()].offerFirst(entry);
+    }
+
+    /**
+     * @return the operation {@link #poll()} would return next, or null.
+     */
+    FutureOperation peek()
+    {
+        Entry entry = queues[firstPriority(turns.get())].peek();
+        if (entry != null)
+        {
+            return entry.operation;
+        }
+
+        for (ConcurrentLinkedDeque<Entry> queue : queues)
+        {
+            entry = queue.peek();
+            if (entry != null)
+            {
+                return entry.operation;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param turn the number of polls so far.
+     * @return the index of the priority whose FIFO that poll tries first.
+     */
+    private int firstPriority(int turn)
+    {
+        // Masked so the pattern carries on when the count wraps.
+        turn &= Integer.MAX_VALUE;
+        int first = 0;
+        int period = LOWER_PRIORITY_SHARE;
+        while (first + 1 < queues.length && turn % period == period - 1)
+        {
+            first++;
+            period *= LOWER_PRIORITY_SHARE;
+        }
+        return first;
+    }
+
+    /**
+     * Removes the entries whose deadline has passed.
+     * @param now the current System.nanoTime().
+     * @return the removed entries.
+     */
+    List<Entry> removeExpired(long now)
+    {
+        List<Entry> expired = new ArrayList<Entry>();
+        for (ConcurrentLinkedDeque<Entry> queue : queues)
+        {
+            Iterator<Entry> i = queue.iterator();
+            while (i.hasNext())
+            {
+                Entry entry = i.next();
+                if (entry.isExpired(now) && queue.removeFirstOccurrence(entry))
+                {
+                    depth.decrementAndGet();
+                    expired.add(entry);
+                }
+            }
+        }
+        return expired;
+    }
+
+    boolean isEmpty()
+    {
+        return depth.get() <= 0;
+    }
+
+    int size()
+    {
+        return Math.max(0, depth.get());
+    }
+
+    int getMaxDepth()
+    {
+        return maxDepth;
+    }
+
+    OperationQueueStatistics getStatistics()
+    {
+        return statistics;
+    }
+
+    static final class Entry
+    {
+        final FutureOperation operation;
+        final long enqueuedAt;
+        final long deadline;
+
+        Entry(FutureOperation operation, long enqueuedAt, long deadline)
+        {
+            this.operation = operation;
+            this.enqueuedAt = enqueuedAt;
+            this.deadline = deadline;
+        }
+
+        boolean isExpired(long now)
+        {
+            return deadline != 0 && now - deadline > 0;
+        }
+    }
+}
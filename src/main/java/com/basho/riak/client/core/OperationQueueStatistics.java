@@ -0,0 +1,115 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+import com.basho.riak.client.core.util.Histogram;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics for a {@link RiakCluster}'s operation queue.
+ * <p>
+ * These are meant for load shedding upstream of the client: a growing
+ * depth or wait time means Riak (or the connection pool) is not keeping
+ * up, well before operations start being rejected or timing out.
+ * </p>
+ *
+ * @since 2.1
+ * @see RiakCluster#getOperationQueueStatistics()
+ */
+public final class OperationQueueStatistics
+{
+    private final OperationQueue queue;
+    private final Histogram depthHistogram = new Histogram();
+    private final Histogram waitTimeHistogram = new Histogram();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+
+    OperationQueueStatistics(OperationQueue queue)
+    {
+        this.queue = queue;
+    }
+
+    void recordEnqueued(int depth)
+    {
+        depthHistogram.record(depth);
+    }
+
+    void recordDispatched(long waitTimeInNanos)
+    {
+        waitTimeHistogram.record(waitTimeInNanos);
+    }
+
+    void recordRejected()
+    {
+        rejected.incrementAndGet();
+    }
+
+    void recordExpired()
+    {
+        expired.incrementAndGet();
+    }
+
+    /**
+     * @return the number of operations currently queued.
+     */
+    public int getDepth()
+    {
+        return queue.size();
+    }
+
+    /**
+     * @return the maximum number of operations that can be queued.
+     */
+    public int getMaxDepth()
+    {
+        return queue.getMaxDepth();
+    }
+
+    /**
+     * @return the depth of the queue as seen by each operation added to it,
+     * including that operation.
+     */
+    public Histogram getDepthHistogram()
+    {
+        return depthHistogram;
+    }
+
+    /**
+     * @return the time, in nanoseconds, operations waited in the queue
+     * before being executed.
+     */
+    public Histogram getWaitTimeHistogram()
+    {
+        return waitTimeHistogram;
+    }
+
+    /**
+     * @return the number of operations failed because the queue was full.
+     */
+    public long getRejectedCount()
+    {
+        return rejected.get();
+    }
+
+    /**
+     * @return the number of operations failed because they were queued
+     * for longer than the queue timeout.
+     */
+    public long getExpiredCount()
+    {
+        return expired.get();
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+/**
+ * Receives the events in the life of one traced operation.
+ * <p>
+ * Events are reported from whichever thread moves the operation along,
+ * often one of Netty's event loops, and must be handled without blocking.
+ * They are reported in order, but not necessarily from the same thread.
+ * </p>
+ *
+ * @since 2.1
+ * @see OperationTracer
+ */
+public interface OperationTrace
+{
+    /**
+     * Reports an event.
+     * @param event the event.
+     * @param timeInNanos when it happened, from {@link System#nanoTime()}.
+     * @param node the node the operation was last given to, or null.
+     */
+    void event(TraceEvent event, long timeInNanos, RiakNode node);
+
+    /**
+     * Reports that the operation completed, was cancelled or timed out.
+     * <p>
+     * Only {@link TraceEvent#CONVERTING} and {@link TraceEvent#CONVERTED}
+     * can follow.
+     * </p>
+     * @param timeInNanos when it completed, from {@link System#nanoTime()}.
+     * @param cause the reason it failed, or null if it succeeded.
+     */
+    void completed(long timeInNanos, Throwable cause);
+}
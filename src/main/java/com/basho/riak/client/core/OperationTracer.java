@@ -0,0 +1,44 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+/**
+ * Decides which operations a {@link RiakCluster} traces.
+ * <p>
+ * The tracer is asked to start a trace as each operation is executed, on
+ * the thread executing it. That is the place to pick up the caller's
+ * context, e.g. the current span from a thread local, and keep it in the
+ * trace; the rest of the operation's events arrive on other threads.
+ * </p>
+ * <p>
+ * Operations that aren't traced cost one call to
+ * {@link #startTrace(FutureOperation)} and nothing more.
+ * </p>
+ *
+ * @since 2.1
+ * @see RiakCluster.Builder#withTracer(OperationTracer)
+ * @see SamplingTracer
+ */
+public interface OperationTracer
+{
+    /**
+     * Starts tracing an operation.
+     * @param operation the operation being executed.
+     * @return the trace to report the operation's events to, or null
+     * to not trace it.
+     */
+    OperationTrace startTrace(FutureOperation<?, ?, ?> operation);
+}
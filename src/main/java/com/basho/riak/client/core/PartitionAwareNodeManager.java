@@ -0,0 +1,472 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+import com.basho.riak.client.core.RiakNode.State;
+import com.basho.riak.client.core.operations.CoveragePlanOperation;
+import com.basho.riak.client.core.operations.CoveragePlanOperation.Response.CoverageEntry;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import com.basho.riak.client.core.util.HostAndPort;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link NodeManager} that sends each key/value operation to a node holding
+ * the key, saving the hop Riak makes when a request arrives at any other node.
+ * <p>
+ * The ring is learned from a coverage plan asking for one entry per
+ * partition, which Riak returns in ring order with the host of a vnode
+ * holding each partition's keys, and is refreshed in the background.
+ * Operations whose query info is a {@link Location} are hashed as Riak
+ * hashes them and sent to the node holding their partition if it is
+ * running and has a connection free. Everything else, and anything that
+ * can't be routed, is handed to a delegate NodeManager, which also manages
+ * the nodes' health as usual.
+ * </p>
+ * <p>
+ * Routing only saves a hop; any node can coordinate any request, so a stale
+ * ring costs latency, not correctness.
+ * </p>
+ * <pre class="prettyprint">
+ * {@code
+ * NodeManager nodeManager = new PartitionAwareNodeManager.Builder()
+ *                               .withRingSize(128)
+ *                               .build();
+ * RiakCluster cluster = new RiakCluster.Builder(nodes)
+ *                               .withNodeManager(nodeManager)
+ *                               .build();}</pre>
+ *
+ * @since 2.1
+ */
+public class PartitionAwareNodeManager implements NodeManager, NodeStateListener
+{
+    private final Logger logger = LoggerFactory.getLogger(PartitionAwareNodeManager.class);
+    private final NodeManager delegate;
+    private final int ringSize;
+    private final Namespace namespace;
+    private final long refreshInterval;
+    private final List<RiakNode> nodes = new CopyOnWriteArrayList<RiakNode>();
+    private final AtomicLong routed = new AtomicLong();
+
+    private volatile RiakRing ring;
+    private volatile CoveragePlanOperation refreshing;
+
+    // Guarded by this.
+    private ScheduledExecutorService executor;
+    private boolean ownsExecutor;
+    private ScheduledFuture<?> refreshFuture;
+
+    private PartitionAwareNodeManager(Builder builder)
+    {
+        this.delegate = builder.delegate == null ? new DefaultNodeManager() : builder.delegate;
+        this.ringSize = builder.ringSize;
+        this.namespace = builder.namespace;
+        this.refreshInterval = builder.refreshInterval;
+        this.executor = builder.executor;
+    }
+
+    @Override
+    public void init(List<RiakNode> nodes)
+    {
+        delegate.init(nodes);
+        this.nodes.addAll(nodes);
+        synchronized (this)
+        {
+            if (executor == null)
+            {
+                executor = Executors.newSingleThreadScheduledExecutor();
+                ownsExecutor = true;
+            }
+            refreshFuture = executor.scheduleWithFixedDelay(new RefreshTask(), 0, refreshInterval,
+                                                            TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public boolean executeOnNode(FutureOperation operation, RiakNode previousNode)
+    {
+        RiakRing current = ring;
+        if (current != null)
+        {
+            Object queryInfo = operation.getQueryInfo();
+            if (queryInfo instanceof Location)
+            {
+                RiakNode owner = current.getOwner((Location) queryInfo);
+                if (owner != null && owner != previousNode
+                        && owner.getNodeState() == State.RUNNING && owner.execute(operation))
+                {
+                    routed.incrementAndGet();
+                    return true;
+                }
+            }
+        }
+        return delegate.executeOnNode(operation, previousNode);
+    }
+
+    /**
+     * Returns the ring operations are currently routed by.
+     * @return the ring, or null if it isn't known yet.
+     */
+    public RiakRing getRing()
+    {
+        return ring;
+    }
+
+    /**
+     * @return the number of operations sent straight to a node holding their key.
+     */
+    public long getRoutedCount()
+    {
+        return routed.get();
+    }
+
+    /**
+     * Asks one of the nodes for a coverage plan, and rebuilds the ring from
+     * it on the refresh executor when it arrives.
+     */
+    void refresh()
+    {
+        CoveragePlanOperation previous = refreshing;
+        if (previous != null && !previous.isDone())
+        {
+            logger.debug("Previous ring refresh still outstanding");
+            return;
+        }
+
+        List<RiakNode> running = new ArrayList<RiakNode>();
+        for (RiakNode node : nodes)
+        {
+            if (node.getNodeState() == State.RUNNING)
+            {
+                running.add(node);
+            }
+        }
+        if (running.isEmpty())
+        {
+            return;
+        }
+
+        final CoveragePlanOperation operation =
+            new PlanBuilder(namespace).withMinPartitions(ringSize).buildOperation();
+        RiakNode node = running.get(ThreadLocalRandom.current().nextInt(running.size()));
+        if (!node.execute(operation))
+        {
+            logger.debug("Unable to refresh ring; {}:{} has no connection available",
+                         node.getRemoteAddress(), node.getPort());
+            return;
+        }
+        refreshing = operation;
+        operation.addListener(new RiakFutureListener<CoveragePlanOperation.Response, Namespace>()
+        {
+            @Override
+            public void handle(RiakFuture<CoveragePlanOperation.Response, Namespace> f)
+            {
+                if (f.isSuccess())
+                {
+                    // Resolving the nodes' addresses may block; don't do it
+                    // on the thread that read the plan off the connection.
+                    final CoveragePlanOperation.Response plan = f.getNow();
+                    executeQuietly(new Runnable()
+                    {
+                        @Override
+                        public void run()
+                        {
+                            update(plan);
+                        }
+                    });
+                }
+                else
+                {
+                    logger.warn("Unable to refresh ring", f.cause());
+                }
+            }
+        });
+    }
+
+    private synchronized void executeQuietly(Runnable task)
+    {
+        try
+        {
+            executor.execute(task);
+        }
+        catch (RejectedExecutionException ex)
+        {
+            logger.debug("Ring refresh executor shut down");
+        }
+    }
+
+    private void update(CoveragePlanOperation.Response plan)
+    {
+        List<CoverageEntry> entries = plan.entries();
+        if (entries.size() != ringSize)
+        {
+            logger.warn("Coverage plan has {} entries rather than one for each of {} partitions; "
+                            + "check the ring size. Operations will not be routed by partition.",
+                        entries.size(), ringSize);
+            ring = null;
+            return;
+        }
+
+        Map<HostAndPort, RiakNode> byAddress = addresses();
+        RiakNode[] owners = new RiakNode[ringSize];
+        int unknown = 0;
+        for (int i = 0; i < ringSize; i++)
+        {
+            CoverageEntry entry = entries.get(i);
+            owners[i] = byAddress.get(HostAndPort.fromParts(entry.getHost(), entry.getPort()));
+            if (owners[i] == null)
+            {
+                unknown++;
+            }
+        }
+        if (unknown > 0)
+        {
+            logger.debug("{} of {} partitions are held by nodes not in this cluster", unknown, ringSize);
+        }
+        ring = new RiakRing(owners);
+    }
+
+    /**
+     * Maps each node's configured and resolved addresses to it.
+     */
+    private Map<HostAndPort, RiakNode> addresses()
+    {
+        Map<HostAndPort, RiakNode> byAddress = new HashMap<HostAndPort, RiakNode>();
+        for (RiakNode node : nodes)
+        {
+            byAddress.put(HostAndPort.fromParts(node.getRemoteAddress(), node.getPort()), node);
+            try
+            {
+                for (InetAddress address : InetAddress.getAllByName(node.getRemoteAddress()))
+                {
+                    byAddress.put(HostAndPort.fromParts(address.getHostAddress(), node.getPort()), node);
+                }
+            }
+            catch (UnknownHostException ex)
+            {
+                logger.debug("Unable to resolve {}", node.getRemoteAddress());
+            }
+        }
+        return byAddress;
+    }
+
+    @Override
+    public void nodeStateChanged(RiakNode node, State state)
+    {
+        delegate.nodeStateChanged(node, state);
+        if (state == State.SHUTDOWN && nodes.remove(node) && nodes.isEmpty())
+        {
+            stopRefreshing();
+        }
+    }
+
+    @Override
+    public void addNode(RiakNode newNode)
+    {
+        delegate.addNode(newNode);
+        nodes.add(newNode);
+    }
+
+    @Override
+    public boolean removeNode(RiakNode node)
+    {
+        nodes.remove(node);
+        return delegate.removeNode(node);
+    }
+
+    private synchronized void stopRefreshing()
+    {
+        if (refreshFuture != null)
+        {
+            refreshFuture.cancel(false);
+            refreshFuture = null;
+        }
+        if (ownsExecutor)
+        {
+            executor.shutdown();
+        }
+        ring = null;
+    }
+
+    private class RefreshTask implements Runnable
+    {
+        @Override
+        public void run()
+        {
+            try
+            {
+                refresh();
+            }
+            catch (RuntimeException ex)
+            {
+                logger.error("Ring refresh failed", ex);
+            }
+        }
+    }
+
+    private static class PlanBuilder extends CoveragePlanOperation.AbstractBuilder<CoveragePlanOperation>
+    {
+        PlanBuilder(Namespace namespace)
+        {
+            super(namespace);
+        }
+
+        @Override
+        public CoveragePlanOperation build()
+        {
+            return buildOperation();
+        }
+    }
+
+    /**
+     * Builder used to construct a PartitionAwareNodeManager.
+     */
+    public static class Builder
+    {
+        /**
+         * The default ring size, Riak's default {@code ring_creation_size}.
+         * @see #withRingSize(int)
+         */
+        public final static int DEFAULT_RING_SIZE = 64;
+        /**
+         * The default time, in milliseconds, between ring refreshes.
+         * @see #withRefreshInterval(int)
+         */
+        public final static int DEFAULT_REFRESH_INTERVAL = 60000;
+        /**
+         * The default bucket the coverage plan is requested for.
+         * @see #withNamespace(Namespace)
+         */
+        public final static Namespace DEFAULT_NAMESPACE = new Namespace("riak-java-client-ring");
+
+        private NodeManager delegate;
+        private int ringSize = DEFAULT_RING_SIZE;
+        private int refreshInterval = DEFAULT_REFRESH_INTERVAL;
+        private Namespace namespace = DEFAULT_NAMESPACE;
+        private ScheduledExecutorService executor;
+
+        /**
+         * Set the NodeManager that executes operations which can't be routed
+         * by partition.
+         * <p>
+         * If none is provided a {@link DefaultNodeManager} is used.
+         * </p>
+         * @param delegate the NodeManager.
+         * @return a reference to this object.
+         */
+        public Builder withDelegate(NodeManager delegate)
+        {
+            this.delegate = delegate;
+            return this;
+        }
+
+        /**
+         * Set the number of partitions in the cluster's ring.
+         * <p>
+         * This must match the cluster's {@code ring_creation_size}; if it
+         * doesn't, operations are not routed by partition.
+         * </p>
+         * @param ringSize the ring size, a power of two.
+         * @return a reference to this object.
+         * @see #DEFAULT_RING_SIZE
+         */
+        public Builder withRingSize(int ringSize)
+        {
+            if (ringSize < 1 || Integer.bitCount(ringSize) != 1)
+            {
+                throw new IllegalArgumentException("Ring size must be a power of two");
+            }
+            this.ringSize = ringSize;
+            return this;
+        }
+
+        /**
+         * Set the time between ring refreshes.
+         * @param refreshInterval the interval in milliseconds.
+         * @return a reference to this object.
+         * @see #DEFAULT_REFRESH_INTERVAL
+         */
+        public Builder withRefreshInterval(int refreshInterval)
+        {
+            if (refreshInterval < 1)
+            {
+                throw new IllegalArgumentException("Refresh interval must be at least 1");
+            }
+            this.refreshInterval = refreshInterval;
+            return this;
+        }
+
+        /**
+         * Set the bucket the coverage plan is requested for.
+         * <p>
+         * The bucket needn't exist, but its type's n_val should match the
+         * buckets being routed to.
+         * </p>
+         * @param namespace the bucket.
+         * @return a reference to this object.
+         * @see #DEFAULT_NAMESPACE
+         */
+        public Builder withNamespace(Namespace namespace)
+        {
+            if (namespace == null)
+            {
+                throw new IllegalArgumentException("Namespace can not be null");
+            }
+            this.namespace = namespace;
+            return this;
+        }
+
+        /**
+         * Provides an executor to refresh the ring on.
+         * <p>
+         * If none is provided a single threaded executor is created and shut
+         * down along with the last node.
+         * </p>
+         * @param executor the ScheduledExecutorService to use.
+         * @return a reference to this object.
+         */
+        public Builder withExecutor(ScheduledExecutorService executor)
+        {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Construct the PartitionAwareNodeManager.
+         * @return a new PartitionAwareNodeManager.
+         */
+        public PartitionAwareNodeManager build()
+        {
+            return new PartitionAwareNodeManager(this);
+        }
+    }
+}
@@ -0,0 +1,406 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collapses concurrent, identical reads into one request to Riak.
+ * <p>
+ * While a read is in flight, an identical read (the same command, location
+ * and options) waits for its result rather than being sent as well. Each
+ * caller is given its own future: cancelling it stops that caller waiting,
+ * but the shared read carries on for the others.
+ * </p>
+ * <p>
+ * Each caller keeps its own {@link Deadline}. A caller whose deadline
+ * passes before the shared read's fails with a {@link TimeoutException}
+ * then. If the shared read times out before a caller's deadline, the caller
+ * isn't failed with it; its read is sent (or waits for another in flight)
+ * instead.
+ * </p>
+ *
+ * @since 2.1
+ * @see RiakCluster.Builder#withRequestCoalescing(boolean)
+ * @see RiakCluster#executeCoalesced(Object, FutureOperation)
+ */
+public final class RequestCoalescer
+{
+    private final ConcurrentMap<Object, Flight> inFlight =
+        new ConcurrentHashMap<Object, Flight>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong collapses = new AtomicLong();
+    private final ScheduledExecutorService executor;
+
+    RequestCoalescer(ScheduledExecutorService executor)
+    {
+        this.executor = executor;
+    }
+
+    /**
+     * Executes the operation, unless an operation with the same key is in
+     * flight, in which case the caller waits for that one instead.
+     */
+    <V, T> RiakFuture<V, T> execute(Object key, FutureOperation<V, ?, T> operation, RiakCluster cluster)
+    {
+        requests.incrementAndGet();
+        Deadline deadline = operation.getDeadline();
+        if (deadline == null)
+        {
+            deadline = Deadline.current();
+            operation.setDeadline(deadline);
+        }
+
+        Flight flight = join(key, operation, deadline, cluster);
+        if (flight.future != operation)
+        {
+            hits.incrementAndGet();
+            if (flight.joined.getAndIncrement() == 0)
+            {
+                collapses.incrementAndGet();
+            }
+        }
+        Waiter<V, T> waiter = new Waiter<V, T>(key, operation, deadline, cluster);
+        waiter.follow(flight);
+        return waiter;
+    }
+
+    /**
+     * Returns the read in flight with the key, first sending the operation
+     * if there isn't one.
+     */
+    private <V, T> Flight join(final Object key, FutureOperation<V, ?, T> operation, Deadline deadline,
+                               RiakCluster cluster)
+    {
+        final Flight flight = new Flight(operation, deadline);
+        for (;;)
+        {
+            Flight current = inFlight.putIfAbsent(key, flight);
+            if (current == null)
+            {
+                break;
+            }
+            if (!current.future.isDone())
+            {
+                return current;
+            }
+            // Completed, but its listener hasn't removed it yet.
+            inFlight.remove(key, current);
+        }
+
+        operation.addListener(new RiakFutureListener<V, T>()
+        {
+            @Override
+            public void handle(RiakFuture<V, T> f)
+            {
+                inFlight.remove(key, flight);
+            }
+        });
+        cluster.execute(operation);
+        return flight;
+    }
+
+    /**
+     * Returns the number of reads that could have been coalesced.
+     * @return the number of reads.
+     */
+    public long getRequestCount()
+    {
+        return requests.get();
+    }
+
+    /**
+     * Returns the number of reads that waited for an identical read already
+     * in flight, rather than being sent to Riak.
+     * @return the number of reads that weren't sent.
+     */
+    public long getHitCount()
+    {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of reads sent to Riak whose result was shared with
+     * at least one other caller.
+     * @return the number of collapsed reads.
+     */
+    public long getCollapseCount()
+    {
+        return collapses.get();
+    }
+
+    /**
+     * Returns the number of distinct reads in flight.
+     * @return the number of reads in flight.
+     */
+    public int getInFlightCount()
+    {
+        return inFlight.size();
+    }
+
+    /**
+     * @return true if {@code a} passes before {@code b}; a null deadline never passes.
+     */
+    private static boolean isBefore(Deadline a, Deadline b)
+    {
+        return a != null && a != b && (b == null || b.earliest(a) == a);
+    }
+
+    private static final class Flight
+    {
+        private final RiakFuture<?, ?> future;
+        private final Deadline deadline;
+        private final AtomicInteger joined = new AtomicInteger();
+
+        Flight(RiakFuture<?, ?> future, Deadline deadline)
+        {
+            this.future = future;
+            this.deadline = deadline;
+        }
+    }
+
+    /**
+     * One caller's view of a shared read.
+     */
+    private final class Waiter<V, T> implements RiakFuture<V, T>, RiakFutureListener<V, T>
+    {
+        private final Object key;
+        private final FutureOperation<V, ?, T> operation;
+        private final Deadline deadline;
+        private final RiakCluster cluster;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final List<RiakFutureListener<V, T>> listeners =
+            new ArrayList<RiakFutureListener<V, T>>();
+        private volatile RiakFuture<V, T> flight;
+        private volatile Deadline flightDeadline;
+        // Set if this caller stopped waiting before the shared read completed.
+        private volatile Throwable abortCause;
+        private volatile ScheduledFuture<?> timer;
+
+        Waiter(Object key, FutureOperation<V, ?, T> operation, Deadline deadline, RiakCluster cluster)
+        {
+            this.key = key;
+            this.operation = operation;
+            this.deadline = deadline;
+            this.cluster = cluster;
+        }
+
+        /**
+         * Waits for the read, arranging to stop waiting at this caller's
+         * deadline if that's before the read's.
+         */
+        @SuppressWarnings("unchecked")
+        void follow(Flight flight)
+        {
+            this.flight = (RiakFuture<V, T>) flight.future;
+            this.flightDeadline = flight.deadline;
+            if (timer == null && isBefore(deadline, flight.deadline))
+            {
+                expire();
+            }
+            this.flight.addListener(this);
+        }
+
+        /**
+         * Fails this caller with a TimeoutException when its deadline passes,
+         * if the read hasn't completed by then.
+         */
+        private void expire()
+        {
+            long remaining = deadline.getRemainingTime(TimeUnit.NANOSECONDS);
+            if (remaining <= 0)
+            {
+                complete(new TimeoutException("Deadline passed before the operation was executed"));
+                return;
+            }
+            timer = executor.schedule(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    complete(new TimeoutException("Deadline passed before the operation completed"));
+                }
+            }, remaining, TimeUnit.NANOSECONDS);
+            if (isDone())
+            {
+                timer.cancel(false);
+            }
+        }
+
+        @Override
+        public void handle(RiakFuture<V, T> f)
+        {
+            if (f != flight)
+            {
+                return;
+            }
+            if (!isDone() && f.cause() instanceof TimeoutException && isBefore(flightDeadline, deadline))
+            {
+                // The read timed out under another caller's deadline; ours hasn't passed.
+                follow(join(key, operation, deadline, cluster));
+                return;
+            }
+            complete(null);
+        }
+
+        private boolean complete(Throwable cause)
+        {
+            List<RiakFutureListener<V, T>> toNotify;
+            synchronized (listeners)
+            {
+                if (done.getCount() == 0)
+                {
+                    return false;
+                }
+                abortCause = cause;
+                done.countDown();
+                toNotify = new ArrayList<RiakFutureListener<V, T>>(listeners);
+                listeners.clear();
+            }
+            ScheduledFuture<?> t = timer;
+            if (t != null)
+            {
+                t.cancel(false);
+            }
+            for (RiakFutureListener<V, T> listener : toNotify)
+            {
+                listener.handle(this);
+            }
+            return true;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning)
+        {
+            return complete(new CancellationException());
+        }
+
+        @Override
+        public V get() throws InterruptedException, ExecutionException
+        {
+            done.await();
+            Throwable cause = abortCause;
+            if (cause instanceof CancellationException)
+            {
+                throw (CancellationException) cause;
+            }
+            else if (cause != null)
+            {
+                throw new ExecutionException(cause);
+            }
+            return flight.get();
+        }
+
+        @Override
+        public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException
+        {
+            if (!done.await(timeout, unit))
+            {
+                throw new TimeoutException();
+            }
+            return get();
+        }
+
+        @Override
+        public boolean isCancelled()
+        {
+            return abortCause instanceof CancellationException;
+        }
+
+        @Override
+        public boolean isDone()
+        {
+            return done.getCount() == 0;
+        }
+
+        @Override
+        public void await() throws InterruptedException
+        {
+            done.await();
+        }
+
+        @Override
+        public boolean await(long timeout, TimeUnit unit) throws InterruptedException
+        {
+            return done.await(timeout, unit);
+        }
+
+        @Override
+        public V getNow()
+        {
+            return isDone() && abortCause == null ? flight.getNow() : null;
+        }
+
+        @Override
+        public boolean isSuccess()
+        {
+            return isDone() && abortCause == null && flight.isSuccess();
+        }
+
+        @Override
+        public Throwable cause()
+        {
+            if (!isDone() || isCancelled())
+            {
+                return null;
+            }
+            Throwable cause = abortCause;
+            return cause != null ? cause : flight.cause();
+        }
+
+        @Override
+        public T getQueryInfo()
+        {
+            return flight.getQueryInfo();
+        }
+
+        @Override
+        public void addListener(RiakFutureListener<V, T> listener)
+        {
+            synchronized (listeners)
+            {
+                if (!isDone())
+                {
+                    listeners.add(listener);
+                    return;
+                }
+            }
+            listener.handle(this);
+        }
+
+        @Override
+        public void removeListener(RiakFutureListener<V, T> listener)
+        {
+            synchronized (listeners)
+            {
+                listeners.remove(listener);
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+/**
+ * Decides whether, and when, a {@link RiakCluster} retries a failed operation.
+ * <p>
+ * The cluster consults its policy each time an operation fails with
+ * attempts remaining, and schedules the retry on its executor after the
+ * returned delay. A policy is shared by every operation on the cluster
+ * and must be thread safe.
+ * </p>
+ *
+ * @since 2.1
+ * @see ExponentialBackoffRetryPolicy
+ * @see RiakCluster.Builder#withRetryPolicy(RetryPolicy)
+ */
+public interface RetryPolicy
+{
+    /**
+     * Returned by {@link #getRetryDelay(FutureOperation, int, boolean)} when
+     * an operation should not be retried.
+     */
+    long NO_RETRY = -1;
+
+    /**
+     * Returns how long to wait before retrying a failed operation.
+     * @param operation the operation; {@link FutureOperation#cause()} is
+     * the failure.
+     * @param attempts the number of times the operation has been tried.
+     * @param written true if the failed attempt was written to a
+     * connection, and so may have been carried out by Riak.
+     * @return the delay in nanoseconds, or {@link #NO_RETRY}.
+     */
+    long getRetryDelay(FutureOperation operation, int attempts, boolean written);
+
+    /**
+     * Called when an operation completes successfully.
+     * @param operation the operation.
+     */
+    void operationSucceeded(FutureOperation operation);
+}
@@ -17,10 +17,14 @@ package com.basho.riak.client.core;
 
 
 import com.basho.riak.client.core.util.HostAndPort;
+import com.basho.riak.client.core.netty.Transport;
 import io.netty.bootstrap.Bootstrap;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollMode;
 
+import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.*;
 import java.util.concurrent.*;
@@ -51,19 +55,36 @@ public class  RiakCluster implements OperationRetrier, NodeStateListener
     private final AtomicInteger inFlightCount = new AtomicInteger();
     private final ScheduledExecutorService executor;
     private final Bootstrap bootstrap;
+    private final boolean ownsEventLoopGroup;
     private final List<RiakNode> nodeList;
     private final ReentrantReadWriteLock nodeListLock = new ReentrantReadWriteLock();
-    private final LinkedBlockingQueue<FutureOperation> retryQueue =
-        new LinkedBlockingQueue<FutureOperation>();
+    // Replaced, never modified; see resolveNodeAddresses().
+    private volatile Map<HostAndPort, RiakNode> nodesByAddress = Collections.emptyMap();
+    private final RetryPolicy retryPolicy;
     private final boolean queueOperations;
-    private final ConcurrentLinkedDeque<FutureOperation> operationQueue;
-    private final RiakNode.Sync operationQueuePermits;
+    private final OperationQueue operationQueue;
+    private final long operationQueueTimeoutInNanos;
+    private final long minimumRetryTimeInNanos;
+    private final HedgingStatistics hedgingStatistics;
+    private final RiakMetrics metrics;
+    private final boolean recordMetrics;
+    private final OperationTracer tracer;
+    private final ObjectCache objectCache;
+    private final RequestCoalescer requestCoalescer;
+    private final AtomicInteger operationQueueDrainRequests = new AtomicInteger();
+    private final NodeCapacityListener capacityListener = new NodeCapacityListener()
+    {
+        @Override
+        public void capacityAvailable(RiakNode node)
+        {
+            drainOperationQueue();
+        }
+    };
     private final List<NodeStateListener> stateListeners =
         Collections.synchronizedList(new LinkedList<NodeStateListener>());
 
 
     private volatile ScheduledFuture<?> shutdownFuture;
-    private volatile ScheduledFuture<?> retrierFuture;
     private volatile ScheduledFuture<?> queueDrainFuture;
 
     private volatile State state;
@@ -73,6 +94,15 @@ public class  RiakCluster implements OperationRetrier, NodeStateListener
     {
         this.executionAttempts = builder.executionAttempts;
         this.queueOperations =  builder.operationQueueMaxDepth > 0;
+        this.minimumRetryTimeInNanos = TimeUnit.MILLISECONDS.toNanos(builder.minimumRetryTime);
+        this.retryPolicy = builder.retryPolicy != null
+            ? builder.retryPolicy : new ExponentialBackoffRetryPolicy.Builder().build();
+        this.hedgingStatistics =
+            builder.hedgingPolicy != null ? new HedgingStatistics(builder.hedgingPolicy) : null;
+        this.metrics = builder.metrics != null ? builder.metrics : NoOpRiakMetrics.INSTANCE;
+        this.recordMetrics = metrics != NoOpRiakMetrics.INSTANCE;
+        this.tracer = builder.tracer;
+        this.objectCache = builder.objectCache;
 
         if (null == builder.nodeManager)
         {
@@ -86,12 +116,43 @@ public class  RiakCluster implements OperationRetrier, NodeStateListener
         if (builder.bootstrap != null)
         {
             this.bootstrap = builder.bootstrap.clone();
+            this.ownsEventLoopGroup = true;
         }
         else
         {
+            Transport transport;
+            EventLoopGroup group;
+            if (builder.eventLoopGroup != null)
+            {
+                group = builder.eventLoopGroup;
+                transport = Transport.forEventLoopGroup(group);
+                this.ownsEventLoopGroup = false;
+            }
+            else
+            {
+                transport = builder.transport.resolve();
+                group = transport.newEventLoopGroup();
+                this.ownsEventLoopGroup = true;
+            }
+            logger.debug("Using the {} transport", transport);
             this.bootstrap = new Bootstrap()
-                .group(new NioEventLoopGroup())
-                .channel(NioSocketChannel.class);
+                .group(group)
+                .channel(transport.channelClass())
+                .option(ChannelOption.TCP_NODELAY, builder.tcpNoDelay)
+                .option(ChannelOption.SO_KEEPALIVE, builder.keepAlive);
+
+            if (builder.sendBufferSize > 0)
+            {
+                bootstrap.option(ChannelOption.SO_SNDBUF, builder.sendBufferSize);
+            }
+            if (builder.receiveBufferSize > 0)
+            {
+                bootstrap.option(ChannelOption.SO_RCVBUF, builder.receiveBufferSize);
+            }
+            if (transport == Transport.EPOLL)
+            {
+                bootstrap.option(EpollChannelOption.EPOLL_MODE, builder.epollMode);
+            }
         }
 
 
@@ -101,35 +162,42 @@ public class  RiakCluster implements OperationRetrier, NodeStateListener
         }
         else
         {
-            // Retry Task, Shutdown Task, (optional) Queue Task
+            // Retries, Shutdown Task, (optional) Queue Task
             Integer poolSize = this.queueOperations ? 3 : 2;
 
             // We still need an executor if none was provided.
-            executor = new ScheduledThreadPoolExecutor(poolSize);
+            ScheduledThreadPoolExecutor stpe = new ScheduledThreadPoolExecutor(poolSize);
+            // Most deadline timers are cancelled; don't keep them around.
+            stpe.setRemoveOnCancelPolicy(true);
+            executor = stpe;
         }
+        this.requestCoalescer = builder.requestCoalescing ? new RequestCoalescer(executor) : null;
 
         nodeList = new ArrayList<RiakNode>(builder.riakNodes.size());
         for (RiakNode node : builder.riakNodes)
         {
             node.setExecutor(executor);
             node.setBootstrap(bootstrap);
+            node.setMetrics(metrics);
             node.addStateListener(nodeManager);
             nodeList.add(node);
+            metrics.nodeAdded(node);
         }
 
+        this.operationQueueTimeoutInNanos =
+            TimeUnit.MILLISECONDS.toNanos(builder.operationQueueTimeout);
         if (this.queueOperations)
         {
-            this.operationQueue = new ConcurrentLinkedDeque<>();
-            this.operationQueuePermits = new RiakNode.Sync(builder.operationQueueMaxDepth);
+            this.operationQueue = new OperationQueue(builder.operationQueueMaxDepth);
 
             for (RiakNode node : nodeList)
             {
                 node.setBlockOnMaxConnections(false);
+                node.setCapacityListener(capacityListener);
             }
         }
         else
         {
-            this.operationQueuePermits = new RiakNode.Sync(0);
             this.operationQueue = null;
         }
 
@@ -169,11 +237,11 @@ public class  RiakCluster implements OperationRetrier, NodeStateListener
             }
         }
 
-        retrierFuture = executor.schedule(new RetryTask(), 0, TimeUnit.SECONDS);
+        resolveNodeAddresses();
 
         if (this.queueOperations)
         {
-            queueDrainFuture = executor.schedule(new QueueDrainTask(), 0, TimeUnit.SECONDS);
+            queueDrainFuture = executor.scheduleWithFixedDelay(new QueueDrainTask(), 50, 50, TimeUnit.MILLISECONDS);
         }
 
         logger.info("RiakCluster is starting.");
@@ -228,8 +296,22 @@ public class  RiakCluster implements OperationRetrier, NodeStateListener
     public <V,S> RiakFuture<V,S> execute(FutureOperation<V, ?, S> operation)
     {
         stateCheck(State.RUNNING, State.QUEUING);
+        if (operation.getDeadline() == null)
+        {
+            operation.setDeadline(Deadline.current());
+        }
         operation.setRetrier(this, executionAttempts);
         inFlightCount.incrementAndGet();
+        if (recordMetrics)
+        {
+            operation.setExecutionStart(System.nanoTime());
+        }
+        startTrace(operation);
+
+        if (operation.getDeadline() != null && !scheduleDeadline(operation))
+        {
+            return operation;
+        }
 
         boolean gotConnection = false;
 
@@ -255,61 +337,468 @@ public class  RiakCluster implements OperationRetrier, NodeStateListener
         return operation;
     }
 
+    /**
+     * Executes a group of operations, flushing each connection once.
+     * <p>
+     * Operations are dispatched as if passed to {@link #execute(FutureOperation)}
+     * one at a time, but those written to the same connection by this call are
+     * flushed together when the last has been written rather than one
+     * syscall each. Operations that have to wait for a connection (or are
+     * retried) are flushed when they are written, as usual.
+     * </p>
+     * @param operations the operations to execute.
+     * @return the futures for the operations, in the same order.
+     */
+    public List<RiakFuture<?,?>> executeBatch(Collection<? extends FutureOperation<?, ?, ?>> operations)
+    {
+        List<RiakFuture<?,?>> futures = new ArrayList<RiakFuture<?,?>>(operations.size());
+        RiakNode.WriteBatch batch = RiakNode.WriteBatch.begin();
+        try
+        {
+            for (FutureOperation<?, ?, ?> operation : operations)
+            {
+                futures.add(execute(operation));
+            }
+        }
+        finally
+        {
+            batch.end();
+        }
+        return futures;
+    }
+
+    /**
+     * Executes an operation on the node at a particular host.
+     * <p>
+     * This is for operations that only give the right answer on one node,
+     * such as queries with a coverage context. The operation is never
+     * retried, queued, or sent to another node; if the host isn't one of
+     * this cluster's nodes, or the node won't take it, it fails with a
+     * {@link NoNodesAvailableException}.
+     * </p>
+     * @param operation the operation to execute.
+     * @param host the host and port of the node.
+     * @return a future for the result.
+     */
+    public <V,S> RiakFuture<V,S> executeOnHost(FutureOperation<V, ?, S> operation, HostAndPort host)
+    {
+        stateCheck(State.RUNNING, State.QUEUING);
+        if (operation.getDeadline() == null)
+        {
+            operation.setDeadline(Deadline.current());
+        }
+        operation.setRetrier(this, 1);
+        inFlightCount.incrementAndGet();
+        if (recordMetrics)
+        {
+            operation.setExecutionStart(System.nanoTime());
+        }
+        startTrace(operation);
+
+        if (operation.getDeadline() != null && !scheduleDeadline(operation))
+        {
+            return operation;
+        }
+
+        RiakNode node = findNode(host);
+        if (node == null)
+        {
+            operation.failWithoutRetry(new NoNodesAvailableException("No node for " + host));
+        }
+        else if (!executeOnNode(operation, node))
+        {
+            operation.failWithoutRetry(new NoNodesAvailableException("Node " + host + " is not available"));
+        }
+        return operation;
+    }
+
+    /**
+     * Finds the node at a host, by the address it was configured with or one
+     * it resolved to when the cluster was started or its nodes changed.
+     * <p>
+     * Never resolves the host; this is called from operation listeners,
+     * which run on the event loop.
+     * </p>
+     */
+    private RiakNode findNode(HostAndPort host)
+    {
+        RiakNode found = nodesByAddress.get(host);
+        if (found != null)
+        {
+            return found;
+        }
+        for (RiakNode node : getNodes())
+        {
+            if (node.getPort() == host.getPort() && host.getHost().equals(node.getRemoteAddress()))
+            {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Re-resolves the nodes' addresses for {@link #findNode(HostAndPort)}.
+     * Blocks on DNS, so is only called from the application's threads.
+     */
+    private synchronized void resolveNodeAddresses()
+    {
+        nodesByAddress = nodeAddresses(getNodes());
+    }
+
+    /**
+     * Maps the addresses each node's host resolves to to the node.
+     */
+    private Map<HostAndPort, RiakNode> nodeAddresses(List<RiakNode> nodes)
+    {
+        Map<HostAndPort, RiakNode> byAddress = new HashMap<HostAndPort, RiakNode>();
+        for (RiakNode node : nodes)
+        {
+            try
+            {
+                for (InetAddress address : InetAddress.getAllByName(node.getRemoteAddress()))
+                {
+                    byAddress.put(HostAndPort.fromParts(address.getHostAddress(), node.getPort()), node);
+                }
+            }
+            catch (UnknownHostException ex)
+            {
+                logger.debug("Unable to resolve {}", node.getRemoteAddress());
+            }
+        }
+        return byAddress;
+    }
+
+    private boolean executeOnNode(FutureOperation operation, RiakNode node)
+    {
+        RiakNode.State nodeState = node.getNodeState();
+        if (nodeState != RiakNode.State.RUNNING && nodeState != RiakNode.State.HEALTH_CHECKING)
+        {
+            return false;
+        }
+        try
+        {
+            return node.execute(operation);
+        }
+        catch (IllegalStateException ex)
+        {
+            // Shut down meanwhile.
+            return false;
+        }
+    }
+
     private boolean notQueuingOrQueueIsEmpty()
     {
-        return !this.queueOperations || this.operationQueue.size() == 0;
+        return !this.queueOperations || this.operationQueue.isEmpty();
+    }
+
+    /**
+     * Executes a read that may be hedged.
+     * <p>
+     * If hedging is enabled and the operation has not completed within the
+     * {@link HedgingPolicy}'s delay, the hedge is sent to another node and
+     * the returned future completes with whichever succeeds first. The hedge
+     * must be a duplicate of the operation; it is only executed if needed.
+     * Only operations that are safe to repeat, such as fetches, should be
+     * hedged.
+     * </p>
+     * <p>
+     * If hedging is not enabled this is the same as
+     * {@link #execute(FutureOperation)} with the operation.
+     * </p>
+     * @param operation the operation to execute.
+     * @param hedge a duplicate of the operation.
+     * @return a future for the result.
+     * @see Builder#withHedgingPolicy(HedgingPolicy)
+     */
+    public <V,S> RiakFuture<V,S> executeHedged(FutureOperation<V, ?, S> operation, FutureOperation<V, ?, S> hedge)
+    {
+        if (hedgingStatistics == null)
+        {
+            return execute(operation);
+        }
+
+        hedgingStatistics.recordRead();
+        HedgedFuture<V,S> future = new HedgedFuture<V,S>(this, hedgingStatistics, operation, hedge);
+        execute(operation);
+        future.start(executor);
+        return future;
+    }
+
+    /**
+     * Executes a read that may be coalesced with identical reads.
+     * <p>
+     * If request coalescing is enabled and a read with an equal key is
+     * already in flight, the operation is not sent; the returned future
+     * completes with the result of the read in flight instead. Callers
+     * sharing a result share the objects in it. The key must identify
+     * everything that affects the result, such as the location and options.
+     * </p>
+     * <p>
+     * If coalescing is not enabled this is the same as
+     * {@link #execute(FutureOperation)} with the operation.
+     * </p>
+     * @param key identifies the read.
+     * @param operation the operation to execute.
+     * @return a future for the result.
+     * @see Builder#withRequestCoalescing(boolean)
+     */
+    public <V,S> RiakFuture<V,S> executeCoalesced(Object key, FutureOperation<V, ?, S> operation)
+    {
+        if (requestCoalescer == null)
+        {
+            return execute(operation);
+        }
+        return requestCoalescer.execute(key, operation, this);
+    }
+
+    /**
+     * Sends a hedge, preferably to a different node than the original.
+     * <p>
+     * Hedges are never retried or queued; a late hedge is no use.
+     * </p>
+     * @return false if no node would take it.
+     */
+    <V,S> boolean executeHedge(FutureOperation<V, ?, S> hedge, RiakNode previousNode)
+    {
+        if (state != State.RUNNING && state != State.QUEUING)
+        {
+            return false;
+        }
+
+        hedge.setRetrier(this, 1);
+        inFlightCount.incrementAndGet();
+        if (recordMetrics)
+        {
+            hedge.setExecutionStart(System.nanoTime());
+        }
+        startTrace(hedge);
+        if (hedge.getDeadline() != null && !scheduleDeadline(hedge))
+        {
+            return false;
+        }
+        else if (execute(hedge, previousNode))
+        {
+            return true;
+        }
+
+        hedge.failWithoutRetry(new NoNodesAvailableException());
+        return false;
+    }
+
+    /**
+     * @return true if reads executed with
+     * {@link #executeHedged(FutureOperation, FutureOperation)} may be hedged.
+     */
+    public boolean isHedgingEnabled()
+    {
+        return hedgingStatistics != null;
+    }
+
+    /**
+     * Returns the statistics for hedged reads.
+     * @return the statistics, or null if hedging is not enabled.
+     * @see Builder#withHedgingPolicy(HedgingPolicy)
+     */
+    public HedgingStatistics getHedgingStatistics()
+    {
+        return hedgingStatistics;
+    }
+
+    /**
+     * Returns the cache fetched objects are revalidated against.
+     * @return the cache, or null if objects are not cached.
+     * @see Builder#withObjectCache(ObjectCache)
+     */
+    public ObjectCache getObjectCache()
+    {
+        return objectCache;
+    }
+
+    /**
+     * Returns the coalescer for identical, concurrent reads.
+     * @return the coalescer, whose counters show how many reads were
+     * coalesced, or null if coalescing is not enabled.
+     * @see Builder#withRequestCoalescing(boolean)
+     */
+    public RequestCoalescer getRequestCoalescer()
+    {
+        return requestCoalescer;
+    }
+
+    /**
+     * Returns the ring key/value operations are routed by.
+     * @return the ring, or null if the cluster doesn't route by partition
+     * or doesn't know the ring yet.
+     * @see PartitionAwareNodeManager
+     */
+    public RiakRing getRing()
+    {
+        if (nodeManager instanceof PartitionAwareNodeManager)
+        {
+            return ((PartitionAwareNodeManager) nodeManager).getRing();
+        }
+        return null;
+    }
+
+    private void startTrace(FutureOperation<?, ?, ?> operation)
+    {
+        if (tracer != null)
+        {
+            operation.setTrace(tracer.startTrace(operation));
+            operation.traceEvent(TraceEvent.EXECUTED);
+        }
+    }
+
+    /**
+     * Arranges for the operation to be aborted when its deadline passes.
+     * @return false if the deadline has already passed and the operation
+     * has been failed.
+     */
+    private <V,S> boolean scheduleDeadline(FutureOperation<V, ?, S> operation)
+    {
+        long remaining = operation.getDeadline().getRemainingTime(TimeUnit.NANOSECONDS);
+        if (remaining <= 0)
+        {
+            operation.abort(new TimeoutException("Deadline passed before the operation was executed"));
+            return false;
+        }
+
+        final ScheduledFuture<?> timer =
+            executor.schedule(new DeadlineTask(operation), remaining, TimeUnit.NANOSECONDS);
+        operation.addListener(new RiakFutureListener<V,S>()
+        {
+            @Override
+            public void handle(RiakFuture<V,S> f)
+            {
+                timer.cancel(false);
+            }
+        });
+        return true;
     }
 
     private void executeWithQueueStrategy(FutureOperation operation)
     {
-        if (!operationQueuePermits.tryAcquire())
+        long deadline = 0;
+        if (operationQueueTimeoutInNanos > 0)
+        {
+            // 0 means no deadline, so never use it as one.
+            deadline = (System.nanoTime() + operationQueueTimeoutInNanos) | 1;
+        }
+
+        int depth = operationQueue.offer(operation, deadline);
+        if (depth == 0)
         {
             logger.warn("Can't execute operation {}, no connections available, and Operation Queue at Max Depth",
                         System.identityHashCode(operation));
-            operation.setRetrier(this, 1);
-            operation.setException(new NoNodesAvailableException("No Nodes Available, and Operation Queue at Max Depth"));
+            operation.failWithoutRetry(new NoNodesAvailableException("No Nodes Available, and Operation Queue at Max Depth"));
             return;
         }
 
-        operationQueue.offer(operation);
-        verifyQueueStatus();
+        logger.debug("Queued operation {}; queue depth {}", System.identityHashCode(operation), depth);
+        metrics.operationQueued(depth);
+        operation.traceEvent(TraceEvent.QUEUED);
+        if (depth == 1)
+        {
+            verifyQueueStatus();
+        }
 
-        // Get next queued operation
-        FutureOperation operationNext = operationQueue.poll();
-        if (operationNext == null)
+        // A connection may have been returned between the failed attempt to
+        // execute the operation and queuing it; make sure it isn't stranded.
+        drainOperationQueue();
+    }
+
+    /**
+     * Executes queued operations until the queue is empty or no node will
+     * take one.
+     * <p>
+     * Called whenever a node may have room for another operation, from the
+     * thread that freed it. Only one thread drains at a time; a request to
+     * drain that arrives while another thread is draining makes that thread
+     * go round again rather than being lost.
+     * </p>
+     */
+    private void drainOperationQueue()
+    {
+        if (operationQueueDrainRequests.getAndIncrement() != 0)
         {
             return;
         }
 
-        executeWithRequeueOnNoConnection(operationNext);
+        int missed = 1;
+        do
+        {
+            boolean dispatched = false;
+            OperationQueue.Entry entry;
+            while ((entry = operationQueue.poll()) != null)
+            {
+                long now = System.nanoTime();
+                if (entry.operation.isDone())
+                {
+                    // Cancelled, or its own deadline passed, while queued.
+                    continue;
+                }
+                else if (entry.isExpired(now))
+                {
+                    failExpired(entry);
+                    continue;
+                }
+
+                logger.debug("Queued operation {} attempting to be executed.",
+                             System.identityHashCode(entry.operation));
+                entry.operation.traceEvent(TraceEvent.DEQUEUED);
+                if (this.execute(entry.operation, null))
+                {
+                    operationQueue.getStatistics().recordDispatched(now - entry.enqueuedAt);
+                    dispatched = true;
+                }
+                else
+                {
+                    logger.debug("Queued operation {} wasn't executed, no connection available, requeuing operation.",
+                                 System.identityHashCode(entry.operation));
+                    operationQueue.offerFirst(entry);
+                    break;
+                }
+            }
+
+            if (dispatched && operationQueue.isEmpty())
+            {
+                verifyQueueStatus();
+            }
+
+            missed = operationQueueDrainRequests.addAndGet(-missed);
+        }
+        while (missed != 0);
     }
 
-    private boolean executeWithRequeueOnNoConnection(FutureOperation operation)
+    /**
+     * Fails queued operations whose deadline has passed, wherever they are
+     * in the queue.
+     */
+    private void expireQueuedOperations()
     {
-        logger.debug("Queued operation {} attempting to be executed.", System.identityHashCode(operation));
-        // Attempt to run
-        boolean gotConnection = this.execute(operation, null);
-
-        // If we can't get a connection, put it back at the beginning of the queue
-        if (!gotConnection)
+        List<OperationQueue.Entry> expired = operationQueue.removeExpired(System.nanoTime());
+        for (OperationQueue.Entry entry : expired)
         {
-            logger.debug("Queued operation {} wasn't executed, no connection available, requeuing operation.",
-                         System.identityHashCode(operation));
-            operationQueue.offerFirst(operation);
+            failExpired(entry);
         }
-        else
+        if (!expired.isEmpty() && operationQueue.isEmpty())
         {
-            operationQueuePermits.release();
+            verifyQueueStatus();
         }
+    }
 
-        verifyQueueStatus();
-
-        return gotConnection;
+    private void failExpired(OperationQueue.Entry entry)
+    {
+        logger.warn("Operation {} timed out in the Operation Queue", System.identityHashCode(entry.operation));
+        operationQueue.getStatistics().recordExpired();
+        // Don't retry; that would only put it back in the queue.
+        entry.operation.failWithoutRetry(new NoNodesAvailableException("No Nodes Available, and timed out in the Operation Queue"));
     }
 
     private synchronized void verifyQueueStatus()
     {
-        Integer queueSize = operationQueuePermits.getMaxPermits() - operationQueuePermits.availablePermits();
+        int queueSize = operationQueue.size();
 
         if (queueSize > 0 && state == State.RUNNING)
         {
@@ -326,6 +815,16 @@ public class  RiakCluster implements OperationRetrier, NodeStateListener
         }
     }
 
+    /**
+     * Returns the statistics for the operation queue.
+     * @return the statistics, or null if the operation queue is not enabled.
+     * @see Builder#withOperationQueueMaxDepth(int)
+     */
+    public OperationQueueStatistics getOperationQueueStatistics()
+    {
+        return queueOperations ? operationQueue.getStatistics() : null;
+    }
+
     private boolean execute(FutureOperation operation, RiakNode previousNode)
     {
         return nodeManager.executeOnNode(operation, previousNode);
@@ -345,6 +844,12 @@ public class  RiakCluster implements OperationRetrier, NodeStateListener
         stateCheck(State.CREATED, State.RUNNING, State.QUEUING);
         node.setExecutor(executor);
         node.setBootstrap(bootstrap);
+        node.setMetrics(metrics);
+        if (queueOperations)
+        {
+            node.setBlockOnMaxConnections(false);
+            node.setCapacityListener(capacityListener);
+        }
 
         try
         {
@@ -360,9 +865,16 @@ public class  RiakCluster implements OperationRetrier, NodeStateListener
             nodeListLock.writeLock().unlock();
         }
 
+        metrics.nodeAdded(node);
         node.start();
 
         nodeManager.addNode(node);
+        resolveNodeAddresses();
+
+        if (queueOperations)
+        {
+            drainOperationQueue();
+        }
     }
 
     /**
@@ -388,6 +900,11 @@ public class  RiakCluster implements OperationRetrier, NodeStateListener
             nodeListLock.writeLock().unlock();
         }
         nodeManager.removeNode(node);
+        if (removed)
+        {
+            metrics.nodeRemoved(node);
+            resolveNodeAddresses();
+        }
         return removed;
     }
 
@@ -397,7 +914,7 @@ public class  RiakCluster implements OperationRetrier, NodeStateListener
      */
     public List<RiakNode> getNodes()
     {
-        stateCheck(State.CREATED, State.RUNNING, State.SHUTTING_DOWN, State.QUEUING);
+        stateCheck(State.CREATED, State.RUNNING, State.QUEUING, State.SHUTTING_DOWN);
         try
         {
             nodeListLock.readLock().lock();
@@ -433,8 +950,11 @@ public class  RiakCluster implements OperationRetrier, NodeStateListener
                 {
                     this.state = State.SHUTDOWN;
                     executor.shutdown();
-                    bootstrap.config().group().shutdownGracefully();
-                    logger.debug("RiakCluster shut down bootstrap");
+                    if (ownsEventLoopGroup)
+                    {
+                        bootstrap.config().group().shutdownGracefully();
+                        logger.debug("RiakCluster shut down bootstrap");
+                    }
                     logger.info("RiakCluster has shut down");
                     shutdownLatch.countDown();
                 }
@@ -452,11 +972,25 @@ public class  RiakCluster implements OperationRetrier, NodeStateListener
         logger.debug("operation {} failed; remaining retries: {}", System.identityHashCode(operation), remainingRetries);
         if (remainingRetries > 0)
         {
-            retryQueue.add(operation);
+            long delay = retryPolicy.getRetryDelay(operation, executionAttempts - remainingRetries,
+                                                   operation.wasLastAttemptWritten());
+            if (delay >= 0 && hasTimeToRetry(operation, delay) && scheduleRetry(operation, delay))
+            {
+                metrics.operationRetried(operation, executionAttempts - remainingRetries);
+                return;
+            }
+            logger.debug("operation {} not retried", System.identityHashCode(operation));
+            // If it was aborted meanwhile, that has already been accounted for.
+            if (operation.stopRetrying())
+            {
+                inFlightCount.decrementAndGet();
+                recordCompletion(operation, false);
+            }
         }
         else
         {
             inFlightCount.decrementAndGet();
+            recordCompletion(operation, false);
         }
     }
 
@@ -464,43 +998,36 @@ public class  RiakCluster implements OperationRetrier, NodeStateListener
     public void operationComplete(FutureOperation operation, int remainingRetries)
     {
         inFlightCount.decrementAndGet();
+        retryPolicy.operationSucceeded(operation);
+        recordCompletion(operation, true);
         logger.debug("operation {} complete; remaining retries: {}", System.identityHashCode(operation), remainingRetries);
     }
 
-    private void retryOperation() throws InterruptedException
+    private void recordCompletion(FutureOperation operation, boolean success)
     {
-        FutureOperation operation = retryQueue.take();
-
-        Boolean gotConnection = execute(operation, operation.getLastNode());
-
-        if (!gotConnection)
+        if (recordMetrics)
         {
-            operation.setException(new NoNodesAvailableException());
+            metrics.operationCompleted(operation, System.nanoTime() - operation.getExecutionStart(), success);
         }
     }
 
-    private void queueDrainOperation() throws InterruptedException
+    private boolean hasTimeToRetry(FutureOperation operation, long delayInNanos)
     {
-        logger.debug("QueueDrainer - Polling for queued operations.");
-        FutureOperation operation = operationQueue.poll();
-        if(operation == null)
+        Deadline deadline = operation.getDeadline();
+        return deadline == null
+            || deadline.getRemainingTime(TimeUnit.NANOSECONDS) > delayInNanos + minimumRetryTimeInNanos;
+    }
+
+    private boolean scheduleRetry(FutureOperation operation, long delayInNanos)
+    {
+        try
         {
-            logger.debug("QueueDrainer - No queued operation available, sleeping.");
-            Thread.sleep(50);
-            return;
+            executor.schedule(new RetryTask(operation), delayInNanos, TimeUnit.NANOSECONDS);
+            return true;
         }
-
-        boolean connectionSuccess = executeWithRequeueOnNoConnection(operation);
-
-        // If we didn't get a connection here, then we are thrashing on connections
-        // Sleep for a bit so we don't spinwait our CPUs to death
-        if (!connectionSuccess)
+        catch (RejectedExecutionException ex)
         {
-            logger.debug("QueueDrainer - Pulled queued operation {}, but no connection available, sleeping.", System.identityHashCode(operation));
-
-            // TODO: should this timeout be configurable, or based on an
-            // average command execution time?
-            Thread.sleep(50);
+            return false;
         }
     }
 
@@ -517,7 +1044,7 @@ public class  RiakCluster implements OperationRetrier, NodeStateListener
      */
     public void registerNodeStateListener(NodeStateListener listener)
     {
-        stateCheck(State.CREATED, State.RUNNING, State.SHUTTING_DOWN, State.QUEUING);
+        stateCheck(State.CREATED, State.RUNNING, State.QUEUING, State.SHUTTING_DOWN);
         try
         {
             stateListeners.add(listener);
@@ -544,7 +1071,7 @@ public class  RiakCluster implements OperationRetrier, NodeStateListener
      */
     public void removeNodeStateListener(NodeStateListener listener)
     {
-        stateCheck(State.CREATED, State.RUNNING, State.SHUTTING_DOWN, State.QUEUING);
+        stateCheck(State.CREATED, State.RUNNING, State.QUEUING, State.SHUTTING_DOWN);
         try
         {
             stateListeners.remove(listener);
@@ -560,46 +1087,74 @@ public class  RiakCluster implements OperationRetrier, NodeStateListener
         }
     }
 
-    private class RetryTask implements Runnable
+    private class DeadlineTask implements Runnable
     {
+        private final FutureOperation operation;
+
+        DeadlineTask(FutureOperation operation)
+        {
+            this.operation = operation;
+        }
+
         @Override
         public void run()
         {
-            while (!Thread.interrupted())
+            if (operation.abort(new TimeoutException("Deadline passed before the operation completed")))
             {
-                try
-                {
-                    retryOperation();
-                }
-                catch (InterruptedException ex)
-                {
-                    break;
-                }
+                logger.debug("Operation {} timed out", System.identityHashCode(operation));
             }
+        }
+    }
+
+    private class RetryTask implements Runnable
+    {
+        private final FutureOperation operation;
 
-            logger.info("Retrier shutting down.");
+        RetryTask(FutureOperation operation)
+        {
+            this.operation = operation;
         }
 
+        @Override
+        public void run()
+        {
+            if (operation.isDone())
+            {
+                // Aborted while waiting to be retried.
+                return;
+            }
+
+            if (!execute(operation, operation.getLastNode()))
+            {
+                operation.setException(new NoNodesAvailableException());
+            }
+        }
     }
 
+    /**
+     * Times out queued operations, and drains the queue in case a node has
+     * become able to take operations without returning a connection (e.g.
+     * one was added, or recovered from a failed health check).
+     * <p>
+     * Queued operations are normally executed as soon as a connection is
+     * returned; this is only a backstop.
+     * </p>
+     */
     private class QueueDrainTask implements Runnable
     {
         @Override
         public void run()
         {
-            while (!Thread.interrupted())
+            try
             {
-                try
-                {
-                    queueDrainOperation();
-                }
-                catch (InterruptedException ex)
-                {
-                    break;
-                }
+                expireQueuedOperations();
+                drainOperationQueue();
+            }
+            catch (RuntimeException ex)
+            {
+                // Don't let an exception cancel the scheduled task.
+                logger.error("Exception draining the Operation Queue", ex);
             }
-
-            logger.info("Queue Worker shutting down.");
         }
     }
 
@@ -612,8 +1167,6 @@ public class  RiakCluster implements OperationRetrier, NodeStateListener
             {
                 logger.info("All operations have completed");
 
-                retrierFuture.cancel(true);
-
                 if (queueOperations)
                 {
                     queueDrainFuture.cancel(true);
@@ -651,15 +1204,67 @@ public class  RiakCluster implements OperationRetrier, NodeStateListener
     {
         public final static int DEFAULT_EXECUTION_ATTEMPTS = 3;
         public final static int DEFAULT_OPERATION_QUEUE_DEPTH = 0;
+        /**
+         * By default queued operations wait for a connection indefinitely.
+         * @see #withOperationQueueTimeout(int)
+         */
+        public final static int DEFAULT_OPERATION_QUEUE_TIMEOUT = 0;
+        /**
+         * By default an operation isn't retried with less than 10ms left
+         * before its deadline.
+         * @see #withMinimumRetryTime(int)
+         */
+        public final static int DEFAULT_MINIMUM_RETRY_TIME = 10;
+        /**
+         * The default transport; native epoll where available, otherwise NIO.
+         * @see #withTransport(Transport)
+         */
+        public final static Transport DEFAULT_TRANSPORT = Transport.AUTO;
+        /**
+         * TCP_NODELAY is enabled by default; Riak requests are small and latency sensitive.
+         * @see #withTcpNoDelay(boolean)
+         */
+        public final static boolean DEFAULT_TCP_NODELAY = true;
+        /**
+         * SO_KEEPALIVE is enabled by default so dead pooled connections are eventually detected.
+         * @see #withKeepAlive(boolean)
+         */
+        public final static boolean DEFAULT_KEEPALIVE = true;
+        /**
+         * The default socket buffer size; 0 leaves it to the operating system.
+         * @see #withSendBufferSize(int)
+         * @see #withReceiveBufferSize(int)
+         */
+        public final static int DEFAULT_SOCKET_BUFFER_SIZE = 0;
+        /**
+         * The default epoll mode.
+         * @see #withEpollMode(EpollMode)
+         */
+        public final static EpollMode DEFAULT_EPOLL_MODE = EpollMode.EDGE_TRIGGERED;
 
         private final List<RiakNode> riakNodes;
 
         private int executionAttempts = DEFAULT_EXECUTION_ATTEMPTS;
         private int operationQueueMaxDepth = DEFAULT_OPERATION_QUEUE_DEPTH;
+        private int operationQueueTimeout = DEFAULT_OPERATION_QUEUE_TIMEOUT;
+        private int minimumRetryTime = DEFAULT_MINIMUM_RETRY_TIME;
+        private HedgingPolicy hedgingPolicy;
+        private RiakMetrics metrics;
+        private OperationTracer tracer;
+        private RetryPolicy retryPolicy;
+        private ObjectCache objectCache;
+        private boolean requestCoalescing;
 
         private NodeManager nodeManager;
         private ScheduledExecutorService executor;
         private Bootstrap bootstrap;
+        private Transport transport = DEFAULT_TRANSPORT;
+        private EventLoopGroup eventLoopGroup;
+        private boolean tcpNoDelay = DEFAULT_TCP_NODELAY;
+        private boolean keepAlive = DEFAULT_KEEPALIVE;
+        private int sendBufferSize = DEFAULT_SOCKET_BUFFER_SIZE;
+        private int receiveBufferSize = DEFAULT_SOCKET_BUFFER_SIZE;
+        private EpollMode epollMode = DEFAULT_EPOLL_MODE;
 
         /**
          * Instantiate a Builder containing the supplied {@link RiakNode}s
@@ -771,11 +1376,123 @@ public class  RiakCluster implements OperationRetrier, NodeStateListener
             return this;
         }
 
+        /**
+         * Shares an application's Netty {@link EventLoopGroup} with this cluster.
+         * <p>
+         * Connections to Riak are registered on the supplied group rather
+         * than on one created by the cluster, and the transport follows the
+         * group (epoll or NIO). When an operation is executed from one of the
+         * group's event loops, a connection on that same loop is preferred and
+         * new connections are opened on it, so the operation's write, its
+         * response and its listeners all run on the calling thread.
+         * </p>
+         * <p>
+         * The group is not shut down when the cluster is. It is ignored if a
+         * Bootstrap is supplied with {@link #withBootstrap(Bootstrap)}.
+         * </p>
+         * @param eventLoopGroup the application's event loop group.
+         * @return this
+         */
+        public Builder withEventLoopGroup(EventLoopGroup eventLoopGroup)
+        {
+            this.eventLoopGroup = eventLoopGroup;
+            return this;
+        }
+
+        /**
+         * Sets the transport used when this cluster creates its own {@link Bootstrap}.
+         * <p>
+         * {@link Transport#AUTO} uses the native epoll transport when it is
+         * available on this platform and falls back to NIO otherwise. Asking
+         * for {@link Transport#EPOLL} where it is not available is an error.
+         * </p>
+         * <p>
+         * This and the socket options below are ignored if a Bootstrap is
+         * supplied with {@link #withBootstrap(Bootstrap)}.
+         * </p>
+         * @param transport the transport to use.
+         * @return this
+         * @see #DEFAULT_TRANSPORT
+         */
+        public Builder withTransport(Transport transport)
+        {
+            if (!transport.isAvailable())
+            {
+                throw new IllegalArgumentException("The " + transport + " transport is not available on this platform");
+            }
+            this.transport = transport;
+            return this;
+        }
+
+        /**
+         * Sets TCP_NODELAY on connections.
+         * @param tcpNoDelay true to disable Nagle's algorithm.
+         * @return this
+         * @see #DEFAULT_TCP_NODELAY
+         */
+        public Builder withTcpNoDelay(boolean tcpNoDelay)
+        {
+            this.tcpNoDelay = tcpNoDelay;
+            return this;
+        }
+
+        /**
+         * Sets SO_KEEPALIVE on connections.
+         * @param keepAlive true to enable TCP keepalive.
+         * @return this
+         * @see #DEFAULT_KEEPALIVE
+         */
+        public Builder withKeepAlive(boolean keepAlive)
+        {
+            this.keepAlive = keepAlive;
+            return this;
+        }
+
+        /**
+         * Sets SO_SNDBUF on connections.
+         * @param sendBufferSize the send buffer size in bytes, or 0 for the operating system default.
+         * @return this
+         * @see #DEFAULT_SOCKET_BUFFER_SIZE
+         */
+        public Builder withSendBufferSize(int sendBufferSize)
+        {
+            this.sendBufferSize = sendBufferSize;
+            return this;
+        }
+
+        /**
+         * Sets SO_RCVBUF on connections.
+         * @param receiveBufferSize the receive buffer size in bytes, or 0 for the operating system default.
+         * @return this
+         * @see #DEFAULT_SOCKET_BUFFER_SIZE
+         */
+        public Builder withReceiveBufferSize(int receiveBufferSize)
+        {
+            this.receiveBufferSize = receiveBufferSize;
+            return this;
+        }
+
+        /**
+         * Sets the epoll mode used by the native epoll transport.
+         * Ignored by the NIO transport.
+         * @param epollMode the epoll mode.
+         * @return this
+         * @see #DEFAULT_EPOLL_MODE
+         */
+        public Builder withEpollMode(EpollMode epollMode)
+        {
+            this.epollMode = epollMode;
+            return this;
+        }
+
         /**
          * Set the maximum number of operations to queue.
          * A value of 0 disables the command queue.
          * <b>Setting this will override any of this clusters @{link RiakNode}s blockOnMaxConnection settings.</b>
          * <p>Please note that while using the Operation Queue, operations may be executed out of the order that they were added in.</p>
+         * <p>Queued operations are executed as soon as a connection is returned to any node,
+         * highest {@link OperationPriority} first. See {@link RiakCluster#getOperationQueueStatistics()}
+         * for the queue's depth and wait times.</p>
          *
          * @param operationQueueMaxDepth - maximum number of operations to queue if all connections are busy
          * @return this
@@ -787,6 +1504,164 @@ public class  RiakCluster implements OperationRetrier, NodeStateListener
             return this;
         }
 
+        /**
+         * Set how long an operation may wait in the operation queue.
+         * <p>
+         * An operation that has not been executed within this time is failed
+         * with a {@link NoNodesAvailableException} rather than left waiting
+         * for a connection, so callers see an overloaded cluster quickly.
+         * Has no effect unless the operation queue is enabled.
+         * </p>
+         *
+         * @param operationQueueTimeout the timeout in milliseconds; 0 to wait indefinitely.
+         * @return this
+         * @see #DEFAULT_OPERATION_QUEUE_TIMEOUT
+         * @see #withOperationQueueMaxDepth(int)
+         */
+        public Builder withOperationQueueTimeout(int operationQueueTimeout)
+        {
+            if (operationQueueTimeout < 0)
+            {
+                throw new IllegalArgumentException("Operation queue timeout cannot be negative");
+            }
+            this.operationQueueTimeout = operationQueueTimeout;
+            return this;
+        }
+
+        /**
+         * Set the least time an operation must have left before its deadline
+         * for it to be retried.
+         * <p>
+         * An operation with a {@link Deadline} that would have less time than
+         * this remaining once its retry backoff has passed is failed with the
+         * exception from its last attempt rather than retried; a retry that
+         * can't finish in time only adds load to a cluster that is likely
+         * already struggling.
+         * </p>
+         *
+         * @param minimumRetryTime the time in milliseconds.
+         * @return this
+         * @see #DEFAULT_MINIMUM_RETRY_TIME
+         */
+        public Builder withMinimumRetryTime(int minimumRetryTime)
+        {
+            if (minimumRetryTime < 0)
+            {
+                throw new IllegalArgumentException("Minimum retry time cannot be negative");
+            }
+            this.minimumRetryTime = minimumRetryTime;
+            return this;
+        }
+
+        /**
+         * Set the policy deciding whether and when failed operations are retried.
+         * <p>
+         * Operations are tried at most the number of execution attempts
+         * times; the policy may stop sooner. If none is provided an
+         * {@link ExponentialBackoffRetryPolicy} with its defaults is used.
+         * </p>
+         *
+         * @param retryPolicy the RetryPolicy to use.
+         * @return this
+         * @see #withExecutionAttempts(int)
+         */
+        public Builder withRetryPolicy(RetryPolicy retryPolicy)
+        {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        /**
+         * Set the metrics the cluster and its nodes report to.
+         * <p>
+         * By default metrics are discarded, and the cluster doesn't time
+         * operations.
+         * </p>
+         *
+         * @param metrics the RiakMetrics to report to.
+         * @return this
+         * @see HistogramMetrics
+         */
+        public Builder withMetrics(RiakMetrics metrics)
+        {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * Set the tracer that decides which operations are traced.
+         * <p>
+         * Traced operations report when they are queued, given to a node,
+         * wait for or open a connection, are written, receive their
+         * response, are retried and complete. By default no operations
+         * are traced.
+         * </p>
+         *
+         * @param tracer the OperationTracer to use, or null.
+         * @return this
+         * @see SamplingTracer
+         */
+        public Builder withTracer(OperationTracer tracer)
+        {
+            this.tracer = tracer;
+            return this;
+        }
+
+        /**
+         * Enable hedged reads.
+         * <p>
+         * Fetches that are slower than usual are duplicated to a second
+         * node, and whichever answer arrives first is used. Hedging is
+         * disabled by default.
+         * </p>
+         *
+         * @param hedgingPolicy when and how often to hedge reads; null to disable.
+         * @return this
+         * @see RiakCluster#getHedgingStatistics()
+         */
+        public Builder withHedgingPolicy(HedgingPolicy hedgingPolicy)
+        {
+            this.hedgingPolicy = hedgingPolicy;
+            return this;
+        }
+
+        /**
+         * Cache fetched objects on the client.
+         * <p>
+         * A fetch of a cached object asks Riak to return it only if it has
+         * changed since, and reuses the cached copy when it hasn't. Objects
+         * are not cached by default.
+         * </p>
+         *
+         * @param objectCache the cache to use, or null.
+         * @return this
+         * @see ObjectCache
+         */
+        public Builder withObjectCache(ObjectCache objectCache)
+        {
+            this.objectCache = objectCache;
+            return this;
+        }
+
+        /**
+         * Coalesce concurrent, identical fetches.
+         * <p>
+         * A FetchValue or datatype fetch of the same location with the same
+         * options as one already in flight waits for that fetch's result
+         * rather than sending another request. Fetches that are hedged are
+         * not coalesced. Coalescing is disabled by default.
+         * </p>
+         *
+         * @param requestCoalescing true to coalesce fetches.
+         * @return this
+         * @see RiakCluster#getRequestCoalescer()
+         */
+        public Builder withRequestCoalescing(boolean requestCoalescing)
+        {
+            this.requestCoalescing = requestCoalescing;
+            return this;
+        }
+
         /**
          * Instantiates the {@link RiakCluster}
          * @return a new RiakCluster
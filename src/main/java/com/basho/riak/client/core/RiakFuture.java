@@ -67,13 +67,17 @@ import java.util.concurrent.TimeoutException;
 public interface RiakFuture<V, T> extends Future<V>
 {
     /**
-     * Not supported due to limitations of the Riak API.
+     * Attempts to cancel the operation.
      * <p>
-     * At present time there is no way to cancel an operation sent to Riak.
-     * This method will never succeed and always return false.
+     * There is no way to tell Riak to stop working on an operation it has
+     * been sent. Cancelling one fails it with a
+     * {@link java.util.concurrent.CancellationException} and closes the
+     * connection it was sent on, so that no response to it is read. Futures
+     * for commands made up of several operations may not support
+     * cancellation, and return false.
      * </p>
-     * @param mayInterruptIfRunning
-     * @return always false.
+     * @param mayInterruptIfRunning ignored.
+     * @return true if the operation was cancelled.
      */
     @Override
     boolean cancel(boolean mayInterruptIfRunning);
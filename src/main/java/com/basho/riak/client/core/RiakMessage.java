@@ -6,13 +6,31 @@ import com.basho.riak.protobuf.RiakPB;
 import com.ericsson.otp.erlang.OtpErlangDecodeException;
 import com.ericsson.otp.erlang.OtpExternal;
 import com.ericsson.otp.erlang.OtpInputStream;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufUtil;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Encapsulates the raw bytes sent to or received from Riak.
+ * <p>
+ * A message is backed by one of a byte array, an unserialized protocol buffers
+ * message (outbound) or a reference counted {@link ByteBuf} slice of the
+ * inbound frame. The latter two let the codec skip the intermediate
+ * {@code byte[]} copies; protocol buffers are serialized straight into the
+ * outbound buffer and parsed straight out of the inbound one. A
+ * {@code ByteBuf} backed message must be {@link #release() released} once it
+ * has been decoded.
+ * </p>
  *
  * @author Brian Roach <roach at basho dot com>
  * @author Sergey Galkin <sgalkin at basho dot com>
@@ -23,6 +41,8 @@ public final class RiakMessage
     private static final Logger logger = LoggerFactory.getLogger(RiakMessage.class);
     private final byte code;
     private final byte[] data;
+    private final MessageLite pbMessage;
+    private final ByteBuf dataBuffer;
     private final RiakResponseException riakError;
     private static final String ERROR_RESP = "rpberrorresp";
 
@@ -35,6 +55,8 @@ public final class RiakMessage
     {
         this.code = code;
         this.data = data;
+        this.pbMessage = null;
+        this.dataBuffer = null;
 
         if(doErrorCheck)
         {
@@ -57,11 +79,64 @@ public final class RiakMessage
         }
     }
 
+    /**
+     * Create an outbound message from a protocol buffers message.
+     * <p>
+     * The message is not serialized until it is written to the channel, at
+     * which point it is written directly into the outbound buffer.
+     * </p>
+     * @param code the Riak message code.
+     * @param pbMessage the protocol buffers message.
+     */
+    public RiakMessage(byte code, MessageLite pbMessage)
+    {
+        this.code = code;
+        this.data = null;
+        this.pbMessage = pbMessage;
+        this.dataBuffer = null;
+        this.riakError = null;
+    }
+
+    /**
+     * Create an inbound message backed by a reference counted buffer.
+     * <p>
+     * This message takes ownership of the buffer; it is released by
+     * {@link #release()}.
+     * </p>
+     * @param code the Riak message code.
+     * @param dataBuffer the message payload.
+     */
+    public RiakMessage(byte code, ByteBuf dataBuffer)
+    {
+        this.code = code;
+        this.data = null;
+        this.pbMessage = null;
+        this.dataBuffer = dataBuffer;
+
+        switch (this.code)
+        {
+            case RiakMessageCodes.MSG_ErrorResp:
+                this.riakError = getRiakErrorFromPbuf(this);
+                break;
+            case RiakMessageCodes.MSG_TsTtbMsg:
+                OtpInputStream ttbInputStream = new OtpInputStream(getData());
+                this.riakError = getRiakErrorFromTtb(ttbInputStream);
+                break;
+            default:
+                this.riakError = null;
+        }
+    }
+
     private static RiakResponseException getRiakErrorFromPbuf(byte[] data)
+    {
+        return getRiakErrorFromPbuf(new RiakMessage(RiakMessageCodes.MSG_ErrorResp, data, false));
+    }
+
+    private static RiakResponseException getRiakErrorFromPbuf(RiakMessage message)
     {
         try
         {
-            RiakPB.RpbErrorResp err = RiakPB.RpbErrorResp.parseFrom(data);
+            RiakPB.RpbErrorResp err = message.parseData(RiakPB.RpbErrorResp.PARSER);
             return new RiakResponseException(err.getErrcode(), err.getErrmsg().toStringUtf8());
         }
         catch (InvalidProtocolBufferException ex)
@@ -76,9 +151,119 @@ public final class RiakMessage
         return code;
     }
 
+    /**
+     * Returns the payload of this message as a byte array.
+     * <p>
+     * For messages not created from a byte array this serializes or copies
+     * the payload; use {@link #parseData(Parser)} where possible.
+     * </p>
+     * @return the payload.
+     */
     public byte[] getData()
     {
-        return data;
+        if (data != null)
+        {
+            return data;
+        }
+        else if (pbMessage != null)
+        {
+            return pbMessage.toByteArray();
+        }
+        else
+        {
+            return ByteBufUtil.getBytes(dataBuffer);
+        }
+    }
+
+    /**
+     * Returns the length of the payload of this message.
+     * @return the number of bytes in the payload.
+     */
+    public int getDataLength()
+    {
+        if (data != null)
+        {
+            return data.length;
+        }
+        else if (pbMessage != null)
+        {
+            return pbMessage.getSerializedSize();
+        }
+        else
+        {
+            return dataBuffer.readableBytes();
+        }
+    }
+
+    /**
+     * Parses the payload of this message without copying it to a byte array.
+     * @param parser the protocol buffers parser for the expected message type.
+     * @return the parsed message.
+     * @throws InvalidProtocolBufferException if the payload can't be parsed.
+     */
+    public <T> T parseData(Parser<T> parser) throws InvalidProtocolBufferException
+    {
+        if (dataBuffer == null)
+        {
+            return parser.parseFrom(getData());
+        }
+
+        ByteBuffer nioBuffer = dataBuffer.nioBuffer();
+        if (nioBuffer.hasArray())
+        {
+            return parser.parseFrom(CodedInputStream.newInstance(nioBuffer));
+        }
+        else
+        {
+            // protobuf would copy a direct buffer into a new array; stream it instead.
+            CodedInputStream input =
+                CodedInputStream.newInstance(new ByteBufInputStream(dataBuffer.duplicate()));
+            input.setSizeLimit(Integer.MAX_VALUE);
+            return parser.parseFrom(input);
+        }
+    }
+
+    /**
+     * Writes the payload of this message to the supplied buffer.
+     * @param out the buffer to write to.
+     * @throws IOException if the payload can't be serialized.
+     */
+    public void writeData(ByteBuf out) throws IOException
+    {
+        if (pbMessage != null)
+        {
+            int length = pbMessage.getSerializedSize();
+            out.ensureWritable(length);
+            CodedOutputStream output;
+            if (out.hasArray())
+            {
+                output = CodedOutputStream.newInstance(out.array(), out.arrayOffset() + out.writerIndex(), length);
+            }
+            else
+            {
+                output = CodedOutputStream.newInstance(out.nioBuffer(out.writerIndex(), length));
+            }
+            pbMessage.writeTo(output);
+            output.flush();
+            out.writerIndex(out.writerIndex() + length);
+        }
+        else if (dataBuffer != null)
+        {
+            out.writeBytes(dataBuffer, dataBuffer.readerIndex(), dataBuffer.readableBytes());
+        }
+        else
+        {
+            out.writeBytes(data);
+        }
+    }
+
+    /**
+     * Releases the buffer backing this message, if there is one.
+     * @return true if the buffer was deallocated.
+     */
+    public boolean release()
+    {
+        return dataBuffer != null && dataBuffer.release();
     }
 
     public boolean isRiakError()
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+/**
+ * Receives metrics from a {@link RiakCluster} and its nodes.
+ * <p>
+ * Implement this to bridge the client's metrics to a metrics library. The
+ * methods are called from the threads doing the work, including Netty's
+ * event loops, so they must be thread safe and must not block. Extend
+ * {@link NoOpRiakMetrics} to implement only some of them.
+ * </p>
+ * <p>
+ * Gauges, such as the state of a node's connection pool, aren't pushed;
+ * register them when a node is added. See {@link RiakNode#getIdleConnectionCount()},
+ * {@link RiakNode#getInUseConnectionCount()} and {@link RiakNode#getPendingOperationCount()}.
+ * </p>
+ *
+ * @since 2.1
+ * @see RiakCluster.Builder#withMetrics(RiakMetrics)
+ * @see HistogramMetrics
+ */
+public interface RiakMetrics
+{
+    /**
+     * Called when a node is added to the cluster, before it is started.
+     * @param node the node.
+     */
+    void nodeAdded(RiakNode node);
+
+    /**
+     * Called when a node is removed from the cluster.
+     * @param node the node.
+     */
+    void nodeRemoved(RiakNode node);
+
+    /**
+     * Called when an operation executed by the cluster completes.
+     * @param operation the operation; its class identifies the type of operation.
+     * @param latencyInNanos the time from the operation being executed
+     * to it completing, including any retries.
+     * @param success false if the operation failed.
+     */
+    void operationCompleted(FutureOperation<?, ?, ?> operation, long latencyInNanos, boolean success);
+
+    /**
+     * Called when a failed operation is scheduled to be retried.
+     * @param operation the operation.
+     * @param attempts the number of times it has been tried.
+     */
+    void operationRetried(FutureOperation<?, ?, ?> operation, int attempts);
+
+    /**
+     * Called when an operation is added to the cluster's operation queue.
+     * @param depth the depth of the queue with the operation in it.
+     */
+    void operationQueued(int depth);
+
+    /**
+     * Called when a message is written to one of a node's connections.
+     * @param node the node.
+     * @param bytes the size of the message on the wire.
+     */
+    void bytesWritten(RiakNode node, int bytes);
+
+    /**
+     * Called when a message is read from one of a node's connections.
+     * @param node the node.
+     * @param bytes the size of the message on the wire.
+     */
+    void bytesRead(RiakNode node, int bytes);
+
+    /**
+     * Called when a health check of a node completes.
+     * @param node the node.
+     * @param healthy true if the check succeeded.
+     */
+    void healthCheckCompleted(RiakNode node, boolean healthy);
+}
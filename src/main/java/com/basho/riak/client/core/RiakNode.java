@@ -23,10 +23,14 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.util.concurrent.BlockingOperationException;
-import io.netty.util.concurrent.DefaultPromise;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.GenericFutureListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,6 +45,7 @@ import java.security.KeyStore;
 import java.security.Security;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -58,16 +63,18 @@ public class RiakNode implements RiakResponseListener
 
     private final Logger logger = LoggerFactory.getLogger(RiakNode.class);
 
-    private final LinkedBlockingDeque<ChannelWithIdleTime> available =
-        new LinkedBlockingDeque<ChannelWithIdleTime>();
-    private final ConcurrentLinkedQueue<ChannelWithIdleTime> recentlyClosed =
-        new ConcurrentLinkedQueue<ChannelWithIdleTime>();
+    private final ConnectionPool connectionPool;
+    // When each of the recently closed connections was closed, from System.nanoTime().
+    private final ConcurrentLinkedQueue<Long> recentlyClosed = new ConcurrentLinkedQueue<Long>();
     private final List<NodeStateListener> stateListeners =
         Collections.synchronizedList(new LinkedList<NodeStateListener>());
-    private final Map<Channel, FutureOperation> inProgressMap =
-        new ConcurrentHashMap<Channel, FutureOperation>();
+    private final ConcurrentMap<Channel, InProgress> inProgressMap =
+        new ConcurrentHashMap<Channel, InProgress>();
+    private final ConcurrentLinkedDeque<FutureOperation> pendingOperations =
+        new ConcurrentLinkedDeque<FutureOperation>();
+    private final ConcurrentLinkedQueue<Channel> pipelinedChannels =
+        new ConcurrentLinkedQueue<Channel>();
 
-    private final Sync permits;
     private final String remoteAddress;
     private final int port;
     private final String username;
@@ -77,6 +84,16 @@ public class RiakNode implements RiakResponseListener
     private final String keyPassword;
     private final AtomicLong consecutiveFailedOperations = new AtomicLong(0);
     private final AtomicLong consecutiveFailedConnectionAttempts = new AtomicLong(0);
+    private final AtomicLong nextIdleReap = new AtomicLong();
+    private final AtomicBoolean healthCheckInProgress = new AtomicBoolean();
+    private final ThreadLocal<EventLoop> currentEventLoop = new ThreadLocal<EventLoop>()
+    {
+        @Override
+        protected EventLoop initialValue()
+        {
+            return findCurrentEventLoop();
+        }
+    };
 
     private volatile Bootstrap bootstrap;
     private volatile boolean ownsBootstrap;
@@ -88,9 +105,18 @@ public class RiakNode implements RiakResponseListener
     private volatile int minConnections;
     private volatile long idleTimeoutInNanos;
     private volatile int connectionTimeout;
+    private volatile int healthCheckTimeout;
     private volatile boolean blockOnMaxConnections;
+    private volatile int pipelineDepth;
+    private final boolean flushConsolidation;
+    private final FlushStatistics flushStatistics = new FlushStatistics();
+    private final CircuitBreaker circuitBreaker;
+    private volatile boolean ejectedByCircuitBreaker;
 
     private HealthCheckFactory healthCheckFactory;
+    private volatile NodeCapacityListener capacityListener;
+    private volatile NodeAttemptListener attemptListener;
+    private volatile RiakMetrics metrics = NoOpRiakMetrics.INSTANCE;
 
     private final ChannelFutureListener writeListener =
         new ChannelFutureListener()
@@ -107,64 +133,57 @@ public class RiakNode implements RiakResponseListener
                     logger.error("Write failed on RiakNode {}:{} id: {}; cause: {}",
                                 remoteAddress, port, future.channel().hashCode(),
                                 future.cause());
-                    FutureOperation inProgress = inProgressMap.remove(future.channel());
+                    InProgress inProgress = inProgressMap.remove(future.channel());
                     if (inProgress != null)
                     {
                         future.channel().close();
                         returnConnection(future.channel()); // to release permit
-                        recentlyClosed.add(new ChannelWithIdleTime(future.channel()));
-                        inProgress.setException(future.cause());
+                        recentlyClosed.add(System.nanoTime());
+                        inProgress.failAll(future.cause());
                     }
                 }
-                else
-                {
-                    // On a successful write we add the in-progress close listener
-                    // and let it handle a disco during an op.
-                    future.channel().closeFuture().addListener(inProgressCloseListener);
-                }
             }
 
         };
 
-    private final ChannelFutureListener inAvailableCloseListener =
-        new ChannelFutureListener()
-        {
-            @Override
-            public void operationComplete(ChannelFuture future) throws Exception
-            {
-                // Rather than having to do an O(n) search here, we just leave
-                // the channel in available. Because it's closed it'll be discarded
-                // the next time it's pulled from the pool.
-                // We record the disco for the health check.
-                recentlyClosed.add(new ChannelWithIdleTime(future.channel()));
-                logger.info("Available channel closed; id:{} {}:{}",
-                             future.channel().hashCode(), remoteAddress, port);
-            }
-        };
-
-    private final ChannelFutureListener inProgressCloseListener =
+    /**
+     * Added once to every connection when it is opened, and removed only when
+     * we close the connection ourselves. Connections move between the pool
+     * and inProgressMap without touching their listeners.
+     */
+    private final ChannelFutureListener closeListener =
         new ChannelFutureListener()
         {
             @Override
             public void operationComplete(ChannelFuture future) throws Exception
             {
-                FutureOperation inProgress = inProgressMap.remove(future.channel());
-                logger.error("Channel closed while operation in progress; id:{} {}:{}",
-                             future.channel().hashCode(), remoteAddress, port);
-                if (inProgress != null)
+                InProgress inProgress = inProgressMap.remove(future.channel());
+                if (inProgress == null)
+                {
+                    // Rather than having to do an O(n) search here, we just leave
+                    // the channel in the pool. Because it's closed it'll be discarded
+                    // the next time it's pulled from the pool.
+                    // We record the disco for the health check.
+                    recentlyClosed.add(System.nanoTime());
+                    logger.info("Available channel closed; id:{} {}:{}",
+                                 future.channel().hashCode(), remoteAddress, port);
+                }
+                else
                 {
+                    logger.error("Channel closed while operation in progress; id:{} {}:{}",
+                                 future.channel().hashCode(), remoteAddress, port);
                     returnConnection(future.channel()); // to release permit
-                    recentlyClosed.add(new ChannelWithIdleTime(future.channel()));
+                    recentlyClosed.add(System.nanoTime());
 
                     // Netty seems to not bother telling you *why* the connection
                     // was closed.
                     if (future.cause() != null)
                     {
-                        inProgress.setException(future.cause());
+                        inProgress.failAll(future.cause());
                     }
                     else
                     {
-                        inProgress.setException(new Exception("Connection closed unexpectantly"));
+                        inProgress.failAll(new Exception("Connection closed unexpectantly"));
                     }
                 }
 
@@ -189,21 +208,18 @@ public class RiakNode implements RiakResponseListener
         this.keyStore = builder.keyStore;
         this.keyPassword = builder.keyPassword;
         this.healthCheckFactory = builder.healthCheckFactory;
+        this.healthCheckTimeout = builder.healthCheckTimeout;
+        this.pipelineDepth = builder.pipelineDepth;
+        this.flushConsolidation = builder.flushConsolidation;
+        this.connectionPool = builder.connectionPoolFactory.makePool(builder.maxConnections);
+        this.circuitBreaker = builder.circuitBreakerPolicy == null
+            ? null : new CircuitBreaker(builder.circuitBreakerPolicy);
 
         if (builder.bootstrap != null)
         {
             this.bootstrap = builder.bootstrap.clone();
         }
 
-        if (builder.maxConnections < 1)
-        {
-            permits = new Sync(Integer.MAX_VALUE);
-        }
-        else
-        {
-            permits = new Sync(builder.maxConnections);
-        }
-
         checkNetworkAddressCacheSettings();
 
         this.state = State.CREATED;
@@ -228,7 +244,12 @@ public class RiakNode implements RiakResponseListener
      */
     int getNumInProgress()
     {
-        return inProgressMap.size();
+        int numInProgress = 0;
+        for (InProgress inProgress : inProgressMap.values())
+        {
+            numInProgress += inProgress.size();
+        }
+        return numInProgress;
     }
 
     public synchronized RiakNode start() throws UnknownHostException
@@ -249,7 +270,8 @@ public class RiakNode implements RiakResponseListener
             ownsBootstrap = true;
         }
 
-        bootstrap.handler(new RiakChannelInitializer(this));
+        bootstrap.handler(new RiakChannelInitializer(this, flushConsolidation ? flushStatistics : null,
+                                                     metrics == NoOpRiakMetrics.INSTANCE ? null : metrics));
 
         refreshBootstrapRemoteAddress();
 
@@ -277,11 +299,11 @@ public class RiakNode implements RiakResponseListener
 
             for (Channel c : minChannels)
             {
-                available.offerFirst(new ChannelWithIdleTime(c));
-                c.closeFuture().addListener(inAvailableCloseListener);
+                connectionPool.offerIdle(c);
             }
         }
 
+        nextIdleReap.set(System.nanoTime() + idleReapIntervalInNanos());
         idleReaperFuture = executor.scheduleWithFixedDelay(new IdleReaper(), 1, 5, TimeUnit.SECONDS);
         healthMonitorFuture = executor.scheduleWithFixedDelay(new HealthMonitorTask(), 1000, 1000, TimeUnit.MILLISECONDS);
 
@@ -312,12 +334,10 @@ public class RiakNode implements RiakResponseListener
         notifyStateListeners();
         idleReaperFuture.cancel(true);
         healthMonitorFuture.cancel(true);
-        ChannelWithIdleTime cwi = available.poll();
-        while (cwi != null)
+        failPendingOperations();
+        for (Channel c : connectionPool.removeAllIdle())
         {
-            Channel c = cwi.getChannel();
             closeConnection(c);
-            cwi = available.poll();
         }
 
         executor.schedule(new ShutdownTask(), 0, TimeUnit.SECONDS);
@@ -409,7 +429,7 @@ public class RiakNode implements RiakResponseListener
         stateCheck(State.CREATED, State.RUNNING, State.HEALTH_CHECKING);
         if (maxConnections >= getMinConnections())
         {
-            permits.setMaxPermits(maxConnections);
+            connectionPool.setMaxConnections(maxConnections);
         }
         else
         {
@@ -428,7 +448,7 @@ public class RiakNode implements RiakResponseListener
     public int getMaxConnections()
     {
         stateCheck(State.CREATED, State.RUNNING, State.HEALTH_CHECKING);
-        return permits.getMaxPermits();
+        return connectionPool.getMaxConnections();
     }
 
     /**
@@ -485,6 +505,39 @@ public class RiakNode implements RiakResponseListener
         return blockOnMaxConnections;
     }
 
+    /**
+     * Returns the maximum number of operations that may be outstanding on a connection.
+     * @return the pipeline depth.
+     * @see Builder#withPipelineDepth(int)
+     */
+    public int getPipelineDepth()
+    {
+        return pipelineDepth;
+    }
+
+    /**
+     * Returns whether flushes are coalesced on this node's connections.
+     * @return true if flush consolidation is enabled.
+     * @see Builder#withFlushConsolidation(boolean)
+     */
+    public boolean getFlushConsolidation()
+    {
+        return flushConsolidation;
+    }
+
+    /**
+     * Returns the frames written and flushes issued on this node's connections.
+     * <p>
+     * {@link FlushStatistics#getAverageFramesPerFlush()} shows how well writes
+     * are being coalesced by flush consolidation or {@link WriteBatch}es.
+     * </p>
+     * @return the flush statistics for this node.
+     */
+    public FlushStatistics getFlushStatistics()
+    {
+        return flushStatistics;
+    }
+
     /**
      * Sets the connection idle timeout for connections.
      *
@@ -549,7 +602,7 @@ public class RiakNode implements RiakResponseListener
     public int availablePermits()
     {
         stateCheck(State.CREATED, State.RUNNING, State.HEALTH_CHECKING);
-        return permits.availablePermits();
+        return connectionPool.availablePermits();
     }
 
     public void addStateListener(NodeStateListener listener)
@@ -575,10 +628,23 @@ public class RiakNode implements RiakResponseListener
 
     /**
      * Submits the operation to be executed on this node.
+     * <p>
+     * This method never blocks the calling thread. If a pooled connection is
+     * available the operation is written immediately. Otherwise, if a permit can
+     * be acquired a new connection is opened and the operation is written from
+     * the connect (and, if security is enabled, the TLS/auth) callback. If all
+     * connections are in use and {@code blockOnMaxConnections} is set, the
+     * operation is queued and written as soon as a connection is returned
+     * to the pool.
+     * </p>
+     * <p>
+     * Note that a failure to open a new connection is reported asynchronously
+     * via the operation rather than by returning {@code false}.
+     * </p>
      *
      * @param operation The operation to perform
      * @return {@code true} if this operation was accepted, {@code false} if there
-     *         were no available connections.
+     *         were no available connections or the circuit breaker turned it away.
      * @throws IllegalStateException    if this node is not in the {@code RUNNING} or {@code HEALTH_CHECKING} state
      * @throws IllegalArgumentException if the protocol required for the operation is not supported by this node
      */
@@ -586,311 +652,748 @@ public class RiakNode implements RiakResponseListener
     {
         stateCheck(State.RUNNING, State.HEALTH_CHECKING);
 
+        if (circuitBreaker != null && !circuitBreaker.allowRequest())
+        {
+            logger.debug("Operation {} not being executed RiakNode {}:{}; circuit breaker is {}",
+                         System.identityHashCode(operation), remoteAddress, port, circuitBreaker.getState());
+            return false;
+        }
+
         operation.setLastNode(this);
-        Channel channel = getConnection();
-        if (channel != null)
+
+        // Prefer an idle pooled connection; failing that, pipeline onto a
+        // busy one before opening a new connection.
+        if (pipelineDepth > 1 && !connectionPool.hasIdle() && writeToPipelinedChannel(operation))
         {
-            inProgressMap.put(channel, operation);
-            ChannelFuture writeFuture = channel.writeAndFlush(operation);
-            writeFuture.addListener(writeListener);
-            logger.debug("Operation {} being executed on RiakNode {}:{}",
-                         System.identityHashCode(operation), remoteAddress, port);
+            return true;
+        }
+
+        logger.debug("Attempting to acquire channel permit");
+        if (connectionPool.tryAcquire())
+        {
+            if (acquireChannelAndWrite(operation))
+            {
+                return true;
+            }
+            rejected(operation);
+            return false;
+        }
+        else if (pipelineDepth > 1 && writeToPipelinedChannel(operation))
+        {
+            return true;
+        }
+        else if (blockOnMaxConnections)
+        {
+            logger.info("All connections in use for {}; queuing operation {} until one is available.",
+                        remoteAddress, System.identityHashCode(operation));
+            pendingOperations.offer(operation);
+            operation.traceEvent(TraceEvent.PENDING);
+            // A connection may have been returned between the failed tryAcquire()
+            // and the offer() above; make sure the operation isn't stranded.
+            drainPendingOperations();
             return true;
         }
         else
         {
             logger.debug("Operation {} not being executed Riaknode {}:{}; no connections available",
                          System.identityHashCode(operation), remoteAddress, port);
+            rejected(operation);
             return false;
         }
     }
 
+    /**
+     * Undoes giving an operation to this node when it can't be executed here.
+     */
+    private void rejected(FutureOperation operation)
+    {
+        operation.attemptRejected();
+        if (circuitBreaker != null)
+        {
+            circuitBreaker.release();
+        }
+    }
+
     // ConnectionPool Stuff
 
     /**
-     * Get a Netty channel from the pool.
-     * <p>
-     * The first thing this method does is attempt to acquire a permit from the
-     * Semaphore that controls the pool's behavior. Depending on whether
-     * {@code blockOnMaxConnections} is set, this will either block until one
-     * becomes available or return null.
-     * </p>
+     * Writes the operation to a pooled channel or a newly opened one.
      * <p>
-     * Once a permit has been acquired, a channel from the pool or a newly
-     * created one will be returned. If an attempt to create a new connection
-     * fails, null will then be returned.
+     * The caller must hold a permit; it is released here if a connection
+     * attempt can not even be started.
      * </p>
-     * @return a connected channel or {@code null}
-     * @see Builder#withBlockOnMaxConnections(boolean)
+     * @param operation the operation to write.
+     * @return {@code true} if a channel was found or a connection attempt started.
      */
-    private Channel getConnection()
+    private boolean acquireChannelAndWrite(FutureOperation operation)
     {
-        stateCheck(State.RUNNING, State.HEALTH_CHECKING);
-        boolean acquired = false;
-        if (blockOnMaxConnections)
+        EventLoop eventLoop = currentEventLoop();
+        Channel channel = pollAvailableChannel(eventLoop);
+        if (channel != null)
         {
-            try
-            {
-                logger.debug("Attempting to acquire channel permit");
-
-                if (!permits.tryAcquire())
-                {
-                    logger.info("All connections in use for {}; had to wait for one.",
-                                remoteAddress);
-                    permits.acquire();
-                }
-                acquired = true;
-            }
-            catch (InterruptedException ex)
-            {
-                // no-op, don't care
-            }
-            catch (BlockingOperationException ex)
-            {
-                logger.error("Netty interrupted waiting for connection permit to be available; {}",
-                             remoteAddress);
-
-            }
+            writeOperation(channel, operation);
+            return true;
         }
-        else
+
+        ChannelFuture connectFuture;
+        try
         {
-            logger.debug("Attempting to acquire channel permit");
-            acquired = permits.tryAcquire();
+            connectFuture = connect(true, eventLoop);
         }
-
-        Channel channel = null;
-        if (acquired)
+        catch (UnknownHostException ex)
         {
-            try
-            {
-                channel = doGetConnection(true);
-                channel.closeFuture().removeListener(inAvailableCloseListener);
-            }
-            catch (ConnectionFailedException ex)
-            {
-                permits.release();
-            }
-            catch (UnknownHostException ex)
-            {
-                permits.release();
-                logger.error("Unknown host encountered while trying to open connection; {}", ex);
-            }
+            connectionPool.release();
+            logger.error("Unknown host encountered while trying to open connection; {}", ex);
+            return false;
         }
-        return channel;
+
+        logger.debug("Operation {} waiting on new connection to RiakNode {}:{}",
+                     System.identityHashCode(operation), remoteAddress, port);
+        operation.traceEvent(TraceEvent.CONNECTING);
+        connectFuture.addListener(new ConnectListener(operation));
+        return true;
     }
 
-    private Channel doGetConnection(boolean forceAddressRefresh) throws ConnectionFailedException, UnknownHostException
+    /**
+     * Checks out the channel and writes the first operation to it.
+     */
+    private void writeOperation(Channel channel, FutureOperation operation)
     {
-        ChannelWithIdleTime cwi;
-        while ((cwi = available.poll()) != null)
+        InProgress inProgress = new InProgress();
+        inProgress.operations.add(operation);
+        inProgressMap.put(channel, inProgress);
+
+        if (pipelineDepth > 1)
         {
-            Channel channel = cwi.getChannel();
-            // If the channel from available is closed, try again. This will result in
-            // the caller always getting a connection or an exception. If closed
-            // the channel is simply discarded so this also acts as a purge
-            // for dead channels during a health check.
-            if (channel.isOpen())
+            synchronized (inProgress)
             {
-                return channel;
+                inProgress.offeredForPipelining = true;
+                pipelinedChannels.offer(channel);
+                write(channel, operation);
             }
         }
-
-        if(forceAddressRefresh)
+        else
         {
-            refreshBootstrapRemoteAddress();
+            write(channel, operation);
         }
 
-        ChannelFuture f = bootstrap.connect();
-
-        try
+        if (operation.isAborted())
         {
-            f.await();
-        }
-        catch (InterruptedException ex)
-        {
-            logger.error("Thread interrupted waiting for new connection to be made; {}",
-                remoteAddress);
-            Thread.currentThread().interrupt();
-            throw new ConnectionFailedException(ex);
-        }
-        catch (BlockingOperationException ex)
-        {
-            logger.error("Netty interrupted waiting for new connection to be made; {}",
-                         remoteAddress);
-            throw new ConnectionFailedException(ex);
+            abandonChannel(channel, inProgress, operation);
         }
+    }
 
-        if (!f.isSuccess())
+    private void write(Channel channel, FutureOperation operation)
+    {
+        operation.setChannel(channel);
+        ChannelFuture writeFuture;
+        WriteBatch batch = WriteBatch.current();
+        if (batch != null)
         {
-            logger.error("Connection attempt failed: {}:{}; {}",
-                remoteAddress, port, f.cause());
-            consecutiveFailedConnectionAttempts.incrementAndGet();
-            throw new ConnectionFailedException(f.cause());
+            writeFuture = channel.write(operation);
+            batch.add(this, channel);
         }
-
-        consecutiveFailedConnectionAttempts.set(0);
-        Channel c = f.channel();
-
-        if (trustStore != null)
+        else
         {
-            setupTLSAndAuthenticate(c);
+            writeFuture = channel.writeAndFlush(operation);
+            if (!flushConsolidation)
+            {
+                flushStatistics.recordFlush(1);
+            }
         }
-
-        return c;
-
+        writeFuture.addListener(writeListener);
+        logger.debug("Operation {} being executed on RiakNode {}:{}",
+                     System.identityHashCode(operation), remoteAddress, port);
     }
 
-    private void setupTLSAndAuthenticate(Channel c) throws ConnectionFailedException
+    /**
+     * Writes the operation to a channel that is already checked out but has
+     * not reached the pipeline depth.
+     * <p>
+     * Riak processes the requests on a connection in order, so responses are
+     * matched to operations in the order they were written.
+     * </p>
+     * @param operation the operation to write.
+     * @return {@code true} if the operation was written, {@code false} if
+     * no checked out channel had room for it.
+     */
+    private boolean writeToPipelinedChannel(FutureOperation operation)
     {
-        SSLContext context;
-        try
+        Channel channel;
+        while ((channel = pipelinedChannels.poll()) != null)
         {
-            context = SSLContext.getInstance("TLS");
-            TrustManagerFactory tmf =
-                TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
-            tmf.init(trustStore);
-                if(keyStore!=null)
-            {
-                KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
-                kmf.init(keyStore, keyPassword==null?"".toCharArray():keyPassword.toCharArray());
-                context.init(kmf.getKeyManagers(), tmf.getTrustManagers(), null);
-            }
-            else
+            InProgress inProgress = inProgressMap.get(channel);
+            if (inProgress == null)
             {
-                context.init(null, tmf.getTrustManagers(), null);
+                continue;
             }
 
-        }
-        catch (Exception ex)
-        {
-            c.close();
-            logger.error("Failure configuring SSL; {}:{} {}", remoteAddress, port, ex);
-            throw new ConnectionFailedException(ex);
-        }
-
-        SSLEngine engine = context.createSSLEngine();
-
-        Set<String> protocols = new HashSet<String>(Arrays.asList(engine.getSupportedProtocols()));
-
-        if (protocols.contains("TLSv1.2"))
-        {
-            engine.setEnabledProtocols(new String[] {"TLSv1.2"});
-            logger.debug("Using TLSv1.2");
-        }
-        else if (protocols.contains("TLSv1.1"))
-        {
-            engine.setEnabledProtocols(new String[] {"TLSv1.1"});
-            logger.debug("Using TLSv1.1");
-        }
-
-        engine.setUseClientMode(true);
-        RiakSecurityDecoder decoder = new RiakSecurityDecoder(engine, username, password);
-        c.pipeline().addFirst(decoder);
+            synchronized (inProgress)
+            {
+                inProgress.offeredForPipelining = false;
+                // An empty queue means the channel has since been returned
+                // to the pool or failed.
+                if (inProgress.operations.isEmpty()
+                        || inProgress.operations.size() >= pipelineDepth
+                        || !channel.isActive())
+                {
+                    continue;
+                }
 
-        try
-        {
-            DefaultPromise<Void> promise = decoder.getPromise();
-                logger.debug("Waiting on SSL Promise");
-            promise.await();
+                inProgress.operations.add(operation);
+                if (inProgress.operations.size() < pipelineDepth)
+                {
+                    inProgress.offeredForPipelining = true;
+                    pipelinedChannels.offer(channel);
+                }
 
-            if (promise.isSuccess())
-            {
-                logger.debug("Auth succeeded; {}:{}", remoteAddress, port);
+                // Written while holding the lock so the order on the wire
+                // matches the order of the queue.
+                write(channel, operation);
             }
-            else
+            logger.debug("Operation {} pipelined on channel id:{} {}:{}",
+                         System.identityHashCode(operation), channel.hashCode(), remoteAddress, port);
+            if (operation.isAborted())
             {
-                c.close();
-                logger.error("Failure during Auth; {}:{} {}",remoteAddress, port, promise.cause());
-                throw new ConnectionFailedException(promise.cause());
+                abandonChannel(channel, inProgress, operation);
             }
-
-
-        }
-        catch (InterruptedException e)
-        {
-            c.close();
-            logger.error("Thread interrupted during Auth; {}:{}",
-                remoteAddress, port);
-            Thread.currentThread().interrupt();
-            throw new ConnectionFailedException(e);
+            return true;
         }
+        return false;
     }
 
     /**
-     * Return a Netty channel.
-     *
-     * @param c The Netty channel to return to the pool
+     * Hands permits freed by returned or discarded connections, and room freed
+     * on pipelined connections, to operations queued while all connections
+     * were in use.
      */
-    private void returnConnection(Channel c)
+    private void drainPendingOperations()
     {
-        switch (state)
+        FutureOperation operation;
+        while (!pendingOperations.isEmpty())
         {
-            case SHUTTING_DOWN:
-            case SHUTDOWN:
-                closeConnection(c);
-                break;
-            case RUNNING:
-            case HEALTH_CHECKING:
-            default:
-                if (inProgressMap.containsKey(c))
+            if (pipelineDepth > 1)
+            {
+                operation = pendingOperations.poll();
+                if (operation == null)
                 {
-                    logger.error("Channel returned to pool while still in use. id: {}",
-                        c.hashCode());
+                    break;
                 }
-                else
+                else if (operation.isDone() || writeToPipelinedChannel(operation))
                 {
-                    if (c.isOpen())
-                    {
-                        logger.debug("Channel id:{} returned to pool", c.hashCode());
-                        c.closeFuture().removeListener(inProgressCloseListener);
-                        c.closeFuture().addListener(inAvailableCloseListener);
-                        available.offerFirst(new ChannelWithIdleTime(c));
-                    }
-                    else
-                    {
-                        logger.debug("Closed channel id:{} returned to pool; discarding", c.hashCode());
-                    }
-                    logger.debug("Released pool permit");
-                    permits.release();
+                    continue;
                 }
+                pendingOperations.offerFirst(operation);
             }
-    }
-
-    private void closeConnection(Channel c)
-    {
-        // If we are explicitly closing the connection we don't want to hear
-        // about it.
-        c.closeFuture().removeListener(inProgressCloseListener);
-        c.closeFuture().removeListener(inAvailableCloseListener);
-        c.close();
-    }
 
+            if (!connectionPool.tryAcquire())
+            {
+                break;
+            }
 
-    // End ConnectionPool stuff
-
-    @Override
+            operation = pendingOperations.poll();
+            if (operation == null)
+            {
+                connectionPool.release();
+                break;
+            }
+            else if (operation.isDone())
+            {
+                connectionPool.release();
+                continue;
+            }
+
+            if (!acquireChannelAndWrite(operation))
+            {
+                operation.setException(new NoNodesAvailableException());
+            }
+        }
+
+        // Only once our own queue is empty is there room for anyone else's.
+        NodeCapacityListener listener = capacityListener;
+        if (listener != null && pendingOperations.isEmpty())
+        {
+            listener.capacityAvailable(this);
+        }
+    }
+
+    /**
+     * Sets the listener notified when this node may be able to take
+     * another operation.
+     * @param listener the listener, or null.
+     */
+    void setCapacityListener(NodeCapacityListener listener)
+    {
+        this.capacityListener = listener;
+    }
+
+    /**
+     * Sets the listener notified when an attempt at an operation on this
+     * node ends.
+     * @param listener the listener, or null.
+     */
+    void setAttemptListener(NodeAttemptListener listener)
+    {
+        this.attemptListener = listener;
+    }
+
+    /**
+     * Sets the metrics this node reports to.
+     * @param metrics the metrics.
+     * @throws IllegalStateException if the node has already been started.
+     */
+    void setMetrics(RiakMetrics metrics)
+    {
+        stateCheck(State.CREATED);
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return the number of idle connections in this node's pool.
+     * @since 2.1
+     */
+    public int getIdleConnectionCount()
+    {
+        return connectionPool.idleCount();
+    }
+
+    /**
+     * @return the number of this node's connections carrying operations.
+     * @since 2.1
+     */
+    public int getInUseConnectionCount()
+    {
+        return inProgressMap.size();
+    }
+
+    /**
+     * Returns the number of operations waiting for one of this node's
+     * connections.
+     * <p>
+     * This takes time proportional to the number of operations waiting.
+     * </p>
+     * @return the number of operations.
+     * @since 2.1
+     * @see Builder#withBlockOnMaxConnections(boolean)
+     */
+    public int getPendingOperationCount()
+    {
+        return pendingOperations.size();
+    }
+
+    /**
+     * Fails any operations still queued waiting for a connection.
+     */
+    private void failPendingOperations()
+    {
+        FutureOperation operation;
+        while ((operation = pendingOperations.poll()) != null)
+        {
+            operation.setException(new NoNodesAvailableException("RiakNode shutting down"));
+        }
+    }
+
+    /**
+     * Listener that writes an operation once its new connection is usable.
+     * <p>
+     * This is always called on the channel's event loop, never on the
+     * thread that submitted the operation.
+     * </p>
+     */
+    private class ConnectListener implements ChannelFutureListener
+    {
+        private final FutureOperation operation;
+
+        ConnectListener(FutureOperation operation)
+        {
+            this.operation = operation;
+        }
+
+        @Override
+        public void operationComplete(ChannelFuture future) throws Exception
+        {
+            if (!future.isSuccess())
+            {
+                logger.error("Connection attempt failed: {}:{}; {}",
+                    remoteAddress, port, future.cause());
+                connectionPool.release();
+                operation.setException(new ConnectionFailedException(future.cause()));
+                drainPendingOperations();
+            }
+            else if (state == State.SHUTTING_DOWN || state == State.SHUTDOWN)
+            {
+                closeConnection(future.channel());
+                connectionPool.release();
+                operation.setException(new NoNodesAvailableException("RiakNode shutting down"));
+            }
+            else if (operation.isDone())
+            {
+                // Aborted while we were connecting; keep the connection.
+                returnConnection(future.channel());
+            }
+            else
+            {
+                operation.traceEvent(TraceEvent.CONNECTED);
+                writeOperation(future.channel(), operation);
+            }
+        }
+    }
+
+    /**
+     * Get a Netty channel from the pool synchronously.
+     * <p>
+     * This method is not used to execute operations (see {@link #execute(FutureOperation)})
+     * but is retained for callers that need a connected channel in hand. It
+     * attempts to acquire a permit from the Semaphore that controls the
+     * pool's behavior without ever waiting for one, and returns null if none
+     * is available.
+     * </p>
+     * <p>
+     * Once a permit has been acquired, a channel from the pool or a newly
+     * created one will be returned. If an attempt to create a new connection
+     * fails, null will then be returned.
+     * </p>
+     * @return a connected channel or {@code null}
+     */
+    private Channel getConnection()
+    {
+        stateCheck(State.RUNNING, State.HEALTH_CHECKING);
+        logger.debug("Attempting to acquire channel permit");
+        boolean acquired = connectionPool.tryAcquire();
+
+        Channel channel = null;
+        if (acquired)
+        {
+            try
+            {
+                channel = doGetConnection(true);
+            }
+            catch (ConnectionFailedException ex)
+            {
+                connectionPool.release();
+            }
+            catch (UnknownHostException ex)
+            {
+                connectionPool.release();
+                logger.error("Unknown host encountered while trying to open connection; {}", ex);
+            }
+        }
+        return channel;
+    }
+
+    /**
+     * Polls the pool for an open channel.
+     * <p>
+     * If a channel from the pool is closed it is simply discarded, so this
+     * also acts as a purge for dead channels.
+     * </p>
+     * @param eventLoop the event loop to prefer a channel on, or null.
+     * @return an open channel, or null if none are available.
+     */
+    private Channel pollAvailableChannel(EventLoop eventLoop)
+    {
+        return eventLoop == null ? connectionPool.pollIdle() : connectionPool.pollIdle(eventLoop);
+    }
+
+    /**
+     * Finds the event loop of the bootstrap's group that the calling thread
+     * is running, if any.
+     * <p>
+     * This is the case when the application shares its event loop group
+     * with the cluster (see {@link RiakCluster.Builder#withEventLoopGroup})
+     * and executes operations from it, or when an operation is executed from
+     * a listener on another operation.
+     * </p>
+     * <p>
+     * A thread runs the same event loop for its whole life, or none, so the
+     * group is only searched the first time each thread asks.
+     * </p>
+     * @return the current thread's event loop, or null.
+     */
+    private EventLoop currentEventLoop()
+    {
+        return currentEventLoop.get();
+    }
+
+    private EventLoop findCurrentEventLoop()
+    {
+        EventLoopGroup group = bootstrap.config().group();
+        if (group == null)
+        {
+            return null;
+        }
+        for (EventExecutor executor : group)
+        {
+            if (executor.inEventLoop())
+            {
+                return (EventLoop) executor;
+            }
+        }
+        return null;
+    }
+
+    private Channel doGetConnection(boolean forceAddressRefresh) throws ConnectionFailedException, UnknownHostException
+    {
+        // Closed channels in the pool are simply discarded, so this also acts
+        // as a purge for dead channels during a health check.
+        Channel channel = connectionPool.pollIdle();
+        if (channel != null)
+        {
+            return channel;
+        }
+
+        ChannelFuture f = connect(forceAddressRefresh, null);
+
+        try
+        {
+            f.await();
+        }
+        catch (InterruptedException ex)
+        {
+            logger.error("Thread interrupted waiting for new connection to be made; {}",
+                remoteAddress);
+            Thread.currentThread().interrupt();
+            throw new ConnectionFailedException(ex);
+        }
+        catch (BlockingOperationException ex)
+        {
+            logger.error("Netty interrupted waiting for new connection to be made; {}",
+                         remoteAddress);
+            throw new ConnectionFailedException(ex);
+        }
+
+        if (!f.isSuccess())
+        {
+            logger.error("Connection attempt failed: {}:{}; {}",
+                remoteAddress, port, f.cause());
+            throw new ConnectionFailedException(f.cause());
+        }
+
+        return f.channel();
+    }
+
+    /**
+     * Opens a new connection without waiting on it.
+     * <p>
+     * The returned future completes once the channel is connected and, if
+     * security is enabled, TLS has been negotiated and the user authenticated.
+     * Consecutive connection failures are recorded for the health check.
+     * </p>
+     * @param forceAddressRefresh re-resolve the remote address before connecting.
+     * @param eventLoop the event loop to register the connection on, or null
+     * to let the bootstrap's group choose.
+     * @return a future for the usable channel.
+     * @throws UnknownHostException if the remote address can not be resolved.
+     */
+    private ChannelFuture connect(boolean forceAddressRefresh, EventLoop eventLoop) throws UnknownHostException
+    {
+        if (forceAddressRefresh)
+        {
+            refreshBootstrapRemoteAddress();
+        }
+
+        ChannelFuture connectFuture =
+            eventLoop == null ? bootstrap.connect() : bootstrap.clone(eventLoop).connect();
+
+        if (trustStore == null)
+        {
+            connectFuture.addListener(connectAttemptListener);
+            return connectFuture;
+        }
+
+        final ChannelPromise securedPromise = connectFuture.channel().newPromise();
+        connectFuture.addListener(new ChannelFutureListener()
+        {
+            @Override
+            public void operationComplete(ChannelFuture future) throws Exception
+            {
+                connectAttemptListener.operationComplete(future);
+                if (future.isSuccess())
+                {
+                    setupTLSAndAuthenticate(future.channel(), securedPromise);
+                }
+                else
+                {
+                    securedPromise.tryFailure(future.cause());
+                }
+            }
+        });
+        return securedPromise;
+    }
+
+    private final ChannelFutureListener connectAttemptListener =
+        new ChannelFutureListener()
+        {
+            @Override
+            public void operationComplete(ChannelFuture future) throws Exception
+            {
+                if (future.isSuccess())
+                {
+                    consecutiveFailedConnectionAttempts.set(0);
+                    future.channel().closeFuture().addListener(closeListener);
+                }
+                else
+                {
+                    consecutiveFailedConnectionAttempts.incrementAndGet();
+                }
+            }
+        };
+
+    private void setupTLSAndAuthenticate(final Channel c, final ChannelPromise securedPromise)
+    {
+        SSLContext context;
+        try
+        {
+            context = SSLContext.getInstance("TLS");
+            TrustManagerFactory tmf =
+                TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+            tmf.init(trustStore);
+                if(keyStore!=null)
+            {
+                KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+                kmf.init(keyStore, keyPassword==null?"".toCharArray():keyPassword.toCharArray());
+                context.init(kmf.getKeyManagers(), tmf.getTrustManagers(), null);
+            }
+            else
+            {
+                context.init(null, tmf.getTrustManagers(), null);
+            }
+
+        }
+        catch (Exception ex)
+        {
+            c.close();
+            logger.error("Failure configuring SSL; {}:{} {}", remoteAddress, port, ex);
+            securedPromise.tryFailure(ex);
+            return;
+        }
+
+        SSLEngine engine = context.createSSLEngine();
+
+        Set<String> protocols = new HashSet<String>(Arrays.asList(engine.getSupportedProtocols()));
+
+        if (protocols.contains("TLSv1.2"))
+        {
+            engine.setEnabledProtocols(new String[] {"TLSv1.2"});
+            logger.debug("Using TLSv1.2");
+        }
+        else if (protocols.contains("TLSv1.1"))
+        {
+            engine.setEnabledProtocols(new String[] {"TLSv1.1"});
+            logger.debug("Using TLSv1.1");
+        }
+
+        engine.setUseClientMode(true);
+        RiakSecurityDecoder decoder = new RiakSecurityDecoder(engine, username, password);
+        decoder.getPromise().addListener(new GenericFutureListener<io.netty.util.concurrent.Future<Void>>()
+        {
+            @Override
+            public void operationComplete(io.netty.util.concurrent.Future<Void> promise) throws Exception
+            {
+                if (promise.isSuccess())
+                {
+                    logger.debug("Auth succeeded; {}:{}", remoteAddress, port);
+                    securedPromise.trySuccess();
+                }
+                else
+                {
+                    c.close();
+                    logger.error("Failure during Auth; {}:{} {}",remoteAddress, port, promise.cause());
+                    securedPromise.tryFailure(promise.cause());
+                }
+            }
+        });
+        c.pipeline().addFirst(decoder);
+    }
+
+    /**
+     * Return a Netty channel.
+     * <p>
+     * The freed permit is handed to the next operation queued waiting for a
+     * connection, if any.
+     * </p>
+     *
+     * @param c The Netty channel to return to the pool
+     */
+    private void returnConnection(Channel c)
+    {
+        switch (state)
+        {
+            case SHUTTING_DOWN:
+            case SHUTDOWN:
+                closeConnection(c);
+                break;
+            case RUNNING:
+            case HEALTH_CHECKING:
+            default:
+                if (inProgressMap.containsKey(c))
+                {
+                    logger.error("Channel returned to pool while still in use. id: {}",
+                        c.hashCode());
+                }
+                else
+                {
+                    if (c.isOpen())
+                    {
+                        logger.debug("Channel id:{} returned to pool", c.hashCode());
+                        connectionPool.offerIdle(c);
+                    }
+                    else
+                    {
+                        logger.debug("Closed channel id:{} returned to pool; discarding", c.hashCode());
+                    }
+                    logger.debug("Released pool permit");
+                    connectionPool.release();
+                    drainPendingOperations();
+                    reapIdleConnectionsIfDue();
+                }
+            }
+    }
+
+    private void closeConnection(Channel c)
+    {
+        // If we are explicitly closing the connection we don't want to hear
+        // about it.
+        c.closeFuture().removeListener(closeListener);
+        c.close();
+    }
+
+
+    // End ConnectionPool stuff
+
+    @Override
     public void onSuccess(Channel channel, final RiakMessage response)
     {
         logger.debug("Operation onSuccess() channel: id:{} {}:{}", channel.hashCode(), remoteAddress, port);
         consecutiveFailedOperations.set(0);
-        final FutureOperation inProgress = inProgressMap.get(channel);
+        final InProgress inProgress = inProgressMap.get(channel);
 
         // Especially with a streaming op, the close listener may trigger causing
         // a race. This check guards that.
         if (inProgress != null)
         {
-            inProgress.setResponse(response);
+            final FutureOperation operation = inProgress.peek();
+            if (operation == null)
+            {
+                return;
+            }
+
+            operation.setResponse(response);
 
-            if (inProgress.isDone())
+            if (operation.isAborted())
+            {
+                // There may be more responses on the way for it.
+                abandonChannel(channel, inProgress, operation);
+            }
+            else if (operation.isDone())
             {
                 try
                 {
-                    inProgressMap.remove(channel);
-                    returnConnection(channel); // return permit
+                    completeHead(channel, inProgress);
                 }
                 finally
                 {
-                    inProgress.setComplete();
+                    operation.setComplete();
                 }
             }
         }
@@ -900,12 +1403,16 @@ public class RiakNode implements RiakResponseListener
     public void onRiakErrorResponse(Channel channel, RiakResponseException ex)
     {
         logger.debug("Riak replied with error; {}:{}", ex.getCode(), ex.getMessage());
-        final FutureOperation inProgress = inProgressMap.remove(channel);
+        final InProgress inProgress = inProgressMap.get(channel);
         consecutiveFailedOperations.incrementAndGet();
         if (inProgress != null)
         {
-            returnConnection(channel); // release permit
-            inProgress.setException(ex);
+            final FutureOperation operation = inProgress.peek();
+            if (operation != null)
+            {
+                completeHead(channel, inProgress); // release permit
+                operation.setException(ex);
+            }
         }
     }
 
@@ -915,7 +1422,7 @@ public class RiakNode implements RiakResponseListener
         logger.error("Operation onException() channel: id:{} {}:{} {}",
             channel.hashCode(), remoteAddress, port, t);
 
-        final FutureOperation inProgress = inProgressMap.remove(channel);
+        final InProgress inProgress = inProgressMap.remove(channel);
         // There are fail cases where multiple exceptions are thrown from
         // the pipeline. In that case we'll get an exception from the
         // handler but will not have an entry in inProgress because it's
@@ -923,7 +1430,225 @@ public class RiakNode implements RiakResponseListener
         if (inProgress != null)
         {
             returnConnection(channel); // release permit
-            inProgress.setException(t);
+            inProgress.failAll(t);
+        }
+    }
+
+    /**
+     * Removes the operation at the head of the channel's queue once Riak has
+     * finished responding to it.
+     * <p>
+     * The channel is returned to the pool when nothing else is outstanding on
+     * it; otherwise, if pipelining, it is offered for further operations.
+     * </p>
+     */
+    private void completeHead(Channel channel, InProgress inProgress)
+    {
+        boolean idle = false;
+        boolean roomFreed = false;
+        synchronized (inProgress)
+        {
+            inProgress.operations.poll();
+            if (inProgress.operations.isEmpty())
+            {
+                // Not ours to return if the channel has been abandoned.
+                idle = inProgressMap.remove(channel, inProgress);
+            }
+            else if (!inProgress.offeredForPipelining)
+            {
+                inProgress.offeredForPipelining = true;
+                pipelinedChannels.offer(channel);
+                roomFreed = true;
+            }
+        }
+
+        if (idle)
+        {
+            returnConnection(channel); // return permit
+        }
+        else if (roomFreed)
+        {
+            drainPendingOperations();
+        }
+    }
+
+    /**
+     * Called when an operation last sent to this node is cancelled or its
+     * deadline passes.
+     * <p>
+     * If the operation is still waiting for a connection it is simply
+     * dropped. If it has been written, the connection is closed and its
+     * permit released; Riak can't be told to stop working on the operation,
+     * and any response to it would arrive ahead of those for operations
+     * written after it. Other operations pipelined on the connection are
+     * failed so they can be retried elsewhere.
+     * </p>
+     * @param operation the aborted operation.
+     */
+    void operationAborted(FutureOperation operation)
+    {
+        if (pendingOperations.remove(operation))
+        {
+            return;
+        }
+
+        for (Map.Entry<Channel, InProgress> entry : inProgressMap.entrySet())
+        {
+            if (entry.getValue().contains(operation))
+            {
+                abandonChannel(entry.getKey(), entry.getValue(), operation);
+                return;
+            }
+        }
+    }
+
+    private void abandonChannel(Channel channel, InProgress inProgress, FutureOperation aborted)
+    {
+        List<FutureOperation> others;
+        synchronized (inProgress)
+        {
+            if (!inProgress.operations.contains(aborted) || !inProgressMap.remove(channel, inProgress))
+            {
+                // Already completed, or the channel has already been dealt with.
+                return;
+            }
+            inProgress.operations.remove(aborted);
+            others = new ArrayList<FutureOperation>(inProgress.operations);
+            inProgress.operations.clear();
+        }
+
+        logger.debug("Closing channel id:{} {}:{}; operation {} was aborted",
+                     channel.hashCode(), remoteAddress, port, System.identityHashCode(aborted));
+        closeConnection(channel);
+        connectionPool.release();
+
+        for (FutureOperation operation : others)
+        {
+            operation.setException(new Exception("Connection closed after another operation on it was aborted"));
+        }
+        drainPendingOperations();
+    }
+
+    /**
+     * Defers flushing the channels written to by the current thread.
+     * <p>
+     * While a batch is open, operations executed by the thread that opened it
+     * are written without being flushed. When the outermost batch is closed
+     * each channel written to is flushed once, so a group of operations bound
+     * for the same connection go out together.
+     * </p>
+     */
+    static final class WriteBatch
+    {
+        private static final ThreadLocal<WriteBatch> CURRENT = new ThreadLocal<WriteBatch>();
+
+        private final Map<Channel, BatchedChannel> channels = new LinkedHashMap<Channel, BatchedChannel>();
+        private int depth;
+
+        private WriteBatch()
+        {
+        }
+
+        static WriteBatch begin()
+        {
+            WriteBatch batch = CURRENT.get();
+            if (batch == null)
+            {
+                batch = new WriteBatch();
+                CURRENT.set(batch);
+            }
+            batch.depth++;
+            return batch;
+        }
+
+        static WriteBatch current()
+        {
+            return CURRENT.get();
+        }
+
+        void add(RiakNode node, Channel channel)
+        {
+            BatchedChannel batched = channels.get(channel);
+            if (batched == null)
+            {
+                batched = new BatchedChannel(node);
+                channels.put(channel, batched);
+            }
+            batched.frames++;
+        }
+
+        void end()
+        {
+            if (--depth > 0)
+            {
+                return;
+            }
+
+            CURRENT.remove();
+            for (Map.Entry<Channel, BatchedChannel> entry : channels.entrySet())
+            {
+                RiakNode node = entry.getValue().node;
+                entry.getKey().flush();
+                if (!node.flushConsolidation)
+                {
+                    node.flushStatistics.recordFlush(entry.getValue().frames);
+                }
+            }
+            channels.clear();
+        }
+
+        private static class BatchedChannel
+        {
+            private final RiakNode node;
+            private int frames;
+
+            BatchedChannel(RiakNode node)
+            {
+                this.node = node;
+            }
+        }
+    }
+
+    /**
+     * The operations written to a checked out channel that are awaiting a
+     * response, in the order they were written.
+     * <p>
+     * Without pipelining this only ever holds a single operation.
+     * </p>
+     */
+    private static class InProgress
+    {
+        private final ArrayDeque<FutureOperation> operations = new ArrayDeque<FutureOperation>(1);
+        private boolean offeredForPipelining;
+
+        synchronized FutureOperation peek()
+        {
+            return operations.peek();
+        }
+
+        synchronized int size()
+        {
+            return operations.size();
+        }
+
+        synchronized boolean contains(FutureOperation operation)
+        {
+            return operations.contains(operation);
+        }
+
+        void failAll(Throwable t)
+        {
+            List<FutureOperation> failed;
+            synchronized (this)
+            {
+                failed = new ArrayList<FutureOperation>(operations);
+                operations.clear();
+            }
+
+            for (FutureOperation operation : failed)
+            {
+                operation.setException(t);
+            }
         }
     }
 
@@ -985,115 +1710,46 @@ public class RiakNode implements RiakResponseListener
         return this.state;
     }
 
-    private class ChannelWithIdleTime
-    {
-        private Channel channel;
-        private long idleStart;
-
-        public ChannelWithIdleTime(Channel channel)
-        {
-            this.channel = channel;
-            idleStart = System.nanoTime();
-        }
-
-        public Channel getChannel()
-        {
-            return channel;
-        }
-
-        public long getIdleStart()
-        {
-            return idleStart;
-        }
-    }
-
-    static class Sync extends Semaphore
+    private class IdleReaper implements Runnable
     {
-        private static final long serialVersionUID = -5118488872281021072L;
-        private volatile int maxPermits;
-
-        public Sync(int numPermits)
-        {
-            super(numPermits);
-            this.maxPermits = numPermits;
-        }
-
-        public Sync(int numPermits, boolean fair)
-        {
-            super(numPermits, fair);
-            this.maxPermits = numPermits;
-        }
-
-        public int getMaxPermits()
-        {
-            return maxPermits;
-        }
-
-        // Synchronized because we're (potentially) changing this.maxPermits
-        synchronized void setMaxPermits(int maxPermits)
+        @Override
+        public void run()
         {
-            int diff = maxPermits - this.maxPermits;
-
-            if (diff == 0)
-            {
-                return;
-            }
-            else if (diff > 0)
-            {
-                release(diff);
-            }
-            else if (diff < 0)
-            {
-                reducePermits(diff);
-            }
-
-            this.maxPermits = maxPermits;
+            reapIdleConnections();
         }
-
     }
 
-    private class IdleReaper implements Runnable
+    /**
+     * Reaps idle connections from the thread returning a connection, at most
+     * once per second (or per idle timeout, if longer), so connections are
+     * closed promptly without waiting for the IdleReaper.
+     */
+    private void reapIdleConnectionsIfDue()
     {
-        @Override
-        public void run()
+        long now = System.nanoTime();
+        long due = nextIdleReap.get();
+        if (now - due >= 0 && nextIdleReap.compareAndSet(due, now + idleReapIntervalInNanos()))
         {
             reapIdleConnections();
         }
     }
 
-    private void reapIdleConnections()
+    private long idleReapIntervalInNanos()
     {
-        // with all the concurrency there's really no reason to keep
-        // checking the sizes. This is really just a "best guess"
-        int currentNum = inProgressMap.size() + available.size();
-        if (currentNum > minConnections)
-        {
-            // Note this will not throw a ConncurrentModificationException
-            // and if hasNext() returns true you are guaranteed that
-            // the next() will return a value (even if it has already
-            // been removed from the Deque between those calls).
-            Iterator<ChannelWithIdleTime> i = available.descendingIterator();
-            while (i.hasNext() && currentNum > minConnections)
-            {
-                ChannelWithIdleTime cwi = i.next();
-                if (cwi.getIdleStart() + idleTimeoutInNanos < System.nanoTime())
-                {
-                    boolean removed = available.remove(cwi);
-                    if (removed)
-                    {
-                        Channel c = cwi.getChannel();
-                        logger.debug("Idle channel closed; {}:{}", remoteAddress, port);
-                        closeConnection(c);
-                        currentNum--;
-                    }
-                }
-                else
-                {
-                    // Since we are descending and this is a LIFO,
-                    // if the current connection hasn't been idle beyond
-                    // the threshold, there's no reason to descend further
-                    break;
-                }
+        return Math.max(idleTimeoutInNanos, TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private void reapIdleConnections()
+    {
+        // with all the concurrency there's really no reason to keep
+        // checking the sizes. This is really just a "best guess"
+        int excess = inProgressMap.size() + connectionPool.idleCount() - minConnections;
+        if (excess > 0)
+        {
+            for (Channel c : connectionPool.removeIdle(idleTimeoutInNanos, excess))
+            {
+                logger.debug("Idle channel closed; {}:{}", remoteAddress, port);
+                closeConnection(c);
             }
         }
     }
@@ -1118,9 +1774,9 @@ public class RiakNode implements RiakResponseListener
             // frequency of this task
             long current = System.nanoTime();
             long window = 3000000000L; // 3 seconds
-            for (ChannelWithIdleTime cwi = recentlyClosed.peek();
-                 cwi != null && current - cwi.getIdleStart() > window;
-                 cwi = recentlyClosed.peek())
+            for (Long closed = recentlyClosed.peek();
+                 closed != null && current - closed > window;
+                 closed = recentlyClosed.peek())
             {
                 recentlyClosed.poll();
             }
@@ -1140,24 +1796,108 @@ public class RiakNode implements RiakResponseListener
         }
     }
 
+    /**
+     * Starts a health check unless one is already running.
+     * <p>
+     * The check never blocks the calling thread, so one hung node can't
+     * hold up the health checks of others sharing the executor. An idle
+     * pooled connection is used if there is one; otherwise a new one is
+     * opened and, if the check succeeds, kept in the pool.
+     * </p>
+     */
     private void checkHealth()
     {
-        try
+        if (!healthCheckInProgress.compareAndSet(false, true))
         {
-            HealthCheckDecoder healthCheck = healthCheckFactory.makeDecoder();
-            RiakFuture<RiakMessage, Void> future = healthCheck.getFuture();
-            // See: doGetConnection() - this will purge closed
-            // connections from the available queue and either
-            // return/create a new one (meaning the node is up) or throw
-            // an exception if a connection can't be made.
-            Channel c = doGetConnection(true);
-            logger.debug("Healthcheck channel: {} isOpen: {} handlers:{}", c.hashCode(), c.isOpen(), c.pipeline().names());
+            logger.debug("Healthcheck still in progress; {}:{}", remoteAddress, port);
+            return;
+        }
+        new HealthCheck().start();
+    }
+
+    /**
+     * A single run of the health check, from getting a connection to
+     * handing the connection back.
+     */
+    private class HealthCheck implements ChannelFutureListener, RiakFutureListener<RiakMessage, Void>, Runnable
+    {
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private final HealthCheckDecoder healthCheck = healthCheckFactory.makeDecoder();
+        private volatile boolean pooled;
+        private volatile Channel channel;
+        private volatile ScheduledFuture<?> timeoutFuture;
+
+        void start()
+        {
+            try
+            {
+                timeoutFuture = executor.schedule(this, healthCheckTimeout, TimeUnit.MILLISECONDS);
+
+                // Without a permit the check uses a connection of its own
+                // rather than waiting for one.
+                pooled = connectionPool.tryAcquire();
+                Channel c = pooled ? connectionPool.pollIdle() : null;
+                if (c != null)
+                {
+                    check(c);
+                }
+                else
+                {
+                    connect(true, null).addListener(this);
+                }
+            }
+            catch (UnknownHostException ex)
+            {
+                finish(ex);
+            }
+            catch (IllegalStateException ex)
+            {
+                // There's a race condition where the bootstrap is shutting down
+                // right when a healthcheck occurs and netty will throw this
+                logger.debug("Illegal state exception during healthcheck; {}", ex);
+                finish(null, false);
+            }
+            catch (RuntimeException ex)
+            {
+                logger.error("Runtime exception during healthcheck: {}", ex);
+                finish(null, false);
+            }
+        }
 
+        /**
+         * The connection attempt completed.
+         */
+        @Override
+        public void operationComplete(ChannelFuture future)
+        {
+            if (!future.isSuccess())
+            {
+                finish(new ConnectionFailedException(future.cause()));
+            }
+            else if (finished.get())
+            {
+                // Timed out while connecting.
+                closeConnection(future.channel());
+            }
+            else
+            {
+                check(future.channel());
+            }
+        }
 
+        private void check(Channel c)
+        {
+            channel = c;
+            if (finished.get())
+            {
+                closeConnection(c);
+                return;
+            }
+            logger.debug("Healthcheck channel: {} isOpen: {} handlers:{}", c.hashCode(), c.isOpen(), c.pipeline().names());
 
+            healthCheck.getFuture().addListener(this);
             // If the channel closes between when we got it and now, the pipeline is emptied. If the handlers
             // aren't there we fail the healthcheck
-
             try
             {
                 if (c.pipeline().names().contains(Constants.SSL_HANDLER))
@@ -1168,49 +1908,81 @@ public class RiakNode implements RiakResponseListener
                 {
                     c.pipeline().addBefore(Constants.MESSAGE_CODEC, Constants.HEALTHCHECK_CODEC, healthCheck);
                 }
-
                 logger.debug("healthCheck added to pipeline.");
+            }
+            catch (NoSuchElementException e)
+            {
+                finish(new IOException("Channel closed during health check"));
+            }
+        }
 
-                //future.await(5, TimeUnit.SECONDS);
-                future.await();
-                if (future.isSuccess())
+        /**
+         * The health check operation completed.
+         */
+        @Override
+        public void handle(RiakFuture<RiakMessage, Void> future)
+        {
+            finish(future.isSuccess() ? null : future.cause());
+        }
+
+        /**
+         * The health check timed out.
+         */
+        @Override
+        public void run()
+        {
+            finish(new TimeoutException("Healthcheck timed out after " + healthCheckTimeout + "ms"));
+        }
+
+        private void finish(Throwable cause)
+        {
+            finish(cause, true);
+        }
+
+        private void finish(Throwable cause, boolean completed)
+        {
+            if (!finished.compareAndSet(false, true))
+            {
+                return;
+            }
+            ScheduledFuture<?> timeout = timeoutFuture;
+            if (timeout != null)
+            {
+                timeout.cancel(false);
+            }
+
+            Channel c = channel;
+            if (c != null && cause == null && pooled)
+            {
+                returnConnection(c);
+            }
+            else
+            {
+                if (c != null)
                 {
-                    healthCheckSucceeded();
+                    closeConnection(c);
                 }
-                else
+                if (pooled)
                 {
-                    healthCheckFailed(future.cause());
+                    connectionPool.release();
                 }
-
             }
-            catch (InterruptedException ex)
+            healthCheckInProgress.set(false);
+
+            if (!completed)
             {
-                logger.error("Thread interrupted performing healthcheck.");
+                return;
             }
-            catch (NoSuchElementException e)
+            metrics.healthCheckCompleted(RiakNode.this, cause == null);
+            if (cause == null)
             {
-                healthCheckFailed(new IOException("Channel closed during health check"));
+                healthCheckSucceeded();
             }
-            finally
+            else
             {
-                closeConnection(c);
+                healthCheckFailed(cause);
             }
         }
-        catch (ConnectionFailedException | UnknownHostException ex)
-        {
-            healthCheckFailed(ex);
-        }
-        catch (IllegalStateException ex)
-        {
-            // no-op; there's a race condition where the bootstrap is shutting down
-            // right when a healthcheck occurs and netty will throw this
-            logger.debug("Illegal state exception during healthcheck.");
-            logger.debug("Stack: {}", ex);
-        }
-        catch (RuntimeException ex)
-        {
-            logger.error("Runtime exception during healthcheck: {}", ex);
-        }
     }
 
     private void healthCheckFailed(Throwable cause)
@@ -1231,14 +2003,183 @@ public class RiakNode implements RiakResponseListener
 
     private void healthCheckSucceeded()
     {
-        if (state == State.HEALTH_CHECKING)
+        // A node whose circuit breaker is open is restored by the breaker
+        // once its probes succeed.
+        if (state == State.HEALTH_CHECKING &&
+            (circuitBreaker == null || circuitBreaker.getState() != CircuitBreaker.State.OPEN))
         {
+            ejectedByCircuitBreaker = false;
             logger.info("RiakNode recovered; {}:{}", remoteAddress, port);
             state = State.RUNNING;
             notifyStateListeners();
         }
     }
 
+    /**
+     * Called by an operation when it is given to this node.
+     */
+    void attemptStarted()
+    {
+        NodeAttemptListener listener = attemptListener;
+        if (listener != null)
+        {
+            listener.attemptStarted(this);
+        }
+    }
+
+    /**
+     * Called by an operation when this node turned it away after it was
+     * given to it.
+     */
+    void attemptRejected()
+    {
+        NodeAttemptListener listener = attemptListener;
+        if (listener != null)
+        {
+            listener.attemptRejected(this);
+        }
+    }
+
+    /**
+     * Error messages Riak returns when a node is struggling to serve
+     * requests. Any other error means the node answered; it is down to the
+     * request, e.g. a failed precondition or the timeout the caller set.
+     */
+    private static final Set<String> NODE_FAILURE_ERRORS =
+        Collections.unmodifiableSet(new HashSet<String>(Arrays.asList("overload", "all_nodes_down")));
+
+    /**
+     * Called by an operation when an attempt at it on this node ends.
+     * <p>
+     * The attempt listener, if any, is notified. The outcome is recorded by
+     * the circuit breaker, if there is one. An error response from Riak
+     * counts as a failure only if it is one of {@link #NODE_FAILURE_ERRORS};
+     * otherwise the node answered, and only its response time is recorded.
+     * Attempts the client gave up on, e.g. by being cancelled or its
+     * deadline passing, aren't recorded.
+     * </p>
+     * @param elapsedNanos the time since the operation was given to this node.
+     * @param cause the reason the attempt failed, or null if it succeeded.
+     */
+    void attemptFinished(long elapsedNanos, Throwable cause)
+    {
+        NodeAttemptListener listener = attemptListener;
+        if (listener != null)
+        {
+            listener.attemptFinished(this, elapsedNanos, cause);
+        }
+        if (circuitBreaker == null)
+        {
+            return;
+        }
+        if (isClientAbort(cause))
+        {
+            circuitBreaker.release();
+            return;
+        }
+
+        switch (circuitBreaker.record(elapsedNanos, !isNodeFailure(cause)))
+        {
+            case OPENED:
+                logger.error("RiakNode circuit breaker tripped; {}:{} {}", remoteAddress, port,
+                             cause != null ? cause : "slow operations");
+                // Listeners take locks held while operations are executed,
+                // so don't notify them from under an operation's.
+                executeQuietly(new CircuitOpenedTask());
+                break;
+            case CLOSED:
+                logger.info("RiakNode circuit breaker closed; {}:{}", remoteAddress, port);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * @return true if the client stopped waiting for the attempt, which says
+     * nothing about the node.
+     */
+    private static boolean isClientAbort(Throwable cause)
+    {
+        // Only the client raises TimeoutExceptions, when an operation's
+        // deadline passes; Riak's own timeouts are error responses.
+        return cause instanceof NoNodesAvailableException
+            || cause instanceof CancellationException
+            || cause instanceof TimeoutException;
+    }
+
+    private static boolean isNodeFailure(Throwable cause)
+    {
+        if (cause instanceof RiakResponseException)
+        {
+            return NODE_FAILURE_ERRORS.contains(cause.getMessage());
+        }
+        return cause != null;
+    }
+
+    private void executeQuietly(Runnable task)
+    {
+        try
+        {
+            executor.execute(task);
+        }
+        catch (RejectedExecutionException ex)
+        {
+            logger.debug("RiakNode executor shut down; {}:{}", remoteAddress, port);
+        }
+    }
+
+    /**
+     * @return this node's circuit breaker, or null if it doesn't have one.
+     * @see Builder#withCircuitBreaker(CircuitBreakerPolicy)
+     */
+    public CircuitBreaker getCircuitBreaker()
+    {
+        return circuitBreaker;
+    }
+
+    private class CircuitOpenedTask implements Runnable
+    {
+        @Override
+        public void run()
+        {
+            if (state == State.RUNNING)
+            {
+                ejectedByCircuitBreaker = true;
+                state = State.HEALTH_CHECKING;
+                notifyStateListeners();
+            }
+            try
+            {
+                executor.schedule(new HalfOpenTask(), circuitBreaker.getPolicy().getOpenDurationInNanos(),
+                                  TimeUnit.NANOSECONDS);
+            }
+            catch (RejectedExecutionException ex)
+            {
+                logger.debug("RiakNode executor shut down; {}:{}", remoteAddress, port);
+            }
+        }
+    }
+
+    private class HalfOpenTask implements Runnable
+    {
+        @Override
+        public void run()
+        {
+            if (circuitBreaker.halfOpen())
+            {
+                logger.info("RiakNode circuit breaker half open; {}:{}", remoteAddress, port);
+            }
+            // A node that was also failing its health checks is left to them.
+            if (ejectedByCircuitBreaker && state == State.HEALTH_CHECKING)
+            {
+                ejectedByCircuitBreaker = false;
+                state = State.RUNNING;
+                notifyStateListeners();
+            }
+        }
+    }
+
     private class ShutdownTask implements Runnable
     {
         @Override
@@ -1313,6 +2254,24 @@ public class RiakNode implements RiakResponseListener
          * @see HealthCheckDecoder
          */
         public final static HealthCheckFactory DEFAULT_HEALTHCHECK_FACTORY = new PingHealthCheck();
+        /**
+         * The default time, in milliseconds, a health check may take before
+         * it fails: {@value #DEFAULT_HEALTHCHECK_TIMEOUT}
+         * @see #withHealthCheckTimeout(int)
+         */
+        public final static int DEFAULT_HEALTHCHECK_TIMEOUT = 5000;
+        /**
+         * The default number of operations that may be outstanding on a connection: {@value #DEFAULT_PIPELINE_DEPTH}
+         *
+         * @see #withPipelineDepth(int)
+         */
+        public final static int DEFAULT_PIPELINE_DEPTH = 1;
+        /**
+         * The default ConnectionPoolFactory if not specified: {@link DefaultConnectionPool#FACTORY}
+         *
+         * @see #withConnectionPoolFactory(ConnectionPoolFactory)
+         */
+        public final static ConnectionPoolFactory DEFAULT_CONNECTION_POOL_FACTORY = DefaultConnectionPool.FACTORY;
 
         private int port = DEFAULT_REMOTE_PORT;
         private String remoteAddress = DEFAULT_REMOTE_ADDRESS;
@@ -1321,6 +2280,10 @@ public class RiakNode implements RiakResponseListener
         private int idleTimeout = DEFAULT_IDLE_TIMEOUT;
         private int connectionTimeout = DEFAULT_CONNECTION_TIMEOUT;
         private HealthCheckFactory healthCheckFactory = DEFAULT_HEALTHCHECK_FACTORY;
+        private int healthCheckTimeout = DEFAULT_HEALTHCHECK_TIMEOUT;
+        private int pipelineDepth = DEFAULT_PIPELINE_DEPTH;
+        private ConnectionPoolFactory connectionPoolFactory = DEFAULT_CONNECTION_POOL_FACTORY;
+        private boolean flushConsolidation;
         private Bootstrap bootstrap;
         private ScheduledExecutorService executor;
         private boolean blockOnMaxConnections;
@@ -1329,6 +2292,7 @@ public class RiakNode implements RiakResponseListener
         private KeyStore trustStore;
         private KeyStore keyStore;
         private String keyPassword;
+        private CircuitBreakerPolicy circuitBreakerPolicy;
 
 
         /**
@@ -1502,8 +2466,8 @@ public class RiakNode implements RiakResponseListener
          * connections are in use, the default
          * behavior when an operation is submitted to a node is to
          * fail-fast and return. Setting this to true will cause the
-         * call to block (fair-scheduled, FIFO) until a connection becomes
-         * available.
+         * operation to be queued (FIFO) and written as soon as a connection
+         * becomes available. The calling thread is never blocked.
          * </p>
          * @param block whether to block when an operation is submitted and
          * all connections are in use.
@@ -1580,6 +2544,122 @@ public class RiakNode implements RiakResponseListener
             return this;
         }
 
+        /**
+         * Set the time a health check may take before it fails.
+         * <p>
+         * This includes opening a connection for the check, if there is no
+         * idle one in the pool.
+         * </p>
+         * @param healthCheckTimeoutInMillis the timeout in milliseconds.
+         * @return a reference to this object.
+         * @see #DEFAULT_HEALTHCHECK_TIMEOUT
+         */
+        public Builder withHealthCheckTimeout(int healthCheckTimeoutInMillis)
+        {
+            if (healthCheckTimeoutInMillis < 1)
+            {
+                throw new IllegalArgumentException("Health check timeout must be at least 1");
+            }
+            this.healthCheckTimeout = healthCheckTimeoutInMillis;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of operations that may be outstanding on a
+         * single connection.
+         * <p>
+         * By default each connection carries one operation at a time. Setting
+         * this to a value greater than 1 enables pipelining: when no idle connection
+         * is available, operations are written to connections that are already
+         * waiting on Riak before any new connection is opened or, if all
+         * connections are in use, before the operation is rejected or queued.
+         * Riak processes the requests on a connection in order and responses
+         * are matched to operations in the order they were written.
+         * </p>
+         * <p>
+         * Note that an operation pipelined behind a slow or long running one
+         * (e.g. a streaming list keys or 2i query) has to wait for it to
+         * finish.
+         * </p>
+         * @param pipelineDepth the maximum number of operations per connection.
+         * @return a reference to this object.
+         * @see #DEFAULT_PIPELINE_DEPTH
+         */
+        public Builder withPipelineDepth(int pipelineDepth)
+        {
+            if (pipelineDepth < 1)
+            {
+                throw new IllegalArgumentException("Pipeline depth must be at least 1");
+            }
+            this.pipelineDepth = pipelineDepth;
+            return this;
+        }
+
+        /**
+         * Coalesce flushes on this node's connections.
+         * <p>
+         * By default every operation is flushed to the socket as soon as it is
+         * written. With flush consolidation enabled the flush is deferred to the
+         * end of the connection's current event loop tick, so operations written
+         * to the same connection in that tick share one syscall. This is most
+         * useful along with pipelining; it adds a small amount of latency to an
+         * operation that is written on its own.
+         * </p>
+         * @param flushConsolidation true to enable flush consolidation.
+         * @return a reference to this object.
+         * @see RiakNode#getFlushStatistics()
+         */
+        public Builder withFlushConsolidation(boolean flushConsolidation)
+        {
+            this.flushConsolidation = flushConsolidation;
+            return this;
+        }
+
+        /**
+         * Set the ConnectionPoolFactory used to make this RiakNode's connection pool.
+         * <p>
+         * If not set the {@link DefaultConnectionPool} is used. When many
+         * threads share a node, {@link StripedConnectionPool#FACTORY} avoids
+         * contending on a single lock and keeps connections with the threads
+         * that use them.
+         * </p>
+         * @param factory a ConnectionPoolFactory
+         * @return a reference to this object.
+         * @see #DEFAULT_CONNECTION_POOL_FACTORY
+         */
+        public Builder withConnectionPoolFactory(ConnectionPoolFactory factory)
+        {
+            if (factory == null)
+            {
+                throw new IllegalArgumentException("ConnectionPoolFactory cannot be null");
+            }
+            this.connectionPoolFactory = factory;
+            return this;
+        }
+
+        /**
+         * Give the RiakNode a circuit breaker.
+         * <p>
+         * The breaker records the outcome of every operation the node
+         * carries out. When too many of the recent ones fail, or are slow,
+         * the node is taken out of service straight away rather than at its
+         * next health check. Once the policy's open duration has passed it
+         * is put back in service for a few probe operations, and stays in
+         * service if they succeed.
+         * </p>
+         * <p>
+         * By default a node has no circuit breaker.
+         * </p>
+         * @param policy the policy to configure the breaker with.
+         * @return a reference to this object.
+         * @see RiakNode#getCircuitBreaker()
+         */
+        public Builder withCircuitBreaker(CircuitBreakerPolicy policy)
+        {
+            this.circuitBreakerPolicy = policy;
+            return this;
+        }
+
         /**
          * Builds a RiakNode.
          * If a Netty {@code Bootstrap} and/or a {@code ScheduledExecutorService} has not been provided they
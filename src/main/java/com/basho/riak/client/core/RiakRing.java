@@ -0,0 +1,161 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import com.basho.riak.client.core.util.BinaryValue;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * A snapshot of which node holds each partition of a Riak ring.
+ * <p>
+ * Keys are placed the way Riak places them: the SHA-1 hash of the Erlang
+ * external term format of {@code {Bucket, Key}}, where {@code Bucket} is
+ * {@code {Type, Bucket}} for buckets outside the default type, and the
+ * partition is the one whose range of the 160 bit hash space contains it.
+ * </p>
+ *
+ * @since 2.1
+ * @see PartitionAwareNodeManager
+ */
+public final class RiakRing
+{
+    private static final byte VERSION_MAGIC = (byte) 131;
+    private static final byte SMALL_TUPLE_EXT = 104;
+    private static final byte BINARY_EXT = 109;
+    private static final BinaryValue DEFAULT_TYPE =
+        BinaryValue.createFromUtf8(Namespace.DEFAULT_BUCKET_TYPE);
+
+    private static final ThreadLocal<MessageDigest> SHA1 = new ThreadLocal<MessageDigest>()
+    {
+        @Override
+        protected MessageDigest initialValue()
+        {
+            try
+            {
+                return MessageDigest.getInstance("SHA-1");
+            }
+            catch (NoSuchAlgorithmException ex)
+            {
+                throw new IllegalStateException(ex);
+            }
+        }
+    };
+
+    private final RiakNode[] owners;
+    private final int shift;
+
+    /**
+     * @param owners the node holding each partition, in ring order; null
+     * where unknown. The length must be a power of two.
+     */
+    RiakRing(RiakNode[] owners)
+    {
+        if (Integer.bitCount(owners.length) != 1)
+        {
+            throw new IllegalArgumentException("Ring size must be a power of two");
+        }
+        this.owners = owners.clone();
+        this.shift = 64 - Integer.numberOfTrailingZeros(owners.length);
+    }
+
+    /**
+     * @return the number of partitions in the ring.
+     */
+    public int getPartitionCount()
+    {
+        return owners.length;
+    }
+
+    /**
+     * Returns the node holding the partition a key falls in.
+     * @param location the key.
+     * @return the node, or null if the partition's owner isn't known.
+     */
+    public RiakNode getOwner(Location location)
+    {
+        return owners[partition(hash(location))];
+    }
+
+    /**
+     * @return the partition, from 0, that a hash falls in.
+     */
+    int partition(byte[] hash)
+    {
+        if (shift == 64)
+        {
+            return 0;
+        }
+        long high = 0;
+        for (int i = 0; i < 8; i++)
+        {
+            high = (high << 8) | (hash[i] & 0xff);
+        }
+        return (int) (high >>> shift);
+    }
+
+    /**
+     * Hashes a key as Riak does.
+     * @return the 20 byte SHA-1 hash.
+     */
+    static byte[] hash(Location location)
+    {
+        Namespace namespace = location.getNamespace();
+        BinaryValue type = namespace.getBucketType();
+        BinaryValue bucket = namespace.getBucketName();
+        BinaryValue key = location.getKey();
+        boolean typed = !DEFAULT_TYPE.equals(type);
+
+        // term_to_binary({Bucket, Key}) or term_to_binary({{Type, Bucket}, Key})
+        int length = 3 + (typed ? 2 + 5 + type.length() : 0) + 5 + bucket.length() + 5 + key.length();
+        byte[] term = new byte[length];
+        term[0] = VERSION_MAGIC;
+        term[1] = SMALL_TUPLE_EXT;
+        term[2] = 2;
+        int offset = 3;
+        if (typed)
+        {
+            term[offset++] = SMALL_TUPLE_EXT;
+            term[offset++] = 2;
+            offset = putBinary(term, offset, type);
+        }
+        offset = putBinary(term, offset, bucket);
+        putBinary(term, offset, key);
+
+        return SHA1.get().digest(term);
+    }
+
+    private static int putBinary(byte[] term, int offset, BinaryValue value)
+    {
+        int length = value.length();
+        term[offset++] = BINARY_EXT;
+        term[offset++] = (byte) (length >>> 24);
+        term[offset++] = (byte) (length >>> 16);
+        term[offset++] = (byte) (length >>> 8);
+        term[offset++] = (byte) length;
+        System.arraycopy(value.unsafeGetValue(), 0, term, offset, length);
+        return offset + length;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "RiakRing{partitions=" + owners.length + ", owners=" + Arrays.toString(owners) + '}';
+    }
+}
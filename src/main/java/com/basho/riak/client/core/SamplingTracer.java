@@ -0,0 +1,265 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * An {@link OperationTracer} that traces a random sample of operations and
+ * exports each as a {@link Span} once it completes.
+ * <p>
+ * Subclass this to send spans to a tracing system:
+ * </p>
+ * <pre class="prettyprint">
+ * {@code
+ * OperationTracer tracer = new SamplingTracer(0.01)
+ * {
+ *     protected Object captureContext(FutureOperation<?,?,?> operation)
+ *     {
+ *         return MyTracing.currentSpan();
+ *     }
+ *
+ *     protected void export(Span span)
+ *     {
+ *         MyTracing.report(span);
+ *     }
+ * };}</pre>
+ * <p>
+ * Deciding whether to trace an operation is a single random draw, so a
+ * low sample rate can be left on in production.
+ * </p>
+ *
+ * @since 2.1
+ */
+public abstract class SamplingTracer implements OperationTracer
+{
+    private final double sampleRate;
+
+    /**
+     * @param sampleRate the share of operations to trace, from 0 to 1.
+     */
+    protected SamplingTracer(double sampleRate)
+    {
+        if (sampleRate < 0 || sampleRate > 1)
+        {
+            throw new IllegalArgumentException("Sample rate must be from 0 to 1");
+        }
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public final OperationTrace startTrace(FutureOperation<?, ?, ?> operation)
+    {
+        if (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate)
+        {
+            return null;
+        }
+        return new Span(this, operation.getClass(), captureContext(operation));
+    }
+
+    /**
+     * Captures the context of the caller executing an operation.
+     * <p>
+     * Called on the thread executing the operation, for sampled operations
+     * only. By default there is no context.
+     * </p>
+     * @param operation the operation.
+     * @return the context, kept in the operation's span.
+     */
+    protected Object captureContext(FutureOperation<?, ?, ?> operation)
+    {
+        return null;
+    }
+
+    /**
+     * Exports the span of an operation that has completed.
+     * <p>
+     * Called from the thread that completed the operation, often one of
+     * Netty's event loops; must not block.
+     * </p>
+     * @param span the span.
+     */
+    protected abstract void export(Span span);
+
+    /**
+     * The events of one traced operation.
+     * <p>
+     * A span is exported when its operation completes, so converting the
+     * result, which happens on first getting it, isn't included.
+     * </p>
+     */
+    public static final class Span implements OperationTrace
+    {
+        private final SamplingTracer tracer;
+        private final Class<?> operationType;
+        private final Object context;
+        // Guarded by this; events may be reported from different threads.
+        private TraceEvent[] events = new TraceEvent[8];
+        private long[] times = new long[8];
+        private RiakNode[] nodes = new RiakNode[8];
+        private int eventCount;
+        private long endTime;
+        private Throwable cause;
+        private boolean exported;
+
+        Span(SamplingTracer tracer, Class<?> operationType, Object context)
+        {
+            this.tracer = tracer;
+            this.operationType = operationType;
+            this.context = context;
+        }
+
+        @Override
+        public synchronized void event(TraceEvent event, long timeInNanos, RiakNode node)
+        {
+            if (exported)
+            {
+                return;
+            }
+            if (eventCount == events.length)
+            {
+                events = Arrays.copyOf(events, eventCount * 2);
+                times = Arrays.copyOf(times, eventCount * 2);
+                nodes = Arrays.copyOf(nodes, eventCount * 2);
+            }
+            events[eventCount] = event;
+            times[eventCount] = timeInNanos;
+            nodes[eventCount] = node;
+            eventCount++;
+        }
+
+        @Override
+        public void completed(long timeInNanos, Throwable cause)
+        {
+            synchronized (this)
+            {
+                if (exported)
+                {
+                    return;
+                }
+                this.endTime = timeInNanos;
+                this.cause = cause;
+                this.exported = true;
+            }
+            tracer.export(this);
+        }
+
+        /**
+         * @return the class of the operation.
+         */
+        public Class<?> getOperationType()
+        {
+            return operationType;
+        }
+
+        /**
+         * @return the caller's context.
+         * @see SamplingTracer#captureContext(FutureOperation)
+         */
+        public Object getContext()
+        {
+            return context;
+        }
+
+        /**
+         * @return the number of events.
+         */
+        public synchronized int getEventCount()
+        {
+            return eventCount;
+        }
+
+        /**
+         * @param index the index of the event.
+         * @return the event.
+         */
+        public synchronized TraceEvent getEvent(int index)
+        {
+            checkIndex(index);
+            return events[index];
+        }
+
+        /**
+         * @param index the index of the event.
+         * @return when the event happened, from {@link System#nanoTime()}.
+         */
+        public synchronized long getTime(int index)
+        {
+            checkIndex(index);
+            return times[index];
+        }
+
+        /**
+         * @param index the index of the event.
+         * @return the node the operation was last given to at the event, or null.
+         */
+        public synchronized RiakNode getNode(int index)
+        {
+            checkIndex(index);
+            return nodes[index];
+        }
+
+        /**
+         * @return when the span started, from {@link System#nanoTime()}.
+         */
+        public synchronized long getStartTime()
+        {
+            return eventCount == 0 ? endTime : times[0];
+        }
+
+        /**
+         * @return when the operation completed, from {@link System#nanoTime()}.
+         */
+        public synchronized long getEndTime()
+        {
+            return endTime;
+        }
+
+        /**
+         * @return the reason the operation failed, or null if it succeeded.
+         */
+        public synchronized Throwable getCause()
+        {
+            return cause;
+        }
+
+        private void checkIndex(int index)
+        {
+            if (index < 0 || index >= eventCount)
+            {
+                throw new IndexOutOfBoundsException("No event " + index + " of " + eventCount);
+            }
+        }
+
+        @Override
+        public synchronized String toString()
+        {
+            StringBuilder sb = new StringBuilder(operationType.getSimpleName());
+            long start = getStartTime();
+            for (int i = 0; i < eventCount; i++)
+            {
+                sb.append(' ').append(events[i]).append("@+").append((times[i] - start) / 1000).append("us");
+                if (nodes[i] != null)
+                {
+                    sb.append('(').append(nodes[i].getRemoteAddress()).append(')');
+                }
+            }
+            sb.append(cause == null ? " COMPLETE" : " FAILED").append("@+").append((endTime - start) / 1000).append("us");
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+import io.netty.channel.Channel;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An operation whose results Riak sends in chunks, which can be handed to
+ * the caller as they arrive rather than all at once.
+ * <p>
+ * When streaming, each chunk is queued as it is decoded and converted, on
+ * the caller's thread, as it is taken from {@link #getStreamingResults()}.
+ * Nothing is kept for the operation's own result, which is empty. If more
+ * than {@link #setMaxBufferedChunks(int) the maximum} number of chunks are
+ * waiting to be taken, reading from the connection is paused until the
+ * caller has taken half of them. Anything pipelined behind the operation
+ * on the same connection waits too.
+ * </p>
+ * <p>
+ * Once a chunk has been received a failed operation is not retried, as
+ * the caller may already have seen part of the results.
+ * </p>
+ *
+ * @param <T> The type the operation returns, and of each streamed chunk
+ * @param <U> The protocol type returned
+ * @param <S> Query info type
+ * @since 2.1
+ */
+public abstract class StreamingFutureOperation<T, U, S> extends FutureOperation<T, U, S>
+{
+    /**
+     * The default maximum number of chunks waiting to be taken before reads
+     * are paused.
+     * @see #setMaxBufferedChunks(int)
+     */
+    public final static int DEFAULT_MAX_BUFFERED_CHUNKS = 32;
+
+    // Queued once the operation is done; taken last.
+    private static final Object END = new Object();
+
+    private final boolean streamResults;
+    private final BlockingQueue<Object> chunks;
+    private final StreamingResults<T> results;
+    private volatile int maxBufferedChunks = DEFAULT_MAX_BUFFERED_CHUNKS;
+    private volatile Channel channel;
+    private volatile boolean chunkReceived;
+    // Only changed on the channel's event loop.
+    private volatile boolean paused;
+    private final AtomicBoolean resumeScheduled = new AtomicBoolean();
+    private final Runnable resumeTask = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            resumeScheduled.set(false);
+            resumeIfDrained();
+        }
+    };
+
+    /**
+     * @param streamResults true to hand results to the caller as they arrive.
+     */
+    protected StreamingFutureOperation(boolean streamResults)
+    {
+        this.streamResults = streamResults;
+        if (streamResults)
+        {
+            chunks = new LinkedBlockingQueue<Object>();
+            StreamingResults.Source<Object> source = new StreamingResults.Source<Object>()
+            {
+                @Override
+                public Object take() throws InterruptedException
+                {
+                    return takeChunk();
+                }
+
+                @Override
+                public void cancel()
+                {
+                    stopStreaming();
+                }
+
+                @Override
+                public Throwable cause()
+                {
+                    return StreamingFutureOperation.this.cause();
+                }
+            };
+            results = new StreamingResults<T>(source, this, new StreamingResults.Converter<Object, T>()
+            {
+                @Override
+                public T convert(Object chunk)
+                {
+                    return convertChunk(chunk);
+                }
+            });
+            addListener(new RiakFutureListener<T, S>()
+            {
+                @Override
+                public void handle(RiakFuture<T, S> f)
+                {
+                    chunks.offer(END);
+                }
+            });
+        }
+        else
+        {
+            chunks = null;
+            results = null;
+        }
+    }
+
+    /**
+     * @return true if this operation hands its results to the caller as they arrive.
+     */
+    public final boolean isStreaming()
+    {
+        return streamResults;
+    }
+
+    /**
+     * Returns the results of this operation, as they arrive.
+     * @return the results.
+     * @throws IllegalStateException if this operation isn't streaming.
+     */
+    public final StreamingResults<T> getStreamingResults()
+    {
+        if (!streamResults)
+        {
+            throw new IllegalStateException("Operation is not streaming its results");
+        }
+        return results;
+    }
+
+    /**
+     * Sets the maximum number of chunks that can wait to be taken before
+     * reading from the connection is paused.
+     * @param maxBufferedChunks the maximum, at least 2.
+     * @see #DEFAULT_MAX_BUFFERED_CHUNKS
+     */
+    public final void setMaxBufferedChunks(int maxBufferedChunks)
+    {
+        if (maxBufferedChunks < 2)
+        {
+            throw new IllegalArgumentException("Max buffered chunks must be at least 2");
+        }
+        this.maxBufferedChunks = maxBufferedChunks;
+    }
+
+    @Override
+    final void processResponse(U response)
+    {
+        if (!streamResults)
+        {
+            super.processResponse(response);
+            return;
+        }
+
+        // On the channel's event loop.
+        chunkReceived = true;
+        chunks.offer(response);
+        if (done(response))
+        {
+            // The connection is about to be returned to the pool.
+            if (paused)
+            {
+                paused = false;
+                channel.config().setAutoRead(true);
+            }
+        }
+        else if (!paused && channel != null && chunks.size() >= maxBufferedChunks)
+        {
+            paused = true;
+            channel.config().setAutoRead(false);
+            // The caller may have drained the queue before seeing we paused.
+            resumeIfDrained();
+        }
+    }
+
+    private void resumeIfDrained()
+    {
+        if (paused && chunks.size() <= maxBufferedChunks / 2)
+        {
+            paused = false;
+            channel.config().setAutoRead(true);
+        }
+    }
+
+    @Override
+    final boolean canRetry()
+    {
+        return !streamResults || !chunkReceived;
+    }
+
+    @Override
+    final void setChannel(Channel channel)
+    {
+        if (streamResults)
+        {
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * Takes the next chunk, waiting for one if need be.
+     * @return the chunk, or null once the operation is done and all its
+     * chunks have been taken.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    final Object takeChunk() throws InterruptedException
+    {
+        Object chunk = chunks.take();
+        if (chunk == END)
+        {
+            // Leave it for anyone else taking from the same queue.
+            chunks.offer(END);
+            return null;
+        }
+
+        if (paused && chunks.size() <= maxBufferedChunks / 2 && resumeScheduled.compareAndSet(false, true))
+        {
+            try
+            {
+                channel.eventLoop().execute(resumeTask);
+            }
+            catch (RejectedExecutionException ex)
+            {
+                // Shutting down; nothing left to read.
+                resumeScheduled.set(false);
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Stops streaming, discarding any chunks not yet taken.
+     */
+    final void stopStreaming()
+    {
+        cancel(false);
+        chunks.clear();
+        chunks.offer(END);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T convertChunk(Object chunk)
+    {
+        return convert(Collections.singletonList((U) chunk));
+    }
+}
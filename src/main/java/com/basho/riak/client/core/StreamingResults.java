@@ -0,0 +1,246 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+
+/**
+ * The results of a streaming operation, as they arrive.
+ * <p>
+ * Each result is one chunk of the response from Riak. {@link #hasNext()}
+ * blocks until the next chunk arrives or the operation completes. If the
+ * operation failed, it throws a {@link StreamingFailedException} once the
+ * chunks received before the failure have been taken.
+ * </p>
+ * <pre class="prettyprint">
+ * {@code
+ * StreamingResults<ListKeys.Response> results = client.executeStreaming(listKeys);
+ * for (ListKeys.Response chunk : results)
+ * {
+ *     for (Location location : chunk)
+ *     {
+ *         ...
+ *     }
+ * }}</pre>
+ * <p>
+ * The results can be iterated once, by one thread. A caller that stops
+ * early should call {@link #cancel()}; until then, Riak's response is
+ * held in the connection.
+ * </p>
+ *
+ * @param <E> the type of each result
+ * @since 2.1
+ * @see StreamingFutureOperation
+ * @see Source
+ */
+public final class StreamingResults<E> implements Iterator<E>, Iterable<E>
+{
+    /**
+     * Converts each result.
+     * @param <F> the type converted from
+     * @param <E> the type converted to
+     * @see StreamingResults#map(Converter)
+     */
+    public interface Converter<F, E>
+    {
+        E convert(F from);
+    }
+
+    /**
+     * Where results come from.
+     * <p>
+     * Streaming operations are sources of their own results. Commands that
+     * merge the results of several operations implement this to hand them
+     * to one caller.
+     * </p>
+     * @param <E> the type of each result
+     */
+    public interface Source<E>
+    {
+        /**
+         * Takes the next result, waiting for one if need be.
+         * @return the result, or null once there are no more. Once null has
+         * been returned it is returned to every later call.
+         * @throws InterruptedException if interrupted while waiting.
+         */
+        E take() throws InterruptedException;
+
+        /**
+         * Stops producing results and discards any not yet taken.
+         */
+        void cancel();
+
+        /**
+         * @return the reason producing results failed, or null if it
+         * succeeded or hasn't finished.
+         */
+        Throwable cause();
+    }
+
+    private final Source<?> source;
+    private final RiakFuture<?, ?> future;
+    private final Converter<Object, ? extends E> converter;
+    private Object next;
+    private boolean ended;
+
+    /**
+     * Creates results taken from a source.
+     * @param source the source.
+     * @param future the future for whatever produces the results,
+     * completing once they have all been produced.
+     */
+    public StreamingResults(Source<? extends E> source, RiakFuture<?, ?> future)
+    {
+        this(source, future, StreamingResults.<E>identity());
+    }
+
+    StreamingResults(Source<?> source, RiakFuture<?, ?> future, Converter<Object, ? extends E> converter)
+    {
+        this.source = source;
+        this.future = future;
+        this.converter = converter;
+    }
+
+    private static <E> Converter<Object, E> identity()
+    {
+        return new Converter<Object, E>()
+        {
+            @SuppressWarnings("unchecked")
+            @Override
+            public E convert(Object from)
+            {
+                return (E) from;
+            }
+        };
+    }
+
+    /**
+     * Returns these results, converted as they are taken.
+     * <p>
+     * The returned results take from the same stream as these, which
+     * shouldn't be used afterwards.
+     * </p>
+     * @param converter converts each result.
+     * @param <V> the type of the converted results
+     * @return the converted results.
+     */
+    public <V> StreamingResults<V> map(final Converter<? super E, ? extends V> converter)
+    {
+        final Converter<Object, ? extends E> first = this.converter;
+        return new StreamingResults<V>(source, future, new Converter<Object, V>()
+        {
+            @Override
+            public V convert(Object chunk)
+            {
+                return converter.convert(first.convert(chunk));
+            }
+        });
+    }
+
+    /**
+     * Waits for the next result.
+     * @return true if there is another result, false once the operation
+     * has completed and all its results have been taken.
+     * @throws StreamingFailedException if the operation failed, or the
+     * thread was interrupted while waiting.
+     * @throws CancellationException if the operation was cancelled.
+     */
+    @Override
+    public boolean hasNext()
+    {
+        if (next != null)
+        {
+            return true;
+        }
+        else if (ended)
+        {
+            return false;
+        }
+
+        try
+        {
+            next = source.take();
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            throw new StreamingFailedException("Interrupted waiting for results", ex);
+        }
+
+        if (next == null)
+        {
+            ended = true;
+            Throwable cause = source.cause();
+            if (cause instanceof CancellationException)
+            {
+                throw (CancellationException) cause;
+            }
+            else if (cause != null)
+            {
+                throw new StreamingFailedException("Streaming operation failed", cause);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public E next()
+    {
+        if (!hasNext())
+        {
+            throw new NoSuchElementException();
+        }
+        Object chunk = next;
+        next = null;
+        return converter.convert(chunk);
+    }
+
+    @Override
+    public void remove()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @return these results, which can only be iterated once.
+     */
+    @Override
+    public Iterator<E> iterator()
+    {
+        return this;
+    }
+
+    /**
+     * Stops the operation and discards any results not yet taken.
+     */
+    public void cancel()
+    {
+        next = null;
+        source.cancel();
+    }
+
+    /**
+     * @return the future for the operation, which completes when the last
+     * chunk arrives rather than when it has been taken.
+     */
+    public RiakFuture<?, ?> getFuture()
+    {
+        return future;
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A lock-free connection pool with per-thread affinity.
+ * <p>
+ * Idle connections are spread over a number of stripes, each a lock-free
+ * LIFO deque. Every thread has a home stripe: connections are returned to
+ * the returning thread's stripe, and a thread checking out a connection
+ * looks in its own stripe first before stealing from the others. Responses
+ * are handled on a connection's event loop, so connections tend to stay
+ * with the event loop (or application thread) that last used them.
+ * Checked out connections are counted with a CAS loop rather than a
+ * semaphore.
+ * </p>
+ * <p>
+ * This pool suits nodes used by many threads at once; at low concurrency it
+ * behaves like {@link DefaultConnectionPool}.
+ * </p>
+ *
+ * @since 2.1
+ */
+public class StripedConnectionPool implements ConnectionPool
+{
+    /**
+     * Makes StripedConnectionPools with one stripe per available processor.
+     */
+    public static final ConnectionPoolFactory FACTORY = new Factory(Runtime.getRuntime().availableProcessors());
+
+    private static final AtomicInteger nextThreadIndex = new AtomicInteger();
+    private static final ThreadLocal<Integer> threadIndex = new ThreadLocal<Integer>()
+    {
+        @Override
+        protected Integer initialValue()
+        {
+            return nextThreadIndex.getAndIncrement() & Integer.MAX_VALUE;
+        }
+    };
+
+    private final ConcurrentLinkedDeque<ChannelWithIdleTime>[] stripes;
+    private final AtomicInteger checkedOut = new AtomicInteger();
+    private final AtomicInteger idle = new AtomicInteger();
+    private volatile int maxConnections;
+
+    @SuppressWarnings("unchecked")
+    public StripedConnectionPool(int maxConnections, int numStripes)
+    {
+        if (numStripes < 1)
+        {
+            throw new IllegalArgumentException("Number of stripes must be at least 1");
+        }
+        this.maxConnections = maxConnections < 1 ? Integer.MAX_VALUE : maxConnections;
+        stripes = new ConcurrentLinkedDeque[numStripes];
+        for (int i = 0; i < numStripes; i++)
+        {
+            stripes[i] = new ConcurrentLinkedDeque<ChannelWithIdleTime>();
+        }
+    }
+
+    private int homeStripe()
+    {
+        return threadIndex.get() % stripes.length;
+    }
+
+    @Override
+    public boolean tryAcquire()
+    {
+        for (;;)
+        {
+            int current = checkedOut.get();
+            if (current >= maxConnections)
+            {
+                return false;
+            }
+            if (checkedOut.compareAndSet(current, current + 1))
+            {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public void release()
+    {
+        checkedOut.decrementAndGet();
+    }
+
+    @Override
+    public int availablePermits()
+    {
+        return Math.max(0, maxConnections - checkedOut.get());
+    }
+
+    @Override
+    public int getMaxConnections()
+    {
+        return maxConnections;
+    }
+
+    @Override
+    public void setMaxConnections(int maxConnections)
+    {
+        // Connections checked out beyond a lowered maximum are simply not
+        // replaced once returned.
+        this.maxConnections = maxConnections;
+    }
+
+    @Override
+    public Channel pollIdle()
+    {
+        int home = homeStripe();
+        for (int i = 0; i < stripes.length; i++)
+        {
+            ConcurrentLinkedDeque<ChannelWithIdleTime> stripe = stripes[(home + i) % stripes.length];
+            ChannelWithIdleTime cwi;
+            while ((cwi = stripe.pollFirst()) != null)
+            {
+                idle.decrementAndGet();
+                Channel channel = cwi.getChannel();
+                if (channel.isOpen())
+                {
+                    return channel;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Channel pollIdle(EventLoop eventLoop)
+    {
+        // An event loop's own connections are returned on it, so they are
+        // normally found at the head of its home stripe.
+        int home = homeStripe();
+        for (int i = 0; i < stripes.length; i++)
+        {
+            ConcurrentLinkedDeque<ChannelWithIdleTime> stripe = stripes[(home + i) % stripes.length];
+            for (ChannelWithIdleTime cwi : stripe)
+            {
+                Channel channel = cwi.getChannel();
+                if (channel.eventLoop() == eventLoop && channel.isOpen() && stripe.removeFirstOccurrence(cwi))
+                {
+                    idle.decrementAndGet();
+                    return channel;
+                }
+            }
+        }
+        return pollIdle();
+    }
+
+    @Override
+    public void offerIdle(Channel channel)
+    {
+        stripes[homeStripe()].offerFirst(new ChannelWithIdleTime(channel));
+        idle.incrementAndGet();
+    }
+
+    @Override
+    public boolean hasIdle()
+    {
+        return idle.get() > 0;
+    }
+
+    @Override
+    public int idleCount()
+    {
+        return Math.max(0, idle.get());
+    }
+
+    @Override
+    public List<Channel> removeIdle(long idleTimeoutInNanos, int maxToRemove)
+    {
+        List<Channel> removed = new LinkedList<Channel>();
+        long now = System.nanoTime();
+        for (ConcurrentLinkedDeque<ChannelWithIdleTime> stripe : stripes)
+        {
+            // Each stripe is a LIFO, so the least recently used connections
+            // are at the tail; stop at the first one that hasn't expired.
+            ChannelWithIdleTime cwi;
+            while (removed.size() < maxToRemove
+                    && (cwi = stripe.peekLast()) != null
+                    && cwi.getIdleStart() + idleTimeoutInNanos < now)
+            {
+                if (stripe.removeLastOccurrence(cwi))
+                {
+                    idle.decrementAndGet();
+                    removed.add(cwi.getChannel());
+                }
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public List<Channel> removeAllIdle()
+    {
+        List<Channel> removed = new LinkedList<Channel>();
+        for (ConcurrentLinkedDeque<ChannelWithIdleTime> stripe : stripes)
+        {
+            ChannelWithIdleTime cwi;
+            while ((cwi = stripe.pollFirst()) != null)
+            {
+                idle.decrementAndGet();
+                removed.add(cwi.getChannel());
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Makes StripedConnectionPools with a given number of stripes.
+     */
+    public static class Factory implements ConnectionPoolFactory
+    {
+        private final int numStripes;
+
+        public Factory(int numStripes)
+        {
+            this.numStripes = numStripes;
+        }
+
+        @Override
+        public ConnectionPool makePool(int maxConnections)
+        {
+            return new StripedConnectionPool(maxConnections, numStripes);
+        }
+    }
+}
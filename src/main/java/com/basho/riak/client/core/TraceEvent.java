@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+/**
+ * The points in an operation's life reported to its {@link OperationTrace}.
+ *
+ * @since 2.1
+ */
+public enum TraceEvent
+{
+    /**
+     * The cluster was asked to execute the operation.
+     */
+    EXECUTED,
+    /**
+     * No node could take the operation; it was added to the cluster's
+     * operation queue.
+     */
+    QUEUED,
+    /**
+     * The operation was taken off the cluster's operation queue.
+     */
+    DEQUEUED,
+    /**
+     * The operation was given to a node. Reported for each attempt.
+     */
+    NODE_SELECTED,
+    /**
+     * All the node's connections were in use; the operation is waiting for one.
+     */
+    PENDING,
+    /**
+     * The node is opening a new connection for the operation, including
+     * negotiating TLS and authenticating if security is enabled.
+     */
+    CONNECTING,
+    /**
+     * The new connection is ready.
+     */
+    CONNECTED,
+    /**
+     * The operation is being written to a connection.
+     */
+    WRITTEN,
+    /**
+     * The last response to the operation was received and decoded.
+     */
+    RESPONSE_RECEIVED,
+    /**
+     * An attempt failed and the operation will be retried.
+     */
+    RETRY,
+    /**
+     * Converting the responses to the operation's result started. This
+     * happens on the first call to get the result, after the operation
+     * has completed.
+     */
+    CONVERTING,
+    /**
+     * Converting the responses finished.
+     */
+    CONVERTED
+}
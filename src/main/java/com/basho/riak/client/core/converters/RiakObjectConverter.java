@@ -16,6 +16,8 @@
 package com.basho.riak.client.core.converters;
 
 import com.basho.riak.client.api.cap.BasicVClock;
+import com.basho.riak.client.api.cap.VClock;
+import com.basho.riak.client.core.query.EncodedContent;
 import com.basho.riak.client.core.query.RiakObject;
 import com.basho.riak.client.core.query.UserMetadata.RiakUserMetadata;
 import com.basho.riak.client.core.query.indexes.IndexType;
@@ -29,7 +31,7 @@ import com.basho.riak.protobuf.RiakKvPB;
 import com.basho.riak.protobuf.RiakKvPB.RpbContent;
 import com.basho.riak.protobuf.RiakPB;
 import com.google.protobuf.ByteString;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import org.slf4j.Logger;
@@ -48,94 +50,21 @@ public class RiakObjectConverter
     
     private RiakObjectConverter() {}
     
+    /**
+     * Converts the content Riak returned to RiakObjects.
+     * <p>
+     * Only the scalar metadata is decoded here; each object's value, links,
+     * indexes and user metadata are decoded from its content on first use.
+     * </p>
+     */
     public static List<RiakObject> convert(List<RpbContent> contentList, ByteString contentVClock)
     {
-        List<RiakObject> roList = new LinkedList<RiakObject>();
+        List<RiakObject> roList = new ArrayList<RiakObject>(contentList.size());
         BasicVClock vclock = new BasicVClock(contentVClock.toByteArray());
         
         for (RpbContent content : contentList)
         {
-            RiakObject ro = new RiakObject();
-            
-            ro.setVClock(vclock);
-            
-            if (content.hasDeleted())
-            {
-                ro.setDeleted(content.getDeleted());
-            }
-            
-            if (content.hasContentType())
-            {
-                ro.setContentType(content.getContentType().toStringUtf8());
-            }
-            
-            if (content.hasCharset())
-            {
-                ro.setCharset(content.getCharset().toStringUtf8());
-            }
-            
-            if (content.hasLastMod())
-            {
-                int lastMod = content.getLastMod();
-                int lastModUsec = content.getLastModUsecs();
-                ro.setLastModified((lastMod * 1000L) + (lastModUsec / 1000L));
-            }
-            
-            if (content.hasValue() && !content.getValue().isEmpty())
-            {
-                ro.setValue(BinaryValue.unsafeCreate(content.getValue().toByteArray()));
-            }
-            
-            if (content.hasVtag())
-            {
-                ro.setVTag(content.getVtag().toStringUtf8());
-            }
-            
-            if (content.getLinksCount() > 0)
-            {
-                List<RiakKvPB.RpbLink> pbLinkList = content.getLinksList();
-                RiakLinks riakLinks = ro.getLinks();
-                
-                for (RiakKvPB.RpbLink pbLink : pbLinkList)
-                {
-                    RiakLink link = new RiakLink(pbLink.getBucket().toStringUtf8(),
-                        pbLink.getKey().toStringUtf8(),
-                        pbLink.getTag().toStringUtf8());
-                    riakLinks.addLink(link);
-                }
-            }
-            
-            if (content.getIndexesCount() > 0)
-            {
-                RiakIndexes indexes = ro.getIndexes();
-                for (RiakPB.RpbPair p : content.getIndexesList())
-                {
-                    String name = p.getKey().toStringUtf8();
-                    try
-                    {
-                        IndexType type = IndexType.typeFromFullname(name);
-                        indexes.getIndex(RawIndex.named(name, type))
-                            .add(BinaryValue.unsafeCreate(p.getValue().toByteArray()));
-                    }
-                    catch (IllegalArgumentException e)
-                    {
-                        logger.error("Unknown index type during conversion: {};{}", name, e);
-                    }
-                }
-            }
-            
-            if (content.getUsermetaCount() > 0)
-            {
-                RiakUserMetadata userMeta = ro.getUserMeta();
-                for (int j = 0; j < content.getUsermetaCount(); j++)
-                {
-                    RiakPB.RpbPair pair = content.getUsermeta(j);
-                    userMeta.put(BinaryValue.unsafeCreate(pair.getKey().toByteArray()),
-                        BinaryValue.unsafeCreate(pair.getValue().toByteArray()));
-                }
-            }
-             
-            roList.add(ro);
+            roList.add(new PbContent(content).toRiakObject(vclock));
         }
         
         return roList;
@@ -197,4 +126,125 @@ public class RiakObjectConverter
         
         return builder.build();
     }
+    
+    /**
+     * A sibling's RpbContent, decoded by the RiakObject made from it on
+     * first use.
+     */
+    private static final class PbContent extends EncodedContent
+    {
+        private final RpbContent content;
+        
+        PbContent(RpbContent content)
+        {
+            this.content = content;
+        }
+        
+        /**
+         * Creates a RiakObject with the content's scalar metadata.
+         */
+        RiakObject toRiakObject(VClock vclock)
+        {
+            RiakObject ro = newRiakObject(vclock);
+            
+            if (content.hasDeleted())
+            {
+                ro.setDeleted(content.getDeleted());
+            }
+            
+            if (content.hasContentType())
+            {
+                ro.setContentType(content.getContentType().toStringUtf8());
+            }
+            
+            if (content.hasCharset())
+            {
+                ro.setCharset(content.getCharset().toStringUtf8());
+            }
+            
+            if (content.hasLastMod())
+            {
+                int lastMod = content.getLastMod();
+                int lastModUsec = content.getLastModUsecs();
+                ro.setLastModified((lastMod * 1000L) + (lastModUsec / 1000L));
+            }
+            
+            if (content.hasVtag())
+            {
+                ro.setVTag(content.getVtag().toStringUtf8());
+            }
+            
+            return ro;
+        }
+        
+        @Override
+        protected BinaryValue decodeValue()
+        {
+            if (content.hasValue() && !content.getValue().isEmpty())
+            {
+                return BinaryValue.unsafeCreate(content.getValue().toByteArray());
+            }
+            return null;
+        }
+        
+        @Override
+        protected int indexCount()
+        {
+            return content.getIndexesCount();
+        }
+        
+        @Override
+        protected int linkCount()
+        {
+            return content.getLinksCount();
+        }
+        
+        @Override
+        protected int userMetaCount()
+        {
+            return content.getUsermetaCount();
+        }
+        
+        @Override
+        protected void decodeLinks(RiakLinks riakLinks)
+        {
+            for (RiakKvPB.RpbLink pbLink : content.getLinksList())
+            {
+                RiakLink link = new RiakLink(pbLink.getBucket().toStringUtf8(),
+                    pbLink.getKey().toStringUtf8(),
+                    pbLink.getTag().toStringUtf8());
+                riakLinks.addLink(link);
+            }
+        }
+        
+        @Override
+        protected void decodeIndexes(RiakIndexes indexes)
+        {
+            for (RiakPB.RpbPair p : content.getIndexesList())
+            {
+                String name = p.getKey().toStringUtf8();
+                try
+                {
+                    IndexType type = IndexType.typeFromFullname(name);
+                    indexes.getIndex(RawIndex.named(name, type))
+                        .add(BinaryValue.unsafeCreate(p.getValue().toByteArray()));
+                }
+                catch (IllegalArgumentException e)
+                {
+                    logger.error("Unknown index type during conversion: {};{}", name, e);
+                }
+            }
+        }
+        
+        @Override
+        protected void decodeUserMeta(RiakUserMetadata userMeta)
+        {
+            for (int j = 0; j < content.getUsermetaCount(); j++)
+            {
+                RiakPB.RpbPair pair = content.getUsermeta(j);
+                userMeta.put(BinaryValue.unsafeCreate(pair.getKey().toByteArray()),
+                    BinaryValue.unsafeCreate(pair.getValue().toByteArray()));
+            }
+        }
+    }
 }
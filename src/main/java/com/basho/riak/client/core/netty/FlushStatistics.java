@@ -0,0 +1,64 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core.netty;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the frames written and the flushes issued on a node's connections.
+ *
+ * @since 2.1
+ */
+public final class FlushStatistics
+{
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong frames = new AtomicLong();
+
+    /**
+     * Records a flush.
+     * @param numFrames the number of frames written since the previous flush.
+     */
+    public void recordFlush(int numFrames)
+    {
+        flushes.incrementAndGet();
+        frames.addAndGet(numFrames);
+    }
+
+    /**
+     * @return the number of flushes issued.
+     */
+    public long getFlushCount()
+    {
+        return flushes.get();
+    }
+
+    /**
+     * @return the number of frames written.
+     */
+    public long getFrameCount()
+    {
+        return frames.get();
+    }
+
+    /**
+     * @return the average number of frames written per flush, or 0 if nothing has been flushed.
+     */
+    public double getAverageFramesPerFlush()
+    {
+        long numFlushes = flushes.get();
+        return numFlushes == 0 ? 0 : (double) frames.get() / numFlushes;
+    }
+}
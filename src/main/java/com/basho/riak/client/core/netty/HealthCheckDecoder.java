@@ -28,6 +28,7 @@ import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
@@ -145,6 +146,8 @@ public abstract class HealthCheckDecoder extends ByteToMessageDecoder
     {
 
         private final CountDownLatch latch = new CountDownLatch(1);
+        private final List<RiakFutureListener<RiakMessage, Void>> listeners =
+            new ArrayList<RiakFutureListener<RiakMessage, Void>>(1);
         private volatile Throwable exception;
         private volatile RiakMessage message;
         
@@ -199,16 +202,50 @@ public abstract class HealthCheckDecoder extends ByteToMessageDecoder
             }
         }
         
+        /**
+         * Fails the health check, unless it has already completed.
+         * @param e the cause.
+         */
         public void setException(Throwable e)
         {
-            exception = e;
-            latch.countDown();
+            synchronized (this)
+            {
+                if (isDone())
+                {
+                    return;
+                }
+                exception = e;
+                latch.countDown();
+            }
+            fireListeners();
         }
         
         public void setMessage(RiakMessage m)
         {
-            message = m;
-            latch.countDown();
+            synchronized (this)
+            {
+                if (isDone())
+                {
+                    return;
+                }
+                message = m;
+                latch.countDown();
+            }
+            fireListeners();
+        }
+
+        private void fireListeners()
+        {
+            List<RiakFutureListener<RiakMessage, Void>> toFire;
+            synchronized (this)
+            {
+                toFire = new ArrayList<RiakFutureListener<RiakMessage, Void>>(listeners);
+                listeners.clear();
+            }
+            for (RiakFutureListener<RiakMessage, Void> listener : toFire)
+            {
+                listener.handle(this);
+            }
         }
 
         @Override
@@ -250,13 +287,21 @@ public abstract class HealthCheckDecoder extends ByteToMessageDecoder
         @Override
         public void addListener(RiakFutureListener<RiakMessage, Void> listener)
         {
-            throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+            synchronized (this)
+            {
+                if (!isDone())
+                {
+                    listeners.add(listener);
+                    return;
+                }
+            }
+            listener.handle(this);
         }
 
         @Override
-        public void removeListener(RiakFutureListener<RiakMessage, Void> listener)
+        public synchronized void removeListener(RiakFutureListener<RiakMessage, Void> listener)
         {
-            throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+            listeners.remove(listener);
         }
         
     }
@@ -15,6 +15,8 @@
  */
 package com.basho.riak.client.core.netty;
 
+import com.basho.riak.client.core.RiakMetrics;
+import com.basho.riak.client.core.RiakNode;
 import com.basho.riak.client.core.RiakResponseListener;
 import com.basho.riak.client.core.util.Constants;
 import io.netty.channel.ChannelInitializer;
@@ -29,17 +31,55 @@ import io.netty.channel.socket.SocketChannel;
 public class RiakChannelInitializer extends ChannelInitializer<SocketChannel>
 {
     private final RiakResponseListener listener;
+    private final FlushStatistics flushStatistics;
+    private final RiakNode node;
+    private final RiakMetrics metrics;
+
     public RiakChannelInitializer(RiakResponseListener listener)
+    {
+        this(listener, null);
+    }
+
+    /**
+     * @param listener the listener notified of responses.
+     * @param flushStatistics if not null, a {@link RiakFlushConsolidationHandler}
+     * recording into these statistics is added to each channel.
+     */
+    public RiakChannelInitializer(RiakResponseListener listener, FlushStatistics flushStatistics)
     {
         super();
         this.listener = listener;
+        this.flushStatistics = flushStatistics;
+        this.node = null;
+        this.metrics = null;
+    }
+
+    /**
+     * @param node the node the channels connect to; notified of responses.
+     * @param flushStatistics if not null, a {@link RiakFlushConsolidationHandler}
+     * recording into these statistics is added to each channel.
+     * @param metrics if not null, told the bytes read and written on each channel.
+     * @since 2.1
+     */
+    public RiakChannelInitializer(RiakNode node, FlushStatistics flushStatistics, RiakMetrics metrics)
+    {
+        super();
+        this.listener = node;
+        this.flushStatistics = flushStatistics;
+        this.node = node;
+        this.metrics = metrics;
     }
 
     @Override
     public void initChannel(SocketChannel ch) throws Exception
     {
         ChannelPipeline p = ch.pipeline();
-        p.addLast(Constants.MESSAGE_CODEC, new RiakMessageCodec());
+        if (flushStatistics != null)
+        {
+            p.addLast(Constants.FLUSH_CONSOLIDATION_HANDLER, new RiakFlushConsolidationHandler(flushStatistics));
+        }
+        p.addLast(Constants.MESSAGE_CODEC,
+                  metrics == null ? new RiakMessageCodec() : new RiakMessageCodec(node, metrics));
         p.addLast(Constants.OPERATION_ENCODER, new RiakOperationEncoder());
         p.addLast(Constants.RESPONSE_HANDLER, new RiakResponseHandler(listener));
     }
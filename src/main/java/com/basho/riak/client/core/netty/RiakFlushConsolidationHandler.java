@@ -0,0 +1,151 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core.netty;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+
+/**
+ * Coalesces flushes on a channel.
+ * <p>
+ * Rather than flushing to the socket each time an operation is written, the
+ * flush is deferred to the end of the current event loop tick. Any other
+ * operations written to the channel during that tick (e.g. by other
+ * application threads, or by responses read in the same read loop freeing
+ * pipelined slots) go out with the same syscall.
+ * </p>
+ *
+ * @since 2.1
+ */
+public class RiakFlushConsolidationHandler extends ChannelDuplexHandler
+{
+    private final FlushStatistics statistics;
+    private final Runnable flushTask;
+    private ChannelHandlerContext ctx;
+    private int pendingFrames;
+    private boolean flushPending;
+    private boolean readInProgress;
+    private boolean flushScheduled;
+
+    public RiakFlushConsolidationHandler(FlushStatistics statistics)
+    {
+        super();
+        this.statistics = statistics;
+        this.flushTask = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                flushScheduled = false;
+                if (flushPending && !readInProgress)
+                {
+                    flushNow();
+                }
+            }
+        };
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception
+    {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception
+    {
+        pendingFrames++;
+        ctx.write(msg, promise);
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) throws Exception
+    {
+        flushPending = true;
+        // While reading, channelReadComplete() flushes; otherwise flush once
+        // the tasks already queued on the event loop have run.
+        if (!readInProgress && !flushScheduled)
+        {
+            flushScheduled = true;
+            ctx.channel().eventLoop().execute(flushTask);
+        }
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception
+    {
+        readInProgress = true;
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception
+    {
+        readInProgress = false;
+        flushIfPending();
+        ctx.fireChannelReadComplete();
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception
+    {
+        if (!ctx.channel().isWritable())
+        {
+            flushIfPending();
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void disconnect(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception
+    {
+        flushIfPending();
+        ctx.disconnect(promise);
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception
+    {
+        flushIfPending();
+        ctx.close(promise);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception
+    {
+        flushIfPending();
+    }
+
+    private void flushIfPending()
+    {
+        if (flushPending)
+        {
+            flushNow();
+        }
+    }
+
+    private void flushNow()
+    {
+        flushPending = false;
+        if (pendingFrames > 0)
+        {
+            statistics.recordFlush(pendingFrames);
+            pendingFrames = 0;
+        }
+        ctx.flush();
+    }
+}
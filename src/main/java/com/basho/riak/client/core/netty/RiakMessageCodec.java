@@ -16,24 +16,52 @@
 package com.basho.riak.client.core.netty;
 
 import com.basho.riak.client.core.RiakMessage;
+import com.basho.riak.client.core.RiakMetrics;
+import com.basho.riak.client.core.RiakNode;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageCodec;
 import java.util.List;
 
 /**
- *
+ * Frames {@link RiakMessage}s on the wire.
+ * <p>
+ * Inbound payloads are retained slices of the read buffer rather than copies.
+ * </p>
  * @author Brian Roach <roach at basho dot com>
  */
 public class RiakMessageCodec extends ByteToMessageCodec<RiakMessage>
 {
+    private final RiakNode node;
+    private final RiakMetrics metrics;
+
+    public RiakMessageCodec()
+    {
+        this(null, null);
+    }
+
+    /**
+     * @param node the node the channel is connected to.
+     * @param metrics if not null, told the size of each message read and written.
+     * @since 2.1
+     */
+    public RiakMessageCodec(RiakNode node, RiakMetrics metrics)
+    {
+        this.node = node;
+        this.metrics = metrics;
+    }
+
     @Override
     protected void encode(ChannelHandlerContext ctx, RiakMessage msg, ByteBuf out) throws Exception
     {
-        int length = msg.getData().length + 1;
+        int length = msg.getDataLength() + 1;
         out.writeInt(length);
         out.writeByte(msg.getCode());
-        out.writeBytes(msg.getData());
+        msg.writeData(out);
+        if (metrics != null)
+        {
+            metrics.bytesWritten(node, length + 4);
+        }
     }
 
     @Override
@@ -54,9 +82,13 @@ public class RiakMessageCodec extends ByteToMessageCodec<RiakMessage>
             else
             {
                 byte code = in.readByte();
-                byte[] array = new byte[length - 1];
-                in.readBytes(array);
-                out.add(new RiakMessage(code,array));
+                // The slice shares the inbound buffer; RiakResponseHandler
+                // releases it once the message has been decoded.
+                out.add(new RiakMessage(code, in.readRetainedSlice(length - 1)));
+                if (metrics != null)
+                {
+                    metrics.bytesRead(node, length + 4);
+                }
             }
 
         }
@@ -16,6 +16,7 @@
 package com.basho.riak.client.core.netty;
 
 import com.basho.riak.client.core.FutureOperation;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageEncoder;
 import java.util.List;
@@ -31,7 +32,9 @@ public class RiakOperationEncoder extends MessageToMessageEncoder<FutureOperatio
     @Override
     protected void encode(ChannelHandlerContext ctx, FutureOperation operation, List<Object> out) throws Exception
     {
-        out.add(operation.channelMessage());
+        Object message = operation.channelMessage();
+        // An operation that finished while its write was queued isn't sent.
+        out.add(message != null ? message : Unpooled.EMPTY_BUFFER);
     }
 
 }
@@ -24,13 +24,21 @@ public class RiakResponseHandler extends ChannelInboundHandlerAdapter
     public void channelRead(ChannelHandlerContext chc, Object message) throws Exception
     {
         RiakMessage riakMessage = (RiakMessage) message;
-        if (riakMessage.isRiakError())
+        try
         {
-            listener.onRiakErrorResponse(chc.channel(), riakMessage.getRiakError());
+            if (riakMessage.isRiakError())
+            {
+                listener.onRiakErrorResponse(chc.channel(), riakMessage.getRiakError());
+            }
+            else
+            {
+                listener.onSuccess(chc.channel(), riakMessage);
+            }
         }
-        else
+        finally
         {
-            listener.onSuccess(chc.channel(), riakMessage);
+            // The operation has decoded the message by now
+            riakMessage.release();
         }
     }
 
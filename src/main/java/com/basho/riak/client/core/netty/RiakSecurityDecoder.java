@@ -30,13 +30,13 @@ import io.netty.handler.ssl.SslHandler;
 import io.netty.util.concurrent.DefaultPromise;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.GenericFutureListener;
+import io.netty.util.concurrent.ImmediateEventExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.net.ssl.SSLEngine;
 import java.io.IOException;
 import java.util.List;
-import java.util.concurrent.CountDownLatch;
 
 /**
  *
@@ -45,12 +45,12 @@ import java.util.concurrent.CountDownLatch;
 public class RiakSecurityDecoder extends ByteToMessageDecoder 
     
 {
-    private final CountDownLatch promiseLatch = new CountDownLatch(1);
     private final SSLEngine sslEngine;
     private final String username;
     private final String password;
     private final Logger logger = LoggerFactory.getLogger(RiakSecurityDecoder.class);
-    private volatile DefaultPromise<Void> promise;
+    // Only completed from this handler, so its listeners run on the channel's event loop.
+    private final DefaultPromise<Void> promise = new DefaultPromise<Void>(ImmediateEventExecutor.INSTANCE);
     
     private enum State { TLS_START, TLS_WAIT, SSL_WAIT, AUTH_WAIT }
     
@@ -153,8 +153,6 @@ public class RiakSecurityDecoder extends ByteToMessageDecoder
     private void init(ChannelHandlerContext ctx)
     {
         state = State.TLS_WAIT;
-        promise = new DefaultPromise<Void>(ctx.executor());
-        promiseLatch.countDown();
         ctx.channel().writeAndFlush(new RiakMessage(RiakMessageCodes.MSG_StartTls, 
                                     new byte[0]));
     }
@@ -202,9 +200,13 @@ public class RiakSecurityDecoder extends ByteToMessageDecoder
         }
     }
     
-    public DefaultPromise<Void> getPromise() throws InterruptedException
+    /**
+     * Returns the promise completed when TLS has been negotiated and the
+     * user authenticated, or either has failed.
+     * @return the promise, which exists as soon as this decoder does.
+     */
+    public DefaultPromise<Void> getPromise()
     {
-        promiseLatch.await();
         return promise;
     }
     
@@ -223,8 +225,7 @@ public class RiakSecurityDecoder extends ByteToMessageDecoder
                     .setUser(ByteString.copyFromUtf8(username))
                     .setPassword(ByteString.copyFromUtf8(password))
                     .build();
-                c.writeAndFlush(new RiakMessage(RiakMessageCodes.MSG_AuthReq, 
-                                authReq.toByteArray()));
+                c.writeAndFlush(new RiakMessage(RiakMessageCodes.MSG_AuthReq, authReq));
                 
             }
             else
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core.netty;
+
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+
+/**
+ * The Netty transport used for connections to Riak.
+ *
+ * @since 2.1
+ */
+public enum Transport
+{
+    /**
+     * The native epoll transport if it is available on this platform,
+     * otherwise NIO.
+     */
+    AUTO
+    {
+        @Override
+        public boolean isAvailable()
+        {
+            return true;
+        }
+
+        @Override
+        public Transport resolve()
+        {
+            return EPOLL.isAvailable() ? EPOLL : NIO;
+        }
+
+        @Override
+        public EventLoopGroup newEventLoopGroup()
+        {
+            return resolve().newEventLoopGroup();
+        }
+
+        @Override
+        public Class<? extends SocketChannel> channelClass()
+        {
+            return resolve().channelClass();
+        }
+    },
+    /**
+     * The JDK NIO transport; available everywhere.
+     */
+    NIO
+    {
+        @Override
+        public boolean isAvailable()
+        {
+            return true;
+        }
+
+        @Override
+        public EventLoopGroup newEventLoopGroup()
+        {
+            return new NioEventLoopGroup();
+        }
+
+        @Override
+        public Class<? extends SocketChannel> channelClass()
+        {
+            return NioSocketChannel.class;
+        }
+    },
+    /**
+     * The native epoll transport; Linux only.
+     */
+    EPOLL
+    {
+        @Override
+        public boolean isAvailable()
+        {
+            return Epoll.isAvailable();
+        }
+
+        @Override
+        public EventLoopGroup newEventLoopGroup()
+        {
+            return new EpollEventLoopGroup();
+        }
+
+        @Override
+        public Class<? extends SocketChannel> channelClass()
+        {
+            return EpollSocketChannel.class;
+        }
+    };
+
+    /**
+     * @return true if this transport can be used on this platform.
+     */
+    public abstract boolean isAvailable();
+
+    /**
+     * @return the concrete transport this one stands for.
+     */
+    public Transport resolve()
+    {
+        return this;
+    }
+
+    /**
+     * @return a new event loop group for this transport.
+     */
+    public abstract EventLoopGroup newEventLoopGroup();
+
+    /**
+     * @return the socket channel class for this transport.
+     */
+    public abstract Class<? extends SocketChannel> channelClass();
+
+    /**
+     * Determines the transport of an existing event loop group.
+     * @param group an epoll or NIO event loop group, or one of its event loops.
+     * @return {@link #EPOLL} for an epoll group, otherwise {@link #NIO}.
+     */
+    public static Transport forEventLoopGroup(EventLoopGroup group)
+    {
+        EventLoopGroup parent = group instanceof EventLoop ? ((EventLoop) group).parent() : group;
+        return parent instanceof EpollEventLoopGroup ? EPOLL : NIO;
+    }
+}
@@ -78,7 +78,7 @@ public class CoveragePlanOperation extends FutureOperation<CoveragePlanOperation
     @Override
     protected RiakMessage createChannelMessage()
     {
-        return new RiakMessage(RiakMessageCodes.MSG_CoverageReq, reqBuilder.build().toByteArray());
+        return new RiakMessage(RiakMessageCodes.MSG_CoverageReq, reqBuilder.build());
     }
 
     @Override
@@ -87,7 +87,7 @@ public class CoveragePlanOperation extends FutureOperation<CoveragePlanOperation
         try
         {
             Operations.checkPBMessageType(rawMessage, RiakMessageCodes.MSG_CoverageResp);
-            return RiakKvPB.RpbCoverageResp.parseFrom(rawMessage.getData());
+            return rawMessage.parseData(RiakKvPB.RpbCoverageResp.PARSER);
         }
         catch (InvalidProtocolBufferException e)
         {
@@ -248,6 +248,7 @@ public class CoveragePlanOperation extends FutureOperation<CoveragePlanOperation
         }
 
         private HashMap<HostAndPort, List<CoverageEntry>> perHostCoverage = new HashMap<HostAndPort, List<CoverageEntry>>();
+        private final List<CoverageEntry> entries = new ArrayList<CoverageEntry>();
 
         protected Response()
         {
@@ -256,6 +257,7 @@ public class CoveragePlanOperation extends FutureOperation<CoveragePlanOperation
         protected Response(Response rhs)
         {
             this.perHostCoverage.putAll(rhs.perHostCoverage);
+            this.entries.addAll(rhs.entries);
         }
 
         public Set<HostAndPort> hosts()
@@ -280,6 +282,16 @@ public class CoveragePlanOperation extends FutureOperation<CoveragePlanOperation
             return hostEntries(HostAndPort.fromParts(host, port));
         }
 
+        /**
+         * Returns every entry in the plan.
+         * @return the entries, in the order Riak returned them.
+         * @since 2.1
+         */
+        public List<CoverageEntry> entries()
+        {
+            return Collections.unmodifiableList(entries);
+        }
+
         private static <T>  Iterator<T> emptyIterator()
         {
             return Collections.<T>emptyList().iterator();
@@ -343,6 +355,7 @@ public class CoveragePlanOperation extends FutureOperation<CoveragePlanOperation
                 perHostCoverage.put(key, lst);
             }
             lst.add(coverageEntry);
+            entries.add(coverageEntry);
         }
     }
 }
@@ -16,6 +16,7 @@
 package com.basho.riak.client.core.operations;
 
 import com.basho.riak.client.core.FutureOperation;
+import com.basho.riak.client.core.OperationPriority;
 import com.basho.riak.client.core.RiakMessage;
 import com.basho.riak.client.core.converters.CrdtResponseConverter;
 import com.basho.riak.client.core.query.Location;
@@ -75,7 +76,13 @@ public class DtFetchOperation extends FutureOperation<DtFetchOperation.Response,
     @Override
     protected RiakMessage createChannelMessage()
     {
-        return new RiakMessage(RiakMessageCodes.MSG_DtFetchReq, reqBuilder.build().toByteArray());
+        return new RiakMessage(RiakMessageCodes.MSG_DtFetchReq, reqBuilder.build());
+    }
+
+    @Override
+    protected OperationPriority defaultPriority()
+    {
+        return OperationPriority.INTERACTIVE;
     }
 
     @Override
@@ -84,7 +91,7 @@ public class DtFetchOperation extends FutureOperation<DtFetchOperation.Response,
         Operations.checkPBMessageType(rawMessage, RiakMessageCodes.MSG_DtFetchResp);
         try
         {
-            return RiakDtPB.DtFetchResp.parseFrom(rawMessage.getData());
+            return rawMessage.parseData(RiakDtPB.DtFetchResp.PARSER);
         }
         catch (InvalidProtocolBufferException ex)
         {
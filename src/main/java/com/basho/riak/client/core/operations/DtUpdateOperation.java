@@ -80,7 +80,7 @@ public class DtUpdateOperation extends FutureOperation<DtUpdateOperation.Respons
     @Override
     protected RiakMessage createChannelMessage()
     {
-        return new RiakMessage(RiakMessageCodes.MSG_DtUpdateReq, reqBuilder.build().toByteArray());
+        return new RiakMessage(RiakMessageCodes.MSG_DtUpdateReq, reqBuilder.build());
     }
 
     @Override
@@ -89,7 +89,7 @@ public class DtUpdateOperation extends FutureOperation<DtUpdateOperation.Respons
         Operations.checkPBMessageType(rawMessage, RiakMessageCodes.MSG_DtUpdateResp);
         try
         {
-            RiakDtPB.DtUpdateResp resp = RiakDtPB.DtUpdateResp.parseFrom(rawMessage.getData());
+            RiakDtPB.DtUpdateResp resp = rawMessage.parseData(RiakDtPB.DtUpdateResp.PARSER);
             return resp;
         }
         catch (InvalidProtocolBufferException ex)
@@ -104,6 +104,17 @@ public class DtUpdateOperation extends FutureOperation<DtUpdateOperation.Respons
         return location;
     }
 
+    /**
+     * Updates are not idempotent; applying a counter increment twice counts
+     * twice.
+     * @return false
+     */
+    @Override
+    public boolean isIdempotent()
+    {
+        return false;
+    }
+
     public static class Builder
     {
         private final RiakDtPB.DtUpdateReq.Builder reqBuilder = RiakDtPB.DtUpdateReq.newBuilder();
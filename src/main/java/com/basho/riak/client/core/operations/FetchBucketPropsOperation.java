@@ -54,7 +54,7 @@ public class FetchBucketPropsOperation extends FutureOperation<FetchBucketPropsO
     protected RiakMessage createChannelMessage()
     {
         RiakPB.RpbGetBucketReq req = reqBuilder.build();
-        return new RiakMessage(RiakMessageCodes.MSG_GetBucketReq, req.toByteArray());
+        return new RiakMessage(RiakMessageCodes.MSG_GetBucketReq, req);
     }
 
     @Override
@@ -63,7 +63,7 @@ public class FetchBucketPropsOperation extends FutureOperation<FetchBucketPropsO
         Operations.checkPBMessageType(rawMessage, RiakMessageCodes.MSG_GetBucketResp);
         try
         {
-            return RiakPB.RpbGetBucketResp.parseFrom(rawMessage.getData());
+            return rawMessage.parseData(RiakPB.RpbGetBucketResp.PARSER);
         }
         catch (InvalidProtocolBufferException ex)
         {
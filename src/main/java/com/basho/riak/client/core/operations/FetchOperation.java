@@ -17,6 +17,8 @@ package com.basho.riak.client.core.operations;
 
 import com.basho.riak.client.api.cap.BasicVClock;
 import com.basho.riak.client.core.FutureOperation;
+import com.basho.riak.client.core.ObjectCache;
+import com.basho.riak.client.core.OperationPriority;
 import com.basho.riak.client.core.RiakMessage;
 import com.basho.riak.client.core.converters.RiakObjectConverter;
 import com.basho.riak.client.core.query.Location;
@@ -40,6 +42,8 @@ public class FetchOperation extends FutureOperation<FetchOperation.Response, Ria
 {
     private final RiakKvPB.RpbGetReq.Builder reqBuilder;
     Location location;
+    private final ObjectCache objectCache;
+    private final ObjectCache.Entry cached;
 
     private final Logger logger = LoggerFactory.getLogger(FetchOperation.class);
 
@@ -47,6 +51,29 @@ public class FetchOperation extends FutureOperation<FetchOperation.Response, Ria
     {
         this.reqBuilder = builder.reqBuilder;
         this.location = builder.location;
+
+        // A fetch that asks for only the metadata, or supplies its own vclock,
+        // neither uses nor fills the cache.
+        if (builder.objectCache != null && !reqBuilder.hasIfModified() && !reqBuilder.getHead())
+        {
+            this.objectCache = builder.objectCache;
+            this.cached = objectCache.get(location);
+            if (cached != null)
+            {
+                reqBuilder.setIfModified(ByteString.copyFrom(cached.getVClock().getBytes()));
+            }
+        }
+        else
+        {
+            this.objectCache = null;
+            this.cached = null;
+        }
+    }
+
+    @Override
+    protected OperationPriority defaultPriority()
+    {
+        return OperationPriority.INTERACTIVE;
     }
 
     @Override
@@ -56,14 +83,12 @@ public class FetchOperation extends FutureOperation<FetchOperation.Response, Ria
 
         try
         {
-            byte[] data = message.getData();
-
-            if (data.length == 0) // not found
+            if (message.getDataLength() == 0) // not found
             {
                 return null;
             }
 
-            return RiakKvPB.RpbGetResp.parseFrom(data);
+            return message.parseData(RiakKvPB.RpbGetResp.PARSER);
         }
         catch (InvalidProtocolBufferException e)
         {
@@ -81,7 +106,28 @@ public class FetchOperation extends FutureOperation<FetchOperation.Response, Ria
         }
 
         final RiakKvPB.RpbGetResp response = responses.get(0);
-        return convert(response);
+        if (objectCache == null)
+        {
+            return convert(response);
+        }
+
+        if (cached != null && response != null && response.getUnchanged())
+        {
+            return new FetchOperation.Response.Builder()
+                .addObjects(objectCache.unchanged(cached))
+                .build();
+        }
+
+        FetchOperation.Response converted = convert(response);
+        if (converted.isNotFound())
+        {
+            objectCache.invalidate(location);
+        }
+        else
+        {
+            objectCache.put(location, converted.getObjectList());
+        }
+        return converted;
     }
 
     static FetchOperation.Response convert(RiakKvPB.RpbGetResp response)
@@ -125,7 +171,7 @@ public class FetchOperation extends FutureOperation<FetchOperation.Response, Ria
     protected RiakMessage createChannelMessage()
     {
         RiakKvPB.RpbGetReq req = reqBuilder.build();
-        return new RiakMessage(RiakMessageCodes.MSG_GetReq, req.toByteArray());
+        return new RiakMessage(RiakMessageCodes.MSG_GetReq, req);
     }
 
     @Override
@@ -139,6 +185,7 @@ public class FetchOperation extends FutureOperation<FetchOperation.Response, Ria
         private final RiakKvPB.RpbGetReq.Builder reqBuilder =
             RiakKvPB.RpbGetReq.newBuilder();
         private final Location location;
+        private ObjectCache objectCache;
 
         /**
          * Construct a FetchOperation that will retrieve an object from Riak stored
@@ -293,6 +340,23 @@ public class FetchOperation extends FutureOperation<FetchOperation.Response, Ria
 			return this;
 		}
 
+        /**
+         * Revalidate against, and fill, a client-side cache.
+         * <p>
+         * If the location is cached, Riak is asked to return the object only
+         * if its vclock no longer matches the cached one; otherwise the
+         * cached objects are returned. Ignored if only the metadata is
+         * fetched or {@link #withIfNotModified(byte[])} is set.
+         * </p>
+         * @param objectCache the cache, or null.
+         * @return a reference to this object.
+         */
+        public Builder withObjectCache(ObjectCache objectCache)
+        {
+            this.objectCache = objectCache;
+            return this;
+        }
+
         public FetchOperation build()
         {
             return new FetchOperation(this);
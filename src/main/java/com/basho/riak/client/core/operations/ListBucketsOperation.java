@@ -16,6 +16,7 @@
 package com.basho.riak.client.core.operations;
 
 import com.basho.riak.client.core.FutureOperation;
+import com.basho.riak.client.core.OperationPriority;
 import com.basho.riak.client.core.RiakMessage;
 import com.basho.riak.client.core.query.Namespace;
 import com.basho.riak.client.core.util.BinaryValue;
@@ -61,7 +62,13 @@ public class ListBucketsOperation extends FutureOperation<ListBucketsOperation.R
     @Override
     protected RiakMessage createChannelMessage()
     {
-        return new RiakMessage(RiakMessageCodes.MSG_ListBucketsReq, reqBuilder.build().toByteArray());
+        return new RiakMessage(RiakMessageCodes.MSG_ListBucketsReq, reqBuilder.build());
+    }
+
+    @Override
+    protected OperationPriority defaultPriority()
+    {
+        return OperationPriority.BULK;
     }
 
     @Override
@@ -70,7 +77,7 @@ public class ListBucketsOperation extends FutureOperation<ListBucketsOperation.R
         try
         {
             Operations.checkPBMessageType(rawMessage, RiakMessageCodes.MSG_ListBucketsResp);
-            return RiakKvPB.RpbListBucketsResp.parseFrom(rawMessage.getData());
+            return rawMessage.parseData(RiakKvPB.RpbListBucketsResp.PARSER);
         }
         catch (InvalidProtocolBufferException e)
         {
@@ -15,7 +15,8 @@
  */
 package com.basho.riak.client.core.operations;
 
-import com.basho.riak.client.core.FutureOperation;
+import com.basho.riak.client.core.StreamingFutureOperation;
+import com.basho.riak.client.core.OperationPriority;
 import com.basho.riak.client.core.RiakMessage;
 import com.basho.riak.client.core.query.Namespace;
 import com.basho.riak.client.core.util.BinaryValue;
@@ -29,7 +30,7 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.List;
 
-public class ListKeysOperation extends FutureOperation<ListKeysOperation.Response, RiakKvPB.RpbListKeysResp, Namespace>
+public class ListKeysOperation extends StreamingFutureOperation<ListKeysOperation.Response, RiakKvPB.RpbListKeysResp, Namespace>
 {
     private final Logger logger = LoggerFactory.getLogger("ListKeysOperation");
     private final Namespace namespace;
@@ -37,6 +38,7 @@ public class ListKeysOperation extends FutureOperation<ListKeysOperation.Respons
 
     private ListKeysOperation(Builder builder)
     {
+        super(builder.streamResults);
         this.reqBuilder = builder.reqBuilder;
         this.namespace = builder.namespace;
     }
@@ -58,7 +60,13 @@ public class ListKeysOperation extends FutureOperation<ListKeysOperation.Respons
     @Override
     protected RiakMessage createChannelMessage()
     {
-        return new RiakMessage(RiakMessageCodes.MSG_ListKeysReq, reqBuilder.build().toByteArray());
+        return new RiakMessage(RiakMessageCodes.MSG_ListKeysReq, reqBuilder.build());
+    }
+
+    @Override
+    protected OperationPriority defaultPriority()
+    {
+        return OperationPriority.BULK;
     }
 
     @Override
@@ -67,7 +75,7 @@ public class ListKeysOperation extends FutureOperation<ListKeysOperation.Respons
         try
         {
             Operations.checkPBMessageType(rawMessage, RiakMessageCodes.MSG_ListKeysResp);
-            return RiakKvPB.RpbListKeysResp.parseFrom(rawMessage.getData());
+            return rawMessage.parseData(RiakKvPB.RpbListKeysResp.PARSER);
         }
         catch (InvalidProtocolBufferException e)
         {
@@ -92,6 +100,7 @@ public class ListKeysOperation extends FutureOperation<ListKeysOperation.Respons
         private final RiakKvPB.RpbListKeysReq.Builder reqBuilder =
             RiakKvPB.RpbListKeysReq.newBuilder();
         private final Namespace namespace;
+        private boolean streamResults;
 
         /**
          * Construct a builder for a ListKeysOperaiton.
@@ -118,6 +127,18 @@ public class ListKeysOperation extends FutureOperation<ListKeysOperation.Respons
             return this;
         }
 
+        /**
+         * Hand the keys to the caller as they arrive.
+         * @param streamResults true to stream the keys.
+         * @return a reference to this object.
+         * @see StreamingFutureOperation
+         */
+        public Builder withStreamResults(boolean streamResults)
+        {
+            this.streamResults = streamResults;
+            return this;
+        }
+
         public ListKeysOperation build()
         {
             return new ListKeysOperation(this);
@@ -15,7 +15,8 @@
  */
 package com.basho.riak.client.core.operations;
 
-import com.basho.riak.client.core.FutureOperation;
+import com.basho.riak.client.core.StreamingFutureOperation;
+import com.basho.riak.client.core.OperationPriority;
 import com.basho.riak.client.core.RiakMessage;
 import com.basho.riak.client.core.util.BinaryValue;
 import com.basho.riak.protobuf.RiakMessageCodes;
@@ -38,7 +39,7 @@ import org.slf4j.LoggerFactory;
  * A Map/Reduce Operation on Riak. No error checking is done on the content type of the content itself
  * with the exception to making sure they are provided.
  */
-public class MapReduceOperation extends FutureOperation<MapReduceOperation.Response, RiakKvPB.RpbMapRedResp, BinaryValue>
+public class MapReduceOperation extends StreamingFutureOperation<MapReduceOperation.Response, RiakKvPB.RpbMapRedResp, BinaryValue>
 {
     private final RiakKvPB.RpbMapRedReq.Builder reqBuilder;
     private final BinaryValue mapReduce;
@@ -46,6 +47,7 @@ public class MapReduceOperation extends FutureOperation<MapReduceOperation.Respo
 
     private MapReduceOperation(Builder builder)
     {
+        super(builder.streamResults);
         this.reqBuilder = builder.reqBuilder;
         this.mapReduce = builder.mapReduce;
     }
@@ -110,7 +112,13 @@ public class MapReduceOperation extends FutureOperation<MapReduceOperation.Respo
     protected RiakMessage createChannelMessage()
     {
         RiakKvPB.RpbMapRedReq request = reqBuilder.build();
-        return new RiakMessage(RiakMessageCodes.MSG_MapRedReq, request.toByteArray());
+        return new RiakMessage(RiakMessageCodes.MSG_MapRedReq, request);
+    }
+
+    @Override
+    protected OperationPriority defaultPriority()
+    {
+        return OperationPriority.BULK;
     }
 
     @Override
@@ -119,7 +127,7 @@ public class MapReduceOperation extends FutureOperation<MapReduceOperation.Respo
         Operations.checkPBMessageType(rawMessage, RiakMessageCodes.MSG_MapRedResp);
         try
         {
-            return RiakKvPB.RpbMapRedResp.parseFrom(rawMessage.getData());
+            return rawMessage.parseData(RiakKvPB.RpbMapRedResp.PARSER);
         }
         catch (InvalidProtocolBufferException e)
         {
@@ -144,6 +152,7 @@ public class MapReduceOperation extends FutureOperation<MapReduceOperation.Respo
         private final RiakKvPB.RpbMapRedReq.Builder reqBuilder =
             RiakKvPB.RpbMapRedReq.newBuilder();
         private final BinaryValue mapReduce;
+        private boolean streamResults;
 
         /**
          * Create a MapReduce operation builder with the given function.
@@ -164,6 +173,22 @@ public class MapReduceOperation extends FutureOperation<MapReduceOperation.Respo
 
         }
 
+        /**
+         * Hand the results to the caller as they arrive.
+         * <p>
+         * Each streamed response holds the results in one message from Riak,
+         * which may be part of a phase's results.
+         * </p>
+         * @param streamResults true to stream the results.
+         * @return a reference to this object.
+         * @see StreamingFutureOperation
+         */
+        public Builder withStreamResults(boolean streamResults)
+        {
+            this.streamResults = streamResults;
+            return this;
+        }
+
         public MapReduceOperation build()
         {
             return new MapReduceOperation(this);
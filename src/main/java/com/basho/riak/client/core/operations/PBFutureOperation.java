@@ -40,7 +40,7 @@ public abstract class PBFutureOperation<T, U, S> extends FutureOperation<T, U, S
     @Override
     protected RiakMessage createChannelMessage()
     {
-        return new RiakMessage(reqMessageCode, reqBuilder.build().toByteArray());
+        return new RiakMessage(reqMessageCode, reqBuilder.build());
     }
 
     @Override
@@ -49,14 +49,12 @@ public abstract class PBFutureOperation<T, U, S> extends FutureOperation<T, U, S
         Operations.checkPBMessageType(rawMessage, respMessageCode);
         try
         {
-            byte[] data = rawMessage.getData();
-
-            if (data.length == 0) // not found
+            if (rawMessage.getDataLength() == 0) // not found
             {
                 return null;
             }
 
-            return respParser.parseFrom(data);
+            return rawMessage.parseData(respParser);
         }
         catch (InvalidProtocolBufferException e)
         {
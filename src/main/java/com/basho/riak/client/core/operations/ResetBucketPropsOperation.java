@@ -51,7 +51,7 @@ public class ResetBucketPropsOperation extends FutureOperation<Void, Void, Names
         RiakPB.RpbResetBucketReq req =
             reqBuilder.build();
 
-        return new RiakMessage(RiakMessageCodes.MSG_ResetBucketReq, req.toByteArray());
+        return new RiakMessage(RiakMessageCodes.MSG_ResetBucketReq, req);
     }
 
     @Override
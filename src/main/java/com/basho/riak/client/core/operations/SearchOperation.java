@@ -86,7 +86,7 @@ public class SearchOperation extends FutureOperation<SearchOperation.Response, R
     protected RiakMessage createChannelMessage()
     {
         RiakSearchPB.RpbSearchQueryReq req = reqBuilder.build();
-        return new RiakMessage(RiakMessageCodes.MSG_SearchQueryReq, req.toByteArray());
+        return new RiakMessage(RiakMessageCodes.MSG_SearchQueryReq, req);
     }
 
     @Override
@@ -95,7 +95,7 @@ public class SearchOperation extends FutureOperation<SearchOperation.Response, R
         Operations.checkPBMessageType(rawMessage, RiakMessageCodes.MSG_SearchQueryResp);
         try
         {
-            return RiakSearchPB.RpbSearchQueryResp.parseFrom(rawMessage.getData());
+            return rawMessage.parseData(RiakSearchPB.RpbSearchQueryResp.PARSER);
         }
         catch (InvalidProtocolBufferException ex)
         {
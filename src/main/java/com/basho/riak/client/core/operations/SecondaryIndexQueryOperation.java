@@ -15,7 +15,8 @@
  */
 package com.basho.riak.client.core.operations;
 
-import com.basho.riak.client.core.FutureOperation;
+import com.basho.riak.client.core.StreamingFutureOperation;
+import com.basho.riak.client.core.OperationPriority;
 import com.basho.riak.client.core.RiakMessage;
 import com.basho.riak.client.core.query.Namespace;
 import com.basho.riak.client.core.query.indexes.IndexNames;
@@ -37,7 +38,7 @@ import java.util.List;
  * @author Alex Moore <amoore at basho dot com>
  * @since 2.0
  */
-public class SecondaryIndexQueryOperation extends FutureOperation<SecondaryIndexQueryOperation.Response, Object, SecondaryIndexQueryOperation.Query>
+public class SecondaryIndexQueryOperation extends StreamingFutureOperation<SecondaryIndexQueryOperation.Response, Object, SecondaryIndexQueryOperation.Query>
 {
     private final static Logger logger = LoggerFactory.getLogger(SecondaryIndexQueryOperation.class);
     private final RiakKvPB.RpbIndexReq pbReq;
@@ -45,6 +46,7 @@ public class SecondaryIndexQueryOperation extends FutureOperation<SecondaryIndex
 
     private SecondaryIndexQueryOperation(Builder builder)
     {
+        super(builder.streamResults);
         // Yo dawg, we don't ever not want to use streaming.
         builder.pbReqBuilder.setStream(true);
         this.query = builder.query;
@@ -144,7 +146,13 @@ public class SecondaryIndexQueryOperation extends FutureOperation<SecondaryIndex
     @Override
     protected RiakMessage createChannelMessage()
     {
-        return new RiakMessage(RiakMessageCodes.MSG_IndexReq, pbReq.toByteArray());
+        return new RiakMessage(RiakMessageCodes.MSG_IndexReq, pbReq);
+    }
+
+    @Override
+    protected OperationPriority defaultPriority()
+    {
+        return OperationPriority.BULK;
     }
 
     @Override
@@ -154,11 +162,11 @@ public class SecondaryIndexQueryOperation extends FutureOperation<SecondaryIndex
         {
             if (rawMessage.getCode() == RiakMessageCodes.MSG_IndexResp)
             {
-                return RiakKvPB.RpbIndexResp.parseFrom(rawMessage.getData());
+                return rawMessage.parseData(RiakKvPB.RpbIndexResp.PARSER);
             }
             else if (rawMessage.getCode() == RiakMessageCodes.MSG_IndexBodyResp)
             {
-                return RiakKvPB.RpbIndexBodyResp.parseFrom(rawMessage.getData());
+                return rawMessage.parseData(RiakKvPB.RpbIndexBodyResp.PARSER);
             }
             throw new IllegalArgumentException("Invalid message received: Wrong response; expected "
                     + RiakMessageCodes.MSG_IndexResp + " or " + RiakMessageCodes.MSG_IndexBodyResp
@@ -199,6 +207,7 @@ public class SecondaryIndexQueryOperation extends FutureOperation<SecondaryIndex
     {
         private final RiakKvPB.RpbIndexReq.Builder pbReqBuilder = RiakKvPB.RpbIndexReq.newBuilder();
         private final Query query;
+        private boolean streamResults;
 
         /**
          * Constructs a builder for a QueryOperation.
@@ -283,6 +292,22 @@ public class SecondaryIndexQueryOperation extends FutureOperation<SecondaryIndex
             }
         }
 
+        /**
+         * Hand the results to the caller as they arrive.
+         * <p>
+         * Each streamed response holds the entries in one message from
+         * Riak; the last holds the continuation, if any.
+         * </p>
+         * @param streamResults true to stream the results.
+         * @return a reference to this object.
+         * @see StreamingFutureOperation
+         */
+        public Builder withStreamResults(boolean streamResults)
+        {
+            this.streamResults = streamResults;
+            return this;
+        }
+
         /**
          * Construct a new QueryOperation.
          * @return a QueryOperation
@@ -51,7 +51,7 @@ public class StoreBucketPropsOperation extends FutureOperation<Void, Void, Names
     protected RiakMessage createChannelMessage()
     {
         RiakPB.RpbSetBucketReq req = reqBuilder.build();
-        return new RiakMessage(RiakMessageCodes.MSG_SetBucketReq, req.toByteArray());
+        return new RiakMessage(RiakMessageCodes.MSG_SetBucketReq, req);
     }
 
     @Override
@@ -84,7 +84,7 @@ public class StoreOperation extends FutureOperation<StoreOperation.Response, Ria
         checkPBMessageType(rawMessage, RiakMessageCodes.MSG_PutResp);
         try
         {
-            return RiakKvPB.RpbPutResp.parseFrom(rawMessage.getData());
+            return rawMessage.parseData(RiakKvPB.RpbPutResp.PARSER);
         }
         catch (InvalidProtocolBufferException e)
         {
@@ -97,7 +97,7 @@ public class StoreOperation extends FutureOperation<StoreOperation.Response, Ria
     protected RiakMessage createChannelMessage()
     {
         RiakKvPB.RpbPutReq req = reqBuilder.build();
-        return new RiakMessage(RiakMessageCodes.MSG_PutReq, req.toByteArray());
+        return new RiakMessage(RiakMessageCodes.MSG_PutReq, req);
     }
 
     @Override
@@ -106,6 +106,17 @@ public class StoreOperation extends FutureOperation<StoreOperation.Response, Ria
         return location;
     }
 
+    /**
+     * A store is only idempotent if it has a vclock; otherwise storing the
+     * same object twice may create a sibling.
+     * @return true if the object being stored has a vclock.
+     */
+    @Override
+    public boolean isIdempotent()
+    {
+        return reqBuilder.hasVclock();
+    }
+
     public static class Builder
     {
         private final RiakKvPB.RpbPutReq.Builder reqBuilder = RiakKvPB.RpbPutReq.newBuilder();
@@ -60,7 +60,7 @@ public class YzFetchIndexOperation extends FutureOperation<YzFetchIndexOperation
     protected RiakMessage createChannelMessage()
     {
         RiakYokozunaPB.RpbYokozunaIndexGetReq req = reqBuilder.build();
-        return new RiakMessage(RiakMessageCodes.MSG_YokozunaIndexGetReq, req.toByteArray());
+        return new RiakMessage(RiakMessageCodes.MSG_YokozunaIndexGetReq, req);
 
     }
 
@@ -70,7 +70,7 @@ public class YzFetchIndexOperation extends FutureOperation<YzFetchIndexOperation
         Operations.checkPBMessageType(rawMessage, RiakMessageCodes.MSG_YokozunaIndexGetResp);
         try
         {
-            return RiakYokozunaPB.RpbYokozunaIndexGetResp.parseFrom(rawMessage.getData());
+            return rawMessage.parseData(RiakYokozunaPB.RpbYokozunaIndexGetResp.PARSER);
         }
         catch (InvalidProtocolBufferException ex)
         {
@@ -54,7 +54,7 @@ public class YzGetSchemaOperation extends FutureOperation<YzGetSchemaOperation.R
     protected RiakMessage createChannelMessage()
     {
         RiakYokozunaPB.RpbYokozunaSchemaGetReq req = reqBuilder.build();
-        return new RiakMessage(RiakMessageCodes.MSG_YokozunaSchemaGetReq, req.toByteArray());
+        return new RiakMessage(RiakMessageCodes.MSG_YokozunaSchemaGetReq, req);
 
     }
 
@@ -64,7 +64,7 @@ public class YzGetSchemaOperation extends FutureOperation<YzGetSchemaOperation.R
         Operations.checkPBMessageType(rawMessage, RiakMessageCodes.MSG_YokozunaSchemaGetResp);
         try
         {
-            return RiakYokozunaPB.RpbYokozunaSchemaGetResp.parseFrom(rawMessage.getData());
+            return rawMessage.parseData(RiakYokozunaPB.RpbYokozunaSchemaGetResp.PARSER);
         }
         catch (InvalidProtocolBufferException ex)
         {
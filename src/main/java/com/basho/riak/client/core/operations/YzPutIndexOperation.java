@@ -48,7 +48,7 @@ public class YzPutIndexOperation extends FutureOperation<Void, Void, YokozunaInd
     protected RiakMessage createChannelMessage()
     {
         RiakYokozunaPB.RpbYokozunaIndexPutReq req = reqBuilder.build();
-        return new RiakMessage(RiakMessageCodes.MSG_YokozunaIndexPutReq, req.toByteArray());
+        return new RiakMessage(RiakMessageCodes.MSG_YokozunaIndexPutReq, req);
 
     }
 
@@ -48,7 +48,7 @@ public class YzPutSchemaOperation extends FutureOperation<Void, Void, YokozunaSc
     protected RiakMessage createChannelMessage()
     {
         RiakYokozunaPB.RpbYokozunaSchemaPutReq req = reqBuilder.build();
-        return new RiakMessage(RiakMessageCodes.MSG_YokozunaSchemaPutReq, req.toByteArray());
+        return new RiakMessage(RiakMessageCodes.MSG_YokozunaSchemaPutReq, req);
     }
 
     @Override
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core.query;
+
+import com.basho.riak.client.api.cap.VClock;
+import com.basho.riak.client.core.query.UserMetadata.RiakUserMetadata;
+import com.basho.riak.client.core.query.indexes.RiakIndexes;
+import com.basho.riak.client.core.query.links.RiakLinks;
+import com.basho.riak.client.core.util.BinaryValue;
+
+/**
+ * One sibling as returned by Riak, not yet decoded.
+ * <p>
+ * A {@link RiakObject} created from it decodes the value, links, indexes
+ * and user metadata when they are first used, so a caller that never looks
+ * at them doesn't pay to decode them. This is implemented by the client's
+ * converters; applications have no need of it.
+ * </p>
+ *
+ * @since 2.1
+ */
+public abstract class EncodedContent
+{
+    /**
+     * Creates a RiakObject that decodes this content on first use.
+     * <p>
+     * The caller sets the object's scalar metadata, such as its content
+     * type.
+     * </p>
+     * @param vclock the vector clock returned with the content.
+     * @return a new RiakObject.
+     */
+    protected final RiakObject newRiakObject(VClock vclock)
+    {
+        return new RiakObject(this, vclock);
+    }
+
+    /**
+     * @return the value, or null if there is none.
+     */
+    protected abstract BinaryValue decodeValue();
+
+    /**
+     * @return the number of secondary indexes.
+     */
+    protected abstract int indexCount();
+
+    /**
+     * @return the number of links.
+     */
+    protected abstract int linkCount();
+
+    /**
+     * @return the number of user metadata entries.
+     */
+    protected abstract int userMetaCount();
+
+    /**
+     * Decodes the secondary indexes.
+     * @param indexes the object's indexes to add them to.
+     */
+    protected abstract void decodeIndexes(RiakIndexes indexes);
+
+    /**
+     * Decodes the links.
+     * @param links the object's links to add them to.
+     */
+    protected abstract void decodeLinks(RiakLinks links);
+
+    /**
+     * Decodes the user metadata.
+     * @param userMeta the object's user metadata to add it to.
+     */
+    protected abstract void decodeUserMeta(RiakUserMetadata userMeta);
+}
@@ -18,12 +18,15 @@ package com.basho.riak.client.core.query;
 import com.basho.riak.client.api.annotations.RiakVClock;
 import com.basho.riak.client.api.cap.VClock;
 import com.basho.riak.client.core.query.UserMetadata.RiakUserMetadata;
+import com.basho.riak.client.core.query.indexes.RawIndex;
+import com.basho.riak.client.core.query.indexes.RiakIndex;
 import com.basho.riak.client.core.query.indexes.RiakIndexes;
 import com.basho.riak.client.core.query.links.RiakLinks;
 import com.basho.riak.client.core.util.BinaryValue;
 import com.basho.riak.client.core.util.CharsetUtils;
 
 import java.nio.charset.Charset;
+import java.util.Map;
 
 /**
  * Represents the data and metadata stored in Riak
@@ -84,6 +87,11 @@ public final class RiakObject
 
     private volatile long lastModified;
 
+    // Content received from Riak, held until its value, links, indexes and
+    // user metadata have all been decoded.
+    private volatile EncodedContent content;
+    private volatile boolean valuePending;
+
     /**
      * Constructs a new, empty RiakObject.
      */
@@ -92,6 +100,118 @@ public final class RiakObject
 
     }
 
+    /**
+     * Constructs a RiakObject that decodes content returned by Riak on
+     * first use.
+     * @see EncodedContent#newRiakObject(VClock)
+     */
+    RiakObject(EncodedContent content, VClock vclock)
+    {
+        this.content = content;
+        this.valuePending = true;
+        this.vclock = vclock;
+    }
+
+    private synchronized void decodeValue()
+    {
+        if (valuePending)
+        {
+            value = content.decodeValue();
+            valuePending = false;
+            releaseContentIfDecoded();
+        }
+    }
+
+    // Must hold this object's lock.
+    private void releaseContentIfDecoded()
+    {
+        EncodedContent c = content;
+        if (c != null && !valuePending
+            && (riakIndexes != null || c.indexCount() == 0)
+            && (links != null || c.linkCount() == 0)
+            && (userMeta != null || c.userMetaCount() == 0))
+        {
+            content = null;
+        }
+    }
+
+    /**
+     * Decodes anything still held in the content.
+     */
+    private synchronized void decodeAll()
+    {
+        EncodedContent c = content;
+        if (c != null)
+        {
+            decodeValue();
+            if (c.indexCount() > 0)
+            {
+                decodeIndexes();
+            }
+            if (c.linkCount() > 0)
+            {
+                decodeLinks();
+            }
+            if (c.userMetaCount() > 0)
+            {
+                decodeUserMeta();
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of this RiakObject.
+     * <p>
+     * The indexes, links and user metadata are copied; the value is shared,
+     * as the {@code BinaryValue} holding it is not modified.
+     * </p>
+     *
+     * @return a new RiakObject equal to this one.
+     * @since 2.1
+     */
+    public RiakObject copy()
+    {
+        decodeAll();
+        RiakObject copy = new RiakObject();
+        copy.value = value;
+        copy.contentType = contentType;
+        copy.charset = charset;
+        copy.vtag = vtag;
+        copy.isDeleted = isDeleted;
+        copy.isModified = isModified;
+        copy.vclock = vclock;
+        copy.lastModified = lastModified;
+
+        RiakIndexes indexes = riakIndexes;
+        if (indexes != null)
+        {
+            copy.riakIndexes = new RiakIndexes();
+            for (RiakIndex<?> index : indexes)
+            {
+                copy.riakIndexes.getIndex(RawIndex.named(index.getFullname(), index.getType()))
+                    .add(index.rawValues());
+            }
+        }
+
+        RiakLinks links = this.links;
+        if (links != null)
+        {
+            copy.links = new RiakLinks().addLinks(links.getLinks());
+        }
+
+        RiakUserMetadata userMeta = this.userMeta;
+        if (userMeta != null)
+        {
+            copy.userMeta = new RiakUserMetadata();
+            for (Map.Entry<BinaryValue, BinaryValue> meta : userMeta.getUserMetadata())
+            {
+                copy.userMeta.put(meta.getKey(), meta.getValue());
+            }
+        }
+
+        return copy;
+    }
+
     // Methods For dealing with Value
 
     /**
@@ -101,7 +221,7 @@ public final class RiakObject
      */
     public boolean hasValue()
     {
-        return value != null;
+        return getValue() != null;
     }
 
     /**
@@ -111,6 +231,10 @@ public final class RiakObject
      */
     public BinaryValue getValue()
     {
+        if (valuePending)
+        {
+            decodeValue();
+        }
         return value;
     }
 
@@ -134,7 +258,15 @@ public final class RiakObject
         {
             throw new IllegalArgumentException("value can not be zero length");
         }
-        this.value = value;
+        synchronized (this)
+        {
+            this.value = value;
+            if (valuePending)
+            {
+                valuePending = false;
+                releaseContentIfDecoded();
+            }
+        }
         return this;
     }
 
@@ -307,7 +439,13 @@ public final class RiakObject
      */
     public boolean hasIndexes()
     {
-        return (riakIndexes != null && !riakIndexes.isEmpty());
+        EncodedContent c = content;
+        RiakIndexes indexes = riakIndexes;
+        if (indexes != null)
+        {
+            return !indexes.isEmpty();
+        }
+        return c != null && c.indexCount() > 0;
     }
 
     /**
@@ -322,12 +460,24 @@ public final class RiakObject
      * @return the {@link RiakIndexes} that encapsulates any/all indexes for this RiakObject
      * @see <a href="http://docs.basho.com/riak/latest/dev/advanced/2i/">Riak Secondary Indexes</a>
      */
-    public synchronized RiakIndexes getIndexes()
+    public RiakIndexes getIndexes()
+    {
+        RiakIndexes indexes = riakIndexes;
+        return indexes != null ? indexes : decodeIndexes();
+    }
+
+    private synchronized RiakIndexes decodeIndexes()
     {
         // Lazy initialization of the internal container.
         if (null == riakIndexes)
         {
-            riakIndexes = new RiakIndexes();
+            RiakIndexes indexes = new RiakIndexes();
+            if (content != null)
+            {
+                content.decodeIndexes(indexes);
+            }
+            riakIndexes = indexes;
+            releaseContentIfDecoded();
         }
         return riakIndexes;
     }
@@ -341,7 +491,13 @@ public final class RiakObject
      */
     public boolean hasLinks()
     {
-        return (links != null && !links.isEmpty());
+        EncodedContent c = content;
+        RiakLinks links = this.links;
+        if (links != null)
+        {
+            return !links.isEmpty();
+        }
+        return c != null && c.linkCount() > 0;
     }
 
     /**
@@ -352,12 +508,24 @@ public final class RiakObject
      *
      * @return the {@link RiakIndexes} that encapsulates all/any links for this {@code RiakObject}
      */
-    public synchronized RiakLinks getLinks()
+    public RiakLinks getLinks()
+    {
+        RiakLinks links = this.links;
+        return links != null ? links : decodeLinks();
+    }
+
+    private synchronized RiakLinks decodeLinks()
     {
         // Lazy initialization of container
         if (null == links)
         {
-            links = new RiakLinks();
+            RiakLinks links = new RiakLinks();
+            if (content != null)
+            {
+                content.decodeLinks(links);
+            }
+            this.links = links;
+            releaseContentIfDecoded();
         }
 
         return links;
@@ -372,7 +540,13 @@ public final class RiakObject
      */
     public boolean hasUserMeta()
     {
-        return userMeta != null && !userMeta.isEmpty();
+        EncodedContent c = content;
+        RiakUserMetadata userMeta = this.userMeta;
+        if (userMeta != null)
+        {
+            return !userMeta.isEmpty();
+        }
+        return c != null && c.userMetaCount() > 0;
     }
 
     /**
@@ -384,12 +558,24 @@ public final class RiakObject
      *
      * @return the {@code RiakUserMetadata} that containsKeyKey any/all User Meta entries for this {@code RiakObject}
      */
-    public synchronized RiakUserMetadata getUserMeta()
+    public RiakUserMetadata getUserMeta()
+    {
+        RiakUserMetadata userMeta = this.userMeta;
+        return userMeta != null ? userMeta : decodeUserMeta();
+    }
+
+    private synchronized RiakUserMetadata decodeUserMeta()
     {
         // Lazy initialization of container.
         if (null == userMeta)
         {
-            userMeta = new RiakUserMetadata();
+            RiakUserMetadata userMeta = new RiakUserMetadata();
+            if (content != null)
+            {
+                content.decodeUserMeta(userMeta);
+            }
+            this.userMeta = userMeta;
+            releaseContentIfDecoded();
         }
 
         return userMeta;
@@ -430,6 +616,8 @@ public final class RiakObject
         }
 
         RiakObject that = (RiakObject) o;
+        decodeAll();
+        that.decodeAll();
 
         if (isDeleted != that.isDeleted)
         {
@@ -482,6 +670,7 @@ public final class RiakObject
     @Override
     public int hashCode()
     {
+        decodeAll();
         int result = value != null ? value.hashCode() : 0;
         result = 31 * result + (riakIndexes != null ? riakIndexes.hashCode() : 0);
         result = 31 * result + (links != null ? links.hashCode() : 0);
@@ -499,6 +688,7 @@ public final class RiakObject
     @Override
     public String toString()
     {
+        decodeAll();
         return "RiakObject{" +
                 "contentType: " + contentType +
                 ", value: " + value +
@@ -93,6 +93,7 @@ public interface Constants
     public static final String MESSAGE_CODEC = "codec";
     public static final String OPERATION_ENCODER = "operationEncoder";
     public static final String RESPONSE_HANDLER = "responseHandler";
+    public static final String FLUSH_CONSOLIDATION_HANDLER = "flushConsolidationHandler";
     public static final String SSL_HANDLER = "sslHandler";
     public static final String HEALTHCHECK_CODEC = "healthCheckCodec";
 
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.api.commands;
+
+import com.basho.riak.client.api.RiakClient;
+import com.basho.riak.client.api.commands.kv.FullBucketExport;
+import com.basho.riak.client.api.commands.kv.FullBucketRead;
+import com.basho.riak.client.core.FutureOperation;
+import com.basho.riak.client.core.RiakCluster;
+import com.basho.riak.client.core.RiakMessage;
+import com.basho.riak.client.core.StreamingResults;
+import com.basho.riak.client.core.operations.CoveragePlanOperation;
+import com.basho.riak.client.core.operations.SecondaryIndexQueryOperation;
+import com.basho.riak.client.core.query.Namespace;
+import com.basho.riak.client.core.util.BinaryValue;
+import com.basho.riak.client.core.util.HostAndPort;
+import com.basho.riak.protobuf.RiakKvPB;
+import com.basho.riak.protobuf.RiakMessageCodes;
+import com.google.protobuf.ByteString;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.reflect.Whitebox;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public class FullBucketExportTest
+{
+    private static final HostAndPort HOST1 = HostAndPort.fromParts("10.0.0.1", 8087);
+    private static final HostAndPort HOST2 = HostAndPort.fromParts("10.0.0.2", 8087);
+
+    private final Namespace namespace = new Namespace("bucket");
+    private final List<CoveragePlanOperation> plans = new ArrayList<CoveragePlanOperation>();
+    private final List<String> reads = new ArrayList<String>();
+    private final Set<String> failing = new HashSet<String>();
+    private final List<String> replacements = new ArrayList<String>();
+    private final List<SecondaryIndexQueryOperation> held = new ArrayList<SecondaryIndexQueryOperation>();
+    private boolean hold;
+    private RiakClient client;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp()
+    {
+        RiakCluster cluster = mock(RiakCluster.class);
+        // Riak answers at once, on the executing thread.
+        doAnswer(new Answer<Object>()
+        {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable
+            {
+                CoveragePlanOperation operation = (CoveragePlanOperation) invocation.getArguments()[0];
+                plans.add(operation);
+                if (plans.size() == 1)
+                {
+                    operation.setResponse(coverage("a", HOST1, "b", HOST2));
+                }
+                else
+                {
+                    operation.setResponse(coverage(replacements.remove(0), HOST2));
+                }
+                operation.setComplete();
+                return operation;
+            }
+        }).when(cluster).execute(any(FutureOperation.class));
+
+        doAnswer(new Answer<Object>()
+        {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable
+            {
+                SecondaryIndexQueryOperation operation = (SecondaryIndexQueryOperation) invocation.getArguments()[0];
+                HostAndPort host = (HostAndPort) invocation.getArguments()[1];
+                String context = operation.getQueryInfo().getCoverageContext() == null
+                    ? null : new String(operation.getQueryInfo().getCoverageContext());
+                BinaryValue continuation = operation.getQueryInfo().getContinuation();
+                String read = context + "@" + host.getHost() + (continuation == null ? "" : "/" + continuation);
+                reads.add(read);
+
+                if (hold)
+                {
+                    // Left in flight.
+                    held.add(operation);
+                    return operation;
+                }
+                else if (failing.contains(read))
+                {
+                    Whitebox.invokeMethod(operation, "failWithoutRetry", new Exception("node down"));
+                    return operation;
+                }
+                else if (continuation == null && !context.equals("b"))
+                {
+                    operation.setResponse(keys("more", context + "-k1", context + "-k2"));
+                }
+                else
+                {
+                    operation.setResponse(keys(null, context + "-k3"));
+                }
+                operation.setComplete();
+                return operation;
+            }
+        }).when(cluster).executeOnHost(any(FutureOperation.class), any(HostAndPort.class));
+
+        client = new RiakClient(cluster);
+    }
+
+    private static RiakMessage coverage(Object... contextsAndHosts)
+    {
+        RiakKvPB.RpbCoverageResp.Builder builder = RiakKvPB.RpbCoverageResp.newBuilder();
+        for (int i = 0; i < contextsAndHosts.length; i += 2)
+        {
+            HostAndPort host = (HostAndPort) contextsAndHosts[i + 1];
+            builder.addEntries(RiakKvPB.RpbCoverageEntry.newBuilder()
+                                   .setCoverContext(ByteString.copyFromUtf8((String) contextsAndHosts[i]))
+                                   .setIp(ByteString.copyFromUtf8(host.getHost()))
+                                   .setPort(host.getPort())
+                                   .setKeyspaceDesc(ByteString.copyFromUtf8("")));
+        }
+        return new RiakMessage(RiakMessageCodes.MSG_CoverageResp, builder.build().toByteArray());
+    }
+
+    private static RiakMessage keys(String continuation, String... keys)
+    {
+        RiakKvPB.RpbIndexResp.Builder builder = RiakKvPB.RpbIndexResp.newBuilder().setDone(true);
+        for (String key : keys)
+        {
+            builder.addKeys(ByteString.copyFromUtf8(key));
+        }
+        if (continuation != null)
+        {
+            builder.setContinuation(ByteString.copyFromUtf8(continuation));
+        }
+        return new RiakMessage(RiakMessageCodes.MSG_IndexResp, builder.build().toByteArray());
+    }
+
+    private static Set<String> keysOf(Iterable<FullBucketRead.Response.Entry> entries)
+    {
+        Set<String> keys = new HashSet<String>();
+        for (FullBucketRead.Response.Entry entry : entries)
+        {
+            assertTrue("Returned twice: " + entry, keys.add(entry.getLocation().getKeyAsString()));
+        }
+        return keys;
+    }
+
+    private static Set<String> setOf(String... values)
+    {
+        Set<String> set = new HashSet<String>();
+        for (String value : values)
+        {
+            set.add(value);
+        }
+        return set;
+    }
+
+    @Test
+    public void readsEveryEntryOnItsHostPageByPage() throws Exception
+    {
+        FullBucketExport export = new FullBucketExport.Builder(namespace).withPageSize(2).build();
+        FullBucketExport.Response response = client.execute(export);
+
+        assertEquals(setOf("a-k1", "a-k2", "a-k3", "b-k3"), keysOf(response));
+        assertEquals(setOf("a@10.0.0.1", "a@10.0.0.1/more", "b@10.0.0.2"), new HashSet<String>(reads));
+        assertEquals(3, reads.size());
+        assertEquals(1, plans.size());
+    }
+
+    @Test
+    public void failedEntriesAreReplacedAndCarryOn() throws Exception
+    {
+        failing.add("a@10.0.0.1/more");
+        replacements.add("a2");
+
+        FullBucketExport export = new FullBucketExport.Builder(namespace).build();
+        FullBucketExport.Response response = client.execute(export);
+
+        // The first page isn't read again; the replacement carries on after it.
+        assertEquals(setOf("a-k1", "a-k2", "a2-k3", "b-k3"), keysOf(response));
+        assertTrue(reads.contains("a2@10.0.0.2/more"));
+        assertEquals(2, plans.size());
+
+        RiakKvPB.RpbCoverageReq.Builder replan = Whitebox.getInternalState(plans.get(1), "reqBuilder");
+        assertEquals("a", replan.getReplaceCover().toStringUtf8());
+        assertEquals(1, replan.getUnavailableCoverCount());
+        assertEquals("a", replan.getUnavailableCover(0).toStringUtf8());
+    }
+
+    @Test
+    public void exportFailsAfterMaxAttempts() throws Exception
+    {
+        failing.add("a@10.0.0.1");
+        failing.add("a2@10.0.0.2");
+        replacements.add("a2");
+
+        FullBucketExport export = new FullBucketExport.Builder(namespace).withMaxAttempts(2).build();
+        try
+        {
+            client.execute(export);
+            fail("Expected ExecutionException");
+        }
+        catch (ExecutionException ex)
+        {
+            assertEquals("node down", ex.getCause().getMessage());
+        }
+        assertEquals(2, plans.size());
+    }
+
+    @Test
+    public void streamingStopsReadingWhilePagesWait() throws Exception
+    {
+        FullBucketExport export = new FullBucketExport.Builder(namespace)
+                                      .withMaxBufferedPages(1)
+                                      .build();
+        StreamingResults<FullBucketExport.Response> results = client.executeStreaming(export);
+
+        // The first page of each entry was read; the rest waits for the caller.
+        assertEquals(2, reads.size());
+
+        List<FullBucketRead.Response.Entry> entries = new ArrayList<FullBucketRead.Response.Entry>();
+        int pages = 0;
+        for (FullBucketExport.Response page : results)
+        {
+            entries.addAll(page.getEntries());
+            pages++;
+        }
+        assertEquals(3, pages);
+        assertEquals(3, reads.size());
+        assertEquals(setOf("a-k1", "a-k2", "a-k3", "b-k3"), keysOf(entries));
+        assertTrue(results.getFuture().isSuccess());
+    }
+
+    @Test
+    public void cancellingCancelsPagesBeingRead() throws Exception
+    {
+        hold = true;
+        FullBucketExport export = new FullBucketExport.Builder(namespace).build();
+        StreamingResults<FullBucketExport.Response> results = client.executeStreaming(export);
+        assertEquals(2, held.size());
+        for (SecondaryIndexQueryOperation operation : held)
+        {
+            assertFalse(operation.isDone());
+        }
+
+        results.cancel();
+        assertTrue(results.getFuture().isCancelled());
+        for (SecondaryIndexQueryOperation operation : held)
+        {
+            assertTrue(operation.isCancelled());
+        }
+        assertEquals(2, reads.size());
+    }
+}
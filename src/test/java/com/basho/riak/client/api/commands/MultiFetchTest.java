@@ -0,0 +1,199 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.api.commands;
+
+import com.basho.riak.client.api.RiakClient;
+import com.basho.riak.client.api.commands.kv.FetchValue;
+import com.basho.riak.client.api.commands.kv.MultiFetch;
+import com.basho.riak.client.api.commands.kv.MultiStore;
+import com.basho.riak.client.api.commands.kv.StoreValue;
+import com.basho.riak.client.core.FutureOperation;
+import com.basho.riak.client.core.RiakCluster;
+import com.basho.riak.client.core.RiakFuture;
+import com.basho.riak.client.core.RiakMessage;
+import com.basho.riak.client.core.StreamingResults;
+import com.basho.riak.client.core.operations.FetchOperation;
+import com.basho.riak.client.core.operations.StoreOperation;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import com.basho.riak.client.core.query.RiakObject;
+import com.basho.riak.client.core.util.BinaryValue;
+import com.basho.riak.protobuf.RiakKvPB;
+import com.basho.riak.protobuf.RiakMessageCodes;
+import com.google.protobuf.ByteString;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public class MultiFetchTest
+{
+    private final Namespace namespace = new Namespace("bucket");
+    private final List<FutureOperation<?, ?, ?>> sent = new ArrayList<FutureOperation<?, ?, ?>>();
+    private RiakClient client;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp()
+    {
+        RiakCluster cluster = mock(RiakCluster.class);
+        // Operations are left in flight until the test completes them.
+        doAnswer(new Answer<Object>()
+        {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable
+            {
+                FutureOperation<?, ?, ?> operation = (FutureOperation<?, ?, ?>) invocation.getArguments()[0];
+                sent.add(operation);
+                return operation;
+            }
+        }).when(cluster).execute(any(FutureOperation.class));
+        client = new RiakClient(cluster);
+    }
+
+    private MultiFetch multiFetch(int numKeys, int maxInFlight)
+    {
+        MultiFetch.Builder builder = new MultiFetch.Builder().withMaxInFlight(maxInFlight);
+        for (int i = 0; i < numKeys; i++)
+        {
+            builder.addLocation(new Location(namespace, "key" + i));
+        }
+        return builder.build();
+    }
+
+    private void complete(int index)
+    {
+        FetchOperation operation = (FetchOperation) sent.get(index);
+        String key = operation.getQueryInfo().getKeyAsString();
+        RiakKvPB.RpbGetResp resp = RiakKvPB.RpbGetResp.newBuilder()
+            .setVclock(ByteString.copyFromUtf8("vclock"))
+            .addContent(RiakKvPB.RpbContent.newBuilder().setValue(ByteString.copyFromUtf8(key)))
+            .build();
+        operation.setResponse(new RiakMessage(RiakMessageCodes.MSG_GetResp, resp.toByteArray()));
+        operation.setComplete();
+    }
+
+    private static String valueOf(RiakFuture<FetchValue.Response, Location> future) throws Exception
+    {
+        return future.get().getValue(RiakObject.class).getValue().toString();
+    }
+
+    @Test
+    public void completedFetchesSendTheNextInInputOrder() throws Exception
+    {
+        RiakFuture<MultiFetch.Response, List<Location>> future = client.executeAsync(multiFetch(5, 2));
+        assertEquals(2, sent.size());
+
+        complete(1);
+        assertEquals(3, sent.size());
+        complete(0);
+        complete(2);
+        complete(4);
+        complete(3);
+        assertEquals(5, sent.size());
+
+        assertTrue(future.isSuccess());
+        List<RiakFuture<FetchValue.Response, Location>> responses = future.get().getResponses();
+        assertEquals(5, responses.size());
+        for (int i = 0; i < 5; i++)
+        {
+            assertEquals("key" + i, valueOf(responses.get(i)));
+        }
+    }
+
+    @Test
+    public void streamingReturnsRunsOfCompletedFetches() throws Exception
+    {
+        StreamingResults<MultiFetch.Response> results = client.executeStreaming(multiFetch(4, 4));
+        assertEquals(4, sent.size());
+
+        complete(1);
+        complete(0);
+        List<RiakFuture<FetchValue.Response, Location>> first = results.next().getResponses();
+        assertEquals(2, first.size());
+        assertEquals("key0", valueOf(first.get(0)));
+        assertEquals("key1", valueOf(first.get(1)));
+
+        complete(3);
+        complete(2);
+        List<RiakFuture<FetchValue.Response, Location>> second = results.next().getResponses();
+        assertEquals(2, second.size());
+        assertEquals("key2", valueOf(second.get(0)));
+        assertEquals("key3", valueOf(second.get(1)));
+        assertFalse(results.hasNext());
+    }
+
+    @Test
+    public void cancellingStopsSending() throws Exception
+    {
+        RiakFuture<MultiFetch.Response, List<Location>> future = client.executeAsync(multiFetch(5, 1));
+        assertEquals(1, sent.size());
+        assertTrue(future.cancel(false));
+        assertTrue(future.isDone());
+        assertTrue(future.isCancelled());
+
+        complete(0);
+        assertEquals(1, sent.size());
+        try
+        {
+            future.get();
+            fail("Expected CancellationException");
+        }
+        catch (CancellationException ex)
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void multiStoreStoresEachValue() throws Exception
+    {
+        MultiStore multiStore = new MultiStore.Builder()
+            .addValue(new Location(namespace, "key0"), new RiakObject().setValue(BinaryValue.create("v0")))
+            .addValue(new Location(namespace, "key1"), new RiakObject().setValue(BinaryValue.create("v1")))
+            .withOption(StoreValue.Option.RETURN_BODY, false)
+            .build();
+        RiakFuture<MultiStore.Response, List<Location>> future = client.executeAsync(multiStore);
+        assertEquals(2, sent.size());
+
+        for (int i = 0; i < 2; i++)
+        {
+            StoreOperation operation = (StoreOperation) sent.get(i);
+            assertEquals("key" + i, operation.getQueryInfo().getKeyAsString());
+            operation.setResponse(new RiakMessage(RiakMessageCodes.MSG_PutResp, new byte[0]));
+            operation.setComplete();
+        }
+
+        assertTrue(future.isSuccess());
+        assertEquals(2, future.get().getResponses().size());
+        for (RiakFuture<StoreValue.Response, Location> f : future.get())
+        {
+            assertTrue(f.isSuccess());
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.api.convert.reflection;
+
+import com.basho.riak.client.api.annotations.RiakBucketName;
+import com.basho.riak.client.api.annotations.RiakContentType;
+import com.basho.riak.client.api.annotations.RiakIndex;
+import com.basho.riak.client.api.annotations.RiakKey;
+import com.basho.riak.client.api.annotations.RiakLinks;
+import com.basho.riak.client.api.annotations.RiakTombstone;
+import com.basho.riak.client.api.annotations.RiakUsermeta;
+import com.basho.riak.client.api.annotations.RiakVClock;
+import com.basho.riak.client.api.cap.BasicVClock;
+import com.basho.riak.client.api.cap.VClock;
+import com.basho.riak.client.core.query.UserMetadata.RiakUserMetadata;
+import com.basho.riak.client.core.query.indexes.RiakIndexes;
+import com.basho.riak.client.core.query.indexes.StringBinIndex;
+import com.basho.riak.client.core.query.links.RiakLink;
+import com.basho.riak.client.core.util.BinaryValue;
+import org.junit.Assume;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures reading each kind of annotated member of a domain object against
+ * hand-written code, and what calling an annotated setter allocates through
+ * its accessor and through reflection.
+ */
+public class AnnotationAccessorBenchmarkTest
+{
+    private final Logger logger = LoggerFactory.getLogger(AnnotationAccessorBenchmarkTest.class);
+
+    public static class Pojo
+    {
+        @RiakKey
+        private String key = "key";
+        @RiakBucketName
+        private String bucket = "bucket";
+        @RiakVClock
+        private VClock vclock = new BasicVClock(new byte[] {1, 2, 3});
+        @RiakTombstone
+        private Boolean tombstone = false;
+        @RiakContentType
+        private String contentType = "application/json";
+        @RiakIndex(name = "email")
+        private String email = "user@example.com";
+        @RiakUsermeta(key = "origin")
+        private String origin = "benchmark";
+        @RiakLinks
+        private Collection<RiakLink> links =
+            new ArrayList<RiakLink>(Collections.singletonList(new RiakLink("bucket", "other", "tag")));
+    }
+
+    public static class MethodPojo
+    {
+        private String key = "key";
+        private byte[] vclock = {1, 2, 3};
+
+        @RiakKey
+        public String getKey()
+        {
+            return key;
+        }
+
+        @RiakKey
+        public void setKey(String key)
+        {
+            this.key = key;
+        }
+
+        @RiakVClock
+        public byte[] getVClock()
+        {
+            return vclock;
+        }
+
+        @RiakVClock
+        public void setVClock(byte[] vclock)
+        {
+            this.vclock = vclock;
+        }
+    }
+
+    @Test
+    public void accessorsReadAndWriteEveryKind()
+    {
+        Pojo pojo = new Pojo();
+        assertEquals("key", AnnotationUtil.getKey(pojo).toString());
+        assertEquals("bucket", AnnotationUtil.getBucketName(pojo).toString());
+        assertEquals(pojo.vclock, AnnotationUtil.getVClock(pojo));
+        assertEquals(false, AnnotationUtil.getTombstone(pojo));
+        assertEquals("application/json", AnnotationUtil.getContentType(pojo));
+        RiakIndexes indexes = AnnotationUtil.getIndexes(new RiakIndexes(), pojo);
+        assertTrue(indexes.getIndex(StringBinIndex.named("email")).hasValue("user@example.com"));
+        RiakUserMetadata meta = AnnotationUtil.getUsermetaData(new RiakUserMetadata(), pojo);
+        assertEquals("benchmark", meta.get("origin"));
+        assertEquals(1, AnnotationUtil.getLinks(new com.basho.riak.client.core.query.links.RiakLinks(), pojo).size());
+
+        AnnotationUtil.setKey(pojo, BinaryValue.create("other"));
+        AnnotationUtil.setTombstone(pojo, true);
+        assertEquals("other", pojo.key);
+        assertEquals(true, pojo.tombstone);
+
+        MethodPojo methodPojo = new MethodPojo();
+        AnnotationUtil.setKey(methodPojo, BinaryValue.create("other"));
+        AnnotationUtil.setVClock(methodPojo, new BasicVClock(new byte[] {4}));
+        assertEquals("other", AnnotationUtil.getKey(methodPojo).toString());
+        assertEquals(new BasicVClock(new byte[] {4}), AnnotationUtil.getVClock(methodPojo));
+    }
+
+    @Test
+    public void accessorBenchmark() throws Exception
+    {
+        Assume.assumeTrue(Boolean.getBoolean("com.basho.riak.benchmark"));
+        Pojo pojo = new Pojo();
+        MethodPojo methodPojo = new MethodPojo();
+        int iterations = 500000;
+
+        // Warm up.
+        runAnnotated(pojo, methodPojo, iterations);
+        runHandWritten(pojo, methodPojo, iterations);
+
+        logger.info("Reading every kind of annotated member: {} ns/object",
+                    runAnnotated(pojo, methodPojo, iterations));
+        logger.info("Reading the same through getters: {} ns/object",
+                    runHandWritten(pojo, methodPojo, iterations));
+    }
+
+    @Test
+    public void setterAllocationBenchmark() throws Exception
+    {
+        Assume.assumeTrue(Boolean.getBoolean("com.basho.riak.benchmark"));
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported()
+                              && threads.isThreadAllocatedMemoryEnabled());
+
+        Method setter = ClassUtil.checkAndFixAccess(MethodPojo.class.getMethod("setKey", String.class));
+        MemberAccessor accessor = MemberAccessor.of(setter);
+        MethodPojo methodPojo = new MethodPojo();
+        int iterations = 200000;
+
+        // Warm up.
+        runSetter(threads, accessor, null, methodPojo, iterations);
+        runSetter(threads, null, setter, methodPojo, iterations);
+
+        long handle = runSetter(threads, accessor, null, methodPojo, iterations);
+        long reflection = runSetter(threads, null, setter, methodPojo, iterations);
+        logger.info("Calling an annotated setter through its accessor: {} bytes/call", handle);
+        logger.info("Calling an annotated setter through Method.invoke(): {} bytes/call", reflection);
+    }
+
+    private long runAnnotated(Pojo pojo, MethodPojo methodPojo, int iterations)
+    {
+        long total = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++)
+        {
+            total += AnnotationUtil.getKey(pojo).length();
+            total += AnnotationUtil.getBucketName(pojo).length();
+            total += AnnotationUtil.getVClock(pojo).getBytes().length;
+            total += AnnotationUtil.getTombstone(pojo) ? 0 : 1;
+            total += AnnotationUtil.getContentType(pojo).length();
+            total += AnnotationUtil.getIndexes(new RiakIndexes(), pojo).size();
+            total += AnnotationUtil.getUsermetaData(new RiakUserMetadata(), pojo).size();
+            total += AnnotationUtil.getKey(methodPojo).length();
+            total += AnnotationUtil.getVClock(methodPojo).getBytes().length;
+        }
+        long elapsed = System.nanoTime() - start;
+        assertTrue(total > 0);
+        return elapsed / iterations;
+    }
+
+    private long runHandWritten(Pojo pojo, MethodPojo methodPojo, int iterations)
+    {
+        long total = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++)
+        {
+            total += BinaryValue.create(pojo.key).length();
+            total += BinaryValue.create(pojo.bucket).length();
+            total += pojo.vclock.getBytes().length;
+            total += pojo.tombstone ? 0 : 1;
+            total += pojo.contentType.length();
+            RiakIndexes indexes = new RiakIndexes();
+            indexes.getIndex(StringBinIndex.named("email")).add(pojo.email);
+            total += indexes.size();
+            RiakUserMetadata meta = new RiakUserMetadata();
+            meta.put("origin", pojo.origin);
+            total += meta.size();
+            total += BinaryValue.create(methodPojo.getKey()).length();
+            total += new BasicVClock(methodPojo.getVClock()).getBytes().length;
+        }
+        long elapsed = System.nanoTime() - start;
+        assertTrue(total > 0);
+        return elapsed / iterations;
+    }
+
+    private long runSetter(com.sun.management.ThreadMXBean threads, MemberAccessor accessor, Method setter,
+                           MethodPojo methodPojo, int iterations)
+    {
+        long threadId = Thread.currentThread().getId();
+        long start = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++)
+        {
+            if (accessor != null)
+            {
+                accessor.set(methodPojo, "key");
+            }
+            else
+            {
+                ClassUtil.setMethodValue(setter, methodPojo, "key");
+            }
+        }
+        assertEquals("key", methodPojo.getKey());
+        return (threads.getThreadAllocatedBytes(threadId) - start) / iterations;
+    }
+}
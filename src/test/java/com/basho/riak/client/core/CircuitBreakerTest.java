@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+import com.basho.riak.client.core.CircuitBreaker.Transition;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest
+{
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(200);
+
+    @Test
+    public void tripsOnFailureRateOverWindow()
+    {
+        CircuitBreaker breaker = new CircuitBreaker(new CircuitBreakerPolicy.Builder()
+                                                        .withWindowSize(10)
+                                                        .withMinimumCalls(5)
+                                                        .withFailureRateThreshold(50)
+                                                        .build());
+
+        // Not enough calls yet.
+        for (int i = 0; i < 4; i++)
+        {
+            assertEquals(Transition.NONE, breaker.record(FAST, false));
+        }
+        assertEquals(Transition.OPENED, breaker.record(FAST, false));
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        assertEquals(1, breaker.getTripCount());
+
+        // Old failures slide out of the window.
+        breaker = new CircuitBreaker(new CircuitBreakerPolicy.Builder()
+                                         .withWindowSize(10)
+                                         .withMinimumCalls(10)
+                                         .withFailureRateThreshold(50)
+                                         .build());
+        for (int i = 0; i < 4; i++)
+        {
+            breaker.record(FAST, false);
+        }
+        for (int i = 0; i < 100; i++)
+        {
+            assertEquals(Transition.NONE, breaker.record(FAST, true));
+        }
+        for (int i = 0; i < 4; i++)
+        {
+            assertEquals(Transition.NONE, breaker.record(FAST, false));
+        }
+        assertEquals(Transition.OPENED, breaker.record(FAST, false));
+    }
+
+    @Test
+    public void tripsOnSlowCalls()
+    {
+        CircuitBreakerPolicy.Builder builder = new CircuitBreakerPolicy.Builder()
+                                                   .withWindowSize(4)
+                                                   .withMinimumCalls(4);
+
+        CircuitBreaker ignoresLatency = new CircuitBreaker(builder.build());
+        for (int i = 0; i < 10; i++)
+        {
+            assertEquals(Transition.NONE, ignoresLatency.record(SLOW, true));
+        }
+
+        CircuitBreaker breaker = new CircuitBreaker(builder.withSlowCallThreshold(100, 75).build());
+        breaker.record(FAST, true);
+        breaker.record(SLOW, true);
+        breaker.record(SLOW, true);
+        assertEquals(Transition.NONE, breaker.record(FAST, true));
+        assertEquals(Transition.OPENED, breaker.record(SLOW, true));
+    }
+
+    @Test
+    public void halfOpenAllowsProbes()
+    {
+        CircuitBreaker breaker = new CircuitBreaker(new CircuitBreakerPolicy.Builder()
+                                                        .withWindowSize(1)
+                                                        .withProbeCount(2)
+                                                        .build());
+        assertFalse(breaker.halfOpen());
+        breaker.record(FAST, false);
+        assertTrue(breaker.halfOpen());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        assertTrue(breaker.allowRequest());
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.allowRequest());
+        // A probe the node couldn't carry out is handed back.
+        breaker.release();
+        assertTrue(breaker.allowRequest());
+
+        assertEquals(Transition.NONE, breaker.record(FAST, true));
+        assertEquals(Transition.OPENED, breaker.record(FAST, false));
+        assertEquals(2, breaker.getTripCount());
+
+        assertTrue(breaker.halfOpen());
+        assertEquals(Transition.NONE, breaker.record(FAST, true));
+        assertEquals(Transition.CLOSED, breaker.record(FAST, true));
+        assertTrue(breaker.allowRequest());
+    }
+}
@@ -94,6 +94,35 @@ public class DefaultNodeManagerTest
         assertFalse(executed);
     }
     
+    @Test
+    public void executeOnNodeAvoidsPreviousNode()
+    {
+        FutureOperation operation = PowerMockito.mock(FutureOperation.class);
+        DefaultNodeManager nodeManager = new DefaultNodeManager();
+        for (RiakNode node : mockNodes)
+        {
+            doReturn(true).when(node).execute(operation);
+        }
+        nodeManager.init(mockNodes);
+        assertTrue(nodeManager.executeOnNode(operation, mockNodes.get(0)));
+        verify(mockNodes.get(0), never()).execute(operation);
+        verify(mockNodes.get(1)).execute(operation);
+    }
+
+    @Test
+    public void executeOnNodeFallsBackToPreviousNode()
+    {
+        FutureOperation operation = PowerMockito.mock(FutureOperation.class);
+        DefaultNodeManager nodeManager = new DefaultNodeManager();
+        doReturn(true).when(mockNodes.get(2)).execute(operation);
+        nodeManager.init(mockNodes);
+        assertTrue(nodeManager.executeOnNode(operation, mockNodes.get(2)));
+        for (int i = 0; i < mockNodes.size(); i++)
+        {
+            verify(mockNodes.get(i)).execute(operation);
+        }
+    }
+
     @Test
     public void removeUnhealthyNode()
     {
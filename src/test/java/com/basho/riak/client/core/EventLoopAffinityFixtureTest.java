@@ -0,0 +1,131 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+import com.basho.riak.client.core.fixture.NetworkTestFixture;
+import com.basho.riak.client.core.operations.FetchOperation;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Executes operations from the event loops of an application's
+ * {@link EventLoopGroup} shared with the cluster.
+ */
+public class EventLoopAffinityFixtureTest extends FixtureTest
+{
+    private final Location location =
+        new Location(new Namespace(Namespace.DEFAULT_BUCKET_TYPE, "test_bucket"), "test_key2");
+
+    @Test(timeout = 10000)
+    public void operationsCompleteOnTheCallingEventLoop() throws Exception
+    {
+        assertAffinity(DefaultConnectionPool.FACTORY);
+    }
+
+    @Test(timeout = 10000)
+    public void operationsCompleteOnTheCallingEventLoopWithStripedPool() throws Exception
+    {
+        assertAffinity(StripedConnectionPool.FACTORY);
+    }
+
+    private void assertAffinity(ConnectionPoolFactory poolFactory) throws Exception
+    {
+        EventLoopGroup group = new NioEventLoopGroup(4);
+        RiakNode node = new RiakNode.Builder()
+                            .withRemotePort(startingPort + NetworkTestFixture.PB_FULL_WRITE_STAY_OPEN)
+                            .withMinConnections(0)
+                            .withConnectionPoolFactory(poolFactory)
+                            .build();
+        final RiakCluster cluster = new RiakCluster.Builder(node).withEventLoopGroup(group).build();
+        cluster.start();
+
+        try
+        {
+            EventLoop loop = group.next();
+            Thread loopThread = loop.submit(new Callable<Thread>()
+            {
+                @Override
+                public Thread call()
+                {
+                    return Thread.currentThread();
+                }
+            }).get();
+
+            // Two rounds, so the second reuses the connections opened by the first.
+            for (int round = 0; round < 2; round++)
+            {
+                final Queue<Thread> listenerThreads = new ConcurrentLinkedQueue<Thread>();
+                final CountDownLatch listenersRun = new CountDownLatch(10);
+                List<FetchOperation> operations = loop.submit(new Callable<List<FetchOperation>>()
+                {
+                    @Override
+                    public List<FetchOperation> call()
+                    {
+                        List<FetchOperation> operations = new ArrayList<FetchOperation>();
+                        for (int i = 0; i < 10; i++)
+                        {
+                            FetchOperation operation = new FetchOperation.Builder(location).build();
+                            cluster.execute(operation);
+                            operation.addListener(new RiakFutureListener<FetchOperation.Response, Location>()
+                            {
+                                @Override
+                                public void handle(RiakFuture<FetchOperation.Response, Location> f)
+                                {
+                                    listenerThreads.add(Thread.currentThread());
+                                    listenersRun.countDown();
+                                }
+                            });
+                            operations.add(operation);
+                        }
+                        return operations;
+                    }
+                }).get();
+
+                for (FetchOperation operation : operations)
+                {
+                    assertEquals("This is a value!",
+                                 operation.get().getObjectList().get(0).getValue().toString());
+                }
+                listenersRun.await();
+                for (Thread t : listenerThreads)
+                {
+                    assertSame(loopThread, t);
+                }
+            }
+        }
+        finally
+        {
+            cluster.shutdown().get();
+            assertFalse(group.isShuttingDown());
+            group.shutdownGracefully();
+        }
+    }
+}
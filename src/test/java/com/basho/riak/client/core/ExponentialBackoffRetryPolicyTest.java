@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+import com.basho.riak.client.api.cap.BasicVClock;
+import com.basho.riak.client.core.operations.DtUpdateOperation;
+import com.basho.riak.client.core.operations.FetchOperation;
+import com.basho.riak.client.core.operations.StoreOperation;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import com.basho.riak.client.core.query.RiakObject;
+import com.basho.riak.client.core.util.BinaryValue;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ExponentialBackoffRetryPolicyTest
+{
+    private final Location location = new Location(new Namespace("bucket"), "key");
+    private final FetchOperation fetch = new FetchOperation.Builder(location).build();
+
+    @Test
+    public void backoffGrowsToItsCap()
+    {
+        ExponentialBackoffRetryPolicy policy = new ExponentialBackoffRetryPolicy.Builder()
+                                                   .withInitialBackoff(10)
+                                                   .withMaxBackoff(40)
+                                                   .withRetryBudget(0, 0.1)
+                                                   .build();
+
+        long[] caps = { 10, 20, 40, 40, 40 };
+        for (int attempts = 1; attempts <= caps.length; attempts++)
+        {
+            long cap = TimeUnit.MILLISECONDS.toNanos(caps[attempts - 1]);
+            long longest = 0;
+            for (int i = 0; i < 200; i++)
+            {
+                long delay = policy.getRetryDelay(fetch, attempts, true);
+                assertTrue(delay >= 0 && delay <= cap);
+                longest = Math.max(longest, delay);
+            }
+            // Jittered across the whole range, not stuck at the bottom.
+            assertTrue(longest > cap / 2);
+        }
+
+        ExponentialBackoffRetryPolicy immediate = new ExponentialBackoffRetryPolicy.Builder()
+                                                      .withInitialBackoff(0)
+                                                      .build();
+        assertEquals(0, immediate.getRetryDelay(fetch, 1, true));
+    }
+
+    @Test
+    public void writtenNonIdempotentOperationsAreNotRetried()
+    {
+        ExponentialBackoffRetryPolicy policy = new ExponentialBackoffRetryPolicy.Builder().build();
+
+        RiakObject object = new RiakObject().setValue(BinaryValue.create("value"));
+        StoreOperation blindStore = new StoreOperation.Builder(location).withContent(object).build();
+        assertFalse(blindStore.isIdempotent());
+        assertEquals(RetryPolicy.NO_RETRY, policy.getRetryDelay(blindStore, 1, true));
+        assertTrue(policy.getRetryDelay(blindStore, 1, false) >= 0);
+
+        object.setVClock(new BasicVClock(new byte[] { 1 }));
+        StoreOperation conditionalStore = new StoreOperation.Builder(location).withContent(object).build();
+        assertTrue(conditionalStore.isIdempotent());
+        assertTrue(policy.getRetryDelay(conditionalStore, 1, true) >= 0);
+
+        Location counter = new Location(new Namespace("counters", "bucket"), "key");
+        assertFalse(new DtUpdateOperation.Builder(counter).build().isIdempotent());
+
+        ExponentialBackoffRetryPolicy retryAll = new ExponentialBackoffRetryPolicy.Builder()
+                                                     .withNonIdempotentRetries(true)
+                                                     .build();
+        assertTrue(retryAll.getRetryDelay(blindStore, 1, true) >= 0);
+    }
+
+    @Test
+    public void budgetLimitsRetries()
+    {
+        ExponentialBackoffRetryPolicy policy = new ExponentialBackoffRetryPolicy.Builder()
+                                                   .withRetryBudget(10, 0.5)
+                                                   .build();
+
+        // Retries are allowed while more than half the budget remains.
+        for (int i = 0; i < 4; i++)
+        {
+            assertTrue(policy.getRetryDelay(fetch, 1, true) >= 0);
+        }
+        assertEquals(RetryPolicy.NO_RETRY, policy.getRetryDelay(fetch, 1, true));
+        assertEquals(5, policy.getAvailableTokens(), 0.001);
+
+        for (int i = 0; i < 4; i++)
+        {
+            policy.operationSucceeded(fetch);
+        }
+        assertEquals(7, policy.getAvailableTokens(), 0.001);
+        assertTrue(policy.getRetryDelay(fetch, 1, true) >= 0);
+
+        // Never overfills.
+        for (int i = 0; i < 100; i++)
+        {
+            policy.operationSucceeded(fetch);
+        }
+        assertEquals(10, policy.getAvailableTokens(), 0.001);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+import com.google.protobuf.Message;
+import org.junit.Assume;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Times the completion path of an operation, outside of PowerMock, which
+ * instruments FutureOperation in {@link FutureOperationTest}.
+ */
+public class FutureOperationBenchmarkTest
+{
+    private final Logger logger = LoggerFactory.getLogger(FutureOperationBenchmarkTest.class);
+
+    private final RiakMessage response = new RiakMessage((byte) 0, new byte[0]);
+
+    @Test
+    public void completionBenchmark()
+    {
+        Assume.assumeTrue(Boolean.getBoolean("com.basho.riak.benchmark"));
+        int numOperations = 1000000;
+        RiakFutureListener<String, Void> listener = new RiakFutureListener<String, Void>()
+        {
+            @Override
+            public void handle(RiakFuture<String, Void> f)
+            {
+                assertEquals("value", f.getNow());
+            }
+        };
+
+        // Warm up.
+        runCompletionBenchmark(listener, numOperations);
+
+        long elapsed = runCompletionBenchmark(listener, numOperations);
+        logger.info("Writing, completing and notifying an operation: {}ns/operation",
+                    elapsed / numOperations);
+    }
+
+    @Test
+    public void blockingCompletionBenchmark() throws InterruptedException
+    {
+        Assume.assumeTrue(Boolean.getBoolean("com.basho.riak.benchmark"));
+        int numOperations = 20000;
+
+        // Warm up.
+        runBlockingCompletionBenchmark(numOperations);
+
+        long elapsed = runBlockingCompletionBenchmark(numOperations);
+        logger.info("Completing an operation another thread is blocked on: {}ns/operation",
+                    elapsed / numOperations);
+    }
+
+    private long runCompletionBenchmark(RiakFutureListener<String, Void> listener, int numOperations)
+    {
+        long start = System.nanoTime();
+        for (int i = 0; i < numOperations; i++)
+        {
+            StringOperation operation = new StringOperation();
+            operation.addListener(listener);
+            operation.channelMessage();
+            operation.setResponse(response);
+            operation.setComplete();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private long runBlockingCompletionBenchmark(final int numOperations) throws InterruptedException
+    {
+        final StringOperation[] operations = new StringOperation[numOperations];
+        for (int i = 0; i < numOperations; i++)
+        {
+            operations[i] = new StringOperation();
+        }
+        final CountDownLatch done = new CountDownLatch(1);
+        Thread waiter = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    for (StringOperation operation : operations)
+                    {
+                        operation.await();
+                    }
+                    done.countDown();
+                }
+                catch (InterruptedException ex)
+                {
+                    // fails the benchmark
+                }
+            }
+        });
+        waiter.start();
+
+        long start = System.nanoTime();
+        for (StringOperation operation : operations)
+        {
+            operation.channelMessage();
+            operation.setResponse(response);
+            operation.setComplete();
+        }
+        assertTrue(done.await(1, TimeUnit.MINUTES));
+        return System.nanoTime() - start;
+    }
+
+    private class StringOperation extends FutureOperation<String, Message, Void>
+    {
+        @Override
+        protected String convert(List<Message> rawResponse)
+        {
+            return "value";
+        }
+
+        @Override
+        protected RiakMessage createChannelMessage()
+        {
+            return response;
+        }
+
+        @Override
+        protected Message decode(RiakMessage rawMessage)
+        {
+            return null;
+        }
+
+        @Override
+        public Void getQueryInfo()
+        {
+            return null;
+        }
+    }
+}
@@ -23,12 +23,17 @@ import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 import org.powermock.reflect.Whitebox;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.mock;
@@ -97,6 +102,30 @@ public class FutureOperationTest
         assertFalse(operation.isDone());
     }
 
+    @Test
+    public void finishedOperationIsNotWritten() throws InterruptedException, ExecutionException
+    {
+        FutureOperation failed = new FutureOperationImpl();
+        failed.setRetrier(mock(OperationRetrier.class), 1);
+        failed.setException(new Exception());
+        assertNull(failed.channelMessage());
+        assertTrue(failed.isDone());
+
+        FutureOperation aborted = new FutureOperationImpl();
+        aborted.abort(new TimeoutException());
+        assertNull(aborted.channelMessage());
+        assertTrue(aborted.isDone());
+
+        FutureOperation retried = new FutureOperationImpl();
+        retried.setRetrier(mock(OperationRetrier.class), 2);
+        assertNotNull(retried.channelMessage());
+        retried.setException(new Exception());
+        assertNotNull(retried.channelMessage());
+        retried.setResponse(PowerMockito.mock(RiakMessage.class));
+        retried.setComplete();
+        assertEquals("Fake!", retried.get());
+    }
+
     @Test
     public void resultWithRemainingRetriesIsDone()
     {
@@ -341,6 +370,273 @@ public class FutureOperationTest
 
     }
 
+    @Test
+    public void cancelFailsOperation() throws Exception
+    {
+        FutureOperation<String, ?, Void> operation = PowerMockito.spy(new FutureOperationImpl());
+        OperationRetrier retrier = mock(OperationRetrier.class);
+        operation.setRetrier(retrier, 3);
+
+        final AtomicBoolean called = new AtomicBoolean(false);
+        operation.addListener(new RiakFutureListener<String, Void>()
+        {
+            @Override
+            public void handle(RiakFuture<String, Void> f)
+            {
+                called.set(true);
+            }
+        });
+
+        assertTrue(operation.cancel(false));
+        verify(retrier).operationFailed(operation, 0);
+        assertTrue(operation.isDone());
+        assertTrue(operation.isCancelled());
+        assertFalse(operation.isSuccess());
+        assertTrue(called.get());
+        assertTrue(operation.await(0, TimeUnit.MILLISECONDS));
+        assertFalse(operation.cancel(false));
+
+        try
+        {
+            operation.get();
+            fail("Expected CancellationException");
+        }
+        catch (CancellationException ex)
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void responsesAfterCancelAreIgnored()
+    {
+        FutureOperation operation = PowerMockito.spy(new FutureOperationImpl());
+        RiakMessage response = PowerMockito.mock(RiakMessage.class);
+
+        operation.channelMessage();
+        operation.cancel(false);
+        operation.setResponse(response);
+        operation.setComplete();
+        operation.setException(new Exception());
+
+        assertTrue(operation.isCancelled());
+        assertEquals(CancellationException.class, operation.cause().getClass());
+    }
+
+    @Test
+    public void cannotCancelCompletedOperation()
+    {
+        FutureOperation operation = PowerMockito.spy(new FutureOperationImpl());
+        RiakMessage response = PowerMockito.mock(RiakMessage.class);
+
+        operation.setResponse(response);
+        operation.setComplete();
+
+        assertFalse(operation.cancel(false));
+        assertFalse(operation.isCancelled());
+        assertTrue(operation.isSuccess());
+    }
+
+    @Test
+    public void abortingIsNotCancelling()
+    {
+        FutureOperation operation = PowerMockito.spy(new FutureOperationImpl());
+
+        assertTrue(operation.abort(new TimeoutException()));
+        assertTrue(operation.isDone());
+        assertFalse(operation.isCancelled());
+        assertEquals(TimeoutException.class, operation.cause().getClass());
+    }
+
+    @Test
+    public void listenersInheritDeadline()
+    {
+        FutureOperation<String, ?, Void> operation = PowerMockito.spy(new FutureOperationImpl());
+        RiakMessage response = PowerMockito.mock(RiakMessage.class);
+        Deadline deadline = Deadline.after(1, TimeUnit.MINUTES);
+        operation.setDeadline(deadline);
+
+        final AtomicReference<Deadline> seen = new AtomicReference<Deadline>();
+        operation.addListener(new RiakFutureListener<String, Void>()
+        {
+            @Override
+            public void handle(RiakFuture<String, Void> f)
+            {
+                seen.set(Deadline.current());
+            }
+        });
+
+        operation.setResponse(response);
+        operation.setComplete();
+
+        assertSame(deadline, seen.get());
+        assertNull(Deadline.current());
+    }
+
+    @Test
+    public void listenersAreNotifiedOnceInOrder()
+    {
+        FutureOperation<String, ?, Void> operation = new FutureOperationImpl();
+        final List<Integer> calls = new ArrayList<Integer>();
+        List<RiakFutureListener<String, Void>> listeners = new ArrayList<RiakFutureListener<String, Void>>();
+        for (int i = 0; i < 4; i++)
+        {
+            final int id = i;
+            listeners.add(new RiakFutureListener<String, Void>()
+            {
+                @Override
+                public void handle(RiakFuture<String, Void> f)
+                {
+                    calls.add(id);
+                }
+            });
+        }
+
+        for (RiakFutureListener<String, Void> listener : listeners)
+        {
+            operation.addListener(listener);
+        }
+        operation.addListener(listeners.get(0));
+        operation.removeListener(listeners.get(2));
+        operation.removeListener(listeners.get(2));
+
+        operation.setResponse(mock(RiakMessage.class));
+        operation.setComplete();
+        operation.removeListener(listeners.get(0));
+
+        assertEquals(Arrays.asList(0, 1, 3), calls);
+    }
+
+    @Test
+    public void convertsAllStreamedResponses() throws Exception
+    {
+        FutureOperation<String, ?, Void> operation = new StreamingFutureOperationImpl(3)
+        {
+            @Override
+            protected String convert(List<Message> rawResponse)
+            {
+                return String.valueOf(rawResponse.size());
+            }
+        };
+
+        for (int i = 0; i < 3; i++)
+        {
+            operation.setResponse(mock(RiakMessage.class));
+        }
+        operation.setComplete();
+        assertEquals("3", operation.get());
+    }
+
+    @Test
+    public void blockedCallersAreReleased() throws Exception
+    {
+        final FutureOperation<String, ?, Void> operation = new FutureOperationImpl();
+        final int numWaiters = 4;
+        final CountDownLatch started = new CountDownLatch(numWaiters);
+        final AtomicInteger released = new AtomicInteger();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < numWaiters; i++)
+        {
+            final boolean timed = i % 2 == 0;
+            Thread t = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    started.countDown();
+                    try
+                    {
+                        String result = timed ? operation.get(1, TimeUnit.MINUTES) : operation.get();
+                        if ("Fake!".equals(result))
+                        {
+                            released.incrementAndGet();
+                        }
+                    }
+                    catch (Exception ex)
+                    {
+                        // not released
+                    }
+                }
+            });
+            t.start();
+            threads.add(t);
+        }
+
+        started.await();
+        assertFalse(operation.await(10, TimeUnit.MILLISECONDS));
+        operation.setResponse(mock(RiakMessage.class));
+        operation.setComplete();
+        for (Thread t : threads)
+        {
+            t.join(5000);
+        }
+        assertEquals(numWaiters, released.get());
+    }
+
+    @Test
+    public void raceBetweenAbortAndCompletionHasOneOutcome() throws Exception
+    {
+        final RiakMessage response = mock(RiakMessage.class);
+        for (int i = 0; i < 2000; i++)
+        {
+            final FutureOperation<String, ?, Void> operation = new FutureOperationImpl();
+            final AtomicInteger outcomes = new AtomicInteger();
+            final AtomicInteger notified = new AtomicInteger();
+            operation.setRetrier(new OperationRetrier()
+            {
+                @Override
+                public void operationFailed(FutureOperation operation, int remainingRetries)
+                {
+                    outcomes.incrementAndGet();
+                }
+
+                @Override
+                public void operationComplete(FutureOperation operation, int remainingRetries)
+                {
+                    outcomes.incrementAndGet();
+                }
+            }, 1);
+            operation.addListener(new RiakFutureListener<String, Void>()
+            {
+                @Override
+                public void handle(RiakFuture<String, Void> f)
+                {
+                    notified.incrementAndGet();
+                }
+            });
+            operation.channelMessage();
+
+            final CountDownLatch go = new CountDownLatch(1);
+            Thread aborter = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        go.await();
+                    }
+                    catch (InterruptedException ex)
+                    {
+                        return;
+                    }
+                    operation.abort(new TimeoutException());
+                }
+            });
+            aborter.start();
+            go.countDown();
+            operation.setResponse(response);
+            operation.setComplete();
+            aborter.join();
+
+            assertTrue(operation.await(0, TimeUnit.MILLISECONDS));
+            assertEquals(1, outcomes.get());
+            assertEquals(1, notified.get());
+            assertEquals(operation.isSuccess(), operation.cause() == null);
+            assertTrue(operation.isSuccess() || operation.cause() instanceof TimeoutException);
+        }
+    }
+
     private class FutureOperationImpl extends FutureOperation<String, Message, Void>
     {
         public FutureOperationImpl()
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HedgingStatisticsTest
+{
+    @Test
+    public void hedgesAreLimitedToShareOfReads()
+    {
+        HedgingPolicy policy = new HedgingPolicy.Builder().withMaxHedgePercent(5).build();
+        HedgingStatistics statistics = new HedgingStatistics(policy);
+
+        int allowed = 0;
+        for (int i = 0; i < 1000; i++)
+        {
+            statistics.recordRead();
+            if (statistics.tryAcquireHedge())
+            {
+                allowed++;
+            }
+        }
+        assertEquals(50, allowed);
+        assertEquals(50, statistics.getHedgeCount());
+
+        statistics.releaseHedge();
+        assertTrue(statistics.tryAcquireHedge());
+        assertFalse(statistics.tryAcquireHedge());
+    }
+
+    @Test
+    public void unusedAllowanceIsCapped()
+    {
+        HedgingPolicy policy = new HedgingPolicy.Builder().withMaxHedgePercent(5).build();
+        HedgingStatistics statistics = new HedgingStatistics(policy);
+        for (int i = 0; i < 100000; i++)
+        {
+            statistics.recordRead();
+        }
+
+        int allowed = 0;
+        while (statistics.tryAcquireHedge())
+        {
+            allowed++;
+        }
+        assertEquals(HedgingStatistics.MAX_SAVED_HEDGES, allowed);
+
+        // Then back to the share of further reads.
+        for (int i = 0; i < 19; i++)
+        {
+            statistics.recordRead();
+        }
+        assertFalse(statistics.tryAcquireHedge());
+        statistics.recordRead();
+        assertTrue(statistics.tryAcquireHedge());
+    }
+
+    @Test
+    public void delayFollowsLastWindowOfLatencies()
+    {
+        HedgingPolicy policy = new HedgingPolicy.Builder()
+                                   .withMinimumDelay(1)
+                                   .withPercentile(90)
+                                   .withSampleWindow(100)
+                                   .build();
+        HedgingStatistics statistics = new HedgingStatistics(policy);
+        assertEquals(1, statistics.getHedgeDelay(TimeUnit.MILLISECONDS));
+
+        for (int i = 0; i < 100; i++)
+        {
+            statistics.recordLatency(TimeUnit.MILLISECONDS.toNanos(i < 90 ? 2 : 100));
+        }
+        long delay = statistics.getHedgeDelay(TimeUnit.MILLISECONDS);
+        assertTrue("delay " + delay, delay >= 2 && delay < 5);
+
+        // A slower window replaces it once complete.
+        for (int i = 0; i < 99; i++)
+        {
+            statistics.recordLatency(TimeUnit.MILLISECONDS.toNanos(50));
+        }
+        assertEquals(delay, statistics.getHedgeDelay(TimeUnit.MILLISECONDS));
+        statistics.recordLatency(TimeUnit.MILLISECONDS.toNanos(50));
+        delay = statistics.getHedgeDelay(TimeUnit.MILLISECONDS);
+        assertTrue("delay " + delay, delay >= 50 && delay < 100);
+    }
+}
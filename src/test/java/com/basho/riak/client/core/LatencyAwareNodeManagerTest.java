@@ -0,0 +1,404 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+import com.basho.riak.client.core.util.HostAndPort;
+import com.basho.riak.client.core.util.Histogram;
+import com.google.protobuf.Message;
+import org.junit.Assume;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.reflect.Whitebox;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+public class LatencyAwareNodeManagerTest
+{
+    private final Logger logger = LoggerFactory.getLogger(LatencyAwareNodeManagerTest.class);
+
+    @Test
+    public void balancesOutstandingOperations()
+    {
+        List<RiakNode> nodes = acceptingNodes(2);
+        LatencyAwareNodeManager nodeManager = new LatencyAwareNodeManager();
+        nodeManager.init(nodes);
+
+        for (int i = 0; i < 10; i++)
+        {
+            assertTrue(nodeManager.executeOnNode(new FutureOperationImpl(), null));
+        }
+        assertEquals(5, nodeManager.getInFlightCount(nodes.get(0)));
+        assertEquals(5, nodeManager.getInFlightCount(nodes.get(1)));
+    }
+
+    @Test
+    public void tracksResponseTimes() throws Exception
+    {
+        List<RiakNode> nodes = acceptingNodes(1);
+        LatencyAwareNodeManager nodeManager = new LatencyAwareNodeManager();
+        nodeManager.init(nodes);
+
+        FutureOperationImpl operation = new FutureOperationImpl();
+        nodeManager.executeOnNode(operation, null);
+        assertEquals(1, nodeManager.getInFlightCount(nodes.get(0)));
+        Thread.sleep(20);
+        operation.complete();
+
+        assertEquals(0, nodeManager.getInFlightCount(nodes.get(0)));
+        long responseTime = nodeManager.getResponseTime(nodes.get(0), TimeUnit.MILLISECONDS);
+        assertTrue("response time " + responseTime, responseTime >= 20);
+
+        // A fast failure still counts as slow.
+        operation = new FutureOperationImpl();
+        nodeManager.executeOnNode(operation, null);
+        operation.setException(new Exception());
+        assertTrue(nodeManager.getResponseTime(nodes.get(0), TimeUnit.MILLISECONDS) > responseTime);
+    }
+
+    @Test
+    public void failedAttemptIsChargedToItsNode() throws Exception
+    {
+        List<RiakNode> nodes = acceptingNodes(2);
+        LatencyAwareNodeManager nodeManager = new LatencyAwareNodeManager();
+        nodeManager.init(nodes);
+
+        FutureOperationImpl operation = new FutureOperationImpl();
+        operation.setRetrier(mock(OperationRetrier.class), 2);
+        nodeManager.executeOnNode(operation, null);
+        RiakNode first = operation.getLastNode();
+        RiakNode second = first == nodes.get(0) ? nodes.get(1) : nodes.get(0);
+        Thread.sleep(20);
+        operation.setException(new Exception());
+        assertEquals(0, nodeManager.getInFlightCount(first));
+        long failed = nodeManager.getResponseTime(first, TimeUnit.MILLISECONDS);
+        assertTrue("response time " + failed, failed >= 20);
+
+        // The retry succeeds quickly on the other node, and isn't charged to the first.
+        assertTrue(nodeManager.executeOnNode(operation, first));
+        assertEquals(1, nodeManager.getInFlightCount(second));
+        operation.complete();
+        assertTrue(operation.isSuccess());
+        assertEquals(0, nodeManager.getInFlightCount(second));
+        assertEquals(failed, nodeManager.getResponseTime(first, TimeUnit.MILLISECONDS));
+        assertTrue(nodeManager.getResponseTime(second, TimeUnit.MILLISECONDS) < failed);
+    }
+
+    @Test
+    public void countsOperationsNotRoutedByIt() throws Exception
+    {
+        final RiakNode node = acceptingNodes(1).get(0);
+        doReturn(RiakNode.State.RUNNING).when(node).getNodeState();
+        doReturn("127.0.0.1").when(node).getRemoteAddress();
+        doReturn(8087).when(node).getPort();
+        RiakNode.Builder nodeBuilder = spy(new RiakNode.Builder());
+        doReturn(node).when(nodeBuilder).build();
+        LatencyAwareNodeManager nodeManager = new LatencyAwareNodeManager();
+        RiakCluster cluster = new RiakCluster.Builder(nodeBuilder.build())
+                                    .withNodeManager(nodeManager)
+                                    .build();
+        Whitebox.setInternalState(cluster, "state", RiakCluster.State.RUNNING);
+
+        FutureOperationImpl operation = new FutureOperationImpl();
+        cluster.executeOnHost(operation, HostAndPort.fromParts("127.0.0.1", 8087));
+        assertEquals(1, nodeManager.getInFlightCount(node));
+        operation.complete();
+        assertTrue(operation.isSuccess());
+        assertEquals(0, nodeManager.getInFlightCount(node));
+
+        // A node that turns the operation away gives back the count.
+        operation = new FutureOperationImpl();
+        doAnswer(new Answer<Boolean>()
+        {
+            @Override
+            public Boolean answer(InvocationOnMock invocation)
+            {
+                FutureOperation operation = (FutureOperation) invocation.getArguments()[0];
+                operation.setLastNode(node);
+                operation.attemptRejected();
+                return false;
+            }
+        }).when(node).execute(operation);
+        cluster.executeOnHost(operation, HostAndPort.fromParts("127.0.0.1", 8087));
+        assertFalse(operation.isSuccess());
+        assertEquals(0, nodeManager.getInFlightCount(node));
+    }
+
+    @Test
+    public void avoidsPreviousNode()
+    {
+        List<RiakNode> nodes = acceptingNodes(2);
+        LatencyAwareNodeManager nodeManager = new LatencyAwareNodeManager();
+        nodeManager.init(nodes);
+
+        for (int i = 0; i < 10; i++)
+        {
+            FutureOperation operation = new FutureOperationImpl();
+            assertTrue(nodeManager.executeOnNode(operation, nodes.get(0)));
+            verify(nodes.get(0), never()).execute(operation);
+        }
+
+        // Unless nothing else will take the operation.
+        FutureOperation operation = new FutureOperationImpl();
+        doReturn(false).when(nodes.get(1)).execute(operation);
+        assertTrue(nodeManager.executeOnNode(operation, nodes.get(0)));
+        verify(nodes.get(0)).execute(operation);
+    }
+
+    @Test
+    public void triesEveryNodeBeforeFailing()
+    {
+        List<RiakNode> nodes = acceptingNodes(5);
+        LatencyAwareNodeManager nodeManager = new LatencyAwareNodeManager();
+        nodeManager.init(nodes);
+
+        FutureOperation operation = new FutureOperationImpl();
+        for (RiakNode node : nodes)
+        {
+            doReturn(false).when(node).execute(operation);
+        }
+        assertFalse(nodeManager.executeOnNode(operation, null));
+        for (RiakNode node : nodes)
+        {
+            verify(node).execute(operation);
+            assertEquals(0, nodeManager.getInFlightCount(node));
+        }
+    }
+
+    @Test
+    public void unhealthyNodesAreSkipped()
+    {
+        List<RiakNode> nodes = acceptingNodes(2);
+        LatencyAwareNodeManager nodeManager = new LatencyAwareNodeManager();
+        nodeManager.init(nodes);
+
+        nodeManager.nodeStateChanged(nodes.get(0), RiakNode.State.HEALTH_CHECKING);
+        for (int i = 0; i < 4; i++)
+        {
+            nodeManager.executeOnNode(new FutureOperationImpl(), null);
+        }
+        assertEquals(0, nodeManager.getInFlightCount(nodes.get(0)));
+        assertEquals(4, nodeManager.getInFlightCount(nodes.get(1)));
+
+        nodeManager.nodeStateChanged(nodes.get(0), RiakNode.State.RUNNING);
+        nodeManager.executeOnNode(new FutureOperationImpl(), null);
+        assertEquals(1, nodeManager.getInFlightCount(nodes.get(0)));
+
+        assertTrue(nodeManager.removeNode(nodes.get(0)));
+        verify(nodes.get(0)).shutdown();
+        assertFalse(nodeManager.removeNode(nodes.get(0)));
+    }
+
+    /**
+     * Simulates a cluster with one node twenty times slower than the rest,
+     * and compares the latencies seen with round robin and with this
+     * NodeManager.
+     */
+    @Test(timeout = 60000)
+    public void simulationBenchmark() throws Exception
+    {
+        Assume.assumeTrue(Boolean.getBoolean("com.basho.riak.benchmark"));
+        long[] nodeLatencies = { 1, 1, 1, 20 };
+        ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(2);
+        try
+        {
+            simulate(new DefaultNodeManager(), nodeLatencies, executor);
+            double[] roundRobin = simulate(new DefaultNodeManager(), nodeLatencies, executor);
+            double[] latencyAware = simulate(new LatencyAwareNodeManager(), nodeLatencies, executor);
+
+            logger.info("Round robin: mean {}ms, p99 {}ms, slow node share {}%",
+                        roundRobin[0], roundRobin[1], roundRobin[2]);
+            logger.info("Latency aware: mean {}ms, p99 {}ms, slow node share {}%",
+                        latencyAware[0], latencyAware[1], latencyAware[2]);
+            assertTrue(latencyAware[2] < 10);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the mean and 99th percentile latency in milliseconds, and the
+     * percentage of operations sent to the last node.
+     */
+    private double[] simulate(final NodeManager nodeManager, long[] nodeLatencies,
+                              final ScheduledExecutorService executor) throws Exception
+    {
+        final int numThreads = 8;
+        final int operationsPerThread = 250;
+        final AtomicIntegerArray executed = new AtomicIntegerArray(nodeLatencies.length);
+        final Histogram latencies = new Histogram();
+
+        List<RiakNode> nodes = new ArrayList<RiakNode>();
+        for (int i = 0; i < nodeLatencies.length; i++)
+        {
+            RiakNode node = mock(RiakNode.class);
+            final int index = i;
+            final long latency = nodeLatencies[i];
+            doAnswer(new Answer<Boolean>()
+            {
+                @Override
+                public Boolean answer(InvocationOnMock invocation)
+                {
+                    final FutureOperationImpl operation = (FutureOperationImpl) invocation.getArguments()[0];
+                    operation.setLastNode((RiakNode) invocation.getMock());
+                    executed.incrementAndGet(index);
+                    executor.schedule(new Runnable()
+                    {
+                        @Override
+                        public void run()
+                        {
+                            operation.complete();
+                        }
+                    }, latency, TimeUnit.MILLISECONDS);
+                    return true;
+                }
+            }).when(node).execute(any(FutureOperation.class));
+            reportAttempts(node);
+            nodes.add(node);
+        }
+        nodeManager.init(nodes);
+
+        final CountDownLatch done = new CountDownLatch(numThreads);
+        for (int t = 0; t < numThreads; t++)
+        {
+            new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        for (int i = 0; i < operationsPerThread; i++)
+                        {
+                            FutureOperationImpl operation = new FutureOperationImpl();
+                            long start = System.nanoTime();
+                            nodeManager.executeOnNode(operation, null);
+                            operation.await();
+                            latencies.record(System.nanoTime() - start);
+                        }
+                    }
+                    catch (InterruptedException ex)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                    finally
+                    {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        done.await();
+
+        double total = numThreads * operationsPerThread;
+        double toMillis = TimeUnit.MILLISECONDS.toNanos(1);
+        return new double[] {
+            latencies.getMean() / toMillis,
+            latencies.getValueAtPercentile(99) / toMillis,
+            100 * executed.get(nodeLatencies.length - 1) / total
+        };
+    }
+
+    private List<RiakNode> acceptingNodes(int count)
+    {
+        RiakNode[] nodes = new RiakNode[count];
+        for (int i = 0; i < count; i++)
+        {
+            nodes[i] = mock(RiakNode.class);
+            doAnswer(new Answer<Boolean>()
+            {
+                @Override
+                public Boolean answer(InvocationOnMock invocation)
+                {
+                    FutureOperation operation = (FutureOperation) invocation.getArguments()[0];
+                    operation.setLastNode((RiakNode) invocation.getMock());
+                    return true;
+                }
+            }).when(nodes[i]).execute(any(FutureOperation.class));
+            reportAttempts(nodes[i]);
+        }
+        return Arrays.asList(nodes);
+    }
+
+    /**
+     * Has a mocked node report the start and end of each attempt at an operation, as a
+     * real one does.
+     */
+    private static void reportAttempts(RiakNode node)
+    {
+        doCallRealMethod().when(node).setAttemptListener(any(NodeAttemptListener.class));
+        doCallRealMethod().when(node).attemptStarted();
+        doCallRealMethod().when(node).attemptRejected();
+        doCallRealMethod().when(node).attemptFinished(anyLong(), any(Throwable.class));
+    }
+
+    private static class FutureOperationImpl extends FutureOperation<String, Message, Void>
+    {
+        void complete()
+        {
+            setResponse(new RiakMessage((byte) 0, new byte[0]));
+            setComplete();
+        }
+
+        @Override
+        protected String convert(List<Message> rawResponse)
+        {
+            return "value";
+        }
+
+        @Override
+        protected Message decode(RiakMessage rawMessage)
+        {
+            return null;
+        }
+
+        @Override
+        protected RiakMessage createChannelMessage()
+        {
+            return new RiakMessage((byte) 0, new byte[0]);
+        }
+
+        @Override
+        public Void getQueryInfo()
+        {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+import com.basho.riak.client.core.operations.FetchOperation;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import com.basho.riak.client.core.query.RiakObject;
+import com.basho.riak.protobuf.RiakKvPB;
+import com.basho.riak.protobuf.RiakMessageCodes;
+import com.google.protobuf.ByteString;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ObjectCacheTest
+{
+    private final Location location = new Location(new Namespace("bucket"), "key");
+
+    private static FetchOperation fetch(Location location, ObjectCache cache, RiakMessage response)
+    {
+        FetchOperation operation = new FetchOperation.Builder(location).withObjectCache(cache).build();
+        operation.setResponse(response);
+        operation.setComplete();
+        return operation;
+    }
+
+    private static RiakMessage found(String value, String vclock)
+    {
+        RiakKvPB.RpbGetResp resp = RiakKvPB.RpbGetResp.newBuilder()
+            .setVclock(ByteString.copyFromUtf8(vclock))
+            .addContent(RiakKvPB.RpbContent.newBuilder().setValue(ByteString.copyFromUtf8(value)))
+            .build();
+        return new RiakMessage(RiakMessageCodes.MSG_GetResp, resp.toByteArray());
+    }
+
+    private static RiakMessage unchanged()
+    {
+        RiakKvPB.RpbGetResp resp = RiakKvPB.RpbGetResp.newBuilder().setUnchanged(true).build();
+        return new RiakMessage(RiakMessageCodes.MSG_GetResp, resp.toByteArray());
+    }
+
+    private static RiakKvPB.RpbGetReq request(FetchOperation operation) throws Exception
+    {
+        RiakMessage message = ((FutureOperation<?, ?, ?>) operation).createChannelMessage();
+        return RiakKvPB.RpbGetReq.parseFrom(message.getData());
+    }
+
+    private static String valueOf(FetchOperation operation) throws ExecutionException, InterruptedException
+    {
+        return operation.get().getObjectList().get(0).getValue().toString();
+    }
+
+    @Test
+    public void unchangedObjectsAreServedFromTheCache() throws Exception
+    {
+        ObjectCache cache = new ObjectCache();
+        FetchOperation first = fetch(location, cache, found("v1", "vc1"));
+        assertFalse(request(first).hasIfModified());
+        assertEquals("v1", valueOf(first));
+        assertEquals(1, cache.size());
+
+        FetchOperation second = fetch(location, cache, unchanged());
+        assertEquals("vc1", request(second).getIfModified().toStringUtf8());
+
+        FetchOperation.Response response = second.get();
+        assertFalse(response.isUnchanged());
+        assertFalse(response.isNotFound());
+        RiakObject cached = response.getObjectList().get(0);
+        assertEquals(first.get().getObjectList().get(0), cached);
+        assertNotSame(first.get().getObjectList().get(0), cached);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void changedObjectsReplaceTheEntry() throws Exception
+    {
+        ObjectCache cache = new ObjectCache();
+        fetch(location, cache, found("v1", "vc1")).get();
+        assertEquals("v2", valueOf(fetch(location, cache, found("v2", "vc2"))));
+
+        FetchOperation third = fetch(location, cache, unchanged());
+        assertEquals("vc2", request(third).getIfModified().toStringUtf8());
+        assertEquals("v2", valueOf(third));
+    }
+
+    @Test
+    public void notFoundAndWritesInvalidate() throws Exception
+    {
+        ObjectCache cache = new ObjectCache();
+        fetch(location, cache, found("v1", "vc1")).get();
+        fetch(location, cache, new RiakMessage(RiakMessageCodes.MSG_GetResp, new byte[0])).get();
+        assertNull(cache.get(location));
+
+        fetch(location, cache, found("v1", "vc1")).get();
+        cache.invalidate(location);
+        assertNull(cache.get(location));
+        assertEquals(0, cache.getSizeInBytes());
+    }
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvicted() throws Exception
+    {
+        Location other = new Location(new Namespace("bucket"), "other");
+        Location third = new Location(new Namespace("bucket"), "third");
+        ObjectCache cache = new ObjectCache(2 * (ObjectCache.OBJECT_OVERHEAD + 10));
+
+        fetch(location, cache, found("v1", "vc1")).get();
+        fetch(other, cache, found("v1", "vc1")).get();
+        assertNotNull(cache.get(location));
+        fetch(third, cache, found("v1", "vc1")).get();
+
+        assertNotNull(cache.get(location));
+        assertNull(cache.get(other));
+        assertNotNull(cache.get(third));
+        assertEquals(1, cache.getEvictionCount());
+        assertTrue(cache.getSizeInBytes() <= 2 * (ObjectCache.OBJECT_OVERHEAD + 10));
+    }
+
+    @Test
+    public void metadataOnlyFetchesBypassTheCache() throws Exception
+    {
+        ObjectCache cache = new ObjectCache();
+        fetch(location, cache, found("v1", "vc1")).get();
+
+        FetchOperation head = new FetchOperation.Builder(location)
+                                  .withObjectCache(cache)
+                                  .withHeadOnly(true)
+                                  .build();
+        assertFalse(request(head).hasIfModified());
+        head.setResponse(found("v2", "vc2"));
+        head.setComplete();
+        head.get();
+
+        assertEquals("vc1", new String(cache.get(location).getVClock().getBytes()));
+    }
+}
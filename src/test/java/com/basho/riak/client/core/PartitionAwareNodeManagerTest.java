@@ -0,0 +1,202 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+import com.basho.riak.client.core.operations.CoveragePlanOperation;
+import com.basho.riak.client.core.operations.FetchOperation;
+import com.basho.riak.client.core.operations.PingOperation;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import com.basho.riak.protobuf.RiakKvPB;
+import com.basho.riak.protobuf.RiakMessageCodes;
+import com.google.protobuf.ByteString;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class PartitionAwareNodeManagerTest
+{
+    private static final int RING_SIZE = 4;
+
+    private RiakNode[] nodes;
+    private NodeManager delegate;
+    private ScheduledFuture<?> refreshFuture;
+    private ScheduledExecutorService executor;
+    private PartitionAwareNodeManager nodeManager;
+    private int planEntries = RING_SIZE;
+
+    @Before
+    public void setUp()
+    {
+        nodes = new RiakNode[RING_SIZE];
+        for (int i = 0; i < nodes.length; i++)
+        {
+            nodes[i] = mock(RiakNode.class);
+            doReturn("127.0.0." + (i + 1)).when(nodes[i]).getRemoteAddress();
+            doReturn(8087).when(nodes[i]).getPort();
+            doReturn(RiakNode.State.RUNNING).when(nodes[i]).getNodeState();
+            doAnswer(new Answer<Boolean>()
+            {
+                @Override
+                public Boolean answer(InvocationOnMock invocation)
+                {
+                    Object operation = invocation.getArguments()[0];
+                    if (operation instanceof CoveragePlanOperation)
+                    {
+                        respond((CoveragePlanOperation) operation);
+                    }
+                    return true;
+                }
+            }).when(nodes[i]).execute(any(FutureOperation.class));
+        }
+
+        delegate = mock(NodeManager.class);
+        refreshFuture = mock(ScheduledFuture.class);
+        executor = mock(ScheduledExecutorService.class);
+        doReturn(refreshFuture).when(executor)
+            .scheduleWithFixedDelay(any(Runnable.class), anyLong(), anyLong(), any(TimeUnit.class));
+        doAnswer(new Answer<Void>()
+        {
+            @Override
+            public Void answer(InvocationOnMock invocation)
+            {
+                ((Runnable) invocation.getArguments()[0]).run();
+                return null;
+            }
+        }).when(executor).execute(any(Runnable.class));
+
+        nodeManager = new PartitionAwareNodeManager.Builder()
+                          .withDelegate(delegate)
+                          .withRingSize(RING_SIZE)
+                          .withExecutor(executor)
+                          .build();
+        nodeManager.init(Arrays.asList(nodes));
+    }
+
+    private void respond(CoveragePlanOperation operation)
+    {
+        RiakKvPB.RpbCoverageResp.Builder resp = RiakKvPB.RpbCoverageResp.newBuilder();
+        for (int i = 0; i < planEntries; i++)
+        {
+            resp.addEntries(RiakKvPB.RpbCoverageEntry.newBuilder()
+                                .setIp(ByteString.copyFromUtf8("127.0.0." + (i + 1)))
+                                .setPort(8087)
+                                .setKeyspaceDesc(ByteString.copyFromUtf8("partition " + i))
+                                .setCoverContext(ByteString.copyFrom(new byte[] { (byte) i })));
+        }
+        operation.setResponse(new RiakMessage(RiakMessageCodes.MSG_CoverageResp, resp.build().toByteArray()));
+        operation.setComplete();
+    }
+
+    @Test
+    public void routesToPartitionOwner()
+    {
+        assertNull(nodeManager.getRing());
+        nodeManager.refresh();
+        RiakRing ring = nodeManager.getRing();
+        assertNotNull(ring);
+        assertEquals(RING_SIZE, ring.getPartitionCount());
+        // The ring is built on the executor, not the thread the plan arrived on.
+        verify(executor).execute(any(Runnable.class));
+
+        for (int i = 0; i < 20; i++)
+        {
+            Location location = new Location(new Namespace("bucket"), "key" + i);
+            FetchOperation operation = new FetchOperation.Builder(location).build();
+            assertTrue(nodeManager.executeOnNode(operation, null));
+
+            int partition = (RiakRing.hash(location)[0] & 0xff) >>> 6;
+            assertSame(nodes[partition], ring.getOwner(location));
+            verify(nodes[partition]).execute(operation);
+            verify(delegate, never()).executeOnNode(operation, null);
+        }
+        assertEquals(20, nodeManager.getRoutedCount());
+    }
+
+    @Test
+    public void unroutableOperationsGoToDelegate()
+    {
+        nodeManager.refresh();
+        Location location = new Location(new Namespace("bucket"), "key");
+        RiakNode owner = nodeManager.getRing().getOwner(location);
+
+        FetchOperation retried = new FetchOperation.Builder(location).build();
+        nodeManager.executeOnNode(retried, owner);
+        verify(delegate).executeOnNode(retried, owner);
+
+        doReturn(RiakNode.State.HEALTH_CHECKING).when(owner).getNodeState();
+        FetchOperation unhealthy = new FetchOperation.Builder(location).build();
+        nodeManager.executeOnNode(unhealthy, null);
+        verify(delegate).executeOnNode(unhealthy, null);
+
+        doReturn(RiakNode.State.RUNNING).when(owner).getNodeState();
+        FetchOperation busy = new FetchOperation.Builder(location).build();
+        doReturn(false).when(owner).execute(busy);
+        nodeManager.executeOnNode(busy, null);
+        verify(delegate).executeOnNode(busy, null);
+
+        PingOperation ping = new PingOperation();
+        nodeManager.executeOnNode(ping, null);
+        verify(delegate).executeOnNode(ping, null);
+        assertEquals(0, nodeManager.getRoutedCount());
+    }
+
+    @Test
+    public void planOfWrongSizeDisablesRouting()
+    {
+        planEntries = RING_SIZE / 2;
+        nodeManager.refresh();
+        assertNull(nodeManager.getRing());
+
+        FetchOperation operation = new FetchOperation.Builder(new Location(new Namespace("bucket"), "key")).build();
+        nodeManager.executeOnNode(operation, null);
+        verify(delegate).executeOnNode(operation, null);
+    }
+
+    @Test
+    public void refreshingStopsWithLastNode()
+    {
+        nodeManager.refresh();
+        List<RiakNode> all = Arrays.asList(nodes);
+        for (RiakNode node : all)
+        {
+            nodeManager.nodeStateChanged(node, RiakNode.State.SHUTDOWN);
+            verify(delegate).nodeStateChanged(node, RiakNode.State.SHUTDOWN);
+        }
+        verify(refreshFuture).cancel(false);
+        assertNull(nodeManager.getRing());
+    }
+}
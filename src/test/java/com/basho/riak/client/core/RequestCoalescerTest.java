@@ -0,0 +1,213 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+import com.basho.riak.client.core.operations.FetchOperation;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import com.basho.riak.protobuf.RiakKvPB;
+import com.basho.riak.protobuf.RiakMessageCodes;
+import com.google.protobuf.ByteString;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class RequestCoalescerTest
+{
+    private final Location location = new Location(new Namespace("bucket"), "key");
+    private final RiakCluster cluster = mock(RiakCluster.class);
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final RequestCoalescer coalescer = new RequestCoalescer(executor);
+
+    @After
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    private FetchOperation fetch()
+    {
+        return new FetchOperation.Builder(location).build();
+    }
+
+    private static void complete(FetchOperation operation)
+    {
+        RiakKvPB.RpbGetResp resp = RiakKvPB.RpbGetResp.newBuilder()
+            .setVclock(ByteString.copyFromUtf8("vclock"))
+            .addContent(RiakKvPB.RpbContent.newBuilder().setValue(ByteString.copyFromUtf8("value")))
+            .build();
+        operation.setResponse(new RiakMessage(RiakMessageCodes.MSG_GetResp, resp.toByteArray()));
+        operation.setComplete();
+    }
+
+    @Test
+    public void identicalReadsShareOneRequest() throws Exception
+    {
+        FetchOperation first = fetch();
+        FetchOperation second = fetch();
+        FetchOperation third = fetch();
+        RiakFuture<FetchOperation.Response, Location> f1 = coalescer.execute(location, first, cluster);
+        RiakFuture<FetchOperation.Response, Location> f2 = coalescer.execute(location, second, cluster);
+        RiakFuture<FetchOperation.Response, Location> f3 = coalescer.execute(location, third, cluster);
+
+        verify(cluster).execute(first);
+        verify(cluster, never()).execute(second);
+        verify(cluster, never()).execute(third);
+        assertFalse(f2.isDone());
+
+        final AtomicInteger notified = new AtomicInteger();
+        f3.addListener(new RiakFutureListener<FetchOperation.Response, Location>()
+        {
+            @Override
+            public void handle(RiakFuture<FetchOperation.Response, Location> f)
+            {
+                notified.incrementAndGet();
+            }
+        });
+
+        complete(first);
+        assertTrue(f2.isSuccess());
+        assertSame(f1.get(), f2.get());
+        assertSame(f1.get(), f3.get());
+        assertEquals(location, f2.getQueryInfo());
+        assertEquals(1, notified.get());
+
+        assertEquals(3, coalescer.getRequestCount());
+        assertEquals(2, coalescer.getHitCount());
+        assertEquals(1, coalescer.getCollapseCount());
+        assertEquals(0, coalescer.getInFlightCount());
+    }
+
+    @Test
+    public void completedReadsAreNotShared() throws Exception
+    {
+        FetchOperation first = fetch();
+        coalescer.execute(location, first, cluster);
+        complete(first);
+
+        FetchOperation second = fetch();
+        coalescer.execute(location, second, cluster);
+        verify(cluster).execute(second);
+
+        Location other = new Location(new Namespace("bucket"), "other");
+        FetchOperation third = new FetchOperation.Builder(other).build();
+        coalescer.execute(other, third, cluster);
+        verify(cluster).execute(third);
+
+        assertEquals(0, coalescer.getHitCount());
+        assertEquals(2, coalescer.getInFlightCount());
+    }
+
+    @Test
+    public void cancellingOneCallerLeavesTheReadToTheOthers() throws Exception
+    {
+        FetchOperation first = fetch();
+        RiakFuture<FetchOperation.Response, Location> f1 = coalescer.execute(location, first, cluster);
+        RiakFuture<FetchOperation.Response, Location> f2 = coalescer.execute(location, fetch(), cluster);
+
+        assertTrue(f1.cancel(true));
+        assertTrue(f1.isCancelled());
+        assertTrue(f1.isDone());
+        assertFalse(first.isCancelled());
+        try
+        {
+            f1.get();
+            fail("Expected CancellationException");
+        }
+        catch (CancellationException ex)
+        {
+            // expected
+        }
+
+        complete(first);
+        assertTrue(f2.isSuccess());
+        assertFalse(f1.cancel(true));
+    }
+
+    @Test
+    public void callerWithEarlierDeadlineTimesOutAlone() throws Exception
+    {
+        FetchOperation first = fetch();
+        first.setDeadline(10, TimeUnit.SECONDS);
+        FetchOperation second = fetch();
+        second.setDeadline(50, TimeUnit.MILLISECONDS);
+        RiakFuture<FetchOperation.Response, Location> f1 = coalescer.execute(location, first, cluster);
+        RiakFuture<FetchOperation.Response, Location> f2 = coalescer.execute(location, second, cluster);
+        verify(cluster, never()).execute(second);
+
+        assertTrue(f2.await(5, TimeUnit.SECONDS));
+        assertFalse(f2.isSuccess());
+        assertTrue(f2.cause() instanceof TimeoutException);
+        try
+        {
+            f2.get();
+            fail("Expected ExecutionException");
+        }
+        catch (ExecutionException ex)
+        {
+            assertTrue(ex.getCause() instanceof TimeoutException);
+        }
+
+        assertFalse(f1.isDone());
+        complete(first);
+        assertTrue(f1.isSuccess());
+    }
+
+    @Test
+    public void callerIsNotFailedWithAnEarlierDeadline() throws Exception
+    {
+        FetchOperation first = fetch();
+        first.setDeadline(10, TimeUnit.MILLISECONDS);
+        FetchOperation second = fetch();
+        second.setDeadline(10, TimeUnit.SECONDS);
+        FetchOperation third = fetch();
+        third.setDeadline(10, TimeUnit.SECONDS);
+        RiakFuture<FetchOperation.Response, Location> f1 = coalescer.execute(location, first, cluster);
+        RiakFuture<FetchOperation.Response, Location> f2 = coalescer.execute(location, second, cluster);
+        RiakFuture<FetchOperation.Response, Location> f3 = coalescer.execute(location, third, cluster);
+        verify(cluster).execute(first);
+        verify(cluster, never()).execute(second);
+
+        // The first read's deadline passes; the others send one of their own.
+        ((FutureOperation<?, ?, ?>) first).abort(new TimeoutException("Deadline passed before the operation completed"));
+        assertTrue(f1.cause() instanceof TimeoutException);
+        assertFalse(f2.isDone());
+        assertFalse(f3.isDone());
+        verify(cluster).execute(second);
+        verify(cluster, never()).execute(third);
+
+        complete(second);
+        assertTrue(f2.isSuccess());
+        assertSame(f2.get(), f3.get());
+        assertEquals(0, coalescer.getInFlightCount());
+    }
+}
@@ -106,6 +106,56 @@ public class RiakClusterFixtureTest
         }
     }
 
+    @Test(timeout = 10000)
+    public void batchOperationSuccess() throws UnknownHostException, InterruptedException, ExecutionException
+    {
+        List<RiakNode> list = new LinkedList<RiakNode>();
+
+        for (int i = 5000; i < 8000; i += 1000)
+        {
+            RiakNode.Builder builder = new RiakNode.Builder()
+                                        .withMinConnections(1)
+                                        .withMaxConnections(1)
+                                        .withPipelineDepth(10)
+                                        .withRemotePort(i + NetworkTestFixture.PB_FULL_WRITE_STAY_OPEN);
+            list.add(builder.build());
+        }
+
+        RiakCluster cluster = new RiakCluster.Builder(list).build();
+        cluster.start();
+
+        Namespace ns = new Namespace(Namespace.DEFAULT_BUCKET_TYPE, "test_bucket");
+        Location location = new Location(ns, "test_key2");
+
+        List<FetchOperation> operations = new LinkedList<FetchOperation>();
+        for (int i = 0; i < 30; i++)
+        {
+            operations.add(new FetchOperation.Builder(location).build());
+        }
+
+        try
+        {
+            List<RiakFuture<?,?>> futures = cluster.executeBatch(operations);
+            assertEquals(operations.size(), futures.size());
+            for (FetchOperation operation : operations)
+            {
+                FetchOperation.Response response = operation.get();
+                assertEquals(response.getObjectList().get(0).getValue().toString(), "This is a value!");
+            }
+
+            // Each node received its ten operations in one flush
+            for (RiakNode node : list)
+            {
+                assertEquals(1, node.getFlushStatistics().getFlushCount());
+                assertEquals(10, node.getFlushStatistics().getFrameCount());
+            }
+        }
+        finally
+        {
+            cluster.shutdown();
+        }
+    }
+
     @Test(timeout = 10000)
     public void operationFail() throws UnknownHostException, ExecutionException, InterruptedException
     {
@@ -259,6 +309,50 @@ public class RiakClusterFixtureTest
         }
     }
 
+    @Test(timeout = 10000)
+    public void operationQueueDrainsAsConnectionsAreReturned() throws Exception
+    {
+        RiakNode node = new RiakNode.Builder()
+                .withMinConnections(1)
+                .withMaxConnections(1)
+                .withRemotePort(5000 + NetworkTestFixture.PB_FULL_WRITE_STAY_OPEN)
+                .build();
+
+        RiakCluster cluster = new RiakCluster.Builder(node).withOperationQueueMaxDepth(100).build();
+        cluster.start();
+
+        try
+        {
+            Location location = new Location(new Namespace(Namespace.DEFAULT_BUCKET_TYPE, "test_bucket"), "test_key2");
+            List<FetchOperation> operations = new LinkedList<FetchOperation>();
+            for (int i = 0; i < 50; i++)
+            {
+                FetchOperation operation = new FetchOperation.Builder(location).build();
+                cluster.execute(operation);
+                operations.add(operation);
+            }
+
+            // With a single connection, all but the first are queued. Each is
+            // executed as soon as the previous one returns the connection.
+            for (FetchOperation operation : operations)
+            {
+                assertTrue(operation.await(5, TimeUnit.SECONDS));
+                assertGoodResponse(operation.get());
+            }
+
+            OperationQueueStatistics statistics = cluster.getOperationQueueStatistics();
+            assertEquals(0, statistics.getDepth());
+            assertEquals(0, statistics.getRejectedCount());
+            assertEquals(statistics.getDepthHistogram().getCount(),
+                         statistics.getWaitTimeHistogram().getCount());
+            assertTrue(statistics.getDepthHistogram().getCount() > 0);
+        }
+        finally
+        {
+            cluster.shutdown().get();
+        }
+    }
+
     private void assertGoodResponse(FetchOperation.Response response)
             throws InterruptedException, ExecutionException
     {
@@ -15,18 +15,31 @@
  */
 package com.basho.riak.client.core;
 
+import com.basho.riak.client.core.netty.Transport;
+import com.basho.riak.client.core.util.HostAndPort;
 import com.google.protobuf.Message;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.nio.NioEventLoopGroup;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 import org.powermock.reflect.Whitebox;
 
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ConcurrentLinkedDeque;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -50,6 +63,26 @@ public class RiakClusterTest
         assertTrue(!cluster.getNodes().isEmpty());
     }
 
+    @Test
+    public void builderConfiguresTransport()
+    {
+        RiakNode.Builder nodeBuilder = new RiakNode.Builder();
+        RiakCluster cluster = new RiakCluster.Builder(nodeBuilder.build())
+                                .withTransport(Transport.NIO)
+                                .withKeepAlive(false)
+                                .withSendBufferSize(65536)
+                                .build();
+
+        Bootstrap bootstrap = Whitebox.getInternalState(cluster, "bootstrap");
+        Map<ChannelOption<?>, Object> options = bootstrap.config().options();
+        assertEquals(Boolean.TRUE, options.get(ChannelOption.TCP_NODELAY));
+        assertEquals(Boolean.FALSE, options.get(ChannelOption.SO_KEEPALIVE));
+        assertEquals(65536, options.get(ChannelOption.SO_SNDBUF));
+        assertFalse(options.containsKey(ChannelOption.SO_RCVBUF));
+        assertTrue(bootstrap.config().group() instanceof NioEventLoopGroup);
+        bootstrap.config().group().shutdownGracefully();
+    }
+
     @Test
     public void buildClusterFromString() throws UnknownHostException
     {
@@ -154,8 +187,7 @@ public class RiakClusterTest
 
         cluster.execute(operation);
         cluster.operationFailed(operation, 1);
-        LinkedBlockingQueue<?> retryQueue = Whitebox.getInternalState(cluster, "retryQueue");
-        assertEquals(1, retryQueue.size());
+        verify(nodeManager, timeout(5000).times(3)).executeOnNode(operation, null);
     }
 
     @Test
@@ -169,17 +201,10 @@ public class RiakClusterTest
         FutureOperation operation2 = new FutureOperationImpl();
         FutureOperation operation3 = new FutureOperationImpl();
 
-        RiakNode node = mock(RiakNode.class);
-        RiakNode.Builder nodeBuilder = spy(new RiakNode.Builder());
-        doReturn(node).when(nodeBuilder).build();
-
         doReturn(false).when(nodeManager).executeOnNode(any(FutureOperation.class), isNull(RiakNode.class));
 
         // Build cluster, check our initial states
-        RiakCluster cluster = new RiakCluster.Builder(nodeBuilder.build())
-                                    .withNodeManager(nodeManager)
-                                    .withOperationQueueMaxDepth(OPERATION_QUEUE_MAX_SIZE).build();
-        Whitebox.setInternalState(cluster, "state", RiakCluster.State.RUNNING);
+        RiakCluster cluster = queuingCluster(nodeManager, OPERATION_QUEUE_MAX_SIZE, 0);
 
         assertQueueStatus(cluster, 0, RiakCluster.State.RUNNING, null);
 
@@ -191,8 +216,7 @@ public class RiakClusterTest
         RiakFuture future3 = cluster.execute(operation3);
 
         assertEquals(2, cluster.inFlightCount());
-        // 1st item in queue is run every time another is added.
-        // If it fails to make a connection it's put back at the beginning of the queue.
+        // Only the head of the queue is retried when another is added.
         verify(nodeManager, times(3)).executeOnNode(operation1, null);
         verify(nodeManager, times(0)).executeOnNode(operation2, null);
         verify(nodeManager, times(0)).executeOnNode(operation3, null);
@@ -201,28 +225,440 @@ public class RiakClusterTest
 
         assertEquals(NoNodesAvailableException.class, future3.cause().getClass());
         assertEquals("No Nodes Available, and Operation Queue at Max Depth", future3.cause().getMessage());
+        assertEquals(1, cluster.getOperationQueueStatistics().getRejectedCount());
 
-        // Come back from a full queue
+        // Come back from a full queue, as if a node had returned a connection.
+        reset(nodeManager);
         doReturn(true).when(nodeManager).executeOnNode(any(FutureOperation.class), isNull(RiakNode.class));
+        NodeCapacityListener capacityListener = Whitebox.getInternalState(cluster, "capacityListener");
+        capacityListener.capacityAvailable(null);
 
-        // Act like the Queue Drain Thread
-        Whitebox.invokeMethod(cluster, "queueDrainOperation");
-        assertQueueStatus(cluster, 1, RiakCluster.State.QUEUING, operation2);
-        verify(nodeManager, times(4)).executeOnNode(operation1, null);
+        InOrder inOrder = inOrder(nodeManager);
+        inOrder.verify(nodeManager).executeOnNode(operation1, null);
+        inOrder.verify(nodeManager).executeOnNode(operation2, null);
+        assertQueueStatus(cluster, 0, RiakCluster.State.RUNNING, null);
+        assertEquals(2, cluster.getOperationQueueStatistics().getWaitTimeHistogram().getCount());
 
-        // Run a new operation to ensure it gets queued after the old work
+        // With the queue empty, new operations are executed directly.
         FutureOperation operation4 = new FutureOperationImpl();
         cluster.execute(operation4);
+        verify(nodeManager, times(1)).executeOnNode(operation4, null);
+        assertQueueStatus(cluster, 0, RiakCluster.State.RUNNING, null);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void operationQueueRunsHigherPrioritiesFirst() throws Exception
+    {
+        NodeManager nodeManager = mock(NodeManager.class);
+        doReturn(false).when(nodeManager).executeOnNode(any(FutureOperation.class), isNull(RiakNode.class));
+        RiakCluster cluster = queuingCluster(nodeManager, 10, 0);
+
+        FutureOperation bulk1 = new FutureOperationImpl();
+        bulk1.setPriority(OperationPriority.BULK);
+        FutureOperation bulk2 = new FutureOperationImpl();
+        bulk2.setPriority(OperationPriority.BULK);
+        FutureOperation normal = new FutureOperationImpl();
+        FutureOperation interactive = new FutureOperationImpl();
+        interactive.setPriority(OperationPriority.INTERACTIVE);
+
+        cluster.execute(bulk1);
+        cluster.execute(bulk2);
+        cluster.execute(normal);
+        cluster.execute(interactive);
+        assertQueueStatus(cluster, 4, RiakCluster.State.QUEUING, interactive);
+
+        reset(nodeManager);
+        doReturn(true).when(nodeManager).executeOnNode(any(FutureOperation.class), isNull(RiakNode.class));
+        Whitebox.invokeMethod(cluster, "drainOperationQueue");
+
+        InOrder inOrder = inOrder(nodeManager);
+        inOrder.verify(nodeManager).executeOnNode(interactive, null);
+        inOrder.verify(nodeManager).executeOnNode(normal, null);
+        inOrder.verify(nodeManager).executeOnNode(bulk1, null);
+        inOrder.verify(nodeManager).executeOnNode(bulk2, null);
+        assertQueueStatus(cluster, 0, RiakCluster.State.RUNNING, null);
+
+        OperationQueueStatistics statistics = cluster.getOperationQueueStatistics();
+        assertEquals(4, statistics.getDepthHistogram().getCount());
+        assertEquals(4, statistics.getDepthHistogram().getMax());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void operationQueueDoesNotStarveLowerPriorities() throws Exception
+    {
+        NodeManager nodeManager = mock(NodeManager.class);
+        final AtomicInteger permits = new AtomicInteger();
+        final List<FutureOperation> executed = new ArrayList<FutureOperation>();
+        doAnswer(new Answer<Boolean>()
+        {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) throws Throwable
+            {
+                if (permits.get() == 0)
+                {
+                    return false;
+                }
+                permits.decrementAndGet();
+                executed.add((FutureOperation) invocation.getArguments()[0]);
+                return true;
+            }
+        }).when(nodeManager).executeOnNode(any(FutureOperation.class), isNull(RiakNode.class));
+        RiakCluster cluster = queuingCluster(nodeManager, 10, 0);
+
+        FutureOperation bulk = new FutureOperationImpl();
+        bulk.setPriority(OperationPriority.BULK);
+        cluster.execute(bulk);
+
+        // One interactive operation arrives for each connection freed.
+        int limit = OperationQueue.LOWER_PRIORITY_SHARE * OperationQueue.LOWER_PRIORITY_SHARE;
+        for (int i = 0; i < limit && !executed.contains(bulk); i++)
+        {
+            FutureOperation interactive = new FutureOperationImpl();
+            interactive.setPriority(OperationPriority.INTERACTIVE);
+            cluster.execute(interactive);
+            permits.set(1);
+            Whitebox.invokeMethod(cluster, "drainOperationQueue");
+        }
+
+        assertTrue(executed.contains(bulk));
+        assertEquals(1, Collections.frequency(executed, bulk));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void queuedOperationsTimeOut() throws Exception
+    {
+        NodeManager nodeManager = mock(NodeManager.class);
+        doReturn(false).when(nodeManager).executeOnNode(any(FutureOperation.class), isNull(RiakNode.class));
+        RiakCluster cluster = queuingCluster(nodeManager, 10, 500);
 
-        assertQueueStatus(cluster, 1, RiakCluster.State.QUEUING, operation4);
+        FutureOperation operation1 = new FutureOperationImpl();
+        FutureOperation operation2 = new FutureOperationImpl();
+        cluster.execute(operation1);
+        cluster.execute(operation2);
+        assertEquals(2, cluster.inFlightCount());
 
-        verify(nodeManager, times(1)).executeOnNode(operation2, null);
+        assertFalse(operation1.isDone());
 
-        // Run remainder of Queue Drain operations.
-        Whitebox.invokeMethod(cluster, "queueDrainOperation");
+        Thread.sleep(600);
+        Whitebox.invokeMethod(cluster, "expireQueuedOperations");
 
+        assertTrue(operation1.isDone());
+        assertTrue(operation2.isDone());
+        assertEquals(NoNodesAvailableException.class, operation1.cause().getClass());
+        assertEquals(0, cluster.inFlightCount());
+        assertEquals(2, cluster.getOperationQueueStatistics().getExpiredCount());
         assertQueueStatus(cluster, 0, RiakCluster.State.RUNNING, null);
-        verify(nodeManager, times(1)).executeOnNode(operation4, null);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void operationsFailAtTheirDeadline() throws Exception
+    {
+        NodeManager nodeManager = mock(NodeManager.class);
+        doReturn(true).when(nodeManager).executeOnNode(any(FutureOperation.class), isNull(RiakNode.class));
+        RiakCluster cluster = deadlineCluster(nodeManager, 0);
+
+        FutureOperation operation = new FutureOperationImpl();
+        Deadline deadline = Deadline.after(50, TimeUnit.MILLISECONDS);
+        Deadline previous = deadline.attach();
+        try
+        {
+            cluster.execute(operation);
+        }
+        finally
+        {
+            Deadline.restore(previous);
+        }
+
+        assertSame(deadline, operation.getDeadline());
+        assertEquals(1, cluster.inFlightCount());
+        assertTrue(operation.await(5, TimeUnit.SECONDS));
+        assertEquals(TimeoutException.class, operation.cause().getClass());
+        assertFalse(operation.isCancelled());
+        assertEquals(0, cluster.inFlightCount());
+
+        // An operation whose deadline has already passed isn't executed.
+        FutureOperation late = new FutureOperationImpl();
+        late.setDeadline(0, TimeUnit.MILLISECONDS);
+        cluster.execute(late);
+        assertTrue(late.isDone());
+        assertEquals(TimeoutException.class, late.cause().getClass());
+        verify(nodeManager, never()).executeOnNode(late, null);
+        assertEquals(0, cluster.inFlightCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void retriesStopNearTheDeadline() throws Exception
+    {
+        NodeManager nodeManager = mock(NodeManager.class);
+        doReturn(true).when(nodeManager).executeOnNode(any(FutureOperation.class), isNull(RiakNode.class));
+        RiakCluster cluster = deadlineCluster(nodeManager, 60000);
+
+        FutureOperation withoutDeadline = new FutureOperationImpl();
+        cluster.execute(withoutDeadline);
+        withoutDeadline.setException(new Exception("first attempt"));
+        assertFalse(withoutDeadline.isDone());
+        verify(nodeManager, timeout(5000).times(2)).executeOnNode(withoutDeadline, null);
+
+        FutureOperation withDeadline = new FutureOperationImpl();
+        withDeadline.setDeadline(30, TimeUnit.SECONDS);
+        cluster.execute(withDeadline);
+        Exception failure = new Exception("first attempt");
+        withDeadline.setException(failure);
+        assertTrue(withDeadline.isDone());
+        assertSame(failure, withDeadline.cause());
+        verify(nodeManager, times(1)).executeOnNode(withDeadline, null);
+        assertEquals(1, cluster.inFlightCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void retryPolicyDecidesRetries() throws Exception
+    {
+        NodeManager nodeManager = mock(NodeManager.class);
+        doReturn(true).when(nodeManager).executeOnNode(any(FutureOperation.class), isNull(RiakNode.class));
+        RetryPolicy retryPolicy = mock(RetryPolicy.class);
+        RiakNode node = mock(RiakNode.class);
+        RiakNode.Builder nodeBuilder = spy(new RiakNode.Builder());
+        doReturn(node).when(nodeBuilder).build();
+        RiakCluster cluster = new RiakCluster.Builder(nodeBuilder.build())
+                                    .withNodeManager(nodeManager)
+                                    .withRetryPolicy(retryPolicy)
+                                    .build();
+        Whitebox.setInternalState(cluster, "state", RiakCluster.State.RUNNING);
+
+        FutureOperation operation = new FutureOperationImpl();
+        doReturn(TimeUnit.MILLISECONDS.toNanos(100)).when(retryPolicy).getRetryDelay(operation, 1, false);
+        cluster.execute(operation);
+        long start = System.nanoTime();
+        operation.setException(new Exception("first attempt"));
+        verify(nodeManager, timeout(5000).times(2)).executeOnNode(operation, null);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+
+        doReturn(RetryPolicy.NO_RETRY).when(retryPolicy).getRetryDelay(operation, 2, false);
+        Exception failure = new Exception("second attempt");
+        operation.setException(failure);
+        assertTrue(operation.isDone());
+        assertSame(failure, operation.cause());
+        assertEquals(0, cluster.inFlightCount());
+
+        FutureOperation succeeded = new FutureOperationImpl();
+        cluster.execute(succeeded);
+        succeeded.setResponse(new RiakMessage((byte) 0, new byte[0]));
+        succeeded.setComplete();
+        verify(retryPolicy).operationSucceeded(succeeded);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void executeOnHostUsesOnlyThatNode() throws Exception
+    {
+        NodeManager nodeManager = mock(NodeManager.class);
+        RiakNode node1 = mock(RiakNode.class);
+        RiakNode node2 = mock(RiakNode.class);
+        for (RiakNode node : Arrays.asList(node1, node2))
+        {
+            doReturn(8087).when(node).getPort();
+            doReturn(RiakNode.State.RUNNING).when(node).getNodeState();
+        }
+        doReturn("10.0.0.1").when(node1).getRemoteAddress();
+        doReturn("10.0.0.2").when(node2).getRemoteAddress();
+        RiakCluster cluster = new RiakCluster.Builder(Arrays.asList(node1, node2))
+                                    .withNodeManager(nodeManager)
+                                    .build();
+        Whitebox.setInternalState(cluster, "state", RiakCluster.State.RUNNING);
+
+        FutureOperation operation = new FutureOperationImpl();
+        doReturn(true).when(node2).execute(operation);
+        cluster.executeOnHost(operation, HostAndPort.fromParts("10.0.0.2", 8087));
+        verify(node2).execute(operation);
+        verify(node1, never()).execute(any(FutureOperation.class));
+        assertFalse(operation.isDone());
+
+        // A failed attempt isn't retried elsewhere.
+        operation.setException(new Exception("connection lost"));
+        assertTrue(operation.isDone());
+        assertEquals(0, cluster.inFlightCount());
+
+        FutureOperation unknown = new FutureOperationImpl();
+        cluster.executeOnHost(unknown, HostAndPort.fromParts("10.0.0.3", 8087));
+        assertTrue(unknown.cause() instanceof NoNodesAvailableException);
+
+        FutureOperation refused = new FutureOperationImpl();
+        doReturn(false).when(node1).execute(refused);
+        cluster.executeOnHost(refused, HostAndPort.fromParts("10.0.0.1", 8087));
+        assertTrue(refused.cause() instanceof NoNodesAvailableException);
+        verify(nodeManager, never()).executeOnNode(any(FutureOperation.class), any(RiakNode.class));
+        assertEquals(0, cluster.inFlightCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void executeOnHostFindsNodesByResolvedAddress() throws Exception
+    {
+        RiakNode node = mock(RiakNode.class);
+        doReturn(8087).when(node).getPort();
+        doReturn(RiakNode.State.RUNNING).when(node).getNodeState();
+        doReturn("localhost").when(node).getRemoteAddress();
+        RiakCluster cluster = new RiakCluster.Builder(node)
+                                    .withNodeManager(mock(NodeManager.class))
+                                    .build();
+        Whitebox.setInternalState(cluster, "state", RiakCluster.State.RUNNING);
+        Whitebox.invokeMethod(cluster, "resolveNodeAddresses");
+
+        FutureOperation operation = new FutureOperationImpl();
+        doReturn(true).when(node).execute(operation);
+        cluster.executeOnHost(operation, HostAndPort.fromParts("127.0.0.1", 8087));
+        verify(node).execute(operation);
+        assertFalse(operation.isDone());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void metricsAreRecorded() throws Exception
+    {
+        NodeManager nodeManager = mock(NodeManager.class);
+        doReturn(true).when(nodeManager).executeOnNode(any(FutureOperation.class), isNull(RiakNode.class));
+        RetryPolicy retryPolicy = mock(RetryPolicy.class);
+        RiakNode node = mock(RiakNode.class);
+        doReturn(2).when(node).getInUseConnectionCount();
+        RiakNode.Builder nodeBuilder = spy(new RiakNode.Builder());
+        doReturn(node).when(nodeBuilder).build();
+        HistogramMetrics metrics = new HistogramMetrics();
+        RiakCluster cluster = new RiakCluster.Builder(nodeBuilder.build())
+                                    .withNodeManager(nodeManager)
+                                    .withRetryPolicy(retryPolicy)
+                                    .withMetrics(metrics)
+                                    .build();
+        Whitebox.setInternalState(cluster, "state", RiakCluster.State.RUNNING);
+        verify(node).setMetrics(metrics);
+        assertEquals(2, metrics.getInUseConnectionCount());
+
+        FutureOperation retried = new FutureOperationImpl();
+        doReturn(0L).when(retryPolicy).getRetryDelay(retried, 1, false);
+        cluster.execute(retried);
+        retried.setException(new Exception("first attempt"));
+        verify(nodeManager, timeout(5000).times(2)).executeOnNode(retried, null);
+        retried.setResponse(new RiakMessage((byte) 0, new byte[0]));
+        retried.setComplete();
+
+        FutureOperation failed = new FutureOperationImpl();
+        doReturn(RetryPolicy.NO_RETRY).when(retryPolicy).getRetryDelay(failed, 1, false);
+        cluster.execute(failed);
+        failed.setException(new Exception("only attempt"));
+
+        assertEquals(1, metrics.getRetryCount());
+        assertEquals(2, metrics.getLatency(FutureOperationImpl.class).getCount());
+        assertEquals(1, metrics.getFailureCount(FutureOperationImpl.class));
+        assertEquals(1, metrics.getOperationTypes().size());
+
+        cluster.removeNode(node);
+        assertEquals(0, metrics.getInUseConnectionCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void slowReadsAreHedged() throws Exception
+    {
+        NodeManager nodeManager = mock(NodeManager.class);
+        doReturn(true).when(nodeManager).executeOnNode(any(FutureOperation.class), isNull(RiakNode.class));
+        HedgingPolicy policy = new HedgingPolicy.Builder()
+                                   .withMinimumDelay(1)
+                                   .withMaxHedgePercent(100)
+                                   .build();
+        RiakCluster cluster = hedgingCluster(nodeManager, policy);
+
+        FutureOperation<String, ?, Void> primary = new FutureOperationImpl();
+        FutureOperation<String, ?, Void> hedge = new FutureOperationImpl();
+        RiakFuture<String, Void> future = cluster.executeHedged(primary, hedge);
+
+        verify(nodeManager, timeout(5000)).executeOnNode(hedge, null);
+        assertFalse(future.isDone());
+        hedge.setResponse(new RiakMessage((byte) 0, new byte[0]));
+        hedge.setComplete();
+
+        assertEquals("value", future.get(5, TimeUnit.SECONDS));
+        assertTrue(future.isSuccess());
+        assertFalse(primary.isDone());
+        HedgingStatistics statistics = cluster.getHedgingStatistics();
+        assertEquals(1, statistics.getReadCount());
+        assertEquals(1, statistics.getHedgeCount());
+        assertEquals(1, statistics.getHedgesWonCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void hedgesStayWithinBudget() throws Exception
+    {
+        NodeManager nodeManager = mock(NodeManager.class);
+        doReturn(true).when(nodeManager).executeOnNode(any(FutureOperation.class), isNull(RiakNode.class));
+        HedgingPolicy policy = new HedgingPolicy.Builder()
+                                   .withMinimumDelay(1)
+                                   .withMaxHedgePercent(10)
+                                   .build();
+        RiakCluster cluster = hedgingCluster(nodeManager, policy);
+
+        // Fewer than ten reads allow no hedges.
+        FutureOperation<String, ?, Void> primary = new FutureOperationImpl();
+        FutureOperation<String, ?, Void> hedge = new FutureOperationImpl();
+        RiakFuture<String, Void> future = cluster.executeHedged(primary, hedge);
+        Thread.sleep(100);
+        verify(nodeManager, never()).executeOnNode(hedge, null);
+
+        Exception failure = new Exception("no hedge");
+        primary.failWithoutRetry(failure);
+        assertTrue(future.await(5, TimeUnit.SECONDS));
+        assertFalse(future.isSuccess());
+        assertSame(failure, future.cause());
+        assertEquals(0, cluster.getHedgingStatistics().getHedgeCount());
+    }
+
+    private RiakCluster hedgingCluster(NodeManager nodeManager, HedgingPolicy policy)
+    {
+        RiakNode node = mock(RiakNode.class);
+        RiakNode.Builder nodeBuilder = spy(new RiakNode.Builder());
+        doReturn(node).when(nodeBuilder).build();
+
+        RiakCluster cluster = new RiakCluster.Builder(nodeBuilder.build())
+                                    .withNodeManager(nodeManager)
+                                    .withHedgingPolicy(policy)
+                                    .build();
+        Whitebox.setInternalState(cluster, "state", RiakCluster.State.RUNNING);
+        return cluster;
+    }
+
+    private RiakCluster deadlineCluster(NodeManager nodeManager, int minimumRetryTime)
+    {
+        RiakNode node = mock(RiakNode.class);
+        RiakNode.Builder nodeBuilder = spy(new RiakNode.Builder());
+        doReturn(node).when(nodeBuilder).build();
+
+        RiakCluster cluster = new RiakCluster.Builder(nodeBuilder.build())
+                                    .withNodeManager(nodeManager)
+                                    .withMinimumRetryTime(minimumRetryTime)
+                                    .build();
+        Whitebox.setInternalState(cluster, "state", RiakCluster.State.RUNNING);
+        return cluster;
+    }
+
+    private RiakCluster queuingCluster(NodeManager nodeManager, int maxDepth, int timeout)
+    {
+        RiakNode node = mock(RiakNode.class);
+        RiakNode.Builder nodeBuilder = spy(new RiakNode.Builder());
+        doReturn(node).when(nodeBuilder).build();
+
+        RiakCluster cluster = new RiakCluster.Builder(nodeBuilder.build())
+                                    .withNodeManager(nodeManager)
+                                    .withOperationQueueMaxDepth(maxDepth)
+                                    .withOperationQueueTimeout(timeout)
+                                    .build();
+        Whitebox.setInternalState(cluster, "state", RiakCluster.State.RUNNING);
+        verify(node).setCapacityListener(any(NodeCapacityListener.class));
+        return cluster;
     }
 
     private void assertQueueStatus(RiakCluster cluster, Integer expectedQueueSize,
@@ -230,7 +666,7 @@ public class RiakClusterTest
                                                         FutureOperation expectedQueueHead)
     {
         boolean queueEnabled = Whitebox.getInternalState(cluster, "queueOperations");
-        ConcurrentLinkedDeque<FutureOperation > operationQueue = Whitebox.getInternalState(cluster, "operationQueue");
+        OperationQueue operationQueue = Whitebox.getInternalState(cluster, "operationQueue");
         RiakCluster.State state = Whitebox.getInternalState(cluster, "state");
         assertTrue(queueEnabled);
         assertEquals((long)expectedQueueSize, operationQueue.size());
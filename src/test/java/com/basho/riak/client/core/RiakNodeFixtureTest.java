@@ -30,15 +30,16 @@ import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  *
@@ -138,12 +139,12 @@ public class RiakNodeFixtureTest extends FixtureTest
             Whitebox.invokeMethod(node, "returnConnection", c);
         }
         
-        LinkedBlockingDeque<?> available = Whitebox.getInternalState(node, "available");
-        assertEquals(available.size(), 12);
+        ConnectionPool pool = Whitebox.getInternalState(node, "connectionPool");
+        assertEquals(pool.idleCount(), 12);
         
         Thread.sleep(10000);
         
-        assertEquals(available.size(), 10);
+        assertEquals(pool.idleCount(), 10);
         
         node.shutdown().get();
         
@@ -261,6 +262,50 @@ public class RiakNodeFixtureTest extends FixtureTest
         node.shutdown().get();
     }
 
+    @Test(timeout = 10000)
+    public void cancellingWrittenOperationClosesConnection() throws Exception
+    {
+        RiakNode node =
+            new RiakNode.Builder()
+                        .withRemoteAddress("127.0.0.1")
+                        .withRemotePort(startingPort + NetworkTestFixture.PB_PARTIAL_WRITE_STAY_OPEN)
+                        .withMaxConnections(1)
+                        .build();
+        node.start();
+
+        Namespace ns = new Namespace(Namespace.DEFAULT_BUCKET_TYPE, "test_bucket");
+        Location location = new Location(ns, "test_key2");
+
+        FetchOperation operation =
+            new FetchOperation.Builder(location)
+                    .build();
+
+        assertTrue(node.execute(operation));
+        // The fixture never finishes the response.
+        while (node.getNumInProgress() == 0)
+        {
+            Thread.sleep(10);
+        }
+        assertEquals(0, node.availablePermits());
+
+        assertTrue(operation.cancel(false));
+        assertTrue(operation.isCancelled());
+        assertFalse(operation.cancel(false));
+        assertEquals(0, node.getNumInProgress());
+        assertEquals(1, node.availablePermits());
+
+        try
+        {
+            operation.get();
+            fail("Expected CancellationException");
+        }
+        catch (CancellationException ex)
+        {
+            // expected
+        }
+        node.shutdown().get();
+    }
+
     @Test
     public void nodeChangesStateOnPoolState() throws IOException, InterruptedException, ExecutionException
     {
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+import com.basho.riak.client.core.fixture.NetworkTestFixture;
+import com.basho.riak.client.core.netty.RiakResponseException;
+import com.basho.riak.client.core.operations.FetchOperation;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import org.junit.Assume;
+import org.junit.Test;
+import org.powermock.reflect.Whitebox;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Exercises request pipelining against the network test fixture, and
+ * compares throughput with and without it.
+ */
+public class RiakNodePipeliningFixtureTest extends FixtureTest
+{
+    private final Logger logger = LoggerFactory.getLogger(RiakNodePipeliningFixtureTest.class);
+    private final Location location =
+        new Location(new Namespace(Namespace.DEFAULT_BUCKET_TYPE, "test_bucket"), "test_key2");
+
+    @Test(timeout = 10000)
+    public void pipelinedOperationsShareOneConnection() throws Exception
+    {
+        RiakNode node = new RiakNode.Builder()
+                            .withRemotePort(startingPort + NetworkTestFixture.PB_FULL_WRITE_STAY_OPEN)
+                            .withMinConnections(1)
+                            .withMaxConnections(1)
+                            .withPipelineDepth(16)
+                            .build();
+        node.start();
+
+        List<FetchOperation> operations = new ArrayList<FetchOperation>();
+        for (int i = 0; i < 16; i++)
+        {
+            FetchOperation operation = new FetchOperation.Builder(location).build();
+            assertTrue(node.execute(operation));
+            operations.add(operation);
+        }
+
+        for (FetchOperation operation : operations)
+        {
+            FetchOperation.Response response = operation.get();
+            assertEquals("This is a value!", response.getObjectList().get(0).getValue().toString());
+        }
+
+        assertEquals(0, node.getNumInProgress());
+        ConnectionPool pool = Whitebox.getInternalState(node, "connectionPool");
+        assertEquals(1, pool.idleCount());
+        assertEquals(1, node.availablePermits());
+        node.shutdown().get();
+    }
+
+    @Test(timeout = 10000)
+    public void pipelinedErrorsAreMatchedInOrder() throws Exception
+    {
+        RiakNode node = new RiakNode.Builder()
+                            .withRemotePort(startingPort + NetworkTestFixture.PB_FULL_WRITE_ERROR_STAY_OPEN)
+                            .withMinConnections(1)
+                            .withMaxConnections(1)
+                            .withPipelineDepth(8)
+                            .build();
+        node.start();
+
+        List<FetchOperation> operations = new ArrayList<FetchOperation>();
+        for (int i = 0; i < 8; i++)
+        {
+            FetchOperation operation = new FetchOperation.Builder(location).build();
+            assertTrue(node.execute(operation));
+            operations.add(operation);
+        }
+
+        for (FetchOperation operation : operations)
+        {
+            operation.await();
+            assertFalse(operation.isSuccess());
+            assertEquals(RiakResponseException.class, operation.cause().getClass());
+        }
+
+        assertEquals(0, node.getNumInProgress());
+        assertEquals(1, node.availablePermits());
+        node.shutdown().get();
+    }
+
+    @Test(timeout = 60000)
+    public void pipeliningBenchmark() throws Exception
+    {
+        Assume.assumeTrue(Boolean.getBoolean("com.basho.riak.benchmark"));
+        final int numOperations = 5000;
+        final int maxConnections = 2;
+
+        // warm up
+        runBenchmark(maxConnections, 1, false, numOperations);
+        runBenchmark(maxConnections, 32, false, numOperations);
+        runBenchmark(maxConnections, 32, true, numOperations);
+
+        long unpipelined = runBenchmark(maxConnections, 1, false, numOperations);
+        long pipelined = runBenchmark(maxConnections, 32, false, numOperations);
+        long consolidated = runBenchmark(maxConnections, 32, true, numOperations);
+
+        logger.info("{} fetches over {} connections; depth 1: {} ops/s, depth 32: {} ops/s, "
+                        + "depth 32 with flush consolidation: {} ops/s",
+                    numOperations, maxConnections,
+                    opsPerSecond(numOperations, unpipelined), opsPerSecond(numOperations, pipelined),
+                    opsPerSecond(numOperations, consolidated));
+    }
+
+    private long runBenchmark(int maxConnections, int pipelineDepth, boolean flushConsolidation,
+                              int numOperations) throws Exception
+    {
+        RiakNode node = new RiakNode.Builder()
+                            .withRemotePort(startingPort + NetworkTestFixture.PB_FULL_WRITE_STAY_OPEN)
+                            .withMinConnections(maxConnections)
+                            .withMaxConnections(maxConnections)
+                            .withBlockOnMaxConnections(true)
+                            .withPipelineDepth(pipelineDepth)
+                            .withFlushConsolidation(flushConsolidation)
+                            .build();
+        node.start();
+
+        List<FetchOperation> operations = new ArrayList<FetchOperation>(numOperations);
+        long start = System.nanoTime();
+        for (int i = 0; i < numOperations; i++)
+        {
+            FetchOperation operation = new FetchOperation.Builder(location).build();
+            node.execute(operation);
+            operations.add(operation);
+        }
+
+        for (FetchOperation operation : operations)
+        {
+            operation.await();
+            assertTrue(operation.isSuccess());
+        }
+        long elapsed = System.nanoTime() - start;
+        logger.debug("depth {}, flush consolidation {}: {} frames per flush",
+                     pipelineDepth, flushConsolidation, node.getFlushStatistics().getAverageFramesPerFlush());
+
+        node.shutdown().get();
+        return elapsed;
+    }
+
+    private static long opsPerSecond(int numOperations, long elapsedNanos)
+    {
+        return numOperations * TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+}
@@ -18,11 +18,16 @@ package com.basho.riak.client.core;
 import com.basho.riak.client.api.RiakCommand;
 import com.basho.riak.client.api.commands.ListenableFuture;
 import com.basho.riak.client.core.RiakNode.State;
+import com.basho.riak.client.core.netty.HealthCheckDecoder;
+import com.basho.riak.client.core.netty.RiakResponseException;
+import com.basho.riak.client.core.util.Constants;
+import com.basho.riak.protobuf.RiakMessageCodes;
 import com.google.protobuf.Message;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelPipeline;
 import io.netty.util.concurrent.BlockingOperationException;
 import org.junit.Test;
@@ -35,13 +40,15 @@ import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 import org.powermock.reflect.Whitebox;
 
-import java.lang.reflect.Field;
+import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
-import java.util.Deque;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.jayway.awaitility.Awaitility.await;
 import static com.jayway.awaitility.Awaitility.fieldIn;
@@ -155,8 +162,8 @@ public class RiakNodeTest
             .withMinConnections(MIN_CONNECTIONS)
             .build();
         node.start();
-        Deque<?> available = Whitebox.getInternalState(node, "available");
-        assertEquals(MIN_CONNECTIONS, available.size());
+        ConnectionPool pool = Whitebox.getInternalState(node, "connectionPool");
+        assertEquals(MIN_CONNECTIONS, pool.idleCount());
         assertEquals(node.getNodeState(), State.RUNNING);
     }
 
@@ -231,8 +238,8 @@ public class RiakNodeTest
         assertNotNull(Whitebox.invokeMethod(node, "getConnection"));
         assertNull(Whitebox.invokeMethod(node, "getConnection"));
         Whitebox.invokeMethod(node, "returnConnection", c);
-        Deque<?> available = Whitebox.getInternalState(node, "available");
-        assertEquals(1, available.size());
+        ConnectionPool pool = Whitebox.getInternalState(node, "connectionPool");
+        assertEquals(1, pool.idleCount());
         assertNotNull(Whitebox.invokeMethod(node, "getConnection"));
     }
 
@@ -251,14 +258,25 @@ public class RiakNodeTest
 
         doReturn(future).when(bootstrap).connect();
         doReturn(bootstrap).when(bootstrap).clone();
+        doAnswer(new Answer<ChannelFuture>()
+        {
+            @Override
+            public ChannelFuture answer(InvocationOnMock invocation) throws Throwable
+            {
+                ChannelFuture f = (ChannelFuture) invocation.getMock();
+                ((ChannelFutureListener) invocation.getArguments()[0]).operationComplete(f);
+                return f;
+            }
+        }).when(future).addListener(any(ChannelFutureListener.class));
 
         RiakNode node = new RiakNode.Builder()
             .withBootstrap(bootstrap)
+            .withExecutor(mock(ScheduledExecutorService.class))
             .build();
 
         for (int i = 0; i < 5; i++)
         {
-            ChannelFutureListener listener = Whitebox.getInternalState(node, "inAvailableCloseListener", RiakNode.class);
+            ChannelFutureListener listener = Whitebox.getInternalState(node, "closeListener", RiakNode.class);
             listener.operationComplete(future);
         }
 
@@ -269,6 +287,146 @@ public class RiakNodeTest
         verify(listener).nodeStateChanged(node, State.HEALTH_CHECKING);
     }
 
+    @Test
+    public void healthCheckReusesPooledChannel() throws Exception
+    {
+        ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+        doReturn(mock(ScheduledFuture.class)).when(executor)
+            .schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+        RiakNode node = new RiakNode.Builder()
+            .withExecutor(executor)
+            .withHealthCheckTimeout(250)
+            .build();
+        NodeStateListener listener = mock(NodeStateListener.class);
+        node.addStateListener(listener);
+        Whitebox.setInternalState(node, "state", State.HEALTH_CHECKING);
+
+        ChannelPipeline pipeline = mock(ChannelPipeline.class);
+        doReturn(Arrays.asList(Constants.MESSAGE_CODEC)).when(pipeline).names();
+        Channel c = mock(Channel.class);
+        doReturn(true).when(c).isOpen();
+        doReturn(pipeline).when(c).pipeline();
+        doReturn(mock(ChannelFuture.class)).when(c).closeFuture();
+        ConnectionPool pool = Whitebox.getInternalState(node, "connectionPool");
+        pool.offerIdle(c);
+
+        Whitebox.invokeMethod(node, "checkHealth");
+        ArgumentCaptor<ChannelHandler> handler = ArgumentCaptor.forClass(ChannelHandler.class);
+        verify(pipeline).addBefore(eq(Constants.MESSAGE_CODEC), eq(Constants.HEALTHCHECK_CODEC), handler.capture());
+        verify(executor).schedule(any(Runnable.class), eq(250L), eq(TimeUnit.MILLISECONDS));
+        assertEquals(0, pool.idleCount());
+
+        // Only one check at a time.
+        Whitebox.invokeMethod(node, "checkHealth");
+        verify(pipeline, times(1)).addBefore(anyString(), anyString(), any(ChannelHandler.class));
+
+        HealthCheckDecoder healthCheck = (HealthCheckDecoder) handler.getValue();
+        ((HealthCheckDecoder.HealthCheckFuture) healthCheck.getFuture())
+            .setMessage(new RiakMessage(RiakMessageCodes.MSG_PingResp, new byte[0]));
+
+        assertEquals(State.RUNNING, node.getNodeState());
+        verify(listener).nodeStateChanged(node, State.RUNNING);
+        verify(c, never()).close();
+        assertEquals(1, pool.idleCount());
+        assertEquals(pool.getMaxConnections(), pool.availablePermits());
+    }
+
+    @Test
+    public void healthCheckTimesOut() throws Exception
+    {
+        ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+        doReturn(mock(ScheduledFuture.class)).when(executor)
+            .schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+        RiakNode node = new RiakNode.Builder()
+            .withExecutor(executor)
+            .build();
+        NodeStateListener listener = mock(NodeStateListener.class);
+        node.addStateListener(listener);
+        Whitebox.setInternalState(node, "state", State.RUNNING);
+
+        ChannelPipeline pipeline = mock(ChannelPipeline.class);
+        doReturn(Arrays.asList(Constants.MESSAGE_CODEC)).when(pipeline).names();
+        Channel c = mock(Channel.class);
+        doReturn(true).when(c).isOpen();
+        doReturn(pipeline).when(c).pipeline();
+        doReturn(mock(ChannelFuture.class)).when(c).closeFuture();
+        ConnectionPool pool = Whitebox.getInternalState(node, "connectionPool");
+        pool.offerIdle(c);
+
+        // The node never answers.
+        Whitebox.invokeMethod(node, "checkHealth");
+        ArgumentCaptor<Runnable> timeout = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor).schedule(timeout.capture(), eq((long) RiakNode.Builder.DEFAULT_HEALTHCHECK_TIMEOUT),
+                                  eq(TimeUnit.MILLISECONDS));
+        timeout.getValue().run();
+
+        assertEquals(State.HEALTH_CHECKING, node.getNodeState());
+        verify(listener).nodeStateChanged(node, State.HEALTH_CHECKING);
+        verify(c).close();
+        assertEquals(0, pool.idleCount());
+        assertEquals(pool.getMaxConnections(), pool.availablePermits());
+
+        // The next check can start.
+        Whitebox.invokeMethod(node, "checkHealth");
+        verify(executor, times(2)).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+    }
+
+    @Test
+    public void circuitBreakerEjectsAndRestoresNode() throws Exception
+    {
+        ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+        doAnswer(new Answer<Void>()
+        {
+            @Override
+            public Void answer(InvocationOnMock invocation)
+            {
+                ((Runnable) invocation.getArguments()[0]).run();
+                return null;
+            }
+        }).when(executor).execute(any(Runnable.class));
+
+        CircuitBreakerPolicy policy = new CircuitBreakerPolicy.Builder()
+                                          .withWindowSize(4)
+                                          .withMinimumCalls(4)
+                                          .withFailureRateThreshold(50)
+                                          .withProbeCount(1)
+                                          .build();
+        RiakNode node = new RiakNode.Builder()
+                            .withExecutor(executor)
+                            .withCircuitBreaker(policy)
+                            .build();
+        NodeStateListener listener = mock(NodeStateListener.class);
+        node.addStateListener(listener);
+        Whitebox.setInternalState(node, "state", State.RUNNING);
+
+        node.attemptFinished(1000, null);
+        node.attemptFinished(1000, null);
+        node.attemptFinished(1000, new IOException());
+        // Say nothing about the node.
+        node.attemptFinished(1000, new CancellationException());
+        node.attemptFinished(1000, new TimeoutException("Deadline passed before the operation completed"));
+        // The node answered.
+        node.attemptFinished(1000, new RiakResponseException(0, "timeout"));
+        assertEquals(State.RUNNING, node.getNodeState());
+
+        node.attemptFinished(1000, new RiakResponseException(0, "overload"));
+        assertEquals(CircuitBreaker.State.OPEN, node.getCircuitBreaker().getState());
+        assertEquals(State.HEALTH_CHECKING, node.getNodeState());
+        verify(listener).nodeStateChanged(node, State.HEALTH_CHECKING);
+        assertFalse(node.execute(mock(FutureOperation.class)));
+
+        ArgumentCaptor<Runnable> halfOpen = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor).schedule(halfOpen.capture(), eq(policy.getOpenDurationInNanos()),
+                                  eq(TimeUnit.NANOSECONDS));
+        halfOpen.getValue().run();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, node.getCircuitBreaker().getState());
+        assertEquals(State.RUNNING, node.getNodeState());
+        verify(listener).nodeStateChanged(node, State.RUNNING);
+
+        node.attemptFinished(1000, null);
+        assertEquals(CircuitBreaker.State.CLOSED, node.getCircuitBreaker().getState());
+    }
+
     @Test
     public void idleReaperTest() throws Exception
     {
@@ -305,11 +463,58 @@ public class RiakNodeTest
             Whitebox.invokeMethod(node, "returnConnection", channel);
         }
 
-        Deque<?> available = Whitebox.getInternalState(node, "available");
-        assertEquals(6, available.size());
+        ConnectionPool pool = Whitebox.getInternalState(node, "connectionPool");
+        assertEquals(6, pool.idleCount());
         Thread.sleep(10);
         Whitebox.invokeMethod(node, "reapIdleConnections");
-        assertEquals(1, available.size());
+        assertEquals(1, pool.idleCount());
+    }
+
+    @Test
+    public void idleConnectionsAreReapedOnReturn() throws Exception
+    {
+        ChannelFuture future = mock(ChannelFuture.class);
+        Channel c = mock(Channel.class);
+        Bootstrap bootstrap = PowerMockito.spy(new Bootstrap());
+
+        doReturn(future).when(c).closeFuture();
+        doReturn(true).when(c).isOpen();
+        doReturn(future).when(future).await();
+        doReturn(true).when(future).isSuccess();
+        doReturn(c).when(future).channel();
+
+        doReturn(future).when(bootstrap).connect();
+        doReturn(bootstrap).when(bootstrap).clone();
+
+        RiakNode node = new RiakNode.Builder()
+            .withBootstrap(bootstrap)
+            .withMinConnections(1)
+            .withIdleTimeout(1)
+            .withConnectionPoolFactory(new StripedConnectionPool.Factory(4))
+            .build();
+
+        node.start();
+        Channel[] channelArray = new Channel[6];
+        for (int i = 0; i < 6; i++)
+        {
+            channelArray[i] = Whitebox.invokeMethod(node, "getConnection");
+        }
+        for (int i = 0; i < 5; i++)
+        {
+            Whitebox.invokeMethod(node, "returnConnection", channelArray[i]);
+        }
+
+        ConnectionPool pool = Whitebox.getInternalState(node, "connectionPool");
+        Thread.sleep(10);
+        assertEquals(5, pool.idleCount());
+
+        // Once a reap is due, returning the last connection reaps the
+        // expired ones without waiting for the IdleReaper.
+        AtomicLong nextIdleReap = Whitebox.getInternalState(node, "nextIdleReap");
+        nextIdleReap.set(System.nanoTime());
+        Whitebox.invokeMethod(node, "returnConnection", channelArray[5]);
+        assertEquals(1, pool.idleCount());
+        assertEquals(channelArray[5], pool.pollIdle());
     }
 
     @Test
@@ -349,20 +554,20 @@ public class RiakNodeTest
             Whitebox.invokeMethod(node, "returnConnection", channel);
         }
 
-        Deque<?> available = Whitebox.getInternalState(node, "available");
-        assertEquals(0, available.size());
+        ConnectionPool pool = Whitebox.getInternalState(node, "connectionPool");
+        assertEquals(0, pool.idleCount());
 
         assertEquals(6, node.availablePermits());
 
         doReturn(true).when(c).isOpen();
 
         Channel c1 = Whitebox.invokeMethod(node, "getConnection");
-        assertEquals(0, available.size());
+        assertEquals(0, pool.idleCount());
         assertEquals(5, node.availablePermits());
 
         Whitebox.invokeMethod(node, "returnConnection", c1);
 
-        assertEquals(1, available.size());
+        assertEquals(1, pool.idleCount());
         assertEquals(6, node.availablePermits());
     }
 
@@ -400,8 +605,8 @@ public class RiakNodeTest
 
         node.start();
 
-        Deque<?> available = Whitebox.getInternalState(node, "available");
-        assertEquals(1, available.size());
+        ConnectionPool pool = Whitebox.getInternalState(node, "connectionPool");
+        assertEquals(1, pool.idleCount());
         assertEquals(1, node.availablePermits());
 
         doReturn(false).when(c).isOpen();
@@ -411,7 +616,7 @@ public class RiakNodeTest
 
         doReturn(true).when(c).isOpen();
 
-        assertEquals(0, available.size());
+        assertEquals(0, pool.idleCount());
         assertEquals(0, node.availablePermits());
         assertNotSame(fetchedChannel, c);
         assertSame(fetchedChannel, c2);
@@ -503,6 +708,49 @@ public class RiakNodeTest
         verify(operation).isDone();
     }
 
+    @Test
+    public void writeBatchFlushesEachChannelOnce() throws InterruptedException, UnknownHostException
+    {
+        Channel channel = mock(Channel.class);
+        ChannelPipeline channelPipeline = mock(ChannelPipeline.class);
+        ChannelFuture future = mock(ChannelFuture.class);
+        FutureOperation first = PowerMockito.spy(new FutureOperationImpl());
+        FutureOperation second = PowerMockito.spy(new FutureOperationImpl());
+        Bootstrap bootstrap = PowerMockito.spy(new Bootstrap());
+
+        doReturn(future).when(channel).closeFuture();
+        doReturn(true).when(channel).isOpen();
+        doReturn(true).when(channel).isActive();
+        doReturn(channelPipeline).when(channel).pipeline();
+        doReturn(future).when(channel).write(any());
+        doReturn(future).when(future).await();
+        doReturn(true).when(future).isSuccess();
+        doReturn(channel).when(future).channel();
+        doReturn(future).when(bootstrap).connect();
+        doReturn(bootstrap).when(bootstrap).clone();
+
+        RiakNode node = new RiakNode.Builder()
+                            .withBootstrap(bootstrap)
+                            .withMaxConnections(1)
+                            .withPipelineDepth(2)
+                            .build();
+        node.start();
+
+        RiakNode.WriteBatch batch = RiakNode.WriteBatch.begin();
+        assertTrue(node.execute(first));
+        assertTrue(node.execute(second));
+        verify(channel).write(first);
+        verify(channel).write(second);
+        verify(channel, never()).flush();
+        verify(channel, never()).writeAndFlush(any());
+
+        batch.end();
+        verify(channel).flush();
+        assertNull(RiakNode.WriteBatch.current());
+        assertEquals(1, node.getFlushStatistics().getFlushCount());
+        assertEquals(2.0, node.getFlushStatistics().getAverageFramesPerFlush(), 0.0);
+    }
+
     @Test
     public void nodeFailsOperation() throws InterruptedException, UnknownHostException
     {
@@ -542,55 +790,33 @@ public class RiakNodeTest
         node.start();
     }
 
-    @Test(expected = ExecutionException.class)
-    public void BlockingExceptionIsCaughtWhileWaitingForChannelToOpen() throws UnknownHostException, InterruptedException, ExecutionException
+    @Test
+    public void executeNeverWaitsForChannelToOpen() throws UnknownHostException, InterruptedException, ExecutionException
     {
         final BlockingExceptionTestSetup setup = new BlockingExceptionTestSetup();
         final CompoundCommand command = setup.getCommand();
 
-        final RiakNode node = new RiakNode.Builder().build();
+        // Waiting on a connect future from an event loop would throw.
+        doThrow(BlockingOperationException.class).when(setup.getChannelFuture()).await();
+
+        final RiakNode node = new RiakNode.Builder().withMinConnections(0).build();
         RiakCluster cluster = RiakCluster.builder(node).withExecutionAttempts(1)
                                          .withBootstrap(setup.getBootstrap()).build();
 
-        Runnable secondCmdSetup = new Runnable()
-        {
-            @Override
-            public void run()
-            {
-                try
-                {
-                    Deque<?> available = Whitebox.getInternalState(node, "available");
-
-                    // throw away connection, imitate that they are all used.
-                    available.poll();
-
-                    // throw a BlockingOperationException when a new connection opened.
-                    doThrow(BlockingOperationException.class).when(setup.getChannelFuture()).await(); //
-                }
-                catch (InterruptedException ignored) {}
-            }
-        };
-
-        // Throw away all connections before second command is run, and throw a BlockingOperationException when a new one is opened.
-        command.secondCommand.injectSetup(secondCmdSetup);
-
-        startAndRunBlockingExceptionTest(command, setup.getChannel(), setup.getChannelFuture(), node, cluster);
+        assertEquals("value", startAndRunCompoundCommand(command, setup.getChannel(),
+                                                         setup.getChannelFuture(), node, cluster));
+        verify(setup.getChannelFuture(), never()).await();
+        verify(setup.getChannel()).writeAndFlush(command.secondCommand.operation);
     }
 
-    @Test(expected = ExecutionException.class)
-    public void BlockingExceptionIsCaughtWhileBlockedOnMaxConnections()
-            throws UnknownHostException, InterruptedException, ExecutionException, NoSuchFieldException,
-            IllegalAccessException
+    @Test
+    public void operationIsQueuedWhileBlockedOnMaxConnections() throws Exception
     {
         BlockingExceptionTestSetup setup = new BlockingExceptionTestSetup();
         final CompoundCommand command = setup.getCommand();
 
         final RiakNode node = new RiakNode.Builder().withBlockOnMaxConnections(true).withMaxConnections(1).build();
 
-        Field field = node.getClass().getDeclaredField("permits");
-        field.setAccessible(true);
-        field.set(node, new BadSync(1));
-
         RiakCluster cluster = RiakCluster.builder(node)
                                          .withExecutionAttempts(1)
                                          .withBootstrap(setup.getBootstrap()).build();
@@ -600,28 +826,40 @@ public class RiakNodeTest
             @Override
             public void run()
             {
-                try
-                {
-                    RiakNode.Sync permits = Whitebox.getInternalState(node, "permits");
+                ConnectionPool pool = Whitebox.getInternalState(node, "connectionPool");
 
-                    // Use up permit, imitate that they are all used.
-                    permits.acquire();
-                }
-                catch (InterruptedException ignored) {}
+                // Use up permit, imitate that they are all used.
+                assertTrue(pool.tryAcquire());
             }
         };
 
-        // Throw away all connections before second command is run, and throw a BlockingOperationException when a new one is opened.
+        // Use up all the permits before the second command is run; it must be queued rather than block.
         command.secondCommand.injectSetup(secondCmdSetup);
 
-        startAndRunBlockingExceptionTest(command, setup.getChannel(), setup.getChannelFuture(), node, cluster);
+        cluster.start();
+        doAnswer(createYesChannelListenerAnswer(node, setup.getChannel(), setup.getChannelFuture()))
+                .when(setup.getChannelFuture()).addListener(any(ChannelFutureListener.class));
+
+        final RiakFuture<String, Void> ccFuture = command.executeAsync(cluster);
+        assertFalse(ccFuture.isDone());
+        Queue<?> pending = Whitebox.getInternalState(node, "pendingOperations");
+        assertEquals(1, pending.size());
+
+        // Free the permit, as returning a connection would.
+        ConnectionPool pool = Whitebox.getInternalState(node, "connectionPool");
+        pool.release();
+        Whitebox.invokeMethod(node, "drainPendingOperations");
+
+        assertTrue(ccFuture.await(1, TimeUnit.SECONDS));
+        assertEquals("value", ccFuture.get());
+        assertEquals(0, pending.size());
     }
 
-    private void startAndRunBlockingExceptionTest(CompoundCommand compoundCommand,
-                                                  Channel channel,
-                                                  ChannelFuture future,
-                                                  RiakNode node,
-                                                  RiakCluster cluster) throws InterruptedException, ExecutionException
+    private String startAndRunCompoundCommand(CompoundCommand compoundCommand,
+                                              Channel channel,
+                                              ChannelFuture future,
+                                              RiakNode node,
+                                              RiakCluster cluster) throws InterruptedException, ExecutionException
     {
         cluster.start();
 
@@ -629,55 +867,26 @@ public class RiakNodeTest
                 .when(future).addListener(any(ChannelFutureListener.class));
 
         final RiakFuture<String, Void> ccFuture = compoundCommand.executeAsync(cluster);
-        ccFuture.await();
-        try
-        {
-            ccFuture.get();
-        }
-        catch (ExecutionException ex)
-        {
-            assertEquals(NoNodesAvailableException.class, ex.getCause().getClass());
-            throw ex;
-        }
-    }
-
-    /**
-     * Don't wait when we run out of permits, throw an exception
-     */
-    private class BadSync extends RiakNode.Sync
-    {
-        public BadSync(int numPermits)
-        {
-            super(numPermits);
-        }
-
-        @Override
-        public void acquire() throws InterruptedException
-        {
-            if(this.availablePermits() == 0)
-            {
-                throw new BlockingOperationException();
-            }
-            super.acquire();
-        }
+        assertTrue(ccFuture.await(1, TimeUnit.SECONDS));
+        return ccFuture.get();
     }
 
     /**
-     * Say yes/onSuccess to all listeners that are added, except inProgressCloseListener. Completes operations.
+     * Say yes/onSuccess to all listeners that are added, except closeListener. Completes operations.
      */
     private Answer<Void> createYesChannelListenerAnswer(final RiakNode node, final Channel channel, final ChannelFuture future)
     {
         return new Answer<Void>()
         {
             final ChannelFutureListener writeListener = Whitebox.getInternalState(node, "writeListener");
-            final ChannelFutureListener inProgressCloseListener =
-                    Whitebox.getInternalState(node, "inProgressCloseListener");
+            final ChannelFutureListener closeListener =
+                    Whitebox.getInternalState(node, "closeListener");
 
             @Override
             public Void answer(InvocationOnMock invocationOnMock) throws Throwable
             {
                 final ChannelFutureListener listener = (ChannelFutureListener) invocationOnMock.getArguments()[0];
-                if (listener.equals(inProgressCloseListener))
+                if (listener.equals(closeListener))
                 {
                     return null;
                 }
@@ -946,7 +1155,7 @@ public class RiakNodeTest
             doReturn(channelFuture).when(channel).closeFuture();
             doReturn(true).when(channel).isOpen();
             doReturn(channelPipeline).when(channel).pipeline();
-            doReturn(channelFuture).when(channel).writeAndFlush(compoundCommand.firstCommand.operation);
+            doReturn(channelFuture).when(channel).writeAndFlush(any());
             doReturn(channelFuture).when(channelFuture).await();
             doReturn(true).when(channelFuture).isSuccess();
             doReturn(channel).when(channelFuture).channel();
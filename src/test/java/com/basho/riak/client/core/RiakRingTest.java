@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import org.junit.Assume;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.MessageDigest;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+public class RiakRingTest
+{
+    private final Logger logger = LoggerFactory.getLogger(RiakRingTest.class);
+
+    @Test
+    public void hashesDefaultTypeAsBucketAndKey() throws Exception
+    {
+        // term_to_binary({<<"b">>, <<"k">>})
+        byte[] term = { (byte) 131, 104, 2, 109, 0, 0, 0, 1, 'b', 109, 0, 0, 0, 1, 'k' };
+        Location location = new Location(new Namespace("b"), "k");
+
+        assertArrayEquals(MessageDigest.getInstance("SHA-1").digest(term), RiakRing.hash(location));
+    }
+
+    @Test
+    public void hashesTypedBucketAsTuple() throws Exception
+    {
+        // term_to_binary({{<<"t">>, <<"b">>}, <<"k">>})
+        byte[] term = { (byte) 131, 104, 2, 104, 2, 109, 0, 0, 0, 1, 't', 109, 0, 0, 0, 1, 'b',
+                        109, 0, 0, 0, 1, 'k' };
+        Location location = new Location(new Namespace("t", "b"), "k");
+
+        assertArrayEquals(MessageDigest.getInstance("SHA-1").digest(term), RiakRing.hash(location));
+    }
+
+    @Test
+    public void ownerIsFoundByLeadingBits()
+    {
+        RiakNode[] owners = new RiakNode[4];
+        for (int i = 0; i < owners.length; i++)
+        {
+            owners[i] = mock(RiakNode.class);
+        }
+        RiakRing ring = new RiakRing(owners);
+        assertEquals(4, ring.getPartitionCount());
+
+        for (int i = 0; i < 100; i++)
+        {
+            Location location = new Location(new Namespace("bucket"), "key" + i);
+            int partition = (RiakRing.hash(location)[0] & 0xff) >>> 6;
+            assertSame(owners[partition], ring.getOwner(location));
+        }
+
+        RiakRing single = new RiakRing(new RiakNode[] { owners[0] });
+        assertSame(owners[0], single.getOwner(new Location(new Namespace("bucket"), "key")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void ringSizeMustBePowerOfTwo()
+    {
+        new RiakRing(new RiakNode[3]);
+    }
+
+    @Test
+    public void hashingBenchmark()
+    {
+        Assume.assumeTrue(Boolean.getBoolean("com.basho.riak.benchmark"));
+        int numKeys = 100000;
+        Location[] locations = new Location[numKeys];
+        for (int i = 0; i < numKeys; i++)
+        {
+            locations[i] = new Location(new Namespace("type", "bucket"), "key-" + i);
+        }
+        RiakRing ring = new RiakRing(new RiakNode[64]);
+
+        // Warm up.
+        runBenchmark(ring, locations, false);
+        runBenchmark(ring, locations, true);
+
+        long hash = runBenchmark(ring, locations, false);
+        long lookup = runBenchmark(ring, locations, true);
+        logger.info("Hashing: {}ns/key; hashing and lookup: {}ns/key",
+                    hash / numKeys, lookup / numKeys);
+    }
+
+    private long runBenchmark(RiakRing ring, Location[] locations, boolean lookup)
+    {
+        int sink = 0;
+        long start = System.nanoTime();
+        for (Location location : locations)
+        {
+            if (lookup)
+            {
+                sink += ring.getOwner(location) == null ? 1 : 0;
+            }
+            else
+            {
+                sink += RiakRing.hash(location)[0];
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        logger.debug("sink {}", sink);
+        return elapsed;
+    }
+}
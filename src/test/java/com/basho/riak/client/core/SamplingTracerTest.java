@@ -0,0 +1,222 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+import com.google.protobuf.Message;
+import org.junit.Assume;
+import org.junit.Test;
+import org.powermock.reflect.Whitebox;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+public class SamplingTracerTest
+{
+    private final Logger logger = LoggerFactory.getLogger(SamplingTracerTest.class);
+    private static final ThreadLocal<String> CALLER = new ThreadLocal<String>();
+
+    private final List<SamplingTracer.Span> exported = new CopyOnWriteArrayList<SamplingTracer.Span>();
+
+    private SamplingTracer tracer(double sampleRate)
+    {
+        return new SamplingTracer(sampleRate)
+        {
+            @Override
+            protected Object captureContext(FutureOperation<?, ?, ?> operation)
+            {
+                return CALLER.get();
+            }
+
+            @Override
+            protected void export(Span span)
+            {
+                exported.add(span);
+            }
+        };
+    }
+
+    @Test
+    public void spanRecordsOperationLifecycle() throws Exception
+    {
+        RiakNode node = mock(RiakNode.class);
+        StringOperation operation = new StringOperation();
+        OperationTrace trace = tracer(1).startTrace(operation);
+        operation.setTrace(trace);
+
+        operation.setLastNode(node);
+        operation.channelMessage();
+        operation.setResponse(new RiakMessage((byte) 0, new byte[0]));
+        operation.setComplete();
+        assertEquals("value", operation.get());
+
+        assertEquals(1, exported.size());
+        SamplingTracer.Span span = exported.get(0);
+        assertSame(trace, span);
+        assertSame(StringOperation.class, span.getOperationType());
+        assertNull(span.getCause());
+        // Converting happens after the span is exported.
+        assertEquals(3, span.getEventCount());
+        assertEquals(TraceEvent.NODE_SELECTED, span.getEvent(0));
+        assertEquals(TraceEvent.WRITTEN, span.getEvent(1));
+        assertEquals(TraceEvent.RESPONSE_RECEIVED, span.getEvent(2));
+        for (int i = 0; i < span.getEventCount(); i++)
+        {
+            assertSame(node, span.getNode(i));
+            assertTrue(span.getTime(i) >= span.getStartTime() && span.getTime(i) <= span.getEndTime());
+        }
+
+        StringOperation cancelled = new StringOperation();
+        cancelled.setTrace(tracer(1).startTrace(cancelled));
+        cancelled.cancel(true);
+        assertEquals(2, exported.size());
+        assertNotNull(exported.get(1).getCause());
+    }
+
+    @Test
+    public void unsampledOperationsAreNotTraced()
+    {
+        SamplingTracer never = tracer(0);
+        for (int i = 0; i < 1000; i++)
+        {
+            assertNull(never.startTrace(new StringOperation()));
+        }
+
+        SamplingTracer some = tracer(0.5);
+        int sampled = 0;
+        for (int i = 0; i < 10000; i++)
+        {
+            sampled += some.startTrace(new StringOperation()) == null ? 0 : 1;
+        }
+        assertTrue(sampled > 4000 && sampled < 6000);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void clusterTracesRetriesWithCallerContext() throws Exception
+    {
+        NodeManager nodeManager = mock(NodeManager.class);
+        doReturn(true).when(nodeManager).executeOnNode(any(FutureOperation.class), isNull(RiakNode.class));
+        RetryPolicy retryPolicy = mock(RetryPolicy.class);
+        RiakNode.Builder nodeBuilder = spy(new RiakNode.Builder());
+        doReturn(mock(RiakNode.class)).when(nodeBuilder).build();
+        RiakCluster cluster = new RiakCluster.Builder(nodeBuilder.build())
+                                  .withNodeManager(nodeManager)
+                                  .withRetryPolicy(retryPolicy)
+                                  .withTracer(tracer(1))
+                                  .build();
+        Whitebox.setInternalState(cluster, "state", RiakCluster.State.RUNNING);
+
+        StringOperation operation = new StringOperation();
+        doReturn(0L).when(retryPolicy).getRetryDelay(operation, 1, false);
+        CALLER.set("request-42");
+        try
+        {
+            cluster.execute(operation);
+        }
+        finally
+        {
+            CALLER.remove();
+        }
+        operation.setException(new Exception("first attempt"));
+        verify(nodeManager, timeout(5000).times(2)).executeOnNode(operation, null);
+        operation.setResponse(new RiakMessage((byte) 0, new byte[0]));
+        operation.setComplete();
+
+        assertEquals(1, exported.size());
+        SamplingTracer.Span span = exported.get(0);
+        assertEquals("request-42", span.getContext());
+        assertEquals(TraceEvent.EXECUTED, span.getEvent(0));
+        assertEquals(TraceEvent.RETRY, span.getEvent(1));
+        assertEquals(TraceEvent.RESPONSE_RECEIVED, span.getEvent(2));
+        logger.debug("Span: {}", span);
+    }
+
+    @Test
+    public void samplingBenchmark()
+    {
+        Assume.assumeTrue(Boolean.getBoolean("com.basho.riak.benchmark"));
+        int numOperations = 1000000;
+        StringOperation operation = new StringOperation();
+        SamplingTracer tracer = tracer(0.01);
+
+        // Warm up.
+        runBenchmark(tracer, operation, numOperations);
+
+        long elapsed = runBenchmark(tracer, operation, numOperations);
+        logger.info("Deciding whether to trace at a 1% sample rate: {}ns/operation",
+                    elapsed / numOperations);
+    }
+
+    private long runBenchmark(SamplingTracer tracer, StringOperation operation, int numOperations)
+    {
+        int sampled = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < numOperations; i++)
+        {
+            OperationTrace trace = tracer.startTrace(operation);
+            if (trace != null)
+            {
+                sampled++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        logger.debug("Sampled {} in {}ms", sampled, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        return elapsed;
+    }
+
+    private static class StringOperation extends FutureOperation<String, Message, Void>
+    {
+        @Override
+        protected String convert(List<Message> rawResponse)
+        {
+            return "value";
+        }
+
+        @Override
+        protected Message decode(RiakMessage rawMessage)
+        {
+            return null;
+        }
+
+        @Override
+        protected RiakMessage createChannelMessage()
+        {
+            return new RiakMessage((byte) 0, new byte[0]);
+        }
+
+        @Override
+        public Void getQueryInfo()
+        {
+            return null;
+        }
+    }
+}
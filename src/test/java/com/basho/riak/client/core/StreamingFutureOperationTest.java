@@ -0,0 +1,179 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+import com.basho.riak.client.core.operations.ListKeysOperation;
+import com.basho.riak.client.core.query.Namespace;
+import com.basho.riak.protobuf.RiakKvPB;
+import com.basho.riak.protobuf.RiakMessageCodes;
+import com.google.protobuf.ByteString;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class StreamingFutureOperationTest
+{
+    private final Namespace namespace = new Namespace("bucket");
+
+    private ListKeysOperation streamingOperation()
+    {
+        ListKeysOperation operation = new ListKeysOperation.Builder(namespace)
+                                          .withStreamResults(true)
+                                          .build();
+        operation.channelMessage();
+        return operation;
+    }
+
+    private RiakMessage keys(boolean done, String... keys)
+    {
+        RiakKvPB.RpbListKeysResp.Builder builder = RiakKvPB.RpbListKeysResp.newBuilder().setDone(done);
+        for (String key : keys)
+        {
+            builder.addKeys(ByteString.copyFromUtf8(key));
+        }
+        return new RiakMessage(RiakMessageCodes.MSG_ListKeysResp, builder.build().toByteArray());
+    }
+
+    @Test
+    public void chunksAreStreamedAsTheyArrive() throws Exception
+    {
+        ListKeysOperation operation = streamingOperation();
+        StreamingResults<ListKeysOperation.Response> results = operation.getStreamingResults();
+
+        operation.setResponse(keys(false, "key1", "key2"));
+        assertTrue(results.hasNext());
+        assertEquals(2, results.next().getKeys().size());
+
+        operation.setResponse(keys(false, "key3"));
+        operation.setResponse(keys(true));
+        operation.setComplete();
+        assertEquals("key3", results.next().getKeys().get(0).toString());
+        assertEquals(0, results.next().getKeys().size());
+        assertFalse(results.hasNext());
+        assertFalse(results.hasNext());
+
+        // Nothing is kept for the operation's own result.
+        assertTrue(operation.get().getKeys().isEmpty());
+    }
+
+    @Test
+    public void readsArePausedUntilChunksAreTaken() throws Exception
+    {
+        ListKeysOperation operation = streamingOperation();
+        operation.setMaxBufferedChunks(4);
+        EmbeddedChannel channel = new EmbeddedChannel();
+        ((FutureOperation<?, ?, ?>) operation).setChannel(channel);
+        StreamingResults<ListKeysOperation.Response> results = operation.getStreamingResults();
+
+        for (int i = 0; i < 3; i++)
+        {
+            operation.setResponse(keys(false, "key" + i));
+        }
+        assertTrue(channel.config().isAutoRead());
+        operation.setResponse(keys(false, "key3"));
+        assertFalse(channel.config().isAutoRead());
+
+        results.next();
+        channel.runPendingTasks();
+        assertFalse(channel.config().isAutoRead());
+        results.next();
+        channel.runPendingTasks();
+        assertTrue(channel.config().isAutoRead());
+
+        operation.setResponse(keys(false, "key4"));
+        operation.setResponse(keys(false, "key5"));
+        assertFalse(channel.config().isAutoRead());
+
+        // The last chunk resumes reads before the connection is returned.
+        operation.setResponse(keys(true));
+        assertTrue(channel.config().isAutoRead());
+        operation.setComplete();
+
+        int remaining = 0;
+        for (ListKeysOperation.Response response : results)
+        {
+            remaining++;
+        }
+        assertEquals(5, remaining);
+    }
+
+    @Test
+    public void failedStreamIsNotRetriedOnceChunksArrive() throws Exception
+    {
+        OperationRetrier retrier = mock(OperationRetrier.class);
+        ListKeysOperation operation = new ListKeysOperation.Builder(namespace)
+                                          .withStreamResults(true)
+                                          .build();
+        ((FutureOperation<?, ?, ?>) operation).setRetrier(retrier, 3);
+        operation.channelMessage();
+        StreamingResults<ListKeysOperation.Response> results = operation.getStreamingResults();
+
+        operation.setResponse(keys(false, "key1"));
+        Exception cause = new Exception("connection lost");
+        ((FutureOperation<?, ?, ?>) operation).setException(cause);
+        verify(retrier).operationFailed(operation, 0);
+
+        assertEquals("key1", results.next().getKeys().get(0).toString());
+        try
+        {
+            results.hasNext();
+            fail("Expected StreamingFailedException");
+        }
+        catch (StreamingFailedException ex)
+        {
+            assertEquals(cause, ex.getCause());
+        }
+    }
+
+    @Test
+    public void cancellingDiscardsRemainingChunks()
+    {
+        ListKeysOperation operation = streamingOperation();
+        StreamingResults<ListKeysOperation.Response> results = operation.getStreamingResults();
+
+        operation.setResponse(keys(false, "key1"));
+        operation.setResponse(keys(false, "key2"));
+        results.cancel();
+        assertTrue(operation.isCancelled());
+        try
+        {
+            results.hasNext();
+            fail("Expected CancellationException");
+        }
+        catch (CancellationException ex)
+        {
+            // Expected
+        }
+
+        // Late responses are ignored.
+        operation.setResponse(keys(true, "key3"));
+        assertFalse(results.hasNext());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void nonStreamingOperationHasNoStreamingResults()
+    {
+        new ListKeysOperation.Builder(namespace).build().getStreamingResults();
+    }
+}
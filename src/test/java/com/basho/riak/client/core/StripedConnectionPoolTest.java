@@ -0,0 +1,208 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+import io.netty.channel.Channel;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+public class StripedConnectionPoolTest
+{
+    private static Channel openChannel()
+    {
+        Channel c = mock(Channel.class);
+        doReturn(true).when(c).isOpen();
+        return c;
+    }
+
+    @Test
+    public void permitsAreBoundedByMaxConnections()
+    {
+        StripedConnectionPool pool = new StripedConnectionPool(2, 4);
+        assertTrue(pool.tryAcquire());
+        assertTrue(pool.tryAcquire());
+        assertFalse(pool.tryAcquire());
+        assertEquals(0, pool.availablePermits());
+
+        pool.release();
+        assertEquals(1, pool.availablePermits());
+        assertTrue(pool.tryAcquire());
+
+        pool.setMaxConnections(3);
+        assertEquals(3, pool.getMaxConnections());
+        assertTrue(pool.tryAcquire());
+        assertFalse(pool.tryAcquire());
+    }
+
+    @Test
+    public void zeroMaxConnectionsIsUnlimited()
+    {
+        StripedConnectionPool pool = new StripedConnectionPool(0, 4);
+        assertEquals(Integer.MAX_VALUE, pool.getMaxConnections());
+        for (int i = 0; i < 1000; i++)
+        {
+            assertTrue(pool.tryAcquire());
+        }
+    }
+
+    @Test
+    public void permitsAreNeverOverIssued() throws Exception
+    {
+        final StripedConnectionPool pool = new StripedConnectionPool(3, 4);
+        final AtomicInteger checkedOut = new AtomicInteger();
+        final AtomicInteger maxSeen = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++)
+        {
+            executor.submit(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        start.await();
+                    }
+                    catch (InterruptedException ex)
+                    {
+                        return;
+                    }
+                    for (int i = 0; i < 10000; i++)
+                    {
+                        if (pool.tryAcquire())
+                        {
+                            int n = checkedOut.incrementAndGet();
+                            int max;
+                            while (n > (max = maxSeen.get()) && !maxSeen.compareAndSet(max, n))
+                            {
+                            }
+                            checkedOut.decrementAndGet();
+                            pool.release();
+                        }
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        assertTrue(maxSeen.get() <= 3);
+        assertEquals(3, pool.availablePermits());
+    }
+
+    @Test
+    public void idleChannelIsReturnedToSameThread() throws Exception
+    {
+        final StripedConnectionPool pool = new StripedConnectionPool(0, 64);
+        final Channel mine = openChannel();
+        pool.offerIdle(mine);
+
+        // Another thread's channel goes into its own stripe.
+        final Channel theirs = openChannel();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.submit(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                pool.offerIdle(theirs);
+            }
+        }).get();
+
+        assertEquals(2, pool.idleCount());
+        assertSame(mine, pool.pollIdle());
+
+        // With our stripe empty, we steal from the other thread's.
+        assertSame(theirs, pool.pollIdle());
+        assertNull(pool.pollIdle());
+        assertFalse(pool.hasIdle());
+        executor.shutdown();
+    }
+
+    @Test
+    public void idleChannelsAreStolenByOtherThreads() throws Exception
+    {
+        final StripedConnectionPool pool = new StripedConnectionPool(0, 4);
+        Channel c = openChannel();
+        pool.offerIdle(c);
+
+        final AtomicReference<Channel> polled = new AtomicReference<Channel>();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> f = executor.submit(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                polled.set(pool.pollIdle());
+            }
+        });
+        f.get();
+        executor.shutdown();
+        assertSame(c, polled.get());
+        assertEquals(0, pool.idleCount());
+    }
+
+    @Test
+    public void closedChannelsAreDiscarded()
+    {
+        StripedConnectionPool pool = new StripedConnectionPool(0, 2);
+        Channel closed = mock(Channel.class);
+        doReturn(false).when(closed).isOpen();
+        pool.offerIdle(closed);
+        assertNull(pool.pollIdle());
+        assertEquals(0, pool.idleCount());
+    }
+
+    @Test
+    public void removeIdleRemovesOnlyExpiredChannels() throws Exception
+    {
+        StripedConnectionPool pool = new StripedConnectionPool(0, 2);
+        Channel old1 = openChannel();
+        Channel old2 = openChannel();
+        pool.offerIdle(old1);
+        pool.offerIdle(old2);
+        Thread.sleep(20);
+        Channel fresh = openChannel();
+        pool.offerIdle(fresh);
+
+        List<Channel> removed = pool.removeIdle(TimeUnit.MILLISECONDS.toNanos(10), 1);
+        assertEquals(1, removed.size());
+        assertSame(old1, removed.get(0));
+
+        removed = pool.removeIdle(TimeUnit.MILLISECONDS.toNanos(10), 10);
+        assertEquals(1, removed.size());
+        assertSame(old2, removed.get(0));
+        assertEquals(1, pool.idleCount());
+
+        removed = pool.removeAllIdle();
+        assertEquals(1, removed.size());
+        assertSame(fresh, removed.get(0));
+        assertEquals(0, pool.idleCount());
+    }
+}
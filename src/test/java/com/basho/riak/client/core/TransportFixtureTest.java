@@ -0,0 +1,134 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core;
+
+import com.basho.riak.client.core.fixture.NetworkTestFixture;
+import com.basho.riak.client.core.netty.Transport;
+import com.basho.riak.client.core.operations.FetchOperation;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import org.junit.Assume;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs operations over each available transport against the network test
+ * fixture on the loopback interface, and compares their throughput.
+ */
+public class TransportFixtureTest extends FixtureTest
+{
+    private final Logger logger = LoggerFactory.getLogger(TransportFixtureTest.class);
+    private final Location location =
+        new Location(new Namespace(Namespace.DEFAULT_BUCKET_TYPE, "test_bucket"), "test_key2");
+
+    @Test(timeout = 10000)
+    public void nioTransport() throws Exception
+    {
+        assertFetches(Transport.NIO);
+    }
+
+    @Test(timeout = 10000)
+    public void epollTransport() throws Exception
+    {
+        Assume.assumeTrue(Transport.EPOLL.isAvailable());
+        assertFetches(Transport.EPOLL);
+    }
+
+    @Test(timeout = 60000)
+    public void transportBenchmark() throws Exception
+    {
+        Assume.assumeTrue(Boolean.getBoolean("com.basho.riak.benchmark"));
+        Assume.assumeTrue(Transport.EPOLL.isAvailable());
+        final int numOperations = 5000;
+
+        // warm up
+        runBenchmark(Transport.NIO, numOperations);
+        runBenchmark(Transport.EPOLL, numOperations);
+
+        long nio = runBenchmark(Transport.NIO, numOperations);
+        long epoll = runBenchmark(Transport.EPOLL, numOperations);
+
+        logger.info("{} fetches; NIO: {} ops/s, epoll: {} ops/s", numOperations,
+                    numOperations * TimeUnit.SECONDS.toNanos(1) / nio,
+                    numOperations * TimeUnit.SECONDS.toNanos(1) / epoll);
+    }
+
+    private RiakCluster startCluster(Transport transport, int connections)
+    {
+        RiakNode node = new RiakNode.Builder()
+                            .withRemotePort(startingPort + NetworkTestFixture.PB_FULL_WRITE_STAY_OPEN)
+                            .withMinConnections(connections)
+                            .withMaxConnections(connections)
+                            .withBlockOnMaxConnections(true)
+                            .build();
+        RiakCluster cluster = new RiakCluster.Builder(node).withTransport(transport).build();
+        cluster.start();
+        return cluster;
+    }
+
+    private void assertFetches(Transport transport) throws Exception
+    {
+        RiakCluster cluster = startCluster(transport, 2);
+        try
+        {
+            for (int i = 0; i < 10; i++)
+            {
+                FetchOperation operation = new FetchOperation.Builder(location).build();
+                cluster.execute(operation);
+                FetchOperation.Response response = operation.get();
+                assertEquals("This is a value!", response.getObjectList().get(0).getValue().toString());
+            }
+        }
+        finally
+        {
+            cluster.shutdown().get();
+        }
+    }
+
+    private long runBenchmark(Transport transport, int numOperations) throws Exception
+    {
+        RiakCluster cluster = startCluster(transport, 4);
+        try
+        {
+            List<FetchOperation> operations = new ArrayList<FetchOperation>(numOperations);
+            long start = System.nanoTime();
+            for (int i = 0; i < numOperations; i++)
+            {
+                FetchOperation operation = new FetchOperation.Builder(location).build();
+                cluster.execute(operation);
+                operations.add(operation);
+            }
+            for (FetchOperation operation : operations)
+            {
+                operation.await();
+                assertTrue(operation.isSuccess());
+            }
+            return System.nanoTime() - start;
+        }
+        finally
+        {
+            cluster.shutdown().get();
+        }
+    }
+}
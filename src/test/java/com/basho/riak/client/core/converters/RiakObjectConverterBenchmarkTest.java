@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core.converters;
+
+import com.basho.riak.client.core.query.RiakObject;
+import com.basho.riak.protobuf.RiakKvPB;
+import com.basho.riak.protobuf.RiakPB;
+import com.google.protobuf.ByteString;
+import org.junit.Assume;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the bytes allocated converting a fetched object, when only its
+ * value is used and when all of its metadata is (which is what every fetch
+ * used to pay for).
+ */
+public class RiakObjectConverterBenchmarkTest
+{
+    private final Logger logger = LoggerFactory.getLogger(RiakObjectConverterBenchmarkTest.class);
+
+    private final List<RiakKvPB.RpbContent> contents;
+    private final ByteString vclock = ByteString.copyFrom(new byte[32]);
+
+    public RiakObjectConverterBenchmarkTest()
+    {
+        RiakKvPB.RpbContent.Builder builder = RiakKvPB.RpbContent.newBuilder()
+            .setValue(ByteString.copyFrom(new byte[1024]))
+            .setContentType(ByteString.copyFromUtf8("application/json"))
+            .setVtag(ByteString.copyFromUtf8("4Jd8bT8Cv5PXqN1kTbVwHE"))
+            .setLastMod(1451606400);
+        for (int i = 0; i < 4; i++)
+        {
+            builder.addIndexes(RiakPB.RpbPair.newBuilder()
+                                   .setKey(ByteString.copyFromUtf8("index" + i + "_bin"))
+                                   .setValue(ByteString.copyFromUtf8("value" + i)));
+            builder.addUsermeta(RiakPB.RpbPair.newBuilder()
+                                    .setKey(ByteString.copyFromUtf8("meta" + i))
+                                    .setValue(ByteString.copyFromUtf8("value" + i)));
+            builder.addLinks(RiakKvPB.RpbLink.newBuilder()
+                                 .setBucket(ByteString.copyFromUtf8("bucket"))
+                                 .setKey(ByteString.copyFromUtf8("key" + i))
+                                 .setTag(ByteString.copyFromUtf8("tag")));
+        }
+        contents = Collections.singletonList(builder.build());
+    }
+
+    @Test
+    public void allocationBenchmark()
+    {
+        Assume.assumeTrue(Boolean.getBoolean("com.basho.riak.benchmark"));
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported()
+                              && threads.isThreadAllocatedMemoryEnabled());
+
+        int numConversions = 200000;
+
+        // Warm up.
+        runBenchmark(threads, numConversions, false);
+        runBenchmark(threads, numConversions, true);
+
+        long valueOnly = runBenchmark(threads, numConversions, false);
+        long everything = runBenchmark(threads, numConversions, true);
+        logger.info("Converting a fetched object and reading its value: {} bytes/fetch", valueOnly);
+        logger.info("Converting a fetched object and reading all its metadata: {} bytes/fetch", everything);
+
+        assertTrue(valueOnly < everything);
+    }
+
+    private long runBenchmark(com.sun.management.ThreadMXBean threads, int numConversions, boolean readMetadata)
+    {
+        long threadId = Thread.currentThread().getId();
+        long start = threads.getThreadAllocatedBytes(threadId);
+        long total = 0;
+        for (int i = 0; i < numConversions; i++)
+        {
+            RiakObject ro = RiakObjectConverter.convert(contents, vclock).get(0);
+            total += ro.getValue().length();
+            if (readMetadata)
+            {
+                total += ro.getIndexes().size() + ro.getLinks().size() + ro.getUserMeta().size();
+            }
+        }
+        assertTrue(total > 0);
+        return (threads.getThreadAllocatedBytes(threadId) - start) / numConversions;
+    }
+}
@@ -1,15 +1,22 @@
 package com.basho.riak.client.core.converters;
 
 import com.basho.riak.client.core.query.RiakObject;
+import com.basho.riak.client.core.query.indexes.LongIntIndex;
+import com.basho.riak.client.core.query.links.RiakLink;
 import com.basho.riak.client.core.util.BinaryValue;
 import com.basho.riak.protobuf.RiakKvPB;
+import com.basho.riak.protobuf.RiakPB;
 import com.google.protobuf.ByteString;
 import org.junit.Test;
+import org.powermock.reflect.Whitebox;
 
 import java.util.ArrayList;
 import java.util.List;
 
 import static junit.framework.TestCase.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class RiakObjectConverterTest
@@ -97,4 +104,65 @@ public class RiakObjectConverterTest
         assertEquals(longJzonContentType, pbObject.getContentType().toStringUtf8());
         // We won't remove it from the Content-Type if declared there, but it may be duplicated like with the old style.
     }
+
+    @Test
+    public void metadataIsDecodedOnFirstUse()
+    {
+        final RiakKvPB.RpbContent pbObject = RiakKvPB.RpbContent.newBuilder()
+            .setValue(ByteString.copyFromUtf8("foo"))
+            .addLinks(RiakKvPB.RpbLink.newBuilder()
+                          .setBucket(ByteString.copyFromUtf8("bucket"))
+                          .setKey(ByteString.copyFromUtf8("key"))
+                          .setTag(ByteString.copyFromUtf8("tag")))
+            .addIndexes(RiakPB.RpbPair.newBuilder()
+                            .setKey(ByteString.copyFromUtf8("dave_int"))
+                            .setValue(ByteString.copyFromUtf8("42")))
+            .addUsermeta(RiakPB.RpbPair.newBuilder()
+                             .setKey(ByteString.copyFromUtf8("meta"))
+                             .setValue(ByteString.copyFromUtf8("data")))
+            .build();
+
+        RiakObject riakObject = RiakObjectConverter.convert(
+                new ArrayList<RiakKvPB.RpbContent>() {{ add(pbObject); }}, ByteString.copyFromUtf8("vclock")).get(0);
+
+        assertNull(Whitebox.getInternalState(riakObject, "value"));
+        assertNull(Whitebox.getInternalState(riakObject, "riakIndexes"));
+        assertTrue(riakObject.hasLinks());
+        assertTrue(riakObject.hasIndexes());
+        assertTrue(riakObject.hasUserMeta());
+
+        assertEquals("foo", riakObject.getValue().toString());
+        assertNull(Whitebox.getInternalState(riakObject, "links"));
+        assertTrue(riakObject.getLinks().hasLink(new RiakLink("bucket", "key", "tag")));
+        assertTrue(riakObject.getIndexes().getIndex(LongIntIndex.named("dave")).hasValue(42L));
+        assertNotNull(Whitebox.getInternalState(riakObject, "content"));
+        assertEquals("data", riakObject.getUserMeta().get("meta"));
+
+        // Everything is decoded; the content is no longer held.
+        assertNull(Whitebox.getInternalState(riakObject, "content"));
+
+        RiakObject eager = new RiakObject()
+            .setValue(BinaryValue.create("foo"))
+            .setVClock(riakObject.getVClock());
+        eager.getLinks().addLink(new RiakLink("bucket", "key", "tag"));
+        eager.getIndexes().getIndex(LongIntIndex.named("dave")).add(42L);
+        eager.getUserMeta().put("meta", "data");
+        assertEquals(eager, riakObject);
+    }
+
+    @Test
+    public void setValueReplacesUndecodedValue()
+    {
+        final RiakKvPB.RpbContent pbObject = RiakKvPB.RpbContent.newBuilder()
+            .setValue(ByteString.copyFromUtf8("foo"))
+            .build();
+
+        RiakObject riakObject = RiakObjectConverter.convert(
+                new ArrayList<RiakKvPB.RpbContent>() {{ add(pbObject); }}, ByteString.EMPTY).get(0);
+        riakObject.setValue(null);
+
+        assertFalse(riakObject.hasValue());
+        assertFalse(riakObject.hasLinks());
+        assertNull(Whitebox.getInternalState(riakObject, "content"));
+    }
 }
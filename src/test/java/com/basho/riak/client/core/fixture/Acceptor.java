@@ -75,35 +75,29 @@ abstract class Acceptor
             throw new IOException("Read on closed key");
         }
         
-        boolean closeAfterWrite;
+        // Requests may be pipelined, so answer every complete frame in the
+        // buffer and keep any partial one for the next read.
         readBuffer.flip();
-        if (readBuffer.remaining() > 4)
+        while (readBuffer.remaining() > 4)
         {
+            readBuffer.mark();
             int length = readBuffer.getInt();
-            if (readBuffer.remaining() == length)
+            if (readBuffer.remaining() < length)
             {
-                readBuffer.clear();
-                closeAfterWrite = writePb(key);
-                if (closeAfterWrite)
-                {
-                    key.channel().close();
-                    key.cancel();
-                }
+                readBuffer.reset();
+                break;
             }
-            else
+
+            readBuffer.position(readBuffer.position() + length);
+            if (writePb(key))
             {
-                readBuffer.position(readBuffer.limit());
-                readBuffer.limit(readBuffer.capacity());
+                key.channel().close();
+                key.cancel();
+                readBuffer.clear();
+                return;
             }
         }
-        else
-        {
-            readBuffer.position(readBuffer.limit());
-            readBuffer.limit(readBuffer.capacity());
-        }
-                
-        
-        
+        readBuffer.compact();
     }
     
     abstract Acceptor duplicate();
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core.netty;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class RiakFlushConsolidationHandlerTest
+{
+    private FlushStatistics statistics;
+
+    @Before
+    public void setUp()
+    {
+        statistics = new FlushStatistics();
+    }
+
+    @Test
+    public void flushesAreCoalescedUntilEndOfTick()
+    {
+        EmbeddedChannel channel = new EmbeddedChannel(new RiakFlushConsolidationHandler(statistics));
+
+        channel.writeAndFlush(Unpooled.wrappedBuffer(new byte[]{1}));
+        channel.writeAndFlush(Unpooled.wrappedBuffer(new byte[]{2}));
+        channel.writeAndFlush(Unpooled.wrappedBuffer(new byte[]{3}));
+        assertNull(channel.readOutbound());
+
+        channel.runPendingTasks();
+        for (int i = 1; i <= 3; i++)
+        {
+            assertEquals(Unpooled.wrappedBuffer(new byte[]{(byte) i}), channel.readOutbound());
+        }
+        assertEquals(1, statistics.getFlushCount());
+        assertEquals(3, statistics.getFrameCount());
+        assertEquals(3.0, statistics.getAverageFramesPerFlush(), 0.0);
+        channel.finish();
+    }
+
+    @Test
+    public void writesDuringReadAreFlushedOnReadComplete()
+    {
+        final EmbeddedChannel channel = new EmbeddedChannel();
+        channel.pipeline().addLast(new RiakFlushConsolidationHandler(statistics));
+        channel.pipeline().addLast(new ChannelInboundHandlerAdapter()
+        {
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception
+            {
+                ctx.writeAndFlush(msg);
+            }
+        });
+
+        channel.pipeline().fireChannelRead(Unpooled.wrappedBuffer(new byte[]{1}));
+        channel.pipeline().fireChannelRead(Unpooled.wrappedBuffer(new byte[]{2}));
+        channel.runPendingTasks();
+        assertNull(channel.readOutbound());
+
+        channel.pipeline().fireChannelReadComplete();
+        assertNotNull(channel.readOutbound());
+        assertNotNull(channel.readOutbound());
+        assertEquals(1, statistics.getFlushCount());
+        assertEquals(2, statistics.getFrameCount());
+        channel.finish();
+    }
+
+    @Test
+    public void pendingWritesAreFlushedOnClose()
+    {
+        EmbeddedChannel channel = new EmbeddedChannel(new RiakFlushConsolidationHandler(statistics));
+
+        channel.writeAndFlush(Unpooled.wrappedBuffer(new byte[]{1}));
+        channel.close();
+        assertEquals(1, statistics.getFlushCount());
+        assertNotNull(channel.readOutbound());
+    }
+}
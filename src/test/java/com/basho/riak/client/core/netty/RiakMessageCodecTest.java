@@ -16,6 +16,11 @@
 package com.basho.riak.client.core.netty;
 
 import com.basho.riak.client.core.RiakMessage;
+import com.basho.riak.client.core.RiakMetrics;
+import com.basho.riak.client.core.RiakNode;
+import com.basho.riak.protobuf.RiakKvPB;
+import com.basho.riak.protobuf.RiakMessageCodes;
+import com.google.protobuf.ByteString;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
@@ -24,6 +29,7 @@ import java.util.Arrays;
 import java.util.List;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import org.junit.Before;
 import org.junit.Test;
@@ -88,4 +94,90 @@ public class RiakMessageCodecTest
         assertArrayEquals(data, message.getData());
         
     }
+    
+    @Test
+    public void decodeSlicesInboundBuffer() throws Exception
+    {
+        RiakMessageCodec codec = new RiakMessageCodec();
+        List<Object> outList = new ArrayList<Object>();
+        Whitebox.invokeMethod(codec, "decode", mockContext, buffer, outList);
+        RiakMessage message = (RiakMessage) outList.get(0);
+        
+        // The message holds a reference to the inbound buffer until released
+        assertEquals(2, buffer.refCnt());
+        assertEquals(SIZE_DATA, message.getDataLength());
+        message.release();
+        assertEquals(1, buffer.refCnt());
+        
+        RiakMessage arrayMessage = new RiakMessage(code, data);
+        assertFalse(arrayMessage.release());
+    }
+    
+    @Test
+    public void reportsBytesToMetrics() throws Exception
+    {
+        RiakNode node = mock(RiakNode.class);
+        RiakMetrics metrics = mock(RiakMetrics.class);
+        RiakMessageCodec codec = new RiakMessageCodec(node, metrics);
+
+        ByteBuf out = Unpooled.buffer();
+        Whitebox.invokeMethod(codec, "encode", mockContext, new RiakMessage(code, data), out);
+        verify(metrics).bytesWritten(node, SIZE_DATA + SIZE_LENGTH + SIZE_CODE);
+
+        List<Object> outList = new ArrayList<Object>();
+        Whitebox.invokeMethod(codec, "decode", mockContext, out, outList);
+        verify(metrics).bytesRead(node, SIZE_DATA + SIZE_LENGTH + SIZE_CODE);
+        ((RiakMessage) outList.get(0)).release();
+        out.release();
+    }
+
+    @Test
+    public void encodesProtocolBuffersDirectly() throws Exception
+    {
+        RiakKvPB.RpbGetReq req = 
+            RiakKvPB.RpbGetReq.newBuilder()
+                .setBucket(ByteString.copyFromUtf8("bucket"))
+                .setKey(ByteString.copyFromUtf8("key"))
+                .build();
+        RiakMessage pbMessage = new RiakMessage(RiakMessageCodes.MSG_GetReq, req);
+        RiakMessageCodec codec = new RiakMessageCodec();
+        
+        for (ByteBuf out : Arrays.asList(Unpooled.buffer(), Unpooled.directBuffer()))
+        {
+            Whitebox.invokeMethod(codec, "encode", mockContext, pbMessage, out);
+            assertEquals(req.getSerializedSize() + SIZE_CODE, out.readInt());
+            assertEquals(RiakMessageCodes.MSG_GetReq, out.readByte());
+            byte[] encodedData = new byte[out.readableBytes()];
+            out.readBytes(encodedData);
+            assertArrayEquals(req.toByteArray(), encodedData);
+            out.release();
+        }
+    }
+    
+    @Test
+    public void parsesProtocolBuffersWithoutCopy() throws Exception
+    {
+        RiakKvPB.RpbGetResp resp = 
+            RiakKvPB.RpbGetResp.newBuilder()
+                .addContent(RiakKvPB.RpbContent.newBuilder()
+                                .setValue(ByteString.copyFromUtf8("This is a value!")))
+                .build();
+        
+        for (ByteBuf in : Arrays.asList(Unpooled.buffer(), Unpooled.directBuffer()))
+        {
+            in.writeInt(resp.getSerializedSize() + SIZE_CODE);
+            in.writeByte(RiakMessageCodes.MSG_GetResp);
+            in.writeBytes(resp.toByteArray());
+            
+            RiakMessageCodec codec = new RiakMessageCodec();
+            List<Object> outList = new ArrayList<Object>();
+            Whitebox.invokeMethod(codec, "decode", mockContext, in, outList);
+            RiakMessage message = (RiakMessage) outList.get(0);
+            
+            assertEquals(resp, message.parseData(RiakKvPB.RpbGetResp.PARSER));
+            message.release();
+            in.release();
+            assertEquals(0, in.refCnt());
+        }
+    }
 }
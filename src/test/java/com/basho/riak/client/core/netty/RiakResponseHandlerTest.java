@@ -83,4 +83,22 @@ public class RiakResponseHandlerTest
         verify(mockListener).onSuccess(mockChannel, message);
     }
     
+    @Test
+    public void releasesMessageAfterNotifyingListener() throws Exception
+    {
+        RiakMessage message = PowerMockito.mock(RiakMessage.class);
+        doReturn((byte)10).when(message).getCode();
+        doThrow(new IllegalStateException()).when(mockListener).onSuccess(mockChannel, message);
+        try
+        {
+            handler.channelRead(mockContext, message);
+        }
+        catch (IllegalStateException ex)
+        {
+            // expected
+        }
+        
+        verify(message).release();
+    }
+    
 }
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016 Basho Technologies Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.basho.riak.client.core.netty;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TransportTest
+{
+    @Test
+    public void autoPrefersEpoll()
+    {
+        if (Epoll.isAvailable())
+        {
+            assertEquals(Transport.EPOLL, Transport.AUTO.resolve());
+            assertEquals(EpollSocketChannel.class, Transport.AUTO.channelClass());
+        }
+        else
+        {
+            assertEquals(Transport.NIO, Transport.AUTO.resolve());
+            assertEquals(NioSocketChannel.class, Transport.AUTO.channelClass());
+        }
+    }
+
+    @Test
+    public void nioIsAlwaysAvailable()
+    {
+        assertTrue(Transport.NIO.isAvailable());
+        assertEquals(Transport.NIO, Transport.NIO.resolve());
+        assertEquals(NioSocketChannel.class, Transport.NIO.channelClass());
+    }
+
+    @Test
+    public void transportFollowsEventLoopGroup()
+    {
+        EventLoopGroup nio = new NioEventLoopGroup(1);
+        try
+        {
+            assertEquals(Transport.NIO, Transport.forEventLoopGroup(nio));
+            assertEquals(Transport.NIO, Transport.forEventLoopGroup(nio.next()));
+        }
+        finally
+        {
+            nio.shutdownGracefully();
+        }
+
+        if (Epoll.isAvailable())
+        {
+            EventLoopGroup epoll = new EpollEventLoopGroup(1);
+            try
+            {
+                assertEquals(Transport.EPOLL, Transport.forEventLoopGroup(epoll));
+                assertEquals(Transport.EPOLL, Transport.forEventLoopGroup(epoll.next()));
+            }
+            finally
+            {
+                epoll.shutdownGracefully();
+            }
+        }
+    }
+}